@@ -21,6 +21,7 @@
 package uk.co.petertribble.jprest;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
 import uk.co.petertribble.jproc.api.*;
 
 @Path("getLwpInfo/{pid}/{lwpid}")
@@ -45,4 +46,28 @@ public class LwpInfo {
 					 Integer.valueOf(lwpid));
 	return (jpi == null) ? "" : jpi.toJSON();
     }
+
+    /**
+     * Get info about the given lwp, in the compact binary form.
+     *
+     * @param pid the pid to report usage of, as a String
+     * @param lwpid the lwpid to report usage of, as a String
+     *
+     * @return a binary JProcLwpInfo for the given lwp
+     */
+    @GET
+    @Produces(BinaryWriter.MEDIA_TYPE + ";qs=0.5")
+    public StreamingOutput getLwpInfoBinary(
+			@PathParam("pid") final String pid,
+			@PathParam("lwpid") final String lwpid) {
+	return os -> {
+	    JProcLwpInfo jpi = JPROC.getInfo(Integer.valueOf(pid),
+				Integer.valueOf(lwpid));
+	    if (jpi != null) {
+		BinaryWriter bw = new BinaryWriter(os);
+		bw.write(jpi);
+		bw.flush();
+	    }
+	};
+    }
 }
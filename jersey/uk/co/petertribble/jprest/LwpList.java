@@ -22,6 +22,7 @@ package uk.co.petertribble.jprest;
 
 import java.util.Set;
 import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
 import uk.co.petertribble.jproc.api.*;
 
 @Path("getLwps/{pid}")
@@ -31,7 +32,9 @@ public class LwpList {
     static final JProc JPROC = new JProc();
 
     /**
-     * Get a list of lwps for the given process.
+     * Get a list of lwps for the given process. The list is written to
+     * the response as it is generated, and is null if the process
+     * doesn't exist.
      *
      * @param pid the pid to list the lwps of, as a String
      *
@@ -39,17 +42,41 @@ public class LwpList {
      */
     @GET
     @Produces("application/json")
-    public String getLwps(@PathParam("pid") final String pid) {
-	Set<JLwp> lwps = JPROC.getLwps(Integer.valueOf(pid));
-	if (lwps == null) {
-	    return "";
-	}
-	StringBuilder sb = new StringBuilder();
-	sb.append('[');
-	for (JLwp jlwp : lwps) {
-	    sb.append(jlwp.toJSON()).append(',');
-	}
-	sb.append(']');
-	return sb.toString();
+    public StreamingOutput getLwps(@PathParam("pid") final String pid) {
+	return os -> {
+	    Set<JLwp> lwps = JPROC.getLwps(Integer.valueOf(pid));
+	    JSONWriter jw = new JSONWriter(os);
+	    if (lwps == null) {
+		jw.value((String) null);
+	    } else {
+		jw.startArray();
+		for (JLwp jlwp : lwps) {
+		    jlwp.toJSON(jw);
+		}
+		jw.endArray();
+	    }
+	    jw.flush();
+	};
+    }
+
+    /**
+     * Get a list of lwps for the given process, in the compact binary
+     * form. The response is empty if the process doesn't exist.
+     *
+     * @param pid the pid to list the lwps of, as a String
+     *
+     * @return a binary list of lwps for the given process
+     */
+    @GET
+    @Produces(BinaryWriter.MEDIA_TYPE + ";qs=0.5")
+    public StreamingOutput getLwpsBinary(@PathParam("pid") final String pid) {
+	return os -> {
+	    Set<JLwp> lwps = JPROC.getLwps(Integer.valueOf(pid));
+	    if (lwps != null) {
+		BinaryWriter bw = new BinaryWriter(os);
+		bw.write(lwps);
+		bw.flush();
+	    }
+	};
     }
 }
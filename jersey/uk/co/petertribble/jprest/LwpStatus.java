@@ -21,6 +21,7 @@
 package uk.co.petertribble.jprest;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
 import uk.co.petertribble.jproc.api.*;
 
 @Path("getLwpStatus/{pid}/{lwpid}")
@@ -45,4 +46,28 @@ public class LwpStatus {
 					  Integer.valueOf(lwpid));
 	return (jps == null) ? "" : jps.toJSON();
     }
+
+    /**
+     * Get a status report for the given lwp, in the compact binary form.
+     *
+     * @param pid the pid to report usage of, as a String
+     * @param lwpid the lwpid to report usage of, as a String
+     *
+     * @return a binary JProcLwpStatus for the given lwp
+     */
+    @GET
+    @Produces(BinaryWriter.MEDIA_TYPE + ";qs=0.5")
+    public StreamingOutput getLwpStatusBinary(
+			@PathParam("pid") final String pid,
+			@PathParam("lwpid") final String lwpid) {
+	return os -> {
+	    JProcLwpStatus jps = JPROC.getStatus(Integer.valueOf(pid),
+				Integer.valueOf(lwpid));
+	    if (jps != null) {
+		BinaryWriter bw = new BinaryWriter(os);
+		bw.write(jps);
+		bw.flush();
+	    }
+	};
+    }
 }
@@ -21,6 +21,7 @@
 package uk.co.petertribble.jprest;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
 import uk.co.petertribble.jproc.api.*;
 
 @Path("getLwpUsage/{pid}/{lwpid}")
@@ -45,4 +46,28 @@ public class LwpUsage {
 					Integer.valueOf(lwpid));
 	return (jpu == null) ? "" : jpu.toJSON();
     }
+
+    /**
+     * Get the usage of the given lwp, in the compact binary form.
+     *
+     * @param pid the pid to report usage of, as a String
+     * @param lwpid the lwpid to report usage of, as a String
+     *
+     * @return a binary JProcUsage for the given lwp
+     */
+    @GET
+    @Produces(BinaryWriter.MEDIA_TYPE + ";qs=0.5")
+    public StreamingOutput getLwpUsageBinary(
+			@PathParam("pid") final String pid,
+			@PathParam("lwpid") final String lwpid) {
+	return os -> {
+	    JProcUsage jpu = JPROC.getUsage(Integer.valueOf(pid),
+				Integer.valueOf(lwpid));
+	    if (jpu != null) {
+		BinaryWriter bw = new BinaryWriter(os);
+		bw.write(jpu);
+		bw.flush();
+	    }
+	};
+    }
 }
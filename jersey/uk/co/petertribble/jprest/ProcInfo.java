@@ -21,6 +21,7 @@
 package uk.co.petertribble.jprest;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
 import uk.co.petertribble.jproc.api.*;
 
 @Path("getInfo/{pid}")
@@ -42,4 +43,24 @@ public class ProcInfo {
 	JProcInfo jpi = JPROC.getInfo(Integer.valueOf(pid));
 	return (jpi == null) ? "" : jpi.toJSON();
     }
+
+    /**
+     * Get info about the given process, in the compact binary form.
+     *
+     * @param pid the pid to report usage of, as a String
+     *
+     * @return a binary JProcInfo for the given process
+     */
+    @GET
+    @Produces(BinaryWriter.MEDIA_TYPE + ";qs=0.5")
+    public StreamingOutput getInfoBinary(@PathParam("pid") final String pid) {
+	return os -> {
+	    JProcInfo jpi = JPROC.getInfo(Integer.valueOf(pid));
+	    if (jpi != null) {
+		BinaryWriter bw = new BinaryWriter(os);
+		bw.write(jpi);
+		bw.flush();
+	    }
+	};
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jprest;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
+import uk.co.petertribble.jproc.server.JProcServer;
+
+@Path("getInfos/{pids}")
+
+public class ProcInfos {
+
+    static final JProcServer SERVER = new JProcServer();
+
+    /**
+     * Get information about the given pids.
+     *
+     * @param pids the pids to report on, as a comma separated String
+     *
+     * @return a JSON formatted list of JProcInfo for the given pids
+     */
+    @GET
+    @Produces("application/json")
+    public StreamingOutput getInfos(@PathParam("pids") final String pids) {
+	return os -> SERVER.writeInfos(pids, os);
+    }
+}
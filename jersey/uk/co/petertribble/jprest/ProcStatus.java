@@ -21,6 +21,7 @@
 package uk.co.petertribble.jprest;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
 import uk.co.petertribble.jproc.api.*;
 
 @Path("getStatus/{pid}")
@@ -42,4 +43,26 @@ public class ProcStatus {
 	JProcStatus jps = JPROC.getStatus(Integer.valueOf(pid));
 	return (jps == null) ? "" : jps.toJSON();
     }
+
+    /**
+     * Get a status report for the given process, in the compact binary
+     * form.
+     *
+     * @param pid the pid to report status of, as a String
+     *
+     * @return a binary JProcStatus for the given pid
+     */
+    @GET
+    @Produces(BinaryWriter.MEDIA_TYPE + ";qs=0.5")
+    public StreamingOutput getStatusBinary(
+			@PathParam("pid") final String pid) {
+	return os -> {
+	    JProcStatus jps = JPROC.getStatus(Integer.valueOf(pid));
+	    if (jps != null) {
+		BinaryWriter bw = new BinaryWriter(os);
+		bw.write(jps);
+		bw.flush();
+	    }
+	};
+    }
 }
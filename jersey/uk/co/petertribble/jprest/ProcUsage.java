@@ -21,6 +21,7 @@
 package uk.co.petertribble.jprest;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
 import uk.co.petertribble.jproc.api.*;
 
 @Path("getUsage/{pid}")
@@ -42,4 +43,24 @@ public class ProcUsage {
 	JProcUsage jpu = JPROC.getUsage(Integer.valueOf(pid));
 	return (jpu == null) ? "" : jpu.toJSON();
     }
+
+    /**
+     * Get the usage of the given pid, in the compact binary form.
+     *
+     * @param pid the pid to report usage of, as a String
+     *
+     * @return a binary JProcUsage for the given pid
+     */
+    @GET
+    @Produces(BinaryWriter.MEDIA_TYPE + ";qs=0.5")
+    public StreamingOutput getUsageBinary(@PathParam("pid") final String pid) {
+	return os -> {
+	    JProcUsage jpu = JPROC.getUsage(Integer.valueOf(pid));
+	    if (jpu != null) {
+		BinaryWriter bw = new BinaryWriter(os);
+		bw.write(jpu);
+		bw.flush();
+	    }
+	};
+    }
 }
@@ -21,6 +21,7 @@
 package uk.co.petertribble.jprest;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
 import uk.co.petertribble.jproc.api.*;
 
 @Path("getProcesses")
@@ -30,19 +31,37 @@ public class ProcessList {
     static final JProc JPROC = new JProc();
 
     /**
-     * Get a list of processes.
+     * Get a list of processes. The list is written to the response as it
+     * is generated, rather than being built up in memory first.
      *
      * @return a JSON formatted list of JProcInfo
      */
     @GET
     @Produces("application/json")
-    public String getProcesses() {
-	StringBuilder sb = new StringBuilder();
-	sb.append('[');
-	for (JProcess jp : JPROC.getProcesses()) {
-	    sb.append(JPROC.getInfo(jp).toJSON()).append(",\n");
-	}
-	sb.append(']');
-	return sb.toString();
+    public StreamingOutput getProcesses() {
+	return os -> {
+	    ProcessSnapshot snap = new ProcessSnapshot();
+	    JPROC.getSnapshot(snap);
+	    JSONWriter jw = new JSONWriter(os);
+	    jw.write(snap);
+	    jw.flush();
+	};
+    }
+
+    /**
+     * Get a list of processes, in the compact binary form.
+     *
+     * @return a binary a list of processes
+     */
+    @GET
+    @Produces(BinaryWriter.MEDIA_TYPE + ";qs=0.5")
+    public StreamingOutput getProcessesBinary() {
+	return os -> {
+	    ProcessSnapshot snap = new ProcessSnapshot();
+	    JPROC.getSnapshot(snap);
+	    BinaryWriter bw = new BinaryWriter(os);
+	    bw.write(snap);
+	    bw.flush();
+	};
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jprest;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
+import uk.co.petertribble.jproc.server.JProcServer;
+
+@Path("getProcessesSince/{generation}")
+
+public class ProcessListSince {
+
+    /*
+     * The core server holds the history of snapshots that the changes
+     * are calculated from.
+     */
+    static final JProcServer SERVER = new JProcServer();
+
+    /**
+     * Get the changes to the list of processes since the given generation,
+     * or the full list if that generation is no longer held.
+     *
+     * @param generation the generation last seen by the client, as a
+     * String
+     *
+     * @return a JSON formatted description of the processes
+     */
+    @GET
+    @Produces("application/json")
+    public StreamingOutput getProcessesSince(
+		@PathParam("generation") final String generation) {
+	return os -> SERVER.writeProcessesSince(generation, os);
+    }
+}
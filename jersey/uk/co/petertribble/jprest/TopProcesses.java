@@ -0,0 +1,74 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jprest;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.StreamingOutput;
+import uk.co.petertribble.jproc.server.JProcServer;
+
+@Path("getTopN/{key}/{n}")
+
+public class TopProcesses {
+
+    /*
+     * The query is evaluated by the core server, which holds the history
+     * that rates are calculated from.
+     */
+    static final JProcServer SERVER = new JProcServer();
+
+    /**
+     * Get the processes ranked highest by the given measure.
+     *
+     * @param key the measure to rank by, as a String
+     * @param n the number of processes wanted, as a String
+     *
+     * @return a JSON formatted list of TopN entries
+     */
+    @GET
+    @Produces("application/json")
+    public StreamingOutput getTopN(@PathParam("key") final String key,
+				@PathParam("n") final String n) {
+	return os -> SERVER.writeTopN(Integer.parseInt(key),
+				Integer.parseInt(n), os);
+    }
+
+    /**
+     * Get the processes ranked highest by the given measure, with rates
+     * over approximately the given interval.
+     *
+     * @param key the measure to rank by, as a String
+     * @param n the number of processes wanted, as a String
+     * @param interval the interval since the client's previous query, in
+     * milliseconds, as a String
+     *
+     * @return a JSON formatted list of TopN entries
+     */
+    @GET
+    @Path("{interval}")
+    @Produces("application/json")
+    public StreamingOutput getTopN(@PathParam("key") final String key,
+				@PathParam("n") final String n,
+				@PathParam("interval") final String interval) {
+	return os -> SERVER.writeTopN(Integer.parseInt(key),
+				Integer.parseInt(n),
+				Integer.parseInt(interval), os);
+    }
+}
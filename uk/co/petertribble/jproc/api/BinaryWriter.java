@@ -0,0 +1,376 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes process information to an OutputStream in a compact binary form,
+ * as an alternative to JSON for clients that ask for it.
+ *
+ * <p>Each message starts with a header of the bytes 'J' and 'P', the
+ * version, and the type of message, and holds either a single record or
+ * a count followed by that many records. The fields of each record are
+ * written in a fixed order, by the record's toBinary() method, without
+ * names. Numbers are written as variable length integers, signed values
+ * zigzag encoded, so that small values take a single byte. Each pid is
+ * written as the difference from the previous pid in the message, so a
+ * list sorted by pid takes a byte or two per pid. Strings, such as
+ * process names, and ids, such as uids, are dictionary coded: the first
+ * occurrence of a value in a message is written in full, and later ones
+ * as its index in the dictionary.
+ *
+ * <p>A BinaryWriter isn't thread safe.
+ *
+ * @author Peter Tribble
+ */
+public final class BinaryWriter {
+
+    /**
+     * The media type of the binary form, used for content negotiation.
+     */
+    public static final String MEDIA_TYPE = "application/x-jproc";
+
+    /**
+     * The version of the binary form written.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * A message holding a list of JProcInfo.
+     */
+    public static final int PROCESSES = 1;
+
+    /**
+     * A message holding a JProcInfo.
+     */
+    public static final int INFO = 2;
+
+    /**
+     * A message holding a JProcUsage.
+     */
+    public static final int USAGE = 3;
+
+    /**
+     * A message holding a JProcStatus.
+     */
+    public static final int STATUS = 4;
+
+    /**
+     * A message holding a list of JLwp.
+     */
+    public static final int LWPS = 5;
+
+    /**
+     * A message holding a JProcLwpStatus.
+     */
+    public static final int LWP_STATUS = 6;
+
+    /**
+     * A message holding a JProcLwpInfo.
+     */
+    public static final int LWP_INFO = 7;
+
+    /**
+     * The most entries in each dictionary. Values beyond that are always
+     * written in full.
+     */
+    public static final int MAX_DICTIONARY = 4096;
+
+    private static final int DEFAULT_BUFSIZE = 8192;
+
+    /*
+     * The longest variable length integer, 64 bits in groups of 7.
+     */
+    private static final int MAX_VARINT = 10;
+
+    private final OutputStream os;
+    private final byte[] buf;
+    private int pos;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Integer, Integer> ids = new HashMap<>();
+    private int lastPid;
+
+    /**
+     * Create a BinaryWriter with a buffer of the default size.
+     *
+     * @param nos the OutputStream to write to
+     */
+    public BinaryWriter(final OutputStream nos) {
+	this(nos, DEFAULT_BUFSIZE);
+    }
+
+    /**
+     * Create a BinaryWriter.
+     *
+     * @param nos the OutputStream to write to
+     * @param bufsize the size of the buffer, at least 32 bytes
+     */
+    public BinaryWriter(final OutputStream nos, final int bufsize) {
+	os = nos;
+	buf = new byte[Math.max(bufsize, 32)];
+    }
+
+    /**
+     * Start a message, writing its header. The dictionaries and the
+     * previous pid are reset, so each message can be decoded on its own.
+     *
+     * @param type the type of message, such as PROCESSES
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void start(final int type) throws IOException {
+	strings.clear();
+	ids.clear();
+	lastPid = 0;
+	ensure(4);
+	buf[pos++] = 'J';
+	buf[pos++] = 'P';
+	buf[pos++] = VERSION;
+	buf[pos++] = (byte) type;
+    }
+
+    /**
+     * Write a message holding information on all the processes in a
+     * snapshot, in pid order.
+     *
+     * @param snap the ProcessSnapshot to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void write(final ProcessSnapshot snap) throws IOException {
+	JProcInfo jpi = new JProcInfo();
+	start(PROCESSES);
+	int n = snap.size();
+	writeUnsigned(n);
+	for (int k = 0; k < n; k++) {
+	    snap.getInfo(snap.getSortedRow(k), jpi);
+	    jpi.toBinary(this);
+	}
+    }
+
+    /**
+     * Write a message holding a JProcInfo.
+     *
+     * @param jpi the JProcInfo to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void write(final JProcInfo jpi) throws IOException {
+	start(INFO);
+	jpi.toBinary(this);
+    }
+
+    /**
+     * Write a message holding a JProcUsage.
+     *
+     * @param jpu the JProcUsage to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void write(final JProcUsage jpu) throws IOException {
+	start(USAGE);
+	jpu.toBinary(this);
+    }
+
+    /**
+     * Write a message holding a JProcStatus.
+     *
+     * @param jps the JProcStatus to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void write(final JProcStatus jps) throws IOException {
+	start(STATUS);
+	jps.toBinary(this);
+    }
+
+    /**
+     * Write a message holding a list of lwps.
+     *
+     * @param lwps the JLwps to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void write(final Collection<JLwp> lwps) throws IOException {
+	start(LWPS);
+	writeUnsigned(lwps.size());
+	for (JLwp jlwp : lwps) {
+	    writePid(jlwp.getPid());
+	    writeLong(jlwp.getLWPid());
+	}
+    }
+
+    /**
+     * Write a message holding a JProcLwpStatus.
+     *
+     * @param jpls the JProcLwpStatus to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void write(final JProcLwpStatus jpls) throws IOException {
+	start(LWP_STATUS);
+	jpls.toBinary(this);
+    }
+
+    /**
+     * Write a message holding a JProcLwpInfo.
+     *
+     * @param jpli the JProcLwpInfo to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void write(final JProcLwpInfo jpli) throws IOException {
+	start(LWP_INFO);
+	jpli.toBinary(this);
+    }
+
+    /**
+     * Write a value that isn't negative, such as a count.
+     *
+     * @param value the value to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeUnsigned(final long value) throws IOException {
+	ensure(MAX_VARINT);
+	long v = value;
+	while ((v & ~0x7fL) != 0) {
+	    buf[pos++] = (byte) ((v & 0x7f) | 0x80);
+	    v >>>= 7;
+	}
+	buf[pos++] = (byte) v;
+    }
+
+    /**
+     * Write a value that may be negative.
+     *
+     * @param value the value to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeLong(final long value) throws IOException {
+	writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Write a pid, as the difference from the previous pid written in
+     * this message.
+     *
+     * @param pid the pid to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writePid(final int pid) throws IOException {
+	writeLong((long) pid - lastPid);
+	lastPid = pid;
+    }
+
+    /**
+     * Write an id, such as a uid, that is likely to be repeated. An id
+     * already in the dictionary is written as 1 more than its index, and
+     * a new one as 0 followed by its value.
+     *
+     * @param id the id to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeId(final int id) throws IOException {
+	Integer index = ids.get(id);
+	if (index != null) {
+	    writeUnsigned(index + 1L);
+	    return;
+	}
+	writeUnsigned(0);
+	writeLong(id);
+	if (ids.size() < MAX_DICTIONARY) {
+	    ids.put(id, ids.size());
+	}
+    }
+
+    /**
+     * Write a string, which may be null, that is likely to be repeated. A
+     * string already in the dictionary is written as 2 more than its
+     * index, null as 1, and a new string as 0 followed by its length and
+     * its bytes in UTF-8.
+     *
+     * @param s the string to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeString(final String s) throws IOException {
+	if (s == null) {
+	    writeUnsigned(1);
+	    return;
+	}
+	Integer index = strings.get(s);
+	if (index != null) {
+	    writeUnsigned(index + 2L);
+	    return;
+	}
+	byte[] b = s.getBytes(StandardCharsets.UTF_8);
+	writeUnsigned(0);
+	writeUnsigned(b.length);
+	if (b.length > buf.length - pos) {
+	    drain();
+	    os.write(b);
+	} else {
+	    System.arraycopy(b, 0, buf, pos, b.length);
+	    pos += b.length;
+	}
+	if (strings.size() < MAX_DICTIONARY) {
+	    strings.put(s, strings.size());
+	}
+    }
+
+    /**
+     * Write any buffered output to the OutputStream, and flush it.
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void flush() throws IOException {
+	drain();
+	os.flush();
+    }
+
+    /*
+     * Make room for n bytes in the buffer, writing out what's there if
+     * necessary.
+     */
+    private void ensure(final int n) throws IOException {
+	if (pos + n > buf.length) {
+	    drain();
+	}
+    }
+
+    private void drain() throws IOException {
+	if (pos > 0) {
+	    os.write(buf, 0, pos);
+	    pos = 0;
+	}
+    }
+}
@@ -20,6 +20,8 @@
 
 package uk.co.petertribble.jproc.api;
 
+import java.io.IOException;
+
 /**
  * A class for representing a Solaris lwp.
  *
@@ -66,11 +68,21 @@ public final class JLwp {
      * {@code JLwp}.
      */
     public String toJSON() {
-	StringBuilder sb = new StringBuilder(28);
-	sb.append("{\"pid\":").append(pid)
-	    .append(",\"lwpid\":").append(lwpid)
-	    .append('}');
-	return sb.toString();
+	return JSONWriter.toString(this::toJSON, 32);
+    }
+
+    /**
+     * Write a JSON representation of this {@code JLwp}.
+     *
+     * @param jw the JSONWriter to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void toJSON(final JSONWriter jw) throws IOException {
+	jw.startObject();
+	jw.field("pid", pid);
+	jw.field("lwpid", lwpid);
+	jw.endObject();
     }
 
     /**
@@ -21,8 +21,10 @@
 package uk.co.petertribble.jproc.api;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import uk.co.petertribble.jproc.client.JsonJProc;
 import uk.co.petertribble.jproc.client.PClientConfig;
@@ -44,24 +46,41 @@ public class JProc implements Serializable {
     private transient ProcessInterface njp;
 
     /*
-     * Maps to cache id to name lookups, to avoid going into native code
+     * Caches of id to name lookups, to avoid going into native code
      * repeatedly. We also have methods to convert name to id, but those
      * aren't cached. The reason for this is that everything internal is
      * coded to use the id. The normal usage pattern is expected to be that
      * you convert from name to id once, and do a lot of work using the id,
      * but that the id is converted many times to a name for presentation.
+     * The caches may be used from several threads, and their entries
+     * expire. Zone ids are reused when zones reboot, so zone names are
+     * kept for a shorter time.
      */
-    private final transient Map<Integer, String> umap = new HashMap<>();
-    private final transient Map<Integer, String> gmap = new HashMap<>();
-    private final transient Map<Integer, String> projmap = new HashMap<>();
-    private final transient Map<Integer, String> zmap = new HashMap<>();
+    private final transient NameCache ucache =
+	new NameCache(id -> njp.getUserName(id));
+    private final transient NameCache gcache =
+	new NameCache(id -> njp.getGroupName(id));
+    private final transient NameCache projcache =
+	new NameCache(id -> njp.getProjectName(id));
+    private final transient NameCache zcache =
+	new NameCache(id -> njp.getZoneName(id), ZONE_TTL,
+		NameCache.DEFAULT_MISS_TTL);
+
+    private static final long ZONE_TTL = 60000L;
+
+    /*
+     * If set, bulk collection is split across the worker threads of
+     * this collector.
+     */
+    private transient volatile ParallelCollector collector;
 
     /**
      * Create a new JProc object, that can be queried for information about
-     * processes.
+     * processes on the local system. On Linux this uses the pure java
+     * LinuxJProc, otherwise the native interface to /proc.
      */
     public JProc() {
-	this(new NativeJProc());
+	this(isLinux() ? new LinuxJProc() : new NativeJProc());
     }
 
     /**
@@ -70,7 +89,7 @@ public class JProc implements Serializable {
      *
      * @param njproc a ProcessInterface to query for process information
      */
-    public JProc(final NativeJProc njproc) {
+    public JProc(final ProcessInterface njproc) {
 	njp = njproc;
     }
 
@@ -90,6 +109,39 @@ public class JProc implements Serializable {
 	}
     }
 
+    private static boolean isLinux() {
+	return "Linux".equals(System.getProperty("os.name"));
+    }
+
+    /**
+     * Set the number of threads used to collect information on all
+     * processes. With a parallelism greater than 1 the process list is
+     * split into chunks read concurrently by a pool of worker threads,
+     * which helps on systems with many processes and many cpus. A
+     * parallelism of 1, the default, reads everything in the calling
+     * thread and stops any worker threads.
+     *
+     * @param parallelism the number of threads to use
+     */
+    public synchronized void setParallelism(final int parallelism) {
+	if (collector != null) {
+	    collector.shutdown();
+	}
+	collector = (parallelism > 1)
+	    ? new ParallelCollector(njp, parallelism) : null;
+    }
+
+    /**
+     * Return the number of threads used to collect information on all
+     * processes.
+     *
+     * @return the current parallelism
+     */
+    public int getParallelism() {
+	ParallelCollector pc = collector;
+	return (pc == null) ? 1 : pc.getParallelism();
+    }
+
     /**
      * Return a Set of all processes in the system.
      *
@@ -99,6 +151,72 @@ public class JProc implements Serializable {
 	return njp.getProcesses();
     }
 
+    /**
+     * Return information on all processes in the system, retrieved in a
+     * single bulk operation.
+     *
+     * @return A List of JProcInfo objects, one for each process running
+     * on the system.
+     */
+    public List<JProcInfo> getSnapshot() {
+	ParallelCollector pc = collector;
+	if (pc == null) {
+	    return njp.getSnapshot();
+	}
+	ProcessSnapshot snap = new ProcessSnapshot();
+	pc.getSnapshot(snap);
+	List<JProcInfo> lpi = new ArrayList<>(snap.size());
+	for (int row = 0; row < snap.size(); row++) {
+	    lpi.add(snap.getInfo(row));
+	}
+	return lpi;
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system. The snapshot may be reused across calls, avoiding
+     * per-process allocation.
+     *
+     * @param snap the ProcessSnapshot to populate
+     */
+    public void getSnapshot(final ProcessSnapshot snap) {
+	ParallelCollector pc = collector;
+	if (pc == null) {
+	    njp.getSnapshot(snap);
+	} else {
+	    pc.getSnapshot(snap);
+	}
+    }
+
+    /**
+     * Return the processes ranked highest by the given measure. Rates
+     * need a previous evaluation to compare against, so should be
+     * queried with a TopN that is kept and reused.
+     *
+     * @param key the measure to rank by, such as TopN.RSS
+     * @param n the number of processes wanted
+     *
+     * @return a List of at most n processes, highest first
+     */
+    public List<TopN.Entry> getTopN(final int key, final int n) {
+	return getTopN(new TopN(key, n));
+    }
+
+    /**
+     * Evaluate a TopN query, returning the processes ranked highest by
+     * its measure. Against a remote server the query is evaluated by the
+     * server, in a single request, and rates are over approximately the
+     * interval since the query was last sent, as described in
+     * {@link ProcessInterface#getTopN(TopN)}.
+     *
+     * @param topn the query to evaluate
+     *
+     * @return a List of the leading processes, highest first
+     */
+    public List<TopN.Entry> getTopN(final TopN topn) {
+	return njp.getTopN(topn);
+    }
+
     /**
      * Return a Set of JLwp objects representing the lwps in the given process.
      * If the process no longer exists, returns null
@@ -204,6 +322,37 @@ public class JProc implements Serializable {
 	return njp.getInfo(pid);
     }
 
+    /**
+     * Update Information on the given process, populating an existing
+     * JProcInfo rather than creating a new one. Only the given JProcInfo
+     * is written: it remains the caller's, and doesn't replace the cached
+     * information of the JProcess, which the JProcessSet the process came
+     * from keeps up to date.
+     *
+     * @param jp the JProcess to query
+     * @param jpi the JProcInfo to populate
+     *
+     * @return true if jpi was populated, false if this process no longer
+     * exists.
+     */
+    public boolean getInfo(final JProcess jp, final JProcInfo jpi) {
+	return njp.getInfo(jp.getPid(), jpi);
+    }
+
+    /**
+     * Update Information on the given process, populating an existing
+     * JProcInfo rather than creating a new one.
+     *
+     * @param pid the pid of the process to query
+     * @param jpi the JProcInfo to populate
+     *
+     * @return true if jpi was populated, false if this process no longer
+     * exists.
+     */
+    public boolean getInfo(final int pid, final JProcInfo jpi) {
+	return njp.getInfo(pid, jpi);
+    }
+
     /**
      * Return Information on the given lwp.
      *
@@ -253,6 +402,120 @@ public class JProc implements Serializable {
 	return njp.getUsage(pid);
     }
 
+    /**
+     * Update Usage of the given process, populating an existing JProcUsage
+     * rather than creating a new one.
+     *
+     * @param jp the JProcess to query
+     * @param jpu the JProcUsage to populate
+     *
+     * @return true if jpu was populated, false if this process no longer
+     * exists.
+     */
+    public boolean getUsage(final JProcess jp, final JProcUsage jpu) {
+	return getUsage(jp.getPid(), jpu);
+    }
+
+    /**
+     * Update Usage of the given process, populating an existing JProcUsage
+     * rather than creating a new one.
+     *
+     * @param pid the pid of the process to query
+     * @param jpu the JProcUsage to populate
+     *
+     * @return true if jpu was populated, false if this process no longer
+     * exists.
+     */
+    public boolean getUsage(final int pid, final JProcUsage jpu) {
+	return njp.getUsage(pid, jpu);
+    }
+
+    /**
+     * Update Usage of the given processes, populating existing JProcUsage
+     * objects. The lists must be the same size, the usage of each process
+     * being written to the JProcUsage at the same position. If the
+     * parallelism is greater than 1 the processes are split across the
+     * worker threads.
+     *
+     * @param procs the JProcesses to query
+     * @param jpus the JProcUsage objects to populate
+     *
+     * @return an array indicating, for each process, whether its usage
+     * was populated, being false if the process no longer exists.
+     */
+    public boolean[] getUsage(final List<JProcess> procs,
+			      final List<JProcUsage> jpus) {
+	int n = procs.size();
+	int[] pids = new int[n];
+	for (int i = 0; i < n; i++) {
+	    pids[i] = procs.get(i).getPid();
+	}
+	boolean[] found = new boolean[n];
+	getUsage(pids, jpus.toArray(new JProcUsage[n]), found);
+	return found;
+    }
+
+    /**
+     * Update Usage of the given processes, populating existing JProcUsage
+     * objects. The arrays must be the same size, the usage of each process
+     * being written to the JProcUsage at the same position. If the
+     * parallelism is greater than 1 the processes are split across the
+     * worker threads.
+     *
+     * @param pids the pids of the processes to query
+     * @param jpus the JProcUsage objects to populate
+     * @param found set to true for each process whose usage was
+     * populated, and false if the process no longer exists
+     */
+    public void getUsage(final int[] pids, final JProcUsage[] jpus,
+			 final boolean[] found) {
+	ParallelCollector pc = collector;
+	if (pc == null) {
+	    njp.getUsage(pids, 0, pids.length, jpus, found);
+	} else {
+	    pc.getUsage(pids, jpus, found);
+	}
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system, and read the usage of each of them. The usage of the
+     * process in each row of the snapshot is written to the JProcUsage at
+     * the same position in the List, which is extended as necessary. For
+     * a remote JProc this is a single request.
+     *
+     * @param snap the ProcessSnapshot to populate
+     * @param jpus the JProcUsage objects to populate
+     */
+    public void getProcessesWithUsage(final ProcessSnapshot snap,
+				      final List<JProcUsage> jpus) {
+	njp.getProcessesWithUsage(snap, jpus);
+    }
+
+    /**
+     * Return whether this JProc queries a remote server, in which case
+     * callers should prefer the methods that query many processes at once.
+     *
+     * @return true if this JProc queries a remote server
+     */
+    public boolean isRemote() {
+	return njp.isRemote();
+    }
+
+    /**
+     * Update Usage of the given lwp, populating an existing JProcUsage
+     * rather than creating a new one.
+     *
+     * @param jlwp the JLwp to query
+     * @param jpu the JProcUsage to populate
+     *
+     * @return true if jpu was populated, false if this process or lwp no
+     * longer exists.
+     */
+    public boolean getUsage(final JLwp jlwp, final JProcUsage jpu) {
+	return njp.getLwpUsage(jlwp.getPid(), jlwp.getLWPid(), jpu);
+    }
+
     /**
      * Return Usage of the given lwp.
      *
@@ -278,6 +541,76 @@ public class JProc implements Serializable {
 	return njp.getLwpUsage(pid, lwpid);
     }
 
+    /**
+     * Return Usage of all the lwps in the given process, retrieved in a
+     * single operation.
+     *
+     * @param jp the JProcess to query
+     *
+     * @return A List of JProcUsage objects, one for each lwp in the
+     * process, or null if this process no longer exists.
+     */
+    public List<JProcUsage> getAllLwpUsage(final JProcess jp) {
+	return getAllLwpUsage(jp.getPid());
+    }
+
+    /**
+     * Return Usage of all the lwps in the given process, retrieved in a
+     * single operation.
+     *
+     * @param pid the pid of the process to query
+     *
+     * @return A List of JProcUsage objects, one for each lwp in the
+     * process, or null if this process no longer exists.
+     */
+    public List<JProcUsage> getAllLwpUsage(final int pid) {
+	return njp.getAllLwpUsage(pid);
+    }
+
+    /**
+     * Return Usage of all the lwps in the given process, retrieved in a
+     * single operation, populating existing JProcUsage objects. The first
+     * entries of the list are filled, and the list is extended if it is
+     * too short; it is never shortened, so entries beyond those filled are
+     * left for reuse.
+     *
+     * @param jp the JProcess to query
+     * @param jpus the JProcUsage objects to populate
+     *
+     * @return the number of lwps whose usage was read, or -1 if this
+     * process no longer exists.
+     */
+    public int getAllLwpUsage(final JProcess jp,
+				final List<JProcUsage> jpus) {
+	return njp.getAllLwpUsage(jp.getPid(), jpus);
+    }
+
+    /**
+     * Return Information on all the lwps in the given process, retrieved
+     * in a single operation.
+     *
+     * @param jp the JProcess to query
+     *
+     * @return A List of JProcLwpInfo objects, one for each lwp in the
+     * process, or null if this process no longer exists.
+     */
+    public List<JProcLwpInfo> getAllLwpInfo(final JProcess jp) {
+	return getAllLwpInfo(jp.getPid());
+    }
+
+    /**
+     * Return Information on all the lwps in the given process, retrieved
+     * in a single operation.
+     *
+     * @param pid the pid of the process to query
+     *
+     * @return A List of JProcLwpInfo objects, one for each lwp in the
+     * process, or null if this process no longer exists.
+     */
+    public List<JProcLwpInfo> getAllLwpInfo(final int pid) {
+	return njp.getAllLwpInfo(pid);
+    }
+
     /**
      * Return the user name corresponding to a given numeric uid. These are
      * cached to avoid frequent excursions into native code.
@@ -287,11 +620,7 @@ public class JProc implements Serializable {
      * @return The user name, or the userid if no username matches.
      */
     public String getUserName(final int uid) {
-	if (!umap.containsKey(uid)) {
-	    String name = njp.getUserName(uid);
-	    umap.put(uid, (name == null) ? Integer.toString(uid) : name);
-	}
-	return umap.get(uid);
+	return nameOrId(ucache.get(uid), uid);
     }
 
     /**
@@ -314,11 +643,7 @@ public class JProc implements Serializable {
      * @return The group name, or the groupid if no group matches.
      */
     public String getGroupName(final int gid) {
-	if (!gmap.containsKey(gid)) {
-	    String name = njp.getGroupName(gid);
-	    gmap.put(gid, (name == null) ? Integer.toString(gid) : name);
-	}
-	return gmap.get(gid);
+	return nameOrId(gcache.get(gid), gid);
     }
 
     /**
@@ -341,12 +666,7 @@ public class JProc implements Serializable {
      * @return The project name, or the project id if no project matches.
      */
     public String getProjectName(final int projid) {
-	if (!projmap.containsKey(projid)) {
-	    String name = njp.getProjectName(projid);
-	    projmap.put(projid,
-			(name == null) ? Integer.toString(projid) : name);
-	}
-	return projmap.get(projid);
+	return nameOrId(projcache.get(projid), projid);
     }
 
     /**
@@ -369,11 +689,118 @@ public class JProc implements Serializable {
      * @return The zone name, or the zone id if no zone matches.
      */
     public String getZoneName(final int zoneid) {
-	if (!zmap.containsKey(zoneid)) {
-	    String name = njp.getZoneName(zoneid);
-	    zmap.put(zoneid, (name == null) ? Integer.toString(zoneid) : name);
+	return nameOrId(zcache.get(zoneid), zoneid);
+    }
+
+    /*
+     * If a lookup finds no name, the id is used as the name.
+     */
+    private static String nameOrId(final String name, final int id) {
+	return (name == null) ? Integer.toString(id) : name;
+    }
+
+    /**
+     * Return the cache of user names, so that its time to live and size
+     * can be adjusted.
+     *
+     * @return the NameCache used by getUserName()
+     */
+    public NameCache getUserNameCache() {
+	return ucache;
+    }
+
+    /**
+     * Return the cache of group names, so that its time to live and size
+     * can be adjusted.
+     *
+     * @return the NameCache used by getGroupName()
+     */
+    public NameCache getGroupNameCache() {
+	return gcache;
+    }
+
+    /**
+     * Return the cache of project names, so that its time to live and size
+     * can be adjusted.
+     *
+     * @return the NameCache used by getProjectName()
+     */
+    public NameCache getProjectNameCache() {
+	return projcache;
+    }
+
+    /**
+     * Return the cache of zone names, so that its time to live and size
+     * can be adjusted.
+     *
+     * @return the NameCache used by getZoneName()
+     */
+    public NameCache getZoneNameCache() {
+	return zcache;
+    }
+
+    /**
+     * Look up the names of all the users, groups, projects, and zones
+     * that currently own processes, so that later name lookups are
+     * satisfied from the caches.
+     */
+    public void preloadNames() {
+	ProcessSnapshot snap = new ProcessSnapshot();
+	getSnapshot(snap);
+	preloadNames(snap);
+    }
+
+    /**
+     * Look up the names of all the users, groups, projects, and zones
+     * of the processes in the given snapshot, in a single pass, so that
+     * later name lookups are satisfied from the caches. User and group
+     * names are looked up in bulk.
+     *
+     * @param snap the ProcessSnapshot whose processes are to be examined
+     */
+    public void preloadNames(final ProcessSnapshot snap) {
+	Set<Integer> uids = new HashSet<>();
+	Set<Integer> gids = new HashSet<>();
+	Set<Integer> projids = new HashSet<>();
+	Set<Integer> zoneids = new HashSet<>();
+	for (int row = 0; row < snap.size(); row++) {
+	    uids.add(snap.getuid(row));
+	    uids.add(snap.geteuid(row));
+	    gids.add(snap.getgid(row));
+	    gids.add(snap.getegid(row));
+	    projids.add(snap.getprojid(row));
+	    zoneids.add(snap.getzoneid(row));
+	}
+	int[] ids = uncached(ucache, uids);
+	String[] names = njp.getUserNames(ids);
+	for (int i = 0; i < ids.length; i++) {
+	    ucache.put(ids[i], names[i]);
+	}
+	ids = uncached(gcache, gids);
+	names = njp.getGroupNames(ids);
+	for (int i = 0; i < ids.length; i++) {
+	    gcache.put(ids[i], names[i]);
+	}
+	for (int id : uncached(projcache, projids)) {
+	    projcache.get(id);
+	}
+	for (int id : uncached(zcache, zoneids)) {
+	    zcache.get(id);
+	}
+    }
+
+    /*
+     * Return those of the given ids that don't have a valid cache entry.
+     */
+    private static int[] uncached(final NameCache nc, final Set<Integer> ids) {
+	int[] missing = new int[ids.size()];
+	int n = 0;
+	for (int id : ids) {
+	    if (!nc.contains(id)) {
+		missing[n++] = id;
+	    }
 	}
-	return zmap.get(zoneid);
+	return Arrays.copyOf(missing, n);
     }
 
     /**
@@ -386,4 +813,33 @@ public class JProc implements Serializable {
     public int getZoneId(final String zone) {
 	return njp.getZoneId(zone);
     }
+
+    /**
+     * Note that the given process is to be watched, and will be queried
+     * repeatedly, so that resources such as open /proc files may be
+     * kept for it. It should be released when no longer being watched.
+     *
+     * @param jp the JProcess to watch
+     */
+    public void watch(final JProcess jp) {
+	njp.watch(jp.getPid());
+    }
+
+    /**
+     * Release any resources held for the given process, such as open
+     * /proc files. This should be called when a process is no longer
+     * being watched.
+     *
+     * @param jp the JProcess to release
+     */
+    public void release(final JProcess jp) {
+	njp.release(jp.getPid());
+    }
+
+    /**
+     * Release any resources held for all processes.
+     */
+    public void close() {
+	njp.close();
+    }
 }
@@ -20,7 +20,9 @@
 
 package uk.co.petertribble.jproc.api;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * A class for representing information on a Solaris process, matching the
@@ -165,6 +167,39 @@ public class JProcInfo implements Serializable {
 	prFname = iprFname;
     }
 
+    /*
+     * Copy the contents of another JProcInfo into this one.
+     */
+    void copyFrom(final JProcInfo jpi) {
+	insert(jpi.prPid, jpi.prPpid, jpi.prUid, jpi.prEuid,
+		jpi.prGid, jpi.prEgid, jpi.prNlwp, jpi.prSize, jpi.prRssize,
+		jpi.stime, jpi.etime, jpi.ntime, jpi.ectime, jpi.nctime,
+		jpi.prTaskid, jpi.prProjid, jpi.prZoneid, jpi.prContract,
+		jpi.prFname);
+    }
+
+    /**
+     * Return whether another JProcInfo holds the same values as this one.
+     * This is a value comparison of two snapshots, which may be used to
+     * tell whether a process has changed between updates.
+     *
+     * @param jpi the JProcInfo to compare against
+     *
+     * @return true if all the values are the same
+     */
+    public boolean sameValues(final JProcInfo jpi) {
+	return prPid == jpi.prPid && prPpid == jpi.prPpid
+	    && prUid == jpi.prUid && prEuid == jpi.prEuid
+	    && prGid == jpi.prGid && prEgid == jpi.prEgid
+	    && prNlwp == jpi.prNlwp && prSize == jpi.prSize
+	    && prRssize == jpi.prRssize && stime == jpi.stime
+	    && etime == jpi.etime && ntime == jpi.ntime
+	    && ectime == jpi.ectime && nctime == jpi.nctime
+	    && prTaskid == jpi.prTaskid && prProjid == jpi.prProjid
+	    && prZoneid == jpi.prZoneid && prContract == jpi.prContract
+	    && Objects.equals(prFname, jpi.prFname);
+    }
+
     /*
      * Accessors.
      */
@@ -270,6 +305,24 @@ public class JProcInfo implements Serializable {
 	return etime + ntime / 1000000000.0;
     }
 
+    /**
+     * Return the seconds part of the execution time of the process.
+     *
+     * @return the seconds part of the execution time of the process
+     */
+    public long getetime() {
+	return etime;
+    }
+
+    /**
+     * Return the nanoseconds part of the execution time of the process.
+     *
+     * @return the nanoseconds part of the execution time of the process
+     */
+    public long getntime() {
+	return ntime;
+    }
+
     /**
      * Return the execution time of reaped children of this process. This is
      * measured in seconds and includes usr+sys cpu time.
@@ -280,6 +333,26 @@ public class JProcInfo implements Serializable {
 	return ectime + nctime / 1000000000.0;
     }
 
+    /**
+     * Return the seconds part of the execution time of reaped children of
+     * this process.
+     *
+     * @return the seconds part of the execution time of reaped children
+     */
+    public long getectime() {
+	return ectime;
+    }
+
+    /**
+     * Return the nanoseconds part of the execution time of reaped children
+     * of this process.
+     *
+     * @return the nanoseconds part of the execution time of reaped children
+     */
+    public long getnctime() {
+	return nctime;
+    }
+
     /**
      * Return the task id of the process.
      *
@@ -332,27 +405,112 @@ public class JProcInfo implements Serializable {
      * {@code JProcInfo}.
      */
     public String toJSON() {
-	StringBuilder sb = new StringBuilder(256);
-	sb.append("{\"fname\":\"").append(prFname)
-	    .append("\",\"pid\":").append(prPid)
-	    .append(",\"ppid\":").append(prPpid)
-	    .append(",\"uid\":").append(prUid)
-	    .append(",\"euid\":").append(prEuid)
-	    .append(",\"gid\":").append(prGid)
-	    .append(",\"egid\":").append(prEgid)
-	    .append(",\"nlwp\":").append(prNlwp)
-	    .append(",\"size\":").append(prSize)
-	    .append(",\"rssize\":").append(prRssize)
-	    .append(",\"stime\":").append(stime)
-	    .append(",\"etime\":").append(etime)
-	    .append(",\"ntime\":").append(ntime)
-	    .append(",\"ectime\":").append(ectime)
-	    .append(",\"nctime\":").append(nctime)
-	    .append(",\"taskid\":").append(prTaskid)
-	    .append(",\"projid\":").append(prProjid)
-	    .append(",\"zoneid\":").append(prZoneid)
-	    .append(",\"contract\":").append(prContract)
-	    .append('}');
-	return sb.toString();
+	return JSONWriter.toString(this::toJSON, 256);
+    }
+
+    /**
+     * Write a JSON representation of this {@code JProcInfo}.
+     *
+     * @param jw the JSONWriter to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void toJSON(final JSONWriter jw) throws IOException {
+	jw.startObject();
+	jw.field("fname", prFname);
+	jw.field("pid", prPid);
+	jw.field("ppid", prPpid);
+	jw.field("uid", prUid);
+	jw.field("euid", prEuid);
+	jw.field("gid", prGid);
+	jw.field("egid", prEgid);
+	jw.field("nlwp", prNlwp);
+	jw.field("size", prSize);
+	jw.field("rssize", prRssize);
+	jw.field("stime", stime);
+	jw.field("etime", etime);
+	jw.field("ntime", ntime);
+	jw.field("ectime", ectime);
+	jw.field("nctime", nctime);
+	jw.field("taskid", prTaskid);
+	jw.field("projid", prProjid);
+	jw.field("zoneid", prZoneid);
+	jw.field("contract", prContract);
+	jw.endObject();
+    }
+
+    /**
+     * Write a JSON representation of the changes to this {@code JProcInfo}
+     * since an earlier reading of the same process. The pid is always
+     * written, and otherwise only the members whose values differ from
+     * the earlier reading, in the same order as {@link #toJSON(JSONWriter)}.
+     *
+     * @param jw the JSONWriter to write to
+     * @param prev the earlier reading of this process
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void toJSON(final JSONWriter jw, final JProcInfo prev)
+		throws IOException {
+	jw.startObject();
+	if (!Objects.equals(prFname, prev.prFname)) {
+	    jw.field("fname", prFname);
+	}
+	jw.field("pid", prPid);
+	changed(jw, "ppid", prPpid, prev.prPpid);
+	changed(jw, "uid", prUid, prev.prUid);
+	changed(jw, "euid", prEuid, prev.prEuid);
+	changed(jw, "gid", prGid, prev.prGid);
+	changed(jw, "egid", prEgid, prev.prEgid);
+	changed(jw, "nlwp", prNlwp, prev.prNlwp);
+	changed(jw, "size", prSize, prev.prSize);
+	changed(jw, "rssize", prRssize, prev.prRssize);
+	changed(jw, "stime", stime, prev.stime);
+	changed(jw, "etime", etime, prev.etime);
+	changed(jw, "ntime", ntime, prev.ntime);
+	changed(jw, "ectime", ectime, prev.ectime);
+	changed(jw, "nctime", nctime, prev.nctime);
+	changed(jw, "taskid", prTaskid, prev.prTaskid);
+	changed(jw, "projid", prProjid, prev.prProjid);
+	changed(jw, "zoneid", prZoneid, prev.prZoneid);
+	changed(jw, "contract", prContract, prev.prContract);
+	jw.endObject();
+    }
+
+    private static void changed(final JSONWriter jw, final String name,
+			final long value, final long prev) throws IOException {
+	if (value != prev) {
+	    jw.field(name, value);
+	}
+    }
+
+    /**
+     * Write a binary representation of this {@code JProcInfo}, as part of
+     * a message written by a BinaryWriter.
+     *
+     * @param bw the BinaryWriter to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void toBinary(final BinaryWriter bw) throws IOException {
+	bw.writePid(prPid);
+	bw.writeString(prFname);
+	bw.writeLong(prPpid);
+	bw.writeId(prUid);
+	bw.writeId(prEuid);
+	bw.writeId(prGid);
+	bw.writeId(prEgid);
+	bw.writeLong(prNlwp);
+	bw.writeLong(prSize);
+	bw.writeLong(prRssize);
+	bw.writeLong(stime);
+	bw.writeLong(etime);
+	bw.writeLong(ntime);
+	bw.writeLong(ectime);
+	bw.writeLong(nctime);
+	bw.writeLong(prTaskid);
+	bw.writeId(prProjid);
+	bw.writeId(prZoneid);
+	bw.writeLong(prContract);
     }
 }
@@ -0,0 +1,270 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+/**
+ * A view of a psinfo record held in a {@link ProcBuffer}. Nothing is
+ * decoded until it is asked for, so reading a couple of fields of every
+ * process costs no more than that. The accessors match those of
+ * {@link JProcInfo}.
+ *
+ * <p>A view may be moved from one record to another, so that a single
+ * view can be used to iterate over a whole buffer.
+ *
+ * @author Peter Tribble
+ */
+public final class JProcInfoView {
+
+    private final ProcBuffer pb;
+    private int row;
+
+    /*
+     * Views are created by ProcBuffer.
+     */
+    JProcInfoView(final ProcBuffer npb, final int nrow) {
+	pb = npb;
+	row = nrow;
+    }
+
+    /**
+     * Move this view to another record in the same buffer.
+     *
+     * @param nrow the record to view
+     */
+    public void moveTo(final int nrow) {
+	row = nrow;
+    }
+
+    /**
+     * Return the record this view is looking at.
+     *
+     * @return the record this view is looking at
+     */
+    public int getRow() {
+	return row;
+    }
+
+    /**
+     * Return the process id.
+     *
+     * @return the process id
+     */
+    public int getpid() {
+	return pb.getInt(row, ProcBuffer.INFO_PID);
+    }
+
+    /**
+     * Return the parent process id.
+     *
+     * @return the parent process id
+     */
+    public int getppid() {
+	return pb.getInt(row, ProcBuffer.INFO_PPID);
+    }
+
+    /**
+     * Return the real userid.
+     *
+     * @return the real userid
+     */
+    public int getuid() {
+	return pb.getInt(row, ProcBuffer.INFO_UID);
+    }
+
+    /**
+     * Return the effective userid.
+     *
+     * @return the effective userid
+     */
+    public int geteuid() {
+	return pb.getInt(row, ProcBuffer.INFO_EUID);
+    }
+
+    /**
+     * Return the real group id.
+     *
+     * @return the real group id
+     */
+    public int getgid() {
+	return pb.getInt(row, ProcBuffer.INFO_GID);
+    }
+
+    /**
+     * Return the effective group id.
+     *
+     * @return the effective group id
+     */
+    public int getegid() {
+	return pb.getInt(row, ProcBuffer.INFO_EGID);
+    }
+
+    /**
+     * Return the number of lwps in the process.
+     *
+     * @return the number of lwps in the process
+     */
+    public int getnlwp() {
+	return pb.getInt(row, ProcBuffer.INFO_NLWP);
+    }
+
+    /**
+     * Return the process size in Kbytes.
+     *
+     * @return the process size in Kbytes
+     */
+    public long getsize() {
+	return pb.getLong(row, ProcBuffer.INFO_SIZE);
+    }
+
+    /**
+     * Return the resident size in Kbytes.
+     *
+     * @return the resident size in Kbytes
+     */
+    public long getrssize() {
+	return pb.getLong(row, ProcBuffer.INFO_RSSIZE);
+    }
+
+    /**
+     * Return the start time of the process.
+     *
+     * @return the start time of the process
+     */
+    public long getstime() {
+	return pb.getLong(row, ProcBuffer.INFO_STIME);
+    }
+
+    /**
+     * Return the seconds part of the execution time of the process.
+     *
+     * @return the seconds part of the execution time of the process
+     */
+    public long getetime() {
+	return pb.getLong(row, ProcBuffer.INFO_ETIME);
+    }
+
+    /**
+     * Return the nanoseconds part of the execution time of the process.
+     *
+     * @return the nanoseconds part of the execution time of the process
+     */
+    public long getntime() {
+	return pb.getLong(row, ProcBuffer.INFO_NTIME);
+    }
+
+    /**
+     * Return the seconds part of the execution time of reaped children.
+     *
+     * @return the seconds part of the execution time of reaped children
+     */
+    public long getectime() {
+	return pb.getLong(row, ProcBuffer.INFO_ECTIME);
+    }
+
+    /**
+     * Return the nanoseconds part of the execution time of reaped children.
+     *
+     * @return the nanoseconds part of the execution time of reaped children
+     */
+    public long getnctime() {
+	return pb.getLong(row, ProcBuffer.INFO_NCTIME);
+    }
+
+    /**
+     * Return the task id of the process.
+     *
+     * @return the task id of the process
+     */
+    public int gettaskid() {
+	return pb.getInt(row, ProcBuffer.INFO_TASKID);
+    }
+
+    /**
+     * Return the project id of the process.
+     *
+     * @return the project id of the process
+     */
+    public int getprojid() {
+	return pb.getInt(row, ProcBuffer.INFO_PROJID);
+    }
+
+    /**
+     * Return the zone id of the process.
+     *
+     * @return the zone id of the process
+     */
+    public int getzoneid() {
+	return pb.getInt(row, ProcBuffer.INFO_ZONEID);
+    }
+
+    /**
+     * Return the process contract.
+     *
+     * @return the process contract
+     */
+    public int getcontract() {
+	return pb.getInt(row, ProcBuffer.INFO_CONTRACT);
+    }
+
+    /**
+     * Return the execution time of the process. This is measured in seconds
+     * and includes usr+sys cpu time.
+     *
+     * @return the execution time of the process
+     */
+    public double gettime() {
+	return getetime() + getntime() / 1000000000.0;
+    }
+
+    /**
+     * Return the execution time of reaped children of this process. This is
+     * measured in seconds and includes usr+sys cpu time.
+     *
+     * @return the execution time of reaped children of this process
+     */
+    public double getctime() {
+	return getectime() + getnctime() / 1000000000.0;
+    }
+
+    /**
+     * Return the name of the execed file of this process. A new String is
+     * decoded on each call.
+     *
+     * @return the name of the execed file
+     */
+    public String getfname() {
+	return pb.getString(row, ProcBuffer.INFO_FNAME,
+			ProcBuffer.INFO_FNAMESZ);
+    }
+
+    /**
+     * Copy the whole of this record into a JProcInfo.
+     *
+     * @param jpi the JProcInfo to populate
+     */
+    public void copyTo(final JProcInfo jpi) {
+	jpi.insert(getpid(), getppid(), getuid(), geteuid(),
+		   getgid(), getegid(), getnlwp(), getsize(), getrssize(),
+		   getstime(), getetime(), getntime(), getectime(),
+		   getnctime(), gettaskid(), getprojid(), getzoneid(),
+		   getcontract(), getfname());
+    }
+}
@@ -20,6 +20,8 @@
 
 package uk.co.petertribble.jproc.api;
 
+import java.io.IOException;
+
 /**
  * An class for representing information on an lwp in a Solaris process,
  * matching the lwpsinfo_t structure.
@@ -108,4 +110,20 @@ public class JProcLwpInfo {
 	    .append('}');
 	return sb.toString();
     }
+
+    /**
+     * Write a binary representation of this {@code JProcLwpInfo}, as part of
+     * a message written by a BinaryWriter.
+     *
+     * @param bw the BinaryWriter to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void toBinary(final BinaryWriter bw) throws IOException {
+	bw.writePid(pid);
+	bw.writeLong(lwpid);
+	bw.writeLong(stime);
+	bw.writeLong(etime);
+	bw.writeLong(ntime);
+    }
 }
@@ -20,6 +20,8 @@
 
 package uk.co.petertribble.jproc.api;
 
+import java.io.IOException;
+
 /**
  * An class for representing the status of an lwp in a Solaris process,
  * matching the lwpstatus_t structure.
@@ -112,4 +114,21 @@ public class JProcLwpStatus {
 	    .append('}');
 	return sb.toString();
     }
+
+    /**
+     * Write a binary representation of this {@code JProcLwpStatus}, as part of
+     * a message written by a BinaryWriter.
+     *
+     * @param bw the BinaryWriter to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void toBinary(final BinaryWriter bw) throws IOException {
+	bw.writePid(pid);
+	bw.writeLong(lwpid);
+	bw.writeLong(utime);
+	bw.writeLong(nutime);
+	bw.writeLong(stime);
+	bw.writeLong(nstime);
+    }
 }
@@ -20,6 +20,8 @@
 
 package uk.co.petertribble.jproc.api;
 
+import java.io.IOException;
+
 /**
  * An class for representing the status of a Solaris process, matching the
  * pstatus_t structure.
@@ -137,4 +139,24 @@ public class JProcStatus {
 	    .append('}');
 	return sb.toString();
     }
+
+    /**
+     * Write a binary representation of this {@code JProcStatus}, as part of
+     * a message written by a BinaryWriter.
+     *
+     * @param bw the BinaryWriter to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void toBinary(final BinaryWriter bw) throws IOException {
+	bw.writePid(pid);
+	bw.writeLong(utime);
+	bw.writeLong(nutime);
+	bw.writeLong(stime);
+	bw.writeLong(nstime);
+	bw.writeLong(cutime);
+	bw.writeLong(ncutime);
+	bw.writeLong(cstime);
+	bw.writeLong(ncstime);
+    }
 }
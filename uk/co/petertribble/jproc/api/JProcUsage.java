@@ -14,12 +14,14 @@
  *
  * CDDL HEADER END
  *
- * Copyright 2025 Peter Tribble
+ * Copyright 2026 Peter Tribble
  *
  */
 
 package uk.co.petertribble.jproc.api;
 
+import java.io.IOException;
+
 /**
  * An class for representing usage of a Solaris process, matching the
  * prusage_t structure.
@@ -48,6 +50,22 @@ public class JProcUsage {
     private long ictx;
     private long sysc;
     private long ioch;
+    private long ttime;
+    private long nttime;
+    private long tftime;
+    private long ntftime;
+    private long dftime;
+    private long ndftime;
+    private long kftime;
+    private long nkftime;
+    private long ltime;
+    private long nltime;
+    private long slptime;
+    private long nslptime;
+    private long wtime;
+    private long nwtime;
+    private long stoptime;
+    private long nstoptime;
 
     /**
      * Populate this object with data. This routine should never be called
@@ -105,6 +123,101 @@ public class JProcUsage {
 	ioch = iioch;
     }
 
+    /**
+     * Populate the microstate accounting times of this object. This
+     * routine should never be called by clients, and is only for the JNI
+     * layer to interface with.
+     *
+     * @param ittime other system trap cpu time - seconds
+     * @param inttime other system trap cpu time - nanoseconds
+     * @param itftime text page fault sleep time - seconds
+     * @param intftime text page fault sleep time - nanoseconds
+     * @param idftime data page fault sleep time - seconds
+     * @param indftime data page fault sleep time - nanoseconds
+     * @param ikftime kernel page fault sleep time - seconds
+     * @param inkftime kernel page fault sleep time - nanoseconds
+     * @param iltime user lock wait sleep time - seconds
+     * @param inltime user lock wait sleep time - nanoseconds
+     * @param islptime all other sleep time - seconds
+     * @param inslptime all other sleep time - nanoseconds
+     * @param iwtime wait-cpu (latency) time - seconds
+     * @param inwtime wait-cpu (latency) time - nanoseconds
+     * @param istoptime stopped time - seconds
+     * @param instoptime stopped time - nanoseconds
+     */
+    public void insertMicrostates(final long ittime, final long inttime,
+				  final long itftime, final long intftime,
+				  final long idftime, final long indftime,
+				  final long ikftime, final long inkftime,
+				  final long iltime, final long inltime,
+				  final long islptime, final long inslptime,
+				  final long iwtime, final long inwtime,
+				  final long istoptime, final long instoptime) {
+	ttime = ittime;
+	nttime = inttime;
+	tftime = itftime;
+	ntftime = intftime;
+	dftime = idftime;
+	ndftime = indftime;
+	kftime = ikftime;
+	nkftime = inkftime;
+	ltime = iltime;
+	nltime = inltime;
+	slptime = islptime;
+	nslptime = inslptime;
+	wtime = iwtime;
+	nwtime = inwtime;
+	stoptime = istoptime;
+	nstoptime = instoptime;
+    }
+
+    /**
+     * Copy the contents of another JProcUsage into this one.
+     *
+     * @param jpu the JProcUsage to copy from
+     */
+    public void copyFrom(final JProcUsage jpu) {
+	insert(jpu.lwpid, jpu.count, jpu.rtime, jpu.nrtime,
+		jpu.utime, jpu.nutime, jpu.stime, jpu.nstime,
+		jpu.minf, jpu.majf, jpu.nswap, jpu.inblk, jpu.oublk,
+		jpu.msnd, jpu.mrcv, jpu.sigs, jpu.vctx, jpu.ictx,
+		jpu.sysc, jpu.ioch);
+	insertMicrostates(jpu.ttime, jpu.nttime, jpu.tftime, jpu.ntftime,
+		jpu.dftime, jpu.ndftime, jpu.kftime, jpu.nkftime,
+		jpu.ltime, jpu.nltime, jpu.slptime, jpu.nslptime,
+		jpu.wtime, jpu.nwtime, jpu.stoptime, jpu.nstoptime);
+    }
+
+    /**
+     * Return whether another JProcUsage holds the same values as this one.
+     * This is a value comparison of two snapshots, which may be used to
+     * tell whether a process has changed between updates.
+     *
+     * @param jpu the JProcUsage to compare against
+     *
+     * @return true if all the values are the same
+     */
+    public boolean sameValues(final JProcUsage jpu) {
+	return lwpid == jpu.lwpid && count == jpu.count
+	    && rtime == jpu.rtime && nrtime == jpu.nrtime
+	    && utime == jpu.utime && nutime == jpu.nutime
+	    && stime == jpu.stime && nstime == jpu.nstime
+	    && minf == jpu.minf && majf == jpu.majf
+	    && nswap == jpu.nswap && inblk == jpu.inblk
+	    && oublk == jpu.oublk && msnd == jpu.msnd
+	    && mrcv == jpu.mrcv && sigs == jpu.sigs
+	    && vctx == jpu.vctx && ictx == jpu.ictx
+	    && sysc == jpu.sysc && ioch == jpu.ioch
+	    && ttime == jpu.ttime && nttime == jpu.nttime
+	    && tftime == jpu.tftime && ntftime == jpu.ntftime
+	    && dftime == jpu.dftime && ndftime == jpu.ndftime
+	    && kftime == jpu.kftime && nkftime == jpu.nkftime
+	    && ltime == jpu.ltime && nltime == jpu.nltime
+	    && slptime == jpu.slptime && nslptime == jpu.nslptime
+	    && wtime == jpu.wtime && nwtime == jpu.nwtime
+	    && stoptime == jpu.stoptime && nstoptime == jpu.nstoptime;
+    }
+
     /**
      * Return the number of contributing lwp.
      *
@@ -150,6 +263,88 @@ public class JProcUsage {
 	return stime + nstime / 1000000000.0;
     }
 
+    /**
+     * Return the total user and system time of this process or lwp, in
+     * nanoseconds.
+     *
+     * @return the cpu time of this process or lwp, in nanoseconds
+     */
+    public long getcpuNanos() {
+	return (utime + stime) * 1000000000L + nutime + nstime;
+    }
+
+    /**
+     * Return the total other system trap time of this process or lwp.
+     *
+     * @return the other system trap time of this process or lwp
+     */
+    public double getttime() {
+	return ttime + nttime / 1000000000.0;
+    }
+
+    /**
+     * Return the total text page fault sleep time of this process or lwp.
+     *
+     * @return the text page fault sleep time of this process or lwp
+     */
+    public double gettftime() {
+	return tftime + ntftime / 1000000000.0;
+    }
+
+    /**
+     * Return the total data page fault sleep time of this process or lwp.
+     *
+     * @return the data page fault sleep time of this process or lwp
+     */
+    public double getdftime() {
+	return dftime + ndftime / 1000000000.0;
+    }
+
+    /**
+     * Return the total kernel page fault sleep time of this process or lwp.
+     *
+     * @return the kernel page fault sleep time of this process or lwp
+     */
+    public double getkftime() {
+	return kftime + nkftime / 1000000000.0;
+    }
+
+    /**
+     * Return the total user lock wait time of this process or lwp.
+     *
+     * @return the user lock wait time of this process or lwp
+     */
+    public double getltime() {
+	return ltime + nltime / 1000000000.0;
+    }
+
+    /**
+     * Return the total other sleep time of this process or lwp.
+     *
+     * @return the other sleep time of this process or lwp
+     */
+    public double getslptime() {
+	return slptime + nslptime / 1000000000.0;
+    }
+
+    /**
+     * Return the total time spent waiting for a cpu of this process or lwp.
+     *
+     * @return the time spent waiting for a cpu of this process or lwp
+     */
+    public double getwtime() {
+	return wtime + nwtime / 1000000000.0;
+    }
+
+    /**
+     * Return the total stopped time of this process or lwp.
+     *
+     * @return the stopped time of this process or lwp
+     */
+    public double getstoptime() {
+	return stoptime + nstoptime / 1000000000.0;
+    }
+
     /**
      * Return the number of minor faults incurred by this process or lwp.
      *
@@ -271,28 +466,101 @@ public class JProcUsage {
      * {@code JProcUsage}.
      */
     public String toJSON() {
-	StringBuilder sb = new StringBuilder(256);
-	sb.append("{\"lwpid\":").append(lwpid)
-	    .append(",\"count\":").append(count)
-	    .append(",\"rtime\":").append(rtime)
-	    .append(",\"nrtime\":").append(nrtime)
-	    .append(",\"utime\":").append(utime)
-	    .append(",\"nutime\":").append(nutime)
-	    .append(",\"stime\":").append(stime)
-	    .append(",\"nstime\":").append(nstime)
-	    .append(",\"minf\":").append(minf)
-	    .append(",\"majf\":").append(majf)
-	    .append(",\"nswap\":").append(nswap)
-	    .append(",\"inblk\":").append(inblk)
-	    .append(",\"oublk\":").append(oublk)
-	    .append(",\"msnd\":").append(msnd)
-	    .append(",\"mrcv\":").append(mrcv)
-	    .append(",\"sigs\":").append(sigs)
-	    .append(",\"vctx\":").append(vctx)
-	    .append(",\"ictx\":").append(ictx)
-	    .append(",\"sysc\":").append(sysc)
-	    .append(",\"ioch\":").append(ioch)
-	    .append('}');
-	return sb.toString();
+	return JSONWriter.toString(this::toJSON, 512);
+    }
+
+    /**
+     * Write a JSON representation of this {@code JProcUsage}.
+     *
+     * @param jw the JSONWriter to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void toJSON(final JSONWriter jw) throws IOException {
+	jw.startObject();
+	jw.field("lwpid", lwpid);
+	jw.field("count", count);
+	jw.field("rtime", rtime);
+	jw.field("nrtime", nrtime);
+	jw.field("utime", utime);
+	jw.field("nutime", nutime);
+	jw.field("stime", stime);
+	jw.field("nstime", nstime);
+	jw.field("minf", minf);
+	jw.field("majf", majf);
+	jw.field("nswap", nswap);
+	jw.field("inblk", inblk);
+	jw.field("oublk", oublk);
+	jw.field("msnd", msnd);
+	jw.field("mrcv", mrcv);
+	jw.field("sigs", sigs);
+	jw.field("vctx", vctx);
+	jw.field("ictx", ictx);
+	jw.field("sysc", sysc);
+	jw.field("ioch", ioch);
+	jw.field("ttime", ttime);
+	jw.field("nttime", nttime);
+	jw.field("tftime", tftime);
+	jw.field("ntftime", ntftime);
+	jw.field("dftime", dftime);
+	jw.field("ndftime", ndftime);
+	jw.field("kftime", kftime);
+	jw.field("nkftime", nkftime);
+	jw.field("ltime", ltime);
+	jw.field("nltime", nltime);
+	jw.field("slptime", slptime);
+	jw.field("nslptime", nslptime);
+	jw.field("wtime", wtime);
+	jw.field("nwtime", nwtime);
+	jw.field("stoptime", stoptime);
+	jw.field("nstoptime", nstoptime);
+	jw.endObject();
+    }
+
+    /**
+     * Write a binary representation of this {@code JProcUsage}, as part of
+     * a message written by a BinaryWriter.
+     *
+     * @param bw the BinaryWriter to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void toBinary(final BinaryWriter bw) throws IOException {
+	bw.writeLong(lwpid);
+	bw.writeLong(count);
+	bw.writeLong(rtime);
+	bw.writeLong(nrtime);
+	bw.writeLong(utime);
+	bw.writeLong(nutime);
+	bw.writeLong(stime);
+	bw.writeLong(nstime);
+	bw.writeLong(minf);
+	bw.writeLong(majf);
+	bw.writeLong(nswap);
+	bw.writeLong(inblk);
+	bw.writeLong(oublk);
+	bw.writeLong(msnd);
+	bw.writeLong(mrcv);
+	bw.writeLong(sigs);
+	bw.writeLong(vctx);
+	bw.writeLong(ictx);
+	bw.writeLong(sysc);
+	bw.writeLong(ioch);
+	bw.writeLong(ttime);
+	bw.writeLong(nttime);
+	bw.writeLong(tftime);
+	bw.writeLong(ntftime);
+	bw.writeLong(dftime);
+	bw.writeLong(ndftime);
+	bw.writeLong(kftime);
+	bw.writeLong(nkftime);
+	bw.writeLong(ltime);
+	bw.writeLong(nltime);
+	bw.writeLong(slptime);
+	bw.writeLong(nslptime);
+	bw.writeLong(wtime);
+	bw.writeLong(nwtime);
+	bw.writeLong(stoptime);
+	bw.writeLong(nstoptime);
     }
 }
@@ -0,0 +1,333 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+/**
+ * A view of a usage record held in a {@link ProcBuffer}. Nothing is
+ * decoded until it is asked for. The accessors match those of
+ * {@link JProcUsage}.
+ *
+ * <p>A view may be moved from one record to another, so that a single
+ * view can be used to iterate over a whole buffer.
+ *
+ * @author Peter Tribble
+ */
+public final class JProcUsageView {
+
+    private final ProcBuffer pb;
+    private int row;
+
+    /*
+     * Views are created by ProcBuffer.
+     */
+    JProcUsageView(final ProcBuffer npb, final int nrow) {
+	pb = npb;
+	row = nrow;
+    }
+
+    /**
+     * Move this view to another record in the same buffer.
+     *
+     * @param nrow the record to view
+     */
+    public void moveTo(final int nrow) {
+	row = nrow;
+    }
+
+    /**
+     * Return the record this view is looking at.
+     *
+     * @return the record this view is looking at
+     */
+    public int getRow() {
+	return row;
+    }
+
+    /**
+     * Return the lwp id.
+     *
+     * @return the lwp id
+     */
+    public int getlwpid() {
+	return pb.getInt(row, ProcBuffer.USAGE_LWPID);
+    }
+
+    /**
+     * Return the number of contributing lwps.
+     *
+     * @return the number of contributing lwps
+     */
+    public int getcount() {
+	return pb.getInt(row, ProcBuffer.USAGE_COUNT);
+    }
+
+    /**
+     * Return the total elapsed time of this process or lwp.
+     *
+     * @return the total elapsed time of this process or lwp
+     */
+    public double getrtime() {
+	return pb.getLong(row, ProcBuffer.USAGE_RTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NRTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total user time of this process or lwp.
+     *
+     * @return the total user time of this process or lwp
+     */
+    public double getutime() {
+	return pb.getLong(row, ProcBuffer.USAGE_UTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NUTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total system time of this process or lwp.
+     *
+     * @return the total system time of this process or lwp
+     */
+    public double getstime() {
+	return pb.getLong(row, ProcBuffer.USAGE_STIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NSTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total other system trap time of this process or lwp.
+     *
+     * @return the total other system trap time of this process or lwp
+     */
+    public double getttime() {
+	return pb.getLong(row, ProcBuffer.USAGE_TTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NTTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total text page fault sleep time of this process or lwp.
+     *
+     * @return the total text page fault sleep time of this process or lwp
+     */
+    public double gettftime() {
+	return pb.getLong(row, ProcBuffer.USAGE_TFTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NTFTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total data page fault sleep time of this process or lwp.
+     *
+     * @return the total data page fault sleep time of this process or lwp
+     */
+    public double getdftime() {
+	return pb.getLong(row, ProcBuffer.USAGE_DFTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NDFTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total kernel page fault sleep time of this process or lwp.
+     *
+     * @return the total kernel page fault sleep time of this process or lwp
+     */
+    public double getkftime() {
+	return pb.getLong(row, ProcBuffer.USAGE_KFTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NKFTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total user lock wait time of this process or lwp.
+     *
+     * @return the total user lock wait time of this process or lwp
+     */
+    public double getltime() {
+	return pb.getLong(row, ProcBuffer.USAGE_LTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NLTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total other sleep time of this process or lwp.
+     *
+     * @return the total other sleep time of this process or lwp
+     */
+    public double getslptime() {
+	return pb.getLong(row, ProcBuffer.USAGE_SLPTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NSLPTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total time spent waiting for a cpu of this process or lwp.
+     *
+     * @return the total time spent waiting for a cpu of this process or lwp
+     */
+    public double getwtime() {
+	return pb.getLong(row, ProcBuffer.USAGE_WTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NWTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the total stopped time of this process or lwp.
+     *
+     * @return the total stopped time of this process or lwp
+     */
+    public double getstoptime() {
+	return pb.getLong(row, ProcBuffer.USAGE_STOPTIME)
+	    + pb.getLong(row, ProcBuffer.USAGE_NSTOPTIME) / 1000000000.0;
+    }
+
+    /**
+     * Return the number of minor faults.
+     *
+     * @return the number of minor faults
+     */
+    public long getminf() {
+	return pb.getLong(row, ProcBuffer.USAGE_MINF);
+    }
+
+    /**
+     * Return the number of major faults.
+     *
+     * @return the number of major faults
+     */
+    public long getmajf() {
+	return pb.getLong(row, ProcBuffer.USAGE_MAJF);
+    }
+
+    /**
+     * Return the number of swaps.
+     *
+     * @return the number of swaps
+     */
+    public long getnswap() {
+	return pb.getLong(row, ProcBuffer.USAGE_NSWAP);
+    }
+
+    /**
+     * Return the number of input blocks.
+     *
+     * @return the number of input blocks
+     */
+    public long getinblk() {
+	return pb.getLong(row, ProcBuffer.USAGE_INBLK);
+    }
+
+    /**
+     * Return the number of output blocks.
+     *
+     * @return the number of output blocks
+     */
+    public long getoublk() {
+	return pb.getLong(row, ProcBuffer.USAGE_OUBLK);
+    }
+
+    /**
+     * Return the number of messages sent.
+     *
+     * @return the number of messages sent
+     */
+    public long getmsnd() {
+	return pb.getLong(row, ProcBuffer.USAGE_MSND);
+    }
+
+    /**
+     * Return the number of messages received.
+     *
+     * @return the number of messages received
+     */
+    public long getmrcv() {
+	return pb.getLong(row, ProcBuffer.USAGE_MRCV);
+    }
+
+    /**
+     * Return the number of signals received.
+     *
+     * @return the number of signals received
+     */
+    public long getsigs() {
+	return pb.getLong(row, ProcBuffer.USAGE_SIGS);
+    }
+
+    /**
+     * Return the number of voluntary context switches.
+     *
+     * @return the number of voluntary context switches
+     */
+    public long getvctx() {
+	return pb.getLong(row, ProcBuffer.USAGE_VCTX);
+    }
+
+    /**
+     * Return the number of involuntary context switches.
+     *
+     * @return the number of involuntary context switches
+     */
+    public long getictx() {
+	return pb.getLong(row, ProcBuffer.USAGE_ICTX);
+    }
+
+    /**
+     * Return the number of system calls.
+     *
+     * @return the number of system calls
+     */
+    public long getsysc() {
+	return pb.getLong(row, ProcBuffer.USAGE_SYSC);
+    }
+
+    /**
+     * Return the number of chars read and written.
+     *
+     * @return the number of chars read and written
+     */
+    public long getioch() {
+	return pb.getLong(row, ProcBuffer.USAGE_IOCH);
+    }
+
+    /**
+     * Copy the whole of this record into a JProcUsage.
+     *
+     * @param jpu the JProcUsage to populate
+     */
+    public void copyTo(final JProcUsage jpu) {
+	jpu.insert(getlwpid(), getcount(),
+		   pb.getLong(row, ProcBuffer.USAGE_RTIME),
+		   pb.getLong(row, ProcBuffer.USAGE_NRTIME),
+		   pb.getLong(row, ProcBuffer.USAGE_UTIME),
+		   pb.getLong(row, ProcBuffer.USAGE_NUTIME),
+		   pb.getLong(row, ProcBuffer.USAGE_STIME),
+		   pb.getLong(row, ProcBuffer.USAGE_NSTIME),
+		   getminf(), getmajf(), getnswap(), getinblk(), getoublk(),
+		   getmsnd(), getmrcv(), getsigs(), getvctx(), getictx(),
+		   getsysc(), getioch());
+	jpu.insertMicrostates(pb.getLong(row, ProcBuffer.USAGE_TTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_NTTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_TFTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_NTFTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_DFTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_NDFTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_KFTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_NKFTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_LTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_NLTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_SLPTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_NSLPTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_WTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_NWTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_STOPTIME),
+			      pb.getLong(row, ProcBuffer.USAGE_NSTOPTIME));
+    }
+}
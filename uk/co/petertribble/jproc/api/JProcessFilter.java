@@ -25,8 +25,22 @@ import java.util.HashSet;
 import java.util.Set;
 
 /**
- * A class for filtering Solaris processes. Allows filtering by zone, user, and
- * process contract.
+ * A class for filtering Solaris processes. Allows filtering by zone, user,
+ * task, project, and process contract. Each criterion may match one or
+ * several values, and all the criteria that are set must match.
+ *
+ * <p>Matching processes are found through a {@link ProcessIndex}, rather
+ * than by testing every process. Several filters may share one index, in
+ * which case the index is updated by whichever filter is updated first in
+ * each round, and the others use the result.
+ *
+ * <p>A filter that is updated after each update of its index only looks
+ * at the changes: without criteria it passes on the added and deleted
+ * processes of the underlying JProcessSet, and with criteria it checks
+ * just the processes that were added, deleted, or changed ids. Only when
+ * the criteria change, or the filter has missed updates of the index, are
+ * the matching processes found again from the index. The Sets returned
+ * belong to the filter, and change at the next update.
  *
  * @author Peter Tribble
  */
@@ -39,34 +53,37 @@ public class JProcessFilter implements Serializable {
      */
     private JProcessSet jps;
 
+    /*
+     * The index used to find matching processes, and the generation
+     * of the index when this filter last used it.
+     */
+    private transient ProcessIndex index;
+    private transient long lastGeneration = -1;
+
     private transient Set<JProcess> addedProcesses;
     private transient Set<JProcess> deletedProcesses;
     private transient Set<JProcess> currentProcesses;
 
-    /**
-     * A zone id to filter.
+    /*
+     * The sets that the added and deleted processes are collected into
+     * when this filter works them out itself, reused from one update to
+     * the next, and whether the criteria have changed since the matching
+     * processes were last found.
      */
-    private int szone = -1;
+    private transient Set<JProcess> ownAdded;
+    private transient Set<JProcess> ownDeleted;
+    private transient boolean rematch;
+
     /**
-     * A user id to filter.
+     * The values to match, indexed by ProcessIndex attribute. A null
+     * entry means that attribute isn't being filtered on.
      */
-    private int suid = -1;
+    private final int[][] criteria = new int[5][];
+
     /**
-     * A process id to filter.
+     * Set if this filter represents a single process.
      */
     private int spid = -1;
-    /**
-     * A contract id to filter.
-     */
-    private int sctid = -1;
-    /**
-     * A task id to filter.
-     */
-    private int staskid = -1;
-    /**
-     * A project id to filter.
-     */
-    private int sprojid = -1;
 
     /**
      * Creates a JProcessFilter.
@@ -76,15 +93,28 @@ public class JProcessFilter implements Serializable {
     }
 
     /**
-     * Creates a JProcessFilter.
+     * Creates a JProcessFilter, with its own index of the given processes.
      *
      * @param jpset A JProcessSet.
      */
     public JProcessFilter(final JProcessSet jpset) {
-	jps = jpset;
-	currentProcesses = jps.getProcesses();
-	addedProcesses = new HashSet<>();
-	deletedProcesses = new HashSet<>();
+	this(new ProcessIndex(jpset));
+    }
+
+    /**
+     * Creates a JProcessFilter using the given index, which may be shared
+     * with other filters.
+     *
+     * @param pidx A ProcessIndex.
+     */
+    public JProcessFilter(final ProcessIndex pidx) {
+	index = pidx;
+	jps = pidx.getProcessSet();
+	currentProcesses = new HashSet<>(jps.getProcesses());
+	ownAdded = new HashSet<>();
+	ownDeleted = new HashSet<>();
+	addedProcesses = ownAdded;
+	deletedProcesses = ownDeleted;
     }
 
     /**
@@ -102,20 +132,46 @@ public class JProcessFilter implements Serializable {
 	deletedProcesses = new HashSet<>();
     }
 
+    /*
+     * Copy the given values, so the caller can't change them behind
+     * our back.
+     */
+    private static int[] values(final int... vals) {
+	return (vals == null || vals.length == 0) ? null : vals.clone();
+    }
+
+    /*
+     * Set or clear one criterion, so that the matching processes are
+     * found again at the next update.
+     */
+    private void setCriterion(final int attr, final int[] vals) {
+	criteria[attr] = vals;
+	rematch = true;
+    }
+
     /**
      * Filter by zone. If set, only return processes in this zone.
      *
      * @param zoneid The zoneid of the zone.
      */
     public void setZone(final int zoneid) {
-	szone = zoneid;
+	setZones(zoneid);
+    }
+
+    /**
+     * Filter by zone. If set, only return processes in any of these zones.
+     *
+     * @param zoneids The zoneids of the zones.
+     */
+    public void setZones(final int... zoneids) {
+	setCriterion(ProcessIndex.ZONE, values(zoneids));
     }
 
     /**
      * Stop filtering by zone.
      */
     public void unSetZone() {
-	szone = -1;
+	setCriterion(ProcessIndex.ZONE, null);
     }
 
     /**
@@ -125,14 +181,24 @@ public class JProcessFilter implements Serializable {
      * @param ctid The desired contract id.
      */
     public void setContract(final int ctid) {
-	sctid = ctid;
+	setContracts(ctid);
+    }
+
+    /**
+     * Filter by contract. If set, only return processes belonging to any
+     * of these contracts.
+     *
+     * @param ctids The desired contract ids.
+     */
+    public void setContracts(final int... ctids) {
+	setCriterion(ProcessIndex.CONTRACT, values(ctids));
     }
 
     /**
      * Stop filtering by contract.
      */
     public void unSetContract() {
-	sctid = -1;
+	setCriterion(ProcessIndex.CONTRACT, null);
     }
 
     /**
@@ -142,14 +208,24 @@ public class JProcessFilter implements Serializable {
      * @param projid The desired project id.
      */
     public void setProject(final int projid) {
-	sprojid = projid;
+	setProjects(projid);
+    }
+
+    /**
+     * Filter by project. If set, only return processes belonging to any
+     * of these projects.
+     *
+     * @param projids The desired project ids.
+     */
+    public void setProjects(final int... projids) {
+	setCriterion(ProcessIndex.PROJECT, values(projids));
     }
 
     /**
      * Stop filtering by project.
      */
     public void unSetProject() {
-	sprojid = -1;
+	setCriterion(ProcessIndex.PROJECT, null);
     }
 
     /**
@@ -159,14 +235,24 @@ public class JProcessFilter implements Serializable {
      * @param taskid The desired task id.
      */
     public void setTask(final int taskid) {
-	staskid = taskid;
+	setTasks(taskid);
+    }
+
+    /**
+     * Filter by task. If set, only return processes belonging to any of
+     * these tasks.
+     *
+     * @param taskids The desired task ids.
+     */
+    public void setTasks(final int... taskids) {
+	setCriterion(ProcessIndex.TASK, values(taskids));
     }
 
     /**
      * Stop filtering by task.
      */
     public void unSetTask() {
-	staskid = -1;
+	setCriterion(ProcessIndex.TASK, null);
     }
 
     /**
@@ -175,14 +261,24 @@ public class JProcessFilter implements Serializable {
      * @param userid The userid.
      */
     public void setUser(final int userid) {
-	suid = userid;
+	setUsers(userid);
+    }
+
+    /**
+     * Filter by user. If set, only return processes owned by any of these
+     * userids.
+     *
+     * @param userids The userids.
+     */
+    public void setUsers(final int... userids) {
+	setCriterion(ProcessIndex.UID, values(userids));
     }
 
     /**
      * Stop filtering by user.
      */
     public void unSetUser() {
-	suid = -1;
+	setCriterion(ProcessIndex.UID, null);
     }
 
     /**
@@ -212,28 +308,243 @@ public class JProcessFilter implements Serializable {
 	return currentProcesses;
     }
 
+    /**
+     * Returns the snapshot of process information taken in the last
+     * update. The snapshot covers all processes, not just those matching
+     * this filter, and is only valid until the next update.
+     *
+     * @return the ProcessSnapshot from the last update, or null if this
+     * filter represents a single process.
+     */
+    public ProcessSnapshot getSnapshot() {
+	return (jps == null) ? null : jps.getSnapshot();
+    }
+
+    /**
+     * Returns the index used by this filter.
+     *
+     * @return the ProcessIndex used by this filter, or null if this
+     * filter represents a single process.
+     */
+    public ProcessIndex getIndex() {
+	return index;
+    }
+
     /**
      * Update the list of processes. Creates lists of added and deleted
-     * processes since the previous update.
+     * processes since the previous update. The index is only updated if
+     * this filter has already seen its current state; otherwise another
+     * filter sharing the index has just updated it. A scheduled index is
+     * never updated here.
      *
      * @return true if the process list has changed, otherwise false
      */
     public boolean update() {
+	return update(null);
+    }
+
+    /**
+     * Update the list of processes from a snapshot that has already been
+     * taken, as {@link #update()} does. The snapshot is only used if this
+     * filter would have updated the index, in which case the index keeps
+     * it; otherwise the caller retains it.
+     *
+     * @param snapshot a snapshot of all processes, or null to take a new
+     * one if the index needs updating
+     *
+     * @return true if the process list has changed, otherwise false
+     */
+    public boolean update(final ProcessSnapshot snapshot) {
 	if (spid < 0) {
-	    Set<JProcess> matchProcesses = new HashSet<>();
-	    jps.update();
-	    for (JProcess jp : jps.getProcesses()) {
+	    if (index == null) {
+		// deserialized, so start afresh
+		index = new ProcessIndex(jps);
+		currentProcesses = new HashSet<>();
+		ownAdded = new HashSet<>();
+		ownDeleted = new HashSet<>();
+		rematch = true;
+	    }
+	    if (!index.isScheduled()
+		    && index.getGeneration() == lastGeneration) {
+		if (snapshot == null) {
+		    index.update();
+		} else {
+		    index.update(snapshot);
+		}
+	    }
+	    long generation = index.getGeneration();
+	    if (rematch || generation != lastGeneration + 1) {
+		if (rematch || generation != lastGeneration) {
+		    rematchAll();
+		} else {
+		    // the index hasn't changed since the last update
+		    ownAdded.clear();
+		    ownDeleted.clear();
+		    addedProcesses = ownAdded;
+		    deletedProcesses = ownDeleted;
+		}
+	    } else if (hasCriteria()) {
+		applyChanges();
+	    } else {
+		forwardChanges();
+	    }
+	    lastGeneration = generation;
+	    rematch = false;
+	}
+	return !(addedProcesses.isEmpty() && deletedProcesses.isEmpty());
+    }
+
+    private boolean hasCriteria() {
+	for (int[] c : criteria) {
+	    if (c != null) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /*
+     * With no criteria every process matches, so the changes are those
+     * of the JProcessSet, which are passed on as they are.
+     */
+    private void forwardChanges() {
+	for (int i = 0; i < jps.getDeletedCount(); i++) {
+	    currentProcesses.remove(jps.getDeletedProcess(i));
+	}
+	for (int i = 0; i < jps.getAddedCount(); i++) {
+	    currentProcesses.add(jps.getAddedProcess(i));
+	}
+	addedProcesses = jps.getAddedProcesses();
+	deletedProcesses = jps.getDeletedProcesses();
+    }
+
+    /*
+     * Apply the last update of the index, which this filter saw the state
+     * before. Only processes that were added, deleted, or changed ids can
+     * have started or stopped matching.
+     */
+    private void applyChanges() {
+	ownAdded.clear();
+	ownDeleted.clear();
+	for (int i = 0; i < jps.getDeletedCount(); i++) {
+	    JProcess jp = jps.getDeletedProcess(i);
+	    if (currentProcesses.remove(jp)) {
+		ownDeleted.add(jp);
+	    }
+	}
+	for (int i = 0; i < jps.getAddedCount(); i++) {
+	    JProcess jp = jps.getAddedProcess(i);
+	    if (matchFilter(jp)) {
+		currentProcesses.add(jp);
+		ownAdded.add(jp);
+	    }
+	}
+	for (int i = 0; i < jps.getMovedCount(); i++) {
+	    JProcess jp = jps.getMovedProcess(i);
+	    if (matchFilter(jp)) {
+		if (currentProcesses.add(jp)) {
+		    ownAdded.add(jp);
+		}
+	    } else if (currentProcesses.remove(jp)) {
+		ownDeleted.add(jp);
+	    }
+	}
+	addedProcesses = ownAdded;
+	deletedProcesses = ownDeleted;
+    }
+
+    /*
+     * Find the matching processes again, and compare them with those
+     * matched before.
+     */
+    private void rematchAll() {
+	Set<JProcess> matchProcesses = match();
+	ownAdded.clear();
+	ownDeleted.clear();
+	for (JProcess jp : matchProcesses) {
+	    if (!currentProcesses.contains(jp)) {
+		ownAdded.add(jp);
+	    }
+	}
+	for (JProcess jp : currentProcesses) {
+	    if (!matchProcesses.contains(jp)) {
+		ownDeleted.add(jp);
+	    }
+	}
+	currentProcesses = matchProcesses;
+	addedProcesses = ownAdded;
+	deletedProcesses = ownDeleted;
+    }
+
+    /*
+     * Find the matching processes. The criterion with the fewest
+     * candidates is looked up in the index, and the candidates are then
+     * checked against the other criteria.
+     */
+    private Set<JProcess> match() {
+	int best = -1;
+	int bestCount = Integer.MAX_VALUE;
+	for (int a = 0; a < criteria.length; a++) {
+	    if (criteria[a] != null) {
+		int c = 0;
+		for (int v : criteria[a]) {
+		    c += index.count(a, v);
+		}
+		if (c < bestCount) {
+		    best = a;
+		    bestCount = c;
+		}
+	    }
+	}
+	if (best < 0) {
+	    return new HashSet<>(jps.getProcesses());
+	}
+	Set<JProcess> matchProcesses = new HashSet<>(bestCount * 4 / 3 + 1);
+	for (int v : criteria[best]) {
+	    for (JProcess jp : index.getProcesses(best, v)) {
 		if (matchFilter(jp)) {
 		    matchProcesses.add(jp);
 		}
 	    }
-	    addedProcesses = new HashSet<>(matchProcesses);
-	    addedProcesses.removeAll(currentProcesses);
-	    deletedProcesses = new HashSet<>(currentProcesses);
-	    deletedProcesses.removeAll(matchProcesses);
-	    currentProcesses = matchProcesses;
 	}
-	return !(addedProcesses.isEmpty() && deletedProcesses.isEmpty());
+	return matchProcesses;
+    }
+
+    /*
+     * Is the value one of those wanted for the given criterion? An unset
+     * criterion matches anything.
+     */
+    private boolean matches(final int attr, final int value) {
+	int[] vals = criteria[attr];
+	if (vals == null) {
+	    return true;
+	}
+	for (int v : vals) {
+	    if (v == value) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Match a row of a ProcessSnapshot against the filter.
+     *
+     * @param snap the ProcessSnapshot holding the process
+     * @param row the row of the process in the snapshot
+     *
+     * @return true if the process in the given row matches this filter
+     */
+    public boolean matchFilter(final ProcessSnapshot snap, final int row) {
+	if (spid > -1) {
+	    return currentProcesses.contains(
+			new JProcess(snap.getpid(row), null));
+	}
+	return matches(ProcessIndex.UID, snap.getuid(row))
+	    && matches(ProcessIndex.ZONE, snap.getzoneid(row))
+	    && matches(ProcessIndex.CONTRACT, snap.getcontract(row))
+	    && matches(ProcessIndex.TASK, snap.gettaskid(row))
+	    && matches(ProcessIndex.PROJECT, snap.getprojid(row));
     }
 
     /*
@@ -246,20 +557,10 @@ public class JProcessFilter implements Serializable {
 	if (jpi == null) {
 	    return false;
 	}
-	if (suid > -1 && jpi.getuid() != suid) {
-	    return false;
-	}
-	if (szone > -1 && jpi.getzoneid() != szone) {
-	    return false;
-	}
-	if (sctid > -1 && jpi.getcontract() != sctid) {
-	    return false;
-	}
-	if (staskid > -1 && jpi.gettaskid() != staskid) {
-	    return false;
-	}
-	if (sprojid > -1 && jpi.getprojid() != sprojid) { // NOPMD
-	    return false;
+	for (int a = 0; a < criteria.length; a++) {
+	    if (!matches(a, ProcessIndex.attribute(jpi, a))) {
+		return false;
+	    }
 	}
 	return true;
     }
@@ -21,27 +21,80 @@
 package uk.co.petertribble.jproc.api;
 
 import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 
 /**
  * A class for representing a Set of Solaris processes and obtaining
  * information on them.
  *
+ * <p>The processes are held in arrays sorted by pid, so that an update
+ * can be compared against the previous state in a single merge pass. The
+ * current, added, and deleted processes can be accessed by index, and
+ * are also presented as read-only Sets backed by those arrays. The
+ * arrays of current processes are reused from one update to the next,
+ * so the Set of current processes is only valid until the next update;
+ * the added and deleted Sets are kept for as long as they are held. The
+ * merge also notes which surviving processes have changed user, zone, project,
+ * task, or contract, so that indexes over the set need only look at
+ * those.
+ *
  * @author Peter Tribble
  */
 public class JProcessSet implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    private static final int[] NO_PIDS = new int[0];
+    private static final JProcess[] NO_PROCESSES = new JProcess[0];
+
     /**
      * The JProc to query for data.
      */
     private JProc jproc;
 
+    /*
+     * The current processes, and those added and deleted in the last
+     * update, each sorted by pid with the pids in a parallel array. Only
+     * the first ncur elements of the current arrays are used.
+     */
+    private transient int[] curPids;
+    private transient JProcess[] curProcs;
+    private transient int ncur;
+    private transient int[] addPids;
+    private transient JProcess[] addProcs;
+    private transient int[] delPids;
+    private transient JProcess[] delProcs;
+    private transient JProcess[] movProcs;
+
+    /*
+     * Scratch space for building the current, added, and deleted lists,
+     * which is kept from one update to the next. The spare current arrays
+     * are the ones used before the last update, whose first nspare
+     * elements may still be set.
+     */
+    private transient int[] sparePids;
+    private transient JProcess[] spareProcs;
+    private transient int nspare;
+    private transient int[] tmpAddPids;
+    private transient JProcess[] tmpAddProcs;
+    private transient int[] tmpDelPids;
+    private transient JProcess[] tmpDelProcs;
+    private transient JProcess[] tmpMovProcs;
+
+    /*
+     * The Set views, created on demand after each update.
+     */
+    private transient Set<JProcess> currentProcesses;
     private transient Set<JProcess> addedProcesses;
     private transient Set<JProcess> deletedProcesses;
-    private transient Set<JProcess> currentProcesses;
+
+    private transient ProcessSnapshot snapshot;
 
     /**
      * Creates a JProcessSet that includes all processes.
@@ -57,26 +110,320 @@ public class JProcessSet implements Serializable {
      */
     public JProcessSet(final JProc njproc) {
 	jproc = njproc;
-	currentProcesses = jproc.getProcesses();
-	addedProcesses = new HashSet<>();
-	deletedProcesses = new HashSet<>();
+	snapshot = new ProcessSnapshot();
+	jproc.getSnapshot(snapshot);
+	int n = snapshot.size();
+	curPids = new int[n];
+	curProcs = new JProcess[n];
+	for (int k = 0; k < n; k++) {
+	    curPids[k] = snapshot.getSortedPid(k);
+	    curProcs[k] = new JProcess(curPids[k],
+				snapshot.getInfo(snapshot.getSortedRow(k)));
+	}
+	ncur = n;
+	sparePids = NO_PIDS;
+	spareProcs = NO_PROCESSES;
+	addPids = NO_PIDS;
+	addProcs = NO_PROCESSES;
+	delPids = NO_PIDS;
+	delProcs = NO_PROCESSES;
+	movProcs = NO_PROCESSES;
+	tmpAddPids = new int[16];
+	tmpAddProcs = new JProcess[16];
+	tmpDelPids = new int[16];
+	tmpDelProcs = new JProcess[16];
+	tmpMovProcs = new JProcess[16];
     }
 
     /**
      * Update the list of processes. Creates lists of added and deleted
-     * processes since the previous update.
+     * processes since the previous update. Processes that are still
+     * present have their cached information refreshed in place.
      *
      * @return true if the process list has changed, otherwise false
      */
     public boolean update() {
-	Set<JProcess> newProcesses = jproc.getProcesses();
-	addedProcesses = new HashSet<>(newProcesses);
-	addedProcesses.removeAll(currentProcesses);
-	deletedProcesses = new HashSet<>(currentProcesses);
-	deletedProcesses.removeAll(newProcesses);
-	currentProcesses.addAll(addedProcesses);
-	currentProcesses.removeAll(deletedProcesses);
-	return !(addedProcesses.isEmpty() && deletedProcesses.isEmpty());
+	jproc.getSnapshot(snapshot);
+	return merge();
+    }
+
+    /**
+     * Update the list of processes from a snapshot that has already been
+     * taken, so that the potentially slow read of /proc can be done
+     * elsewhere, such as on a background thread. The snapshot replaces the
+     * one held by this JProcessSet, which keeps it until the next update.
+     * The snapshot previously held is no longer referenced and may be
+     * reused by the caller.
+     *
+     * @param nsnapshot a snapshot of all processes
+     *
+     * @return true if the process list has changed, otherwise false
+     */
+    public boolean update(final ProcessSnapshot nsnapshot) {
+	snapshot = nsnapshot;
+	return merge();
+    }
+
+    /*
+     * Merge the current snapshot with the previous process list.
+     */
+    private boolean merge() {
+	int n = snapshot.size();
+	if (sparePids.length < n) {
+	    // some headroom, so that a growing system doesn't grow every time
+	    sparePids = new int[n + n / 8];
+	    spareProcs = new JProcess[sparePids.length];
+	    nspare = 0;
+	}
+	int[] nPids = sparePids;
+	JProcess[] nProcs = spareProcs;
+	int nadd = 0;
+	int ndel = 0;
+	int nmov = 0;
+	int i = 0;
+	int k = 0;
+	int m = 0;
+	while (i < ncur || k < n) {
+	    if (k == n || (i < ncur
+			&& curPids[i] < snapshot.getSortedPid(k))) {
+		if (ndel == tmpDelPids.length) {
+		    tmpDelPids = Arrays.copyOf(tmpDelPids, ndel * 2);
+		    tmpDelProcs = Arrays.copyOf(tmpDelProcs, ndel * 2);
+		}
+		tmpDelPids[ndel] = curPids[i];
+		tmpDelProcs[ndel] = curProcs[i];
+		ndel++;
+		i++;
+	    } else {
+		int pid = snapshot.getSortedPid(k);
+		int row = snapshot.getSortedRow(k);
+		JProcess jp;
+		if (i == ncur || pid < curPids[i]) {
+		    jp = new JProcess(pid, snapshot.getInfo(row));
+		    if (nadd == tmpAddPids.length) {
+			tmpAddPids = Arrays.copyOf(tmpAddPids, nadd * 2);
+			tmpAddProcs = Arrays.copyOf(tmpAddProcs, nadd * 2);
+		    }
+		    tmpAddPids[nadd] = pid;
+		    tmpAddProcs[nadd] = jp;
+		    nadd++;
+		} else {
+		    // still running, refresh the cached info in place
+		    jp = curProcs[i];
+		    JProcInfo jpi = jp.getCachedInfo();
+		    boolean moved = jpi == null || !sameIds(jpi, row);
+		    if (jpi == null) {
+			jp.updateInfo(snapshot.getInfo(row));
+		    } else {
+			snapshot.getInfo(row, jpi);
+		    }
+		    if (moved) {
+			if (nmov == tmpMovProcs.length) {
+			    tmpMovProcs = Arrays.copyOf(tmpMovProcs, nmov * 2);
+			}
+			tmpMovProcs[nmov++] = jp;
+		    }
+		    i++;
+		}
+		nPids[m] = pid;
+		nProcs[m] = jp;
+		m++;
+		k++;
+	    }
+	}
+	// don't keep processes that have gone beyond the next update
+	if (m < nspare) {
+	    Arrays.fill(nProcs, m, nspare, null);
+	}
+	sparePids = curPids;
+	spareProcs = curProcs;
+	nspare = ncur;
+	curPids = nPids;
+	curProcs = nProcs;
+	ncur = m;
+	if (nadd == 0) {
+	    addPids = NO_PIDS;
+	    addProcs = NO_PROCESSES;
+	} else {
+	    addPids = Arrays.copyOf(tmpAddPids, nadd);
+	    addProcs = Arrays.copyOf(tmpAddProcs, nadd);
+	    Arrays.fill(tmpAddProcs, 0, nadd, null);
+	}
+	if (ndel == 0) {
+	    delPids = NO_PIDS;
+	    delProcs = NO_PROCESSES;
+	} else {
+	    delPids = Arrays.copyOf(tmpDelPids, ndel);
+	    delProcs = Arrays.copyOf(tmpDelProcs, ndel);
+	    Arrays.fill(tmpDelProcs, 0, ndel, null);
+	}
+	if (nmov == 0) {
+	    movProcs = NO_PROCESSES;
+	} else {
+	    movProcs = Arrays.copyOf(tmpMovProcs, nmov);
+	    Arrays.fill(tmpMovProcs, 0, nmov, null);
+	}
+	currentProcesses = null;
+	addedProcesses = null;
+	deletedProcesses = null;
+	return nadd + ndel > 0;
+    }
+
+    /*
+     * Does the cached info of a process have the same ids as the given
+     * row of the new snapshot?
+     */
+    private boolean sameIds(final JProcInfo jpi, final int row) {
+	return jpi.getuid() == snapshot.getuid(row)
+	    && jpi.getzoneid() == snapshot.getzoneid(row)
+	    && jpi.getprojid() == snapshot.getprojid(row)
+	    && jpi.gettaskid() == snapshot.gettaskid(row)
+	    && jpi.getcontract() == snapshot.getcontract(row);
+    }
+
+    /**
+     * Returns the snapshot of process information taken in the last
+     * update. The snapshot is reused, so its contents are only valid until
+     * the next update.
+     *
+     * @return the ProcessSnapshot from the last update.
+     */
+    public ProcessSnapshot getSnapshot() {
+	return snapshot;
+    }
+
+    /**
+     * Returns the number of current processes.
+     *
+     * @return the number of current processes.
+     */
+    public int size() {
+	return ncur;
+    }
+
+    /**
+     * Returns the pid of a current process. Processes are in ascending
+     * order of pid.
+     *
+     * @param i the index of the process, from 0 to size()-1
+     *
+     * @return the pid of the process at the given index.
+     */
+    public int getPid(final int i) {
+	return curPids[Objects.checkIndex(i, ncur)];
+    }
+
+    /**
+     * Returns a current process. Processes are in ascending order of pid.
+     *
+     * @param i the index of the process, from 0 to size()-1
+     *
+     * @return the JProcess at the given index.
+     */
+    public JProcess getProcess(final int i) {
+	return curProcs[Objects.checkIndex(i, ncur)];
+    }
+
+    /**
+     * Returns the current process with the given pid.
+     *
+     * @param pid the pid to look for
+     *
+     * @return the JProcess with the given pid, or null if there is no
+     * such process.
+     */
+    public JProcess findProcess(final int pid) {
+	int i = Arrays.binarySearch(curPids, 0, ncur, pid);
+	return (i < 0) ? null : curProcs[i];
+    }
+
+    /**
+     * Returns the number of processes added in the last update.
+     *
+     * @return the number of processes added in the last update.
+     */
+    public int getAddedCount() {
+	return addPids.length;
+    }
+
+    /**
+     * Returns the pid of a process added in the last update. Processes
+     * are in ascending order of pid.
+     *
+     * @param i the index of the process, from 0 to getAddedCount()-1
+     *
+     * @return the pid of the added process at the given index.
+     */
+    public int getAddedPid(final int i) {
+	return addPids[i];
+    }
+
+    /**
+     * Returns a process added in the last update. Processes are in
+     * ascending order of pid.
+     *
+     * @param i the index of the process, from 0 to getAddedCount()-1
+     *
+     * @return the added JProcess at the given index.
+     */
+    public JProcess getAddedProcess(final int i) {
+	return addProcs[i];
+    }
+
+    /**
+     * Returns the number of processes deleted in the last update.
+     *
+     * @return the number of processes deleted in the last update.
+     */
+    public int getDeletedCount() {
+	return delPids.length;
+    }
+
+    /**
+     * Returns the pid of a process deleted in the last update. Processes
+     * are in ascending order of pid.
+     *
+     * @param i the index of the process, from 0 to getDeletedCount()-1
+     *
+     * @return the pid of the deleted process at the given index.
+     */
+    public int getDeletedPid(final int i) {
+	return delPids[i];
+    }
+
+    /**
+     * Returns a process deleted in the last update. Processes are in
+     * ascending order of pid.
+     *
+     * @param i the index of the process, from 0 to getDeletedCount()-1
+     *
+     * @return the deleted JProcess at the given index.
+     */
+    public JProcess getDeletedProcess(final int i) {
+	return delProcs[i];
+    }
+
+    /**
+     * Returns the number of processes that survived the last update, but
+     * whose user, zone, project, task, or contract changed.
+     *
+     * @return the number of processes whose ids changed in the last
+     * update.
+     */
+    public int getMovedCount() {
+	return movProcs.length;
+    }
+
+    /**
+     * Returns a process whose user, zone, project, task, or contract
+     * changed in the last update. Processes are in ascending order of pid.
+     *
+     * @param i the index of the process, from 0 to getMovedCount()-1
+     *
+     * @return the moved JProcess at the given index.
+     */
+    public JProcess getMovedProcess(final int i) {
+	return movProcs[i];
     }
 
     /**
@@ -85,6 +432,10 @@ public class JProcessSet implements Serializable {
      * @return the Set of JProcesses added in the last update.
      */
     public Set<JProcess> getAddedProcesses() {
+	if (addedProcesses == null) {
+	    addedProcesses = new SortedProcessSet(addPids, addProcs,
+						addPids.length);
+	}
 	return addedProcesses;
     }
 
@@ -94,15 +445,25 @@ public class JProcessSet implements Serializable {
      * @return the Set of JProcesses deleted in the last update.
      */
     public Set<JProcess> getDeletedProcesses() {
+	if (deletedProcesses == null) {
+	    deletedProcesses = new SortedProcessSet(delPids, delProcs,
+						delPids.length);
+	}
 	return deletedProcesses;
     }
 
     /**
-     * Returns the current processes.
+     * Returns the current processes. The returned Set is read-only, and
+     * reflects the state as of the last update. Its storage is reused,
+     * so it should not be used after the next update; take a copy of it
+     * if that's needed.
      *
      * @return the current Set of JProcesses managed by this JProcessSet.
      */
     public Set<JProcess> getProcesses() {
+	if (currentProcesses == null) {
+	    currentProcesses = new SortedProcessSet(curPids, curProcs, ncur);
+	}
 	return currentProcesses;
     }
 
@@ -201,4 +562,55 @@ public class JProcessSet implements Serializable {
 	}
 	return projects;
     }
+
+    /*
+     * A read-only Set backed by the first n elements of a pid-sorted
+     * array of processes, so membership is a binary search with no
+     * hashing or copying.
+     */
+    private static final class SortedProcessSet extends AbstractSet<JProcess> {
+
+	private final int[] pids;
+	private final JProcess[] procs;
+	private final int n;
+
+	SortedProcessSet(final int[] npids, final JProcess[] nprocs,
+			 final int nn) {
+	    pids = npids;
+	    procs = nprocs;
+	    n = nn;
+	}
+
+	@Override
+	public int size() {
+	    return n;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+	    return o instanceof JProcess
+		&& Arrays.binarySearch(pids, 0, n,
+				((JProcess) o).getPid()) >= 0;
+	}
+
+	@Override
+	public Iterator<JProcess> iterator() {
+	    return new Iterator<JProcess>() {
+		private int i;
+
+		@Override
+		public boolean hasNext() {
+		    return i < n;
+		}
+
+		@Override
+		public JProcess next() {
+		    if (i >= n) {
+			throw new NoSuchElementException();
+		    }
+		    return procs[i++];
+		}
+	    };
+	}
+    }
 }
@@ -0,0 +1,395 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes JSON directly to an OutputStream, as UTF-8, through a single
+ * byte buffer, so that large responses such as the list of all processes
+ * are streamed out without building a String for each element or for
+ * the whole response.
+ *
+ * <p>Commas between array elements and object members are inserted
+ * automatically, and strings are escaped, so the output is always valid
+ * JSON. Numbers that JSON can't represent, infinities and NaN, are written
+ * as null.
+ *
+ * <p>A JSONWriter isn't thread safe.
+ *
+ * @author Peter Tribble
+ */
+public final class JSONWriter {
+
+    private static final int DEFAULT_BUFSIZE = 8192;
+    private static final int MAX_DEPTH = 32;
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6',
+	'7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private final OutputStream os;
+    private final byte[] buf;
+    private int pos;
+
+    /*
+     * For each level of nesting, whether anything has been written at
+     * that level yet, and so whether a comma is needed.
+     */
+    private final boolean[] started = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Create a JSONWriter with a buffer of the default size.
+     *
+     * @param nos the OutputStream to write to
+     */
+    public JSONWriter(final OutputStream nos) {
+	this(nos, DEFAULT_BUFSIZE);
+    }
+
+    /**
+     * Create a JSONWriter.
+     *
+     * @param nos the OutputStream to write to
+     * @param bufsize the size of the buffer, at least 32 bytes
+     */
+    public JSONWriter(final OutputStream nos, final int bufsize) {
+	os = nos;
+	buf = new byte[Math.max(bufsize, 32)];
+    }
+
+    /**
+     * Start an array.
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void startArray() throws IOException {
+	open('[');
+    }
+
+    /**
+     * End the current array.
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void endArray() throws IOException {
+	close(']');
+    }
+
+    /**
+     * Start an object.
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void startObject() throws IOException {
+	open('{');
+    }
+
+    /**
+     * End the current object.
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void endObject() throws IOException {
+	close('}');
+    }
+
+    /**
+     * Write the name of an object member, to be followed by its value.
+     *
+     * @param name the name of the member
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void name(final String name) throws IOException {
+	separate();
+	string(name);
+	put(':');
+	afterName = true;
+    }
+
+    /**
+     * Write a numeric value.
+     *
+     * @param value the value to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void value(final long value) throws IOException {
+	separate();
+	if (value == Long.MIN_VALUE) {
+	    ascii(Long.toString(value));
+	    return;
+	}
+	ensure(20);
+	long v = value;
+	if (v < 0) {
+	    buf[pos++] = '-';
+	    v = -v;
+	}
+	int start = pos;
+	do {
+	    buf[pos++] = (byte) ('0' + (int) (v % 10));
+	    v /= 10;
+	} while (v != 0);
+	// the digits were written least significant first
+	for (int i = start, j = pos - 1; i < j; i++, j--) {
+	    byte b = buf[i];
+	    buf[i] = buf[j];
+	    buf[j] = b;
+	}
+    }
+
+    /**
+     * Write a numeric value.
+     *
+     * @param value the value to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void value(final double value) throws IOException {
+	separate();
+	if (Double.isNaN(value) || Double.isInfinite(value)) {
+	    ascii("null");
+	} else {
+	    ascii(Double.toString(value));
+	}
+    }
+
+    /**
+     * Write a string value, which may be null.
+     *
+     * @param value the value to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void value(final String value) throws IOException {
+	separate();
+	if (value == null) {
+	    ascii("null");
+	} else {
+	    string(value);
+	}
+    }
+
+    /**
+     * Write an object member with a numeric value.
+     *
+     * @param name the name of the member
+     * @param value the value of the member
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void field(final String name, final long value)
+		throws IOException {
+	name(name);
+	value(value);
+    }
+
+    /**
+     * Write an object member with a numeric value.
+     *
+     * @param name the name of the member
+     * @param value the value of the member
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void field(final String name, final double value)
+		throws IOException {
+	name(name);
+	value(value);
+    }
+
+    /**
+     * Write an object member with a string value.
+     *
+     * @param name the name of the member
+     * @param value the value of the member, which may be null
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void field(final String name, final String value)
+		throws IOException {
+	name(name);
+	value(value);
+    }
+
+    /**
+     * Write an array of information on all the processes in a snapshot,
+     * each in the form given by {@link JProcInfo#toJSON()}.
+     *
+     * @param snap the ProcessSnapshot to write
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void write(final ProcessSnapshot snap) throws IOException {
+	JProcInfo jpi = new JProcInfo();
+	startArray();
+	for (int row = 0; row < snap.size(); row++) {
+	    snap.getInfo(row, jpi);
+	    jpi.toJSON(this);
+	}
+	endArray();
+    }
+
+    /*
+     * Something that writes itself as JSON.
+     */
+    interface Source {
+	void toJSON(JSONWriter jw) throws IOException;
+    }
+
+    /*
+     * Return what the given Source writes as a String, for the toJSON()
+     * methods that return one.
+     */
+    static String toString(final Source src, final int size) {
+	ByteArrayOutputStream bos = new ByteArrayOutputStream(size);
+	JSONWriter jw = new JSONWriter(bos, size);
+	try {
+	    src.toJSON(jw);
+	    jw.flush();
+	} catch (IOException ioe) {
+	    // a ByteArrayOutputStream doesn't throw
+	}
+	return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write any buffered output to the OutputStream, and flush it.
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void flush() throws IOException {
+	drain();
+	os.flush();
+    }
+
+    private void open(final char c) throws IOException {
+	separate();
+	if (depth == MAX_DEPTH) {
+	    throw new IllegalStateException("JSON nested too deeply");
+	}
+	started[depth++] = false;
+	put(c);
+    }
+
+    private void close(final char c) throws IOException {
+	depth--;
+	put(c);
+    }
+
+    /*
+     * Called before any value or name, to add a comma if this isn't the
+     * first thing at this level. The value of a member follows its name
+     * without one.
+     */
+    private void separate() throws IOException {
+	if (afterName) {
+	    afterName = false;
+	} else if (depth > 0) {
+	    if (started[depth - 1]) {
+		put(',');
+	    } else {
+		started[depth - 1] = true;
+	    }
+	}
+    }
+
+    private void ascii(final String s) throws IOException {
+	int n = s.length();
+	ensure(n);
+	for (int i = 0; i < n; i++) {
+	    buf[pos++] = (byte) s.charAt(i);
+	}
+    }
+
+    /*
+     * Write a quoted string, escaped as JSON requires and encoded as
+     * UTF-8. Each char needs at most 6 bytes, for a unicode escape; a
+     * surrogate pair takes two chars and 4 bytes.
+     */
+    private void string(final String s) throws IOException {
+	put('"');
+	int n = s.length();
+	for (int i = 0; i < n; i++) {
+	    ensure(6);
+	    char c = s.charAt(i);
+	    if (c == '"' || c == '\\') {
+		buf[pos++] = '\\';
+		buf[pos++] = (byte) c;
+	    } else if (c < 0x20) {
+		buf[pos++] = '\\';
+		buf[pos++] = 'u';
+		buf[pos++] = '0';
+		buf[pos++] = '0';
+		buf[pos++] = HEX[c >> 4];
+		buf[pos++] = HEX[c & 0xf];
+	    } else if (c < 0x80) {
+		buf[pos++] = (byte) c;
+	    } else if (c < 0x800) {
+		buf[pos++] = (byte) (0xc0 | (c >> 6));
+		buf[pos++] = (byte) (0x80 | (c & 0x3f));
+	    } else if (Character.isHighSurrogate(c) && i + 1 < n
+			&& Character.isLowSurrogate(s.charAt(i + 1))) {
+		int cp = Character.toCodePoint(c, s.charAt(++i));
+		buf[pos++] = (byte) (0xf0 | (cp >> 18));
+		buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+		buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+		buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+	    } else if (Character.isSurrogate(c)) {
+		// unpaired, so not valid UTF-16
+		buf[pos++] = '?';
+	    } else {
+		buf[pos++] = (byte) (0xe0 | (c >> 12));
+		buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+		buf[pos++] = (byte) (0x80 | (c & 0x3f));
+	    }
+	}
+	put('"');
+    }
+
+    private void put(final char c) throws IOException {
+	ensure(1);
+	buf[pos++] = (byte) c;
+    }
+
+    /*
+     * Make room for n bytes in the buffer, writing out what's there if
+     * necessary. Nothing is put in the buffer in one piece that is longer
+     * than the smallest buffer allowed.
+     */
+    private void ensure(final int n) throws IOException {
+	if (pos + n > buf.length) {
+	    drain();
+	}
+    }
+
+    private void drain() throws IOException {
+	if (pos > 0) {
+	    os.write(buf, 0, pos);
+	    pos = 0;
+	}
+    }
+}
@@ -0,0 +1,900 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An access class for Linux /proc, written in pure java so that no native
+ * library is needed. The Linux procfs files are text, and are parsed by
+ * hand from a reusable byte buffer, so that scanning the process table
+ * creates little garbage beyond the objects returned.
+ *
+ * <p>Linux has no equivalent of projects, zones, tasks, or contracts.
+ * Everything is reported as being in the global zone (id 0) and in
+ * project, task, and contract 0. Times are converted from clock ticks,
+ * which are assumed to be the usual 100 per second.
+ *
+ * @author Peter Tribble
+ */
+public final class LinuxJProc extends ProcessInterface {
+
+    /*
+     * The clock tick rate (USER_HZ), which is fixed at 100 on all the
+     * architectures we care about.
+     */
+    private static final long TICKS = 100;
+    private static final long NANOS_PER_TICK = 1000000000L / TICKS;
+
+    /*
+     * Keys we look for in /proc/pid/status and /proc/pid/io.
+     */
+    private static final byte[] KEY_UID = key("Uid:");
+    private static final byte[] KEY_GID = key("Gid:");
+    private static final byte[] KEY_VMSIZE = key("VmSize:");
+    private static final byte[] KEY_VMRSS = key("VmRSS:");
+    private static final byte[] KEY_VCTX = key("voluntary_ctxt_switches:");
+    private static final byte[] KEY_ICTX = key("nonvoluntary_ctxt_switches:");
+    private static final byte[] KEY_RCHAR = key("rchar:");
+    private static final byte[] KEY_WCHAR = key("wchar:");
+    private static final byte[] KEY_SYSCR = key("syscr:");
+    private static final byte[] KEY_SYSCW = key("syscw:");
+    private static final byte[] KEY_READ = key("read_bytes:");
+    private static final byte[] KEY_WRITE = key("write_bytes:");
+
+    /*
+     * Fields of /proc/pid/stat, numbered as in proc(5).
+     */
+    private static final int STAT_PPID = 4;
+    private static final int STAT_MINFLT = 10;
+    private static final int STAT_MAJFLT = 12;
+    private static final int STAT_UTIME = 14;
+    private static final int STAT_STIME = 15;
+    private static final int STAT_CUTIME = 16;
+    private static final int STAT_CSTIME = 17;
+    private static final int STAT_NTHREADS = 20;
+    private static final int STAT_STARTTIME = 22;
+    private static final int STAT_LAST = STAT_STARTTIME;
+
+    private static final String GLOBAL = "global";
+
+    private final File fproc;
+    private final long bootTime;
+
+    /*
+     * The parsing state isn't thread-safe, so each thread has its own.
+     */
+    private final ThreadLocal<Parser> tparser =
+	ThreadLocal.withInitial(Parser::new);
+
+    /**
+     * Creates a new LinuxJProc object.
+     */
+    public LinuxJProc() {
+	super();
+	fproc = new File("/proc");
+	bootTime = readBootTime();
+    }
+
+    private static byte[] key(final String s) {
+	return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /*
+     * The boot time, in seconds since the epoch, is the btime line of
+     * /proc/stat. Process start times are relative to it.
+     */
+    private static long readBootTime() {
+	try (BufferedReader br = Files.newBufferedReader(
+				Paths.get("/proc/stat"))) {
+	    String line;
+	    while ((line = br.readLine()) != null) {
+		if (line.startsWith("btime ")) {
+		    return Long.parseLong(line.substring(6).trim());
+		}
+	    }
+	} catch (IOException | NumberFormatException e) {
+	    // fall through
+	}
+	return 0;
+    }
+
+    /*
+     * Parse a directory name as a pid, returning -1 if it isn't one.
+     */
+    private static int parsePid(final String s) {
+	int n = 0;
+	for (int i = 0; i < s.length(); i++) {
+	    char c = s.charAt(i);
+	    if (c < '0' || c > '9') {
+		return -1;
+	    }
+	    n = n * 10 + (c - '0');
+	}
+	return n;
+    }
+
+    /**
+     * Return a Set of all processes in the system.
+     *
+     * @return A Set of all the processes running on the system.
+     */
+    @Override
+    public Set<JProcess> getProcesses() {
+	List<JProcInfo> infos = getSnapshot();
+	Set<JProcess> pset = new HashSet<>(infos.size() * 4 / 3 + 1);
+	for (JProcInfo jpi : infos) {
+	    pset.add(new JProcess(jpi.getpid(), jpi));
+	}
+	return pset;
+    }
+
+    /**
+     * Return the pids of all processes in the system, taken from a
+     * listing of /proc.
+     *
+     * @return an array of the pids of all the processes running on the
+     * system, in no particular order.
+     */
+    @Override
+    public int[] getPids() {
+	String[] names = fproc.list();
+	if (names == null) {
+	    return new int[0];
+	}
+	int[] pids = new int[names.length];
+	int n = 0;
+	for (String s : names) {
+	    int pid = parsePid(s);
+	    if (pid > 0) {
+		pids[n++] = pid;
+	    }
+	}
+	return Arrays.copyOf(pids, n);
+    }
+
+    /**
+     * Return information on all processes in the system.
+     *
+     * @return A List of JProcInfo objects, one for each process running
+     * on the system.
+     */
+    @Override
+    public List<JProcInfo> getSnapshot() {
+	String[] names = fproc.list();
+	if (names == null) {
+	    return new ArrayList<>();
+	}
+	Parser p = tparser.get();
+	List<JProcInfo> lpi = new ArrayList<>(names.length);
+	for (String s : names) {
+	    int pid = parsePid(s);
+	    // If the read fails then the process has exited, so ignore.
+	    if (pid > 0 && p.readInfo(pid)) {
+		JProcInfo jpi = new JProcInfo();
+		p.insertInfo(jpi);
+		lpi.add(jpi);
+	    }
+	}
+	return lpi;
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system. The snapshot is filled directly from the parsed data,
+     * so no JProcInfo objects are created.
+     *
+     * @param snap the ProcessSnapshot to populate
+     */
+    @Override
+    public void getSnapshot(final ProcessSnapshot snap) {
+	snap.clear();
+	String[] names = fproc.list();
+	if (names == null) {
+	    return;
+	}
+	Parser p = tparser.get();
+	for (String s : names) {
+	    int pid = parsePid(s);
+	    if (pid > 0 && p.readInfo(pid)) {
+		p.addInfo(snap);
+	    }
+	}
+    }
+
+    /**
+     * Return a Set of JLwp objects representing the lwps in this process.
+     * On Linux these are the tasks listed in /proc/pid/task.
+     * If the process no longer exists, returns null
+     *
+     * @param pid the pid of the process to query
+     *
+     * @return A Set of JLwp objects representing the lwps in this process.
+     */
+    @Override
+    public Set<JLwp> getLwps(final int pid) {
+	File pf = new File("/proc/" + pid + "/task");
+	String[] lwpids = pf.list();
+	if (lwpids == null) {
+	    return null;
+	}
+	Set<JLwp> lset = new HashSet<>();
+	for (String s : lwpids) {
+	    int lwpid = parsePid(s);
+	    if (lwpid > 0) {
+		lset.add(new JLwp(pid, lwpid));
+	    }
+	}
+	return lset;
+    }
+
+    /**
+     * Retrieves status of a process.
+     *
+     * @param pid The process pid to query
+     *
+     * @return A new JProcStatus object populated with current data, or null
+     * if the process does not exist
+     */
+    @Override
+    public JProcStatus getStatus(final int pid) {
+	Parser p = tparser.get();
+	if (!p.readStat(pid, 0)) {
+	    return null;
+	}
+	JProcStatus jps = new JProcStatus();
+	jps.insert(pid,
+		p.secs(STAT_UTIME), p.nanos(STAT_UTIME),
+		p.secs(STAT_STIME), p.nanos(STAT_STIME),
+		p.secs(STAT_CUTIME), p.nanos(STAT_CUTIME),
+		p.secs(STAT_CSTIME), p.nanos(STAT_CSTIME));
+	return jps;
+    }
+
+    /**
+     * Retrieves status of an lwp in a process.
+     *
+     * @param pid The process pid to query
+     * @param lwpid The id of the lwp to query
+     *
+     * @return A new JProcLwpStatus object populated with current data, or null
+     * if the process or lwp does not exist
+     */
+    @Override
+    public JProcLwpStatus getLwpStatus(final int pid, final int lwpid) {
+	Parser p = tparser.get();
+	if (!p.readStat(pid, lwpid)) {
+	    return null;
+	}
+	JProcLwpStatus jpls = new JProcLwpStatus();
+	jpls.insert(pid, lwpid,
+		p.secs(STAT_UTIME), p.nanos(STAT_UTIME),
+		p.secs(STAT_STIME), p.nanos(STAT_STIME));
+	return jpls;
+    }
+
+    /**
+     * Retrieves information about a process.
+     *
+     * @param pid The process pid to query
+     *
+     * @return A new JProcInfo object populated with current data, or null
+     * if the process does not exist
+     */
+    @Override
+    public JProcInfo getInfo(final int pid) {
+	Parser p = tparser.get();
+	if (!p.readInfo(pid)) {
+	    return null;
+	}
+	JProcInfo jpi = new JProcInfo();
+	p.insertInfo(jpi);
+	return jpi;
+    }
+
+    /**
+     * Retrieves information about a process, populating an existing
+     * JProcInfo object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param jpi The JProcInfo object to populate
+     *
+     * @return true if jpi was populated, false if the process does not
+     * exist
+     */
+    @Override
+    public boolean getInfo(final int pid, final JProcInfo jpi) {
+	Parser p = tparser.get();
+	if (!p.readInfo(pid)) {
+	    return false;
+	}
+	p.insertInfo(jpi);
+	return true;
+    }
+
+    /**
+     * Retrieves information about an lwp in a process.
+     *
+     * @param pid The process pid to query
+     * @param lwpid The id of the lwp to query
+     *
+     * @return A new JProcLwpInfo object populated with current data, or null
+     * if the process or lwp does not exist
+     */
+    @Override
+    public JProcLwpInfo getLwpInfo(final int pid, final int lwpid) {
+	Parser p = tparser.get();
+	if (!p.readStat(pid, lwpid)) {
+	    return null;
+	}
+	JProcLwpInfo jpli = new JProcLwpInfo();
+	long t = p.stat[STAT_UTIME] + p.stat[STAT_STIME];
+	jpli.insert(pid, lwpid, p.startSecs(),
+		t / TICKS, (t % TICKS) * NANOS_PER_TICK);
+	return jpli;
+    }
+
+    /**
+     * Retrieves usage information about a process.
+     *
+     * @param pid The process pid to query
+     *
+     * @return A new JProcUsage object populated with current data, or null
+     * if the process does not exist
+     */
+    @Override
+    public JProcUsage getUsage(final int pid) {
+	JProcUsage jpu = new JProcUsage();
+	return getUsage(pid, jpu) ? jpu : null;
+    }
+
+    /**
+     * Retrieves usage information about a process, populating an existing
+     * JProcUsage object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param jpu The JProcUsage object to populate
+     *
+     * @return true if jpu was populated, false if the process does not
+     * exist
+     */
+    @Override
+    public boolean getUsage(final int pid, final JProcUsage jpu) {
+	Parser p = tparser.get();
+	if (!p.readUsage(pid, 0)) {
+	    return false;
+	}
+	p.insertUsage(jpu, 0);
+	return true;
+    }
+
+    /**
+     * Retrieves usage information about an lwp in a process.
+     *
+     * @param pid The process pid to query
+     * @param lwpid The id of the lwp to query
+     *
+     * @return A new JProcUsage object populated with current data, or null
+     * if the process or lwp does not exist
+     */
+    @Override
+    public JProcUsage getLwpUsage(final int pid, final int lwpid) {
+	JProcUsage jpu = new JProcUsage();
+	return getLwpUsage(pid, lwpid, jpu) ? jpu : null;
+    }
+
+    /**
+     * Retrieves usage information about an lwp in a process, populating an
+     * existing JProcUsage object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param lwpid The id of the lwp to query
+     * @param jpu The JProcUsage object to populate
+     *
+     * @return true if jpu was populated, false if the process or lwp does
+     * not exist
+     */
+    @Override
+    public boolean getLwpUsage(final int pid, final int lwpid,
+				final JProcUsage jpu) {
+	Parser p = tparser.get();
+	if (!p.readUsage(pid, lwpid)) {
+	    return false;
+	}
+	p.insertUsage(jpu, lwpid);
+	return true;
+    }
+
+    /*
+     * Look up the given field of /etc/passwd or /etc/group. Each line
+     * is name:password:id:..., and we either match on the name and
+     * return the id, or match on the id and return the name.
+     */
+    private static String lookup(final String file, final String key,
+				final boolean byName) {
+	try (BufferedReader br = Files.newBufferedReader(Paths.get(file))) {
+	    String line;
+	    while ((line = br.readLine()) != null) {
+		int c1 = line.indexOf(':');
+		int c2 = (c1 < 0) ? -1 : line.indexOf(':', c1 + 1);
+		int c3 = (c2 < 0) ? -1 : line.indexOf(':', c2 + 1);
+		if (c3 < 0) {
+		    continue;
+		}
+		String name = line.substring(0, c1);
+		String id = line.substring(c2 + 1, c3);
+		if (byName && name.equals(key)) {
+		    return id;
+		} else if (!byName && id.equals(key)) {
+		    return name;
+		}
+	    }
+	} catch (IOException e) {
+	    // fall through
+	}
+	return null;
+    }
+
+    /*
+     * Look up the names of several ids in /etc/passwd or /etc/group,
+     * reading the file once.
+     */
+    private static String[] lookupAll(final String file, final int[] ids) {
+	String[] names = new String[ids.length];
+	Map<String, Integer> want = new HashMap<>();
+	for (int i = 0; i < ids.length; i++) {
+	    want.put(Integer.toString(ids[i]), i);
+	}
+	try (BufferedReader br = Files.newBufferedReader(Paths.get(file))) {
+	    String line;
+	    while (!want.isEmpty() && (line = br.readLine()) != null) {
+		int c1 = line.indexOf(':');
+		int c2 = (c1 < 0) ? -1 : line.indexOf(':', c1 + 1);
+		int c3 = (c2 < 0) ? -1 : line.indexOf(':', c2 + 1);
+		if (c3 < 0) {
+		    continue;
+		}
+		Integer i = want.remove(line.substring(c2 + 1, c3));
+		if (i != null) {
+		    names[i] = line.substring(0, c1);
+		}
+	    }
+	} catch (IOException e) {
+	    // leave any remaining names as null
+	}
+	return names;
+    }
+
+    private static int lookupId(final String file, final String name) {
+	String id = lookup(file, name, true);
+	try {
+	    return (id == null) ? -1 : Integer.parseInt(id);
+	} catch (NumberFormatException nfe) {
+	    return -1;
+	}
+    }
+
+    /**
+     * Retrieves the user name corresponding to a given numeric uid.
+     *
+     * @param uid The numeric userid.
+     *
+     * @return The user name, or null if no user matches.
+     */
+    @Override
+    public String getUserName(final int uid) {
+	return lookup("/etc/passwd", Integer.toString(uid), false);
+    }
+
+    /**
+     * Retrieves the user names corresponding to the given numeric uids,
+     * reading /etc/passwd once.
+     *
+     * @param uids The numeric userids.
+     *
+     * @return An array of user names, each entry being null if no user
+     * matches the corresponding uid.
+     */
+    @Override
+    public String[] getUserNames(final int[] uids) {
+	return lookupAll("/etc/passwd", uids);
+    }
+
+    /**
+     * Retrieves the user id corresponding to a given username.
+     *
+     * @param username The username.
+     *
+     * @return The userid, or -1 if no user matches.
+     */
+    @Override
+    public int getUserId(final String username) {
+	return lookupId("/etc/passwd", username);
+    }
+
+    /**
+     * Retrieves the group name corresponding to a given numeric gid.
+     *
+     * @param gid The numeric groupid.
+     *
+     * @return The group name, or null if no group matches.
+     */
+    @Override
+    public String getGroupName(final int gid) {
+	return lookup("/etc/group", Integer.toString(gid), false);
+    }
+
+    /**
+     * Retrieves the group names corresponding to the given numeric gids,
+     * reading /etc/group once.
+     *
+     * @param gids The numeric groupids.
+     *
+     * @return An array of group names, each entry being null if no group
+     * matches the corresponding gid.
+     */
+    @Override
+    public String[] getGroupNames(final int[] gids) {
+	return lookupAll("/etc/group", gids);
+    }
+
+    /**
+     * Retrieves the group id corresponding to a given group name.
+     *
+     * @param group The group name.
+     *
+     * @return The groupid, or -1 if no group matches.
+     */
+    @Override
+    public int getGroupId(final String group) {
+	return lookupId("/etc/group", group);
+    }
+
+    /**
+     * Retrieves the project name corresponding to a given numeric project id.
+     * Linux has no projects, so there is never a match.
+     *
+     * @param projid The numeric project id.
+     *
+     * @return null, as no project matches.
+     */
+    @Override
+    public String getProjectName(final int projid) {
+	return null;
+    }
+
+    /**
+     * Retrieves the project id corresponding to a given project name.
+     * Linux has no projects, so there is never a match.
+     *
+     * @param project The project name.
+     *
+     * @return -1, as no project matches.
+     */
+    @Override
+    public int getProjectId(final String project) {
+	return -1;
+    }
+
+    /**
+     * Retrieves the zone name corresponding to a given numeric zone id.
+     * On Linux everything is treated as being in the global zone.
+     *
+     * @param zoneid The numeric zone id.
+     *
+     * @return The zone name, or null if no zone matches.
+     */
+    @Override
+    public String getZoneName(final int zoneid) {
+	return (zoneid == 0) ? GLOBAL : null;
+    }
+
+    /**
+     * Retrieves the zone id corresponding to a given zone name.
+     * On Linux everything is treated as being in the global zone.
+     *
+     * @param zone The zone name.
+     *
+     * @return The zone id, or -1 if no zone matches.
+     */
+    @Override
+    public int getZoneId(final String zone) {
+	return GLOBAL.equals(zone) ? 0 : -1;
+    }
+
+    /*
+     * Reads and parses the procfs files for one process or thread at a
+     * time, holding the results in primitive fields. The buffer and
+     * path builder are reused from one call to the next.
+     */
+    private final class Parser {
+
+	private byte[] buf = new byte[4096];
+	private int len;
+	private int pos;
+	private final StringBuilder path = new StringBuilder(40);
+
+	/*
+	 * The numeric fields of the stat file, indexed by field number.
+	 */
+	final long[] stat = new long[STAT_LAST + 1];
+	private int pid;
+	private String comm;
+
+	private int uid;
+	private int euid;
+	private int gid;
+	private int egid;
+	private long vmsize;
+	private long vmrss;
+	private long vctx;
+	private long ictx;
+
+	private long rchar;
+	private long wchar;
+	private long syscr;
+	private long syscw;
+	private long readBytes;
+	private long writeBytes;
+
+	/*
+	 * Read the given file of a process (if lwpid is 0) or thread into
+	 * the buffer, growing it if necessary.
+	 */
+	private boolean read(final int npid, final int lwpid,
+				final String file) {
+	    path.setLength(0);
+	    path.append("/proc/").append(npid);
+	    if (lwpid != 0) {
+		path.append("/task/").append(lwpid);
+	    }
+	    path.append('/').append(file);
+	    len = 0;
+	    try (FileInputStream fis = new FileInputStream(path.toString())) {
+		int n;
+		while ((n = fis.read(buf, len, buf.length - len)) > 0) {
+		    len += n;
+		    if (len == buf.length) {
+			byte[] nbuf = new byte[buf.length * 2];
+			System.arraycopy(buf, 0, nbuf, 0, len);
+			buf = nbuf;
+		    }
+		}
+	    } catch (IOException e) {
+		return false;
+	    }
+	    pos = 0;
+	    return len > 0;
+	}
+
+	/*
+	 * Parse a decimal number starting at pos, skipping any leading
+	 * whitespace, and leave pos after it.
+	 */
+	private long nextLong() {
+	    while (pos < len && (buf[pos] == ' ' || buf[pos] == '\t')) {
+		pos++;
+	    }
+	    boolean neg = false;
+	    if (pos < len && buf[pos] == '-') {
+		neg = true;
+		pos++;
+	    }
+	    long n = 0;
+	    while (pos < len && buf[pos] >= '0' && buf[pos] <= '9') {
+		n = n * 10 + (buf[pos] - '0');
+		pos++;
+	    }
+	    return neg ? -n : n;
+	}
+
+	/*
+	 * Does the line starting at pos begin with the given key? If so,
+	 * leave pos after it.
+	 */
+	private boolean match(final byte[] key) {
+	    if (pos + key.length > len) {
+		return false;
+	    }
+	    for (int i = 0; i < key.length; i++) {
+		if (buf[pos + i] != key[i]) {
+		    return false;
+		}
+	    }
+	    pos += key.length;
+	    return true;
+	}
+
+	/*
+	 * Move pos to the start of the next line.
+	 */
+	private void nextLine() {
+	    while (pos < len && buf[pos] != '\n') {
+		pos++;
+	    }
+	    pos++;
+	}
+
+	/*
+	 * Parse the stat file. The command name is in parentheses and may
+	 * itself contain spaces or parentheses, so the fields proper start
+	 * after the last closing parenthesis.
+	 */
+	boolean readStat(final int npid, final int lwpid) {
+	    if (!read(npid, lwpid, "stat")) {
+		return false;
+	    }
+	    int lp = 0;
+	    while (lp < len && buf[lp] != '(') {
+		lp++;
+	    }
+	    int rp = len - 1;
+	    while (rp > lp && buf[rp] != ')') {
+		rp--;
+	    }
+	    if (rp <= lp) {
+		return false;
+	    }
+	    pid = npid;
+	    comm = new String(buf, lp + 1, rp - lp - 1, StandardCharsets.UTF_8);
+	    // skip ") " and the single character state, field 3
+	    pos = rp + 4;
+	    for (int i = STAT_PPID; i <= STAT_LAST; i++) {
+		stat[i] = nextLong();
+	    }
+	    return true;
+	}
+
+	/*
+	 * Parse the parts of the status file we need.
+	 */
+	private boolean readStatus(final int npid, final int lwpid) {
+	    if (!read(npid, lwpid, "status")) {
+		return false;
+	    }
+	    vmsize = 0;
+	    vmrss = 0;
+	    while (pos < len) {
+		if (match(KEY_UID)) {
+		    uid = (int) nextLong();
+		    euid = (int) nextLong();
+		} else if (match(KEY_GID)) {
+		    gid = (int) nextLong();
+		    egid = (int) nextLong();
+		} else if (match(KEY_VMSIZE)) {
+		    vmsize = nextLong();
+		} else if (match(KEY_VMRSS)) {
+		    vmrss = nextLong();
+		} else if (match(KEY_VCTX)) {
+		    vctx = nextLong();
+		} else if (match(KEY_ICTX)) {
+		    ictx = nextLong();
+		}
+		nextLine();
+	    }
+	    return true;
+	}
+
+	/*
+	 * Parse the io file. This is only readable for our own processes
+	 * (or by root), so if it can't be read the counts are zero.
+	 */
+	private void readIo(final int npid, final int lwpid) {
+	    rchar = 0;
+	    wchar = 0;
+	    syscr = 0;
+	    syscw = 0;
+	    readBytes = 0;
+	    writeBytes = 0;
+	    if (!read(npid, lwpid, "io")) {
+		return;
+	    }
+	    while (pos < len) {
+		if (match(KEY_RCHAR)) {
+		    rchar = nextLong();
+		} else if (match(KEY_WCHAR)) {
+		    wchar = nextLong();
+		} else if (match(KEY_SYSCR)) {
+		    syscr = nextLong();
+		} else if (match(KEY_SYSCW)) {
+		    syscw = nextLong();
+		} else if (match(KEY_READ)) {
+		    readBytes = nextLong();
+		} else if (match(KEY_WRITE)) {
+		    writeBytes = nextLong();
+		}
+		nextLine();
+	    }
+	}
+
+	boolean readInfo(final int npid) {
+	    return readStat(npid, 0) && readStatus(npid, 0);
+	}
+
+	boolean readUsage(final int npid, final int lwpid) {
+	    if (!readStat(npid, lwpid) || !readStatus(npid, lwpid)) {
+		return false;
+	    }
+	    readIo(npid, lwpid);
+	    return true;
+	}
+
+	long secs(final int field) {
+	    return stat[field] / TICKS;
+	}
+
+	long nanos(final int field) {
+	    return (stat[field] % TICKS) * NANOS_PER_TICK;
+	}
+
+	long startSecs() {
+	    return bootTime + stat[STAT_STARTTIME] / TICKS;
+	}
+
+	void insertInfo(final JProcInfo jpi) {
+	    long t = stat[STAT_UTIME] + stat[STAT_STIME];
+	    long ct = stat[STAT_CUTIME] + stat[STAT_CSTIME];
+	    jpi.insert(pid, (int) stat[STAT_PPID], uid, euid, gid, egid,
+		(int) stat[STAT_NTHREADS], vmsize, vmrss, startSecs(),
+		t / TICKS, (t % TICKS) * NANOS_PER_TICK,
+		ct / TICKS, (ct % TICKS) * NANOS_PER_TICK,
+		0, 0, 0, 0, comm);
+	}
+
+	void addInfo(final ProcessSnapshot snap) {
+	    long t = stat[STAT_UTIME] + stat[STAT_STIME];
+	    long ct = stat[STAT_CUTIME] + stat[STAT_CSTIME];
+	    snap.add(pid, (int) stat[STAT_PPID], uid, euid, gid, egid,
+		(int) stat[STAT_NTHREADS], vmsize, vmrss, startSecs(),
+		t / TICKS, (t % TICKS) * NANOS_PER_TICK,
+		ct / TICKS, (ct % TICKS) * NANOS_PER_TICK,
+		0, 0, 0, 0, comm);
+	}
+
+	/*
+	 * Block counts are reported in 512-byte units, as on Solaris.
+	 */
+	void insertUsage(final JProcUsage jpu, final int lwpid) {
+	    long rtime = System.currentTimeMillis() - bootTime * 1000
+		- stat[STAT_STARTTIME] * (1000 / TICKS);
+	    jpu.insert(lwpid, (lwpid == 0) ? (int) stat[STAT_NTHREADS] : 1,
+		rtime / 1000, (rtime % 1000) * 1000000,
+		secs(STAT_UTIME), nanos(STAT_UTIME),
+		secs(STAT_STIME), nanos(STAT_STIME),
+		stat[STAT_MINFLT], stat[STAT_MAJFLT], 0,
+		readBytes / 512, writeBytes / 512, 0, 0, 0,
+		vctx, ictx, syscr + syscw, rchar + wchar);
+	}
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * A cache of id to name lookups, such as uid to user name, that may be
+ * used from several threads at once.
+ *
+ * <p>Entries expire after a time to live, so that renamed users, or zones
+ * rebooted under a new id, are eventually picked up. Failed lookups are
+ * cached too, usually with a shorter time to live, so that an unknown id
+ * doesn't cause a name service lookup every time it's displayed. The
+ * cache is bounded; if it grows beyond its maximum size then expired
+ * entries are discarded, followed by arbitrary entries if necessary.
+ *
+ * @author Peter Tribble
+ */
+public final class NameCache {
+
+    /**
+     * The default time to live of a successful lookup, in milliseconds.
+     */
+    public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * The default time to live of a failed lookup, in milliseconds.
+     */
+    public static final long DEFAULT_MISS_TTL = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * The default maximum number of entries.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final Map<Integer, Entry> cache = new ConcurrentHashMap<>();
+    private final IntFunction<String> lookup;
+    private volatile long ttl;
+    private volatile long missTtl;
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    /*
+     * A cached name, which is null for a failed lookup, and the
+     * System.nanoTime() after which it is no longer valid.
+     */
+    private static final class Entry {
+	private final String name;
+	private final long expires;
+
+	Entry(final String nname, final long nexpires) {
+	    name = nname;
+	    expires = nexpires;
+	}
+    }
+
+    /**
+     * Create a NameCache with the default times to live.
+     *
+     * @param nlookup the function used to look up a name, returning null
+     * if there is no name for an id
+     */
+    public NameCache(final IntFunction<String> nlookup) {
+	this(nlookup, DEFAULT_TTL, DEFAULT_MISS_TTL);
+    }
+
+    /**
+     * Create a NameCache.
+     *
+     * @param nlookup the function used to look up a name, returning null
+     * if there is no name for an id
+     * @param nttl the time to live of a successful lookup, in milliseconds
+     * @param nmissTtl the time to live of a failed lookup, in milliseconds
+     */
+    public NameCache(final IntFunction<String> nlookup, final long nttl,
+		     final long nmissTtl) {
+	lookup = nlookup;
+	setTTL(nttl, nmissTtl);
+    }
+
+    /**
+     * Set the times to live of cached entries. Entries already in the
+     * cache keep their existing expiry time.
+     *
+     * @param nttl the time to live of a successful lookup, in milliseconds
+     * @param nmissTtl the time to live of a failed lookup, in milliseconds
+     */
+    public void setTTL(final long nttl, final long nmissTtl) {
+	ttl = TimeUnit.MILLISECONDS.toNanos(nttl);
+	missTtl = TimeUnit.MILLISECONDS.toNanos(nmissTtl);
+    }
+
+    /**
+     * Set the maximum number of entries held in the cache.
+     *
+     * @param nmaxSize the maximum number of entries
+     */
+    public void setMaxSize(final int nmaxSize) {
+	maxSize = nmaxSize;
+	trim(System.nanoTime());
+    }
+
+    /**
+     * Return the name corresponding to the given id, looking it up if
+     * it isn't cached or the cached entry has expired.
+     *
+     * @param id the id to look up
+     *
+     * @return the name, or null if there is no name for this id
+     */
+    public String get(final int id) {
+	long now = System.nanoTime();
+	Entry e = cache.get(id);
+	if (e == null || now - e.expires > 0) {
+	    e = put(id, lookup.apply(id), now);
+	}
+	return e.name;
+    }
+
+    /**
+     * Add the result of a lookup made elsewhere to the cache, as when
+     * names are looked up in bulk.
+     *
+     * @param id the id
+     * @param name the name, or null if there is no name for this id
+     */
+    public void put(final int id, final String name) {
+	put(id, name, System.nanoTime());
+    }
+
+    private Entry put(final int id, final String name, final long now) {
+	Entry e = new Entry(name, now + ((name == null) ? missTtl : ttl));
+	cache.put(id, e);
+	if (cache.size() > maxSize) {
+	    trim(now);
+	}
+	return e;
+    }
+
+    /*
+     * Discard expired entries, and then arbitrary entries, until the
+     * cache is within its maximum size.
+     */
+    private void trim(final long now) {
+	cache.values().removeIf(e -> now - e.expires > 0);
+	Iterator<Integer> iter = cache.keySet().iterator();
+	while (cache.size() > maxSize && iter.hasNext()) {
+	    iter.next();
+	    iter.remove();
+	}
+    }
+
+    /**
+     * Is there a valid cached entry for the given id?
+     *
+     * @param id the id to check
+     *
+     * @return true if the id has been looked up and the entry hasn't yet
+     * expired
+     */
+    public boolean contains(final int id) {
+	Entry e = cache.get(id);
+	return e != null && System.nanoTime() - e.expires <= 0;
+    }
+
+    /**
+     * Discard the cached entry for the given id.
+     *
+     * @param id the id to discard
+     */
+    public void invalidate(final int id) {
+	cache.remove(id);
+    }
+
+    /**
+     * Discard all cached entries.
+     */
+    public void invalidate() {
+	cache.clear();
+    }
+
+    /**
+     * Return the number of entries in the cache, including any that have
+     * expired but not yet been discarded.
+     *
+     * @return the number of cached entries
+     */
+    public int size() {
+	return cache.size();
+    }
+}
@@ -21,18 +21,33 @@
 package uk.co.petertribble.jproc.api;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
  * An access class for Solaris /proc. Allows details on individual processes
  * to be queried.
  *
+ * Queries on individual processes and lwps that have been registered
+ * with watch() keep their /proc files open, in a bounded cache shared by
+ * all instances, so that a watched process can be resampled with a single
+ * read. Files belonging to a process are closed automatically once that
+ * process exits, or may be closed explicitly with release() and close().
+ * Queries on any other process open and close its files each time.
+ *
  * @author Peter Tribble
  */
 public final class NativeJProc extends ProcessInterface {
 
-    private final File fproc;
+    /*
+     * Each thread gets its own buffer for raw transfers.
+     */
+    private static final ThreadLocal<ProcBuffer> TBUF =
+	ThreadLocal.withInitial(ProcBuffer::new);
 
     static {
 	System.loadLibrary("proc_jni");
@@ -44,7 +59,6 @@ public final class NativeJProc extends ProcessInterface {
      */
     public NativeJProc() {
 	super();
-	fproc = new File("/proc");
     }
 
     /**
@@ -54,16 +68,237 @@ public final class NativeJProc extends ProcessInterface {
      */
     @Override
     public Set<JProcess> getProcesses() {
-	Set<JProcess> pset = new HashSet<>();
-	for (String s : fproc.list()) {
-	    int pid = Integer.parseInt(s);
-	    JProcInfo jpi = getInfo(pid);
-	    // If getInfo is null then the process has exited, so ignore.
+	List<JProcInfo> infos = getSnapshot();
+	Set<JProcess> pset = new HashSet<>(infos.size() * 4 / 3 + 1);
+	for (JProcInfo jpi : infos) {
+	    pset.add(new JProcess(jpi.getpid(), jpi));
+	}
+	return pset;
+    }
+
+    /**
+     * Return information on all processes in the system. The whole of
+     * /proc is walked in native code, so this is a single call into the
+     * native layer rather than one per process.
+     *
+     * @return A List of JProcInfo objects, one for each process running
+     * on the system.
+     */
+    @Override
+    public List<JProcInfo> getSnapshot() {
+	JProcInfo[] infos = getInfoAll();
+	List<JProcInfo> lpi = new ArrayList<>(infos.length);
+	for (JProcInfo jpi : infos) {
+	    // If an entry is null then the process has exited, so ignore.
 	    if (jpi != null) {
-		pset.add(new JProcess(pid, jpi));
+		lpi.add(jpi);
 	    }
 	}
-	return pset;
+	return lpi;
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system. The raw data is transferred in this thread's
+     * ProcBuffer and decoded in java, so no JProcInfo objects are created
+     * and the native layer makes no calls back into java.
+     *
+     * @param snap the ProcessSnapshot to populate
+     */
+    @Override
+    public void getSnapshot(final ProcessSnapshot snap) {
+	ProcBuffer pb = getBuffer();
+	getSnapshot(pb);
+	snap.clear();
+	addAll(pb, snap);
+    }
+
+    /*
+     * Append the psinfo records in the given ProcBuffer to a snapshot.
+     */
+    private static void addAll(final ProcBuffer pb,
+			       final ProcessSnapshot snap) {
+	if (pb.size() == 0) {
+	    return;
+	}
+	JProcInfoView jpv = pb.getInfo(0);
+	for (int i = 0; i < pb.size(); i++) {
+	    jpv.moveTo(i);
+	    snap.add(jpv.getpid(), jpv.getppid(), jpv.getuid(), jpv.geteuid(),
+		jpv.getgid(), jpv.getegid(), jpv.getnlwp(),
+		jpv.getsize(), jpv.getrssize(), jpv.getstime(),
+		jpv.getetime(), jpv.getntime(), jpv.getectime(),
+		jpv.getnctime(), jpv.gettaskid(), jpv.getprojid(),
+		jpv.getzoneid(), jpv.getcontract(), jpv.getfname());
+	}
+    }
+
+    /**
+     * Return the pids of all processes in the system, taken from a
+     * listing of /proc.
+     *
+     * @return an array of the pids of all the processes running on the
+     * system, in no particular order.
+     */
+    @Override
+    public int[] getPids() {
+	String[] names = new File("/proc").list();
+	if (names == null) {
+	    return new int[0];
+	}
+	int[] pids = new int[names.length];
+	int n = 0;
+	for (String s : names) {
+	    try {
+		pids[n] = Integer.parseInt(s);
+		n++;
+	    } catch (NumberFormatException nfe) {
+		// not a process
+	    }
+	}
+	return Arrays.copyOf(pids, n);
+    }
+
+    /**
+     * Add information on a range of the given processes to the given
+     * ProcessSnapshot. The range is read in a single native call into
+     * this thread's ProcBuffer, without using the cache of open files,
+     * so several threads may do this at once without contention.
+     *
+     * @param pids an array of pids
+     * @param from the index of the first pid to query, inclusive
+     * @param to the index of the last pid to query, exclusive
+     * @param snap the ProcessSnapshot to add to
+     */
+    @Override
+    public void getSnapshot(final int[] pids, final int from, final int to,
+			    final ProcessSnapshot snap) {
+	ProcBuffer pb = getBuffer();
+	int n;
+	while ((n = readInfoPids(pids, from, to, pb.buffer())) == BUFFER_FULL) {
+	    pb.grow();
+	}
+	pb.setInfo(n);
+	addAll(pb, snap);
+    }
+
+    /**
+     * Retrieves usage information about a range of the given processes,
+     * populating existing JProcUsage objects. The range is read in a
+     * single native call into this thread's ProcBuffer, without using
+     * the cache of open files, so several threads may do this at once
+     * without contention.
+     *
+     * @param pids an array of pids
+     * @param from the index of the first pid to query, inclusive
+     * @param to the index of the last pid to query, exclusive
+     * @param jpus the JProcUsage objects to populate
+     * @param found set to true for each process that was found
+     */
+    @Override
+    public void getUsage(final int[] pids, final int from, final int to,
+			 final JProcUsage[] jpus, final boolean[] found) {
+	ProcBuffer pb = getBuffer();
+	int n;
+	while ((n = readUsagePids(pids, from, to, pb.buffer()))
+	       == BUFFER_FULL) {
+	    pb.grow();
+	}
+	pb.setUsage(n);
+	/*
+	 * There is a record for every pid requested, those for processes
+	 * that no longer exist having a count of -1.
+	 */
+	JProcUsageView jpv = (n > 0) ? pb.getUsage(0) : null;
+	for (int i = 0; i < n; i++) {
+	    jpv.moveTo(i);
+	    found[from + i] = jpv.getcount() >= 0;
+	    if (found[from + i]) {
+		jpv.copyTo(jpus[from + i]);
+	    }
+	}
+    }
+
+    /**
+     * Return the ProcBuffer belonging to the calling thread. It is created
+     * on first use and reused thereafter.
+     *
+     * @return the calling thread's ProcBuffer
+     */
+    public ProcBuffer getBuffer() {
+	return TBUF.get();
+    }
+
+    /**
+     * Fill the given ProcBuffer with raw psinfo records for all processes
+     * in the system, growing it if necessary. The records are decoded
+     * on demand through a {@link JProcInfoView}.
+     *
+     * @param pb the ProcBuffer to fill
+     */
+    public void getSnapshot(final ProcBuffer pb) {
+	int n;
+	while ((n = readInfoAll(pb.buffer())) == BUFFER_FULL) {
+	    pb.grow();
+	}
+	pb.setInfo(n);
+    }
+
+    /**
+     * Fill the given ProcBuffer with a single raw psinfo record for the
+     * given process.
+     *
+     * @param pid The process pid to query
+     * @param pb the ProcBuffer to fill
+     *
+     * @return true if the buffer was filled, false if the process does
+     * not exist
+     */
+    public boolean getInfo(final int pid, final ProcBuffer pb) {
+	int n;
+	while ((n = readInfo(pid, pb.buffer())) == BUFFER_FULL) {
+	    pb.grow();
+	}
+	pb.setInfo(Math.max(n, 0));
+	return n > 0;
+    }
+
+    /**
+     * Fill the given ProcBuffer with a single raw usage record for the
+     * given process.
+     *
+     * @param pid The process pid to query
+     * @param pb the ProcBuffer to fill
+     *
+     * @return true if the buffer was filled, false if the process does
+     * not exist
+     */
+    public boolean getUsage(final int pid, final ProcBuffer pb) {
+	int n;
+	while ((n = readUsage(pid, pb.buffer())) == BUFFER_FULL) {
+	    pb.grow();
+	}
+	pb.setUsage(Math.max(n, 0));
+	return n > 0;
+    }
+
+    /**
+     * Fill the given ProcBuffer with raw usage records for all the lwps
+     * in the given process, read from /proc/pid/lusage.
+     *
+     * @param pid The process pid to query
+     * @param pb the ProcBuffer to fill
+     *
+     * @return true if the buffer was filled, false if the process does
+     * not exist
+     */
+    public boolean getAllLwpUsage(final int pid, final ProcBuffer pb) {
+	int n;
+	while ((n = readLwpUsageAll(pid, pb.buffer())) == BUFFER_FULL) {
+	    pb.grow();
+	}
+	pb.setUsage(Math.max(n, 0));
+	return n >= 0;
     }
 
     /**
@@ -122,6 +357,21 @@ public final class NativeJProc extends ProcessInterface {
     @Override
     public native JProcInfo getInfo(int pid);
 
+    /**
+     * Retrieves information about a process, populating an existing
+     * JProcInfo object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param jpi The JProcInfo object to populate
+     *
+     * @return true if jpi was populated, false if the process does not
+     * exist
+     */
+    @Override
+    public boolean getInfo(final int pid, final JProcInfo jpi) {
+	return fillInfo(pid, jpi);
+    }
+
     /**
      * Retrieves information about an lwp in a process.
      *
@@ -145,6 +395,21 @@ public final class NativeJProc extends ProcessInterface {
     @Override
     public native JProcUsage getUsage(int pid);
 
+    /**
+     * Retrieves usage information about a process, populating an existing
+     * JProcUsage object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param jpu The JProcUsage object to populate
+     *
+     * @return true if jpu was populated, false if the process does not
+     * exist
+     */
+    @Override
+    public boolean getUsage(final int pid, final JProcUsage jpu) {
+	return fillUsage(pid, jpu);
+    }
+
     /**
      * Retrieves usage information about an lwp in a process.
      *
@@ -157,6 +422,84 @@ public final class NativeJProc extends ProcessInterface {
     @Override
     public native JProcUsage getLwpUsage(int pid, int lwpid);
 
+    /**
+     * Retrieves usage information about an lwp in a process, populating an
+     * existing JProcUsage object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param lwpid The id of the lwp to query
+     * @param jpu The JProcUsage object to populate
+     *
+     * @return true if jpu was populated, false if the process or lwp does
+     * not exist
+     */
+    @Override
+    public boolean getLwpUsage(final int pid, final int lwpid,
+				final JProcUsage jpu) {
+	return fillLwpUsage(pid, lwpid, jpu);
+    }
+
+    /**
+     * Retrieves usage information about all the lwps in a process, read
+     * from /proc/pid/lusage in a single call.
+     *
+     * @param pid The process pid to query
+     *
+     * @return A List of JProcUsage objects, one for each lwp in the
+     * process, or null if the process does not exist
+     */
+    @Override
+    public List<JProcUsage> getAllLwpUsage(final int pid) {
+	JProcUsage[] usages = getLwpUsageAll(pid);
+	return (usages == null) ? null : Arrays.asList(usages);
+    }
+
+    /**
+     * Retrieves usage information about all the lwps in a process,
+     * populating existing JProcUsage objects. The records are read from
+     * /proc/pid/lusage in a single call into this thread's ProcBuffer,
+     * and copied from there, so no objects are created once the list is
+     * long enough.
+     *
+     * @param pid The process pid to query
+     * @param jpus the JProcUsage objects to populate
+     *
+     * @return the number of lwps whose usage was read, or -1 if the
+     * process does not exist
+     */
+    @Override
+    public int getAllLwpUsage(final int pid, final List<JProcUsage> jpus) {
+	ProcBuffer pb = getBuffer();
+	if (!getAllLwpUsage(pid, pb)) {
+	    return -1;
+	}
+	int n = pb.size();
+	JProcUsageView jpv = (n > 0) ? pb.getUsage(0) : null;
+	for (int i = 0; i < n; i++) {
+	    if (jpus.size() <= i) {
+		jpus.add(new JProcUsage());
+	    }
+	    jpv.moveTo(i);
+	    jpv.copyTo(jpus.get(i));
+	}
+	return n;
+    }
+
+    /**
+     * Retrieves information about all the lwps in a process, read from
+     * /proc/pid/lpsinfo in a single call.
+     *
+     * @param pid The process pid to query
+     *
+     * @return A List of JProcLwpInfo objects, one for each lwp in the
+     * process, or null if the process does not exist
+     */
+    @Override
+    public List<JProcLwpInfo> getAllLwpInfo(final int pid) {
+	JProcLwpInfo[] infos = getLwpInfoAll(pid);
+	return (infos == null) ? null : Arrays.asList(infos);
+    }
+
     /**
      * Retrieves the user name corresponding to a given numeric uid.
      *
@@ -237,6 +580,77 @@ public final class NativeJProc extends ProcessInterface {
     @Override
     public native int getZoneId(String zone);
 
+    /**
+     * Registers the given process as watched, so that the /proc files
+     * read for it are kept open until it is released.
+     *
+     * @param pid The process pid to watch
+     */
+    @Override
+    public native void watch(int pid);
+
+    /**
+     * Stops watching the given process, and closes any /proc files held
+     * open for it.
+     *
+     * @param pid The process pid to release
+     */
+    @Override
+    public native void release(int pid);
+
+    /**
+     * Stops watching all processes, and closes all /proc files held open.
+     * This affects all NativeJProc instances, which remain usable.
+     */
+    @Override
+    public native void close();
+
+    /*
+     * Reads psinfo for every process in /proc. Entries for processes that
+     * exit during the scan are left null.
+     */
+    private native JProcInfo[] getInfoAll();
+
+    /*
+     * Read lusage and lpsinfo for the given process, returning null if
+     * the process does not exist.
+     */
+    private native JProcUsage[] getLwpUsageAll(int pid);
+
+    private native JProcLwpInfo[] getLwpInfoAll(int pid);
+
+    /*
+     * The following write raw records into a direct buffer, returning the
+     * number of records written, -1 if the process does not exist, or
+     * BUFFER_FULL if the buffer is too small.
+     */
+    private static final int BUFFER_FULL = -2;
+
+    private native int readInfoAll(ByteBuffer buf);
+
+    private native int readInfo(int pid, ByteBuffer buf);
+
+    private native int readUsage(int pid, ByteBuffer buf);
+
+    private native int readLwpUsageAll(int pid, ByteBuffer buf);
+
+    private native int readInfoPids(int[] pids, int from, int to,
+				    ByteBuffer buf);
+
+    private native int readUsagePids(int[] pids, int from, int to,
+				     ByteBuffer buf);
+
+    /*
+     * The following populate the supplied object in place, returning
+     * false if the process or lwp does not exist. They are distinct
+     * names rather than overloads to keep the JNI symbols simple.
+     */
+    private native boolean fillInfo(int pid, JProcInfo jpi);
+
+    private native boolean fillUsage(int pid, JProcUsage jpu);
+
+    private native boolean fillLwpUsage(int pid, int lwpid, JProcUsage jpu);
+
     /*
      * Caches all the methodids once, for efficiency and guaranteed code
      * coverage.
@@ -0,0 +1,173 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Collects process information in parallel, splitting the list of pids
+ * into chunks that are read by the workers of a ForkJoinPool. Each chunk
+ * has its own result slot, so the workers never contend for shared state,
+ * and the results are merged once all the workers have finished.
+ *
+ * @author Peter Tribble
+ */
+final class ParallelCollector {
+
+    /**
+     * The number of processes read by a worker in one go.
+     */
+    private static final int CHUNK = 256;
+
+    private final ProcessInterface njp;
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a ParallelCollector.
+     *
+     * @param njproc the ProcessInterface to query for process information
+     * @param parallelism the number of worker threads to use
+     */
+    ParallelCollector(final ProcessInterface njproc, final int parallelism) {
+	njp = njproc;
+	pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Return the number of worker threads.
+     *
+     * @return the parallelism level of this collector
+     */
+    int getParallelism() {
+	return pool.getParallelism();
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system.
+     *
+     * @param snap the ProcessSnapshot to populate
+     */
+    void getSnapshot(final ProcessSnapshot snap) {
+	int[] pids = njp.getPids();
+	ProcessSnapshot[] parts =
+	    new ProcessSnapshot[(pids.length + CHUNK - 1) / CHUNK];
+	pool.invoke(new SnapshotTask(pids, parts, 0, parts.length));
+	snap.clear();
+	for (ProcessSnapshot part : parts) {
+	    for (int row = 0; row < part.size(); row++) {
+		snap.add(part, row);
+	    }
+	}
+    }
+
+    /**
+     * Retrieve usage of the given processes, populating existing
+     * JProcUsage objects.
+     *
+     * @param pids an array of pids
+     * @param jpus the JProcUsage objects to populate
+     * @param found set to true for each process that was found
+     */
+    void getUsage(final int[] pids, final JProcUsage[] jpus,
+		  final boolean[] found) {
+	pool.invoke(new UsageTask(pids, jpus, found, 0, pids.length));
+    }
+
+    /**
+     * Stop the worker threads. The collector cannot be used afterwards.
+     */
+    void shutdown() {
+	pool.shutdown();
+    }
+
+    /*
+     * Reads psinfo for chunks lo to hi-1, each into its own snapshot.
+     */
+    private final class SnapshotTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient int[] pids;
+	private final transient ProcessSnapshot[] parts;
+	private final int lo;
+	private final int hi;
+
+	SnapshotTask(final int[] npids, final ProcessSnapshot[] nparts,
+		     final int nlo, final int nhi) {
+	    pids = npids;
+	    parts = nparts;
+	    lo = nlo;
+	    hi = nhi;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo > 1) {
+		int mid = (lo + hi) >>> 1;
+		invokeAll(new SnapshotTask(pids, parts, lo, mid),
+			  new SnapshotTask(pids, parts, mid, hi));
+	    } else if (hi > lo) {
+		int from = lo * CHUNK;
+		int to = Math.min(from + CHUNK, pids.length);
+		ProcessSnapshot part = new ProcessSnapshot(to - from);
+		njp.getSnapshot(pids, from, to, part);
+		parts[lo] = part;
+	    }
+	}
+    }
+
+    /*
+     * Reads usage for pids lo to hi-1, writing directly into the
+     * caller's arrays, as each worker has a disjoint range.
+     */
+    private final class UsageTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient int[] pids;
+	private final transient JProcUsage[] jpus;
+	private final transient boolean[] found;
+	private final int lo;
+	private final int hi;
+
+	UsageTask(final int[] npids, final JProcUsage[] njpus,
+		  final boolean[] nfound, final int nlo, final int nhi) {
+	    pids = npids;
+	    jpus = njpus;
+	    found = nfound;
+	    lo = nlo;
+	    hi = nhi;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo > CHUNK) {
+		int mid = (lo + hi) >>> 1;
+		invokeAll(new UsageTask(pids, jpus, found, lo, mid),
+			  new UsageTask(pids, jpus, found, mid, hi));
+	    } else {
+		njp.getUsage(pids, lo, hi, jpus, found);
+	    }
+	}
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reusable direct buffer that the native layer fills with raw psinfo
+ * or usage records, without any calls back into java. The records are
+ * decoded on the java side, and only the fields actually asked for are
+ * ever decoded, using a {@link JProcInfoView} or {@link JProcUsageView}.
+ *
+ * <p>A ProcBuffer holds records of one kind at a time, being whatever
+ * was last read into it. It grows as needed, and is not thread-safe; the
+ * intention is that each thread uses its own, see
+ * {@link NativeJProc#getBuffer()}.
+ *
+ * @author Peter Tribble
+ */
+public final class ProcBuffer {
+
+    /*
+     * The record layouts. These must match the jp_inforec_t and
+     * jp_usagerec_t structures in the native code. All values are in
+     * native byte order.
+     */
+    static final int INFO_PID = 0;
+    static final int INFO_PPID = 4;
+    static final int INFO_UID = 8;
+    static final int INFO_EUID = 12;
+    static final int INFO_GID = 16;
+    static final int INFO_EGID = 20;
+    static final int INFO_NLWP = 24;
+    static final int INFO_TASKID = 28;
+    static final int INFO_PROJID = 32;
+    static final int INFO_ZONEID = 36;
+    static final int INFO_CONTRACT = 40;
+    static final int INFO_SIZE = 48;
+    static final int INFO_RSSIZE = 56;
+    static final int INFO_STIME = 64;
+    static final int INFO_ETIME = 72;
+    static final int INFO_NTIME = 80;
+    static final int INFO_ECTIME = 88;
+    static final int INFO_NCTIME = 96;
+    static final int INFO_FNAME = 104;
+    static final int INFO_FNAMESZ = 16;
+    static final int INFO_RECSIZE = 120;
+
+    static final int USAGE_LWPID = 0;
+    static final int USAGE_COUNT = 4;
+    static final int USAGE_RTIME = 8;
+    static final int USAGE_NRTIME = 16;
+    static final int USAGE_UTIME = 24;
+    static final int USAGE_NUTIME = 32;
+    static final int USAGE_STIME = 40;
+    static final int USAGE_NSTIME = 48;
+    static final int USAGE_MINF = 56;
+    static final int USAGE_MAJF = 64;
+    static final int USAGE_NSWAP = 72;
+    static final int USAGE_INBLK = 80;
+    static final int USAGE_OUBLK = 88;
+    static final int USAGE_MSND = 96;
+    static final int USAGE_MRCV = 104;
+    static final int USAGE_SIGS = 112;
+    static final int USAGE_VCTX = 120;
+    static final int USAGE_ICTX = 128;
+    static final int USAGE_SYSC = 136;
+    static final int USAGE_IOCH = 144;
+    static final int USAGE_TTIME = 152;
+    static final int USAGE_NTTIME = 160;
+    static final int USAGE_TFTIME = 168;
+    static final int USAGE_NTFTIME = 176;
+    static final int USAGE_DFTIME = 184;
+    static final int USAGE_NDFTIME = 192;
+    static final int USAGE_KFTIME = 200;
+    static final int USAGE_NKFTIME = 208;
+    static final int USAGE_LTIME = 216;
+    static final int USAGE_NLTIME = 224;
+    static final int USAGE_SLPTIME = 232;
+    static final int USAGE_NSLPTIME = 240;
+    static final int USAGE_WTIME = 248;
+    static final int USAGE_NWTIME = 256;
+    static final int USAGE_STOPTIME = 264;
+    static final int USAGE_NSTOPTIME = 272;
+    static final int USAGE_RECSIZE = 280;
+
+    private ByteBuffer buf;
+    private int nrec;
+    private int recsize;
+
+    /**
+     * Create a ProcBuffer with a default initial capacity, enough for a
+     * few hundred processes.
+     */
+    public ProcBuffer() {
+	this(65536);
+    }
+
+    /**
+     * Create a ProcBuffer.
+     *
+     * @param capacity the initial capacity, in bytes
+     */
+    public ProcBuffer(final int capacity) {
+	buf = ByteBuffer.allocateDirect(Math.max(capacity, USAGE_RECSIZE))
+	    .order(ByteOrder.nativeOrder());
+    }
+
+    /*
+     * The underlying buffer, for the native layer to write into.
+     */
+    ByteBuffer buffer() {
+	return buf;
+    }
+
+    /*
+     * Replace the buffer with one twice the size. The contents are not
+     * preserved, the caller is expected to read again.
+     */
+    void grow() {
+	buf = ByteBuffer.allocateDirect(buf.capacity() * 2)
+	    .order(ByteOrder.nativeOrder());
+	nrec = 0;
+    }
+
+    /*
+     * Record that the buffer now holds n records of psinfo data.
+     */
+    void setInfo(final int n) {
+	nrec = n;
+	recsize = INFO_RECSIZE;
+    }
+
+    /*
+     * Record that the buffer now holds n records of usage data.
+     */
+    void setUsage(final int n) {
+	nrec = n;
+	recsize = USAGE_RECSIZE;
+    }
+
+    /**
+     * Return the number of records held in this buffer.
+     *
+     * @return the number of records held in this buffer
+     */
+    public int size() {
+	return nrec;
+    }
+
+    /**
+     * Return whether this buffer holds psinfo records, as opposed to usage
+     * records.
+     *
+     * @return true if this buffer holds psinfo records
+     */
+    public boolean isInfo() {
+	return recsize == INFO_RECSIZE;
+    }
+
+    /**
+     * Return a view of the given psinfo record. The view reads from this
+     * buffer, so reflects whatever the buffer holds when it is queried.
+     *
+     * @param i the record to view
+     *
+     * @return a JProcInfoView of the given record
+     */
+    public JProcInfoView getInfo(final int i) {
+	return new JProcInfoView(this, i);
+    }
+
+    /**
+     * Return a view of the given usage record. The view reads from this
+     * buffer, so reflects whatever the buffer holds when it is queried.
+     *
+     * @param i the record to view
+     *
+     * @return a JProcUsageView of the given record
+     */
+    public JProcUsageView getUsage(final int i) {
+	return new JProcUsageView(this, i);
+    }
+
+    /*
+     * Decoders, given a record and the offset of a field within it.
+     */
+    int getInt(final int i, final int off) {
+	return buf.getInt(i * recsize + off);
+    }
+
+    long getLong(final int i, final int off) {
+	return buf.getLong(i * recsize + off);
+    }
+
+    /*
+     * The command name is a fixed size, and null-terminated unless it
+     * fills the whole field.
+     */
+    String getString(final int i, final int off, final int len) {
+	int base = i * recsize + off;
+	int n = 0;
+	while (n < len && buf.get(base + n) != 0) {
+	    n++;
+	}
+	byte[] b = new byte[n];
+	for (int j = 0; j < n; j++) {
+	    b[j] = buf.get(base + j);
+	}
+	return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Totals of process information grouped by user, zone, project, task, or
+ * process contract, as used by prstat's summary views.
+ *
+ * <p>Rather than summing over every process whenever a total is wanted,
+ * the totals are kept up to date as processes are added, removed, and
+ * change. Each process's contribution is remembered, so an update only
+ * touches the groups of the processes that have actually changed, and the
+ * totals can then be read as often as needed at no further cost.
+ *
+ * <p>An update is done either from a JProcessFilter, using the cached
+ * information of its current processes, or by hand: call
+ * {@link #begin()}, {@link #put(JProcess, JProcInfo)} for every current
+ * process, and then {@link #end()} to drop any process that wasn't seen.
+ * Either way every current process is visited, as the values of any of
+ * them may have changed, but only those that have changed touch the
+ * totals.
+ *
+ * @author Peter Tribble
+ */
+public final class ProcessAggregator {
+
+    private final int attr;
+
+    /*
+     * The totals for each group, and the contribution of each process.
+     */
+    private final Map<Integer, Group> groups = new HashMap<>();
+    private final Map<JProcess, Contribution> contributions =
+	new HashMap<>();
+
+    private long round;
+
+    /**
+     * Create an aggregator grouping processes by the given attribute.
+     *
+     * @param nattr the attribute to group by, one of ProcessIndex.UID,
+     * ZONE, PROJECT, CONTRACT, or TASK
+     */
+    public ProcessAggregator(final int nattr) {
+	attr = nattr;
+    }
+
+    /**
+     * Return the attribute processes are grouped by.
+     *
+     * @return the ProcessIndex attribute used for grouping
+     */
+    public int getAttribute() {
+	return attr;
+    }
+
+    /**
+     * Update the totals from a filter that has just been updated. This is
+     * a full sweep: every current process is checked against its cached
+     * information, which the underlying JProcessSet refreshes on each
+     * update, and any process no longer in the filter, whether it has
+     * exited or been filtered out, is removed.
+     *
+     * @param jpf the JProcessFilter to aggregate
+     */
+    public void update(final JProcessFilter jpf) {
+	update(jpf.getProcesses());
+    }
+
+    /**
+     * Update the totals to cover exactly the given processes, using their
+     * cached information.
+     *
+     * @param processes the current processes
+     */
+    public void update(final Collection<JProcess> processes) {
+	begin();
+	for (JProcess jp : processes) {
+	    JProcInfo jpi = jp.getCachedInfo();
+	    if (jpi != null) {
+		put(jp, jpi);
+	    }
+	}
+	end();
+    }
+
+    /**
+     * Start a round of updates.
+     */
+    public void begin() {
+	round++;
+    }
+
+    /**
+     * Add a process, or update it if already present. Only if its values
+     * have changed are its old values taken away from the totals and its
+     * new values added.
+     *
+     * @param jp the process
+     * @param jpi the current information for the process
+     */
+    public void put(final JProcess jp, final JProcInfo jpi) {
+	Contribution c = contributions.get(jp);
+	if (c == null) {
+	    c = new Contribution();
+	    c.set(jpi, attr);
+	    contributions.put(jp, c);
+	    add(c, 1);
+	} else if (!c.matches(jpi, attr)) {
+	    add(c, -1);
+	    c.set(jpi, attr);
+	    add(c, 1);
+	}
+	c.round = round;
+    }
+
+    /**
+     * Finish a round of updates, removing any process not put since the
+     * last call to {@link #begin()}.
+     */
+    public void end() {
+	Iterator<Contribution> iter = contributions.values().iterator();
+	while (iter.hasNext()) {
+	    Contribution c = iter.next();
+	    if (c.round != round) {
+		add(c, -1);
+		iter.remove();
+	    }
+	}
+    }
+
+    /**
+     * Remove a process from the totals.
+     *
+     * @param jp the process to remove
+     */
+    public void remove(final JProcess jp) {
+	Contribution c = contributions.remove(jp);
+	if (c != null) {
+	    add(c, -1);
+	}
+    }
+
+    /*
+     * Add or subtract a contribution, dropping groups that become empty.
+     */
+    private void add(final Contribution c, final int sign) {
+	Group g = groups.get(c.key);
+	if (g == null) {
+	    g = new Group();
+	    groups.put(c.key, g);
+	}
+	g.nproc += sign;
+	g.nlwp += sign * c.nlwp;
+	g.size += sign * c.size;
+	g.rssize += sign * c.rssize;
+	g.time += sign * c.time;
+	if (g.nproc == 0) {
+	    groups.remove(c.key);
+	}
+    }
+
+    /**
+     * Return the keys of the groups that have at least one process.
+     *
+     * @return the group keys, in ascending order
+     */
+    public int[] getKeys() {
+	int[] keys = new int[groups.size()];
+	int i = 0;
+	for (Integer k : groups.keySet()) {
+	    keys[i++] = k;
+	}
+	Arrays.sort(keys);
+	return keys;
+    }
+
+    /**
+     * Return the number of groups.
+     *
+     * @return the number of groups that have at least one process
+     */
+    public int size() {
+	return groups.size();
+    }
+
+    /**
+     * Return the totals for a group. The returned object is a copy, so may
+     * be handed to another thread.
+     *
+     * @param key the group key
+     *
+     * @return the Totals for the given group, which are all zero if there
+     * is no such group
+     */
+    public Totals getTotals(final int key) {
+	Group g = groups.get(key);
+	return (g == null) ? new Totals(key, 0, 0, 0, 0, 0)
+	    : new Totals(key, g.nproc, g.nlwp, g.size, g.rssize, g.time);
+    }
+
+    /*
+     * The running totals of a group.
+     */
+    private static final class Group {
+	private long nproc;
+	private long nlwp;
+	private long size;
+	private long rssize;
+	private long time;
+    }
+
+    /*
+     * What one process contributes to its group. Time is held in
+     * nanoseconds so that it can be added and taken away exactly.
+     */
+    private static final class Contribution {
+	private int key;
+	private long nlwp;
+	private long size;
+	private long rssize;
+	private long time;
+	private long round;
+
+	private void set(final JProcInfo jpi, final int attr) {
+	    key = ProcessIndex.attribute(jpi, attr);
+	    nlwp = jpi.getnlwp();
+	    size = jpi.getsize();
+	    rssize = jpi.getrssize();
+	    time = nanos(jpi);
+	}
+
+	private boolean matches(final JProcInfo jpi, final int attr) {
+	    return key == ProcessIndex.attribute(jpi, attr)
+		&& nlwp == jpi.getnlwp() && size == jpi.getsize()
+		&& rssize == jpi.getrssize() && time == nanos(jpi);
+	}
+
+	private static long nanos(final JProcInfo jpi) {
+	    return jpi.getetime() * 1000000000L + jpi.getntime();
+	}
+    }
+
+    /**
+     * The totals for one group of processes.
+     */
+    public static final class Totals {
+
+	private final int key;
+	private final long nproc;
+	private final long nlwp;
+	private final long size;
+	private final long rssize;
+	private final long time;
+
+	private Totals(final int nkey, final long nnproc, final long nnlwp,
+		       final long nsize, final long nrssize, final long ntime) {
+	    key = nkey;
+	    nproc = nnproc;
+	    nlwp = nnlwp;
+	    size = nsize;
+	    rssize = nrssize;
+	    time = ntime;
+	}
+
+	/**
+	 * Return the key of this group.
+	 *
+	 * @return the value of the grouping attribute
+	 */
+	public int getKey() {
+	    return key;
+	}
+
+	/**
+	 * Return the number of processes in this group.
+	 *
+	 * @return the number of processes
+	 */
+	public long getnproc() {
+	    return nproc;
+	}
+
+	/**
+	 * Return the total number of lwps in this group.
+	 *
+	 * @return the total number of lwps
+	 */
+	public long getnlwp() {
+	    return nlwp;
+	}
+
+	/**
+	 * Return the total size of this group.
+	 *
+	 * @return the total size of the processes, in kilobytes
+	 */
+	public long getsize() {
+	    return size;
+	}
+
+	/**
+	 * Return the total resident set size of this group.
+	 *
+	 * @return the total rss of the processes, in kilobytes
+	 */
+	public long getrssize() {
+	    return rssize;
+	}
+
+	/**
+	 * Return the total cpu time used by this group.
+	 *
+	 * @return the total cpu time, in seconds
+	 */
+	public double gettime() {
+	    return time / 1000000000.0;
+	}
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Secondary indexes over a JProcessSet, mapping each user, zone, project,
+ * contract, and task id to the processes that have it. The indexes are
+ * maintained incrementally from the changes seen at each update, so that
+ * any number of JProcessFilters can share a single ProcessIndex and
+ * answer their criteria by lookup rather than by scanning every process.
+ *
+ * @author Peter Tribble
+ */
+public final class ProcessIndex {
+
+    /**
+     * Index by real user id.
+     */
+    public static final int UID = 0;
+    /**
+     * Index by zone id.
+     */
+    public static final int ZONE = 1;
+    /**
+     * Index by project id.
+     */
+    public static final int PROJECT = 2;
+    /**
+     * Index by process contract id.
+     */
+    public static final int CONTRACT = 3;
+    /**
+     * Index by task id.
+     */
+    public static final int TASK = 4;
+
+    private static final int NATTRS = 5;
+
+    private final JProcessSet jps;
+
+    /*
+     * One map per attribute, from the attribute value to the processes
+     * with that value.
+     */
+    private final List<Map<Integer, Set<JProcess>>> indexes;
+
+    /*
+     * The attribute values under which each process is currently indexed,
+     * so that it can be found again when it exits or its values change.
+     */
+    private final Map<JProcess, int[]> indexed;
+
+    private long generation;
+    private boolean scheduled;
+
+    /**
+     * Create a ProcessIndex over the given JProcessSet. From now on the
+     * JProcessSet should be updated through this index, rather than
+     * directly, so that the index sees every change.
+     *
+     * @param njps the JProcessSet to index
+     */
+    public ProcessIndex(final JProcessSet njps) {
+	jps = njps;
+	indexes = new ArrayList<>(NATTRS);
+	for (int a = 0; a < NATTRS; a++) {
+	    indexes.add(new HashMap<>());
+	}
+	indexed = new HashMap<>(jps.size() * 4 / 3 + 1);
+	for (int i = 0; i < jps.size(); i++) {
+	    add(jps.getProcess(i));
+	}
+    }
+
+    /**
+     * Return the JProcessSet this index covers.
+     *
+     * @return the underlying JProcessSet
+     */
+    public JProcessSet getProcessSet() {
+	return jps;
+    }
+
+    /**
+     * Return a count of the updates made to this index. Filters sharing
+     * the index can use this to tell whether it has changed.
+     *
+     * @return the number of times this index has been updated
+     */
+    public long getGeneration() {
+	return generation;
+    }
+
+    /**
+     * Update the underlying JProcessSet, and apply the changes to the
+     * indexes. Exited processes are removed and new ones added, and any
+     * surviving process whose ids have changed is moved.
+     *
+     * @return true if the process list has changed, otherwise false
+     */
+    public boolean update() {
+	return reindex(jps.update());
+    }
+
+    /**
+     * Update the underlying JProcessSet from a snapshot that has already
+     * been taken, and apply the changes to the indexes.
+     *
+     * @param snapshot a snapshot of all processes
+     *
+     * @return true if the process list has changed, otherwise false
+     *
+     * @see JProcessSet#update(ProcessSnapshot)
+     */
+    public boolean update(final ProcessSnapshot snapshot) {
+	return reindex(jps.update(snapshot));
+    }
+
+    /**
+     * Mark this index as being updated by a scheduler, rather than by the
+     * filters that use it. Filters on a scheduled index never update it
+     * themselves, but pick up whatever changes the scheduler has applied.
+     *
+     * @param nscheduled true if the index is updated by a scheduler
+     */
+    public void setScheduled(final boolean nscheduled) {
+	scheduled = nscheduled;
+    }
+
+    /**
+     * Return whether this index is updated by a scheduler.
+     *
+     * @return true if the index is updated by a scheduler, rather than by
+     * the filters that use it
+     */
+    public boolean isScheduled() {
+	return scheduled;
+    }
+
+    /*
+     * Apply the changes from the last update of the JProcessSet.
+     */
+    private boolean reindex(final boolean changed) {
+	for (int i = 0; i < jps.getDeletedCount(); i++) {
+	    remove(jps.getDeletedProcess(i));
+	}
+	for (int i = 0; i < jps.getAddedCount(); i++) {
+	    add(jps.getAddedProcess(i));
+	}
+	/*
+	 * Processes can change user, project, or task while running. The
+	 * merge has already picked out those whose ids changed, so only
+	 * they need to be looked at.
+	 */
+	for (int i = 0; i < jps.getMovedCount(); i++) {
+	    JProcess jp = jps.getMovedProcess(i);
+	    int[] old = indexed.get(jp);
+	    JProcInfo jpi = jp.getCachedInfo();
+	    if (old == null) {
+		add(jp);
+	    } else if (jpi != null) {
+		for (int a = 0; a < NATTRS; a++) {
+		    int v = attribute(jpi, a);
+		    if (v != old[a]) {
+			unlink(a, old[a], jp);
+			link(a, v, jp);
+			old[a] = v;
+		    }
+		}
+	    }
+	}
+	generation++;
+	return changed;
+    }
+
+    /**
+     * Return the processes with the given value of an attribute.
+     *
+     * @param attr the attribute, one of UID, ZONE, PROJECT, CONTRACT,
+     * or TASK
+     * @param value the value to look up
+     *
+     * @return a read-only Set of the matching processes, which is empty if
+     * there are none
+     */
+    public Set<JProcess> getProcesses(final int attr, final int value) {
+	Set<JProcess> s = indexes.get(attr).get(value);
+	return (s == null) ? Collections.emptySet()
+	    : Collections.unmodifiableSet(s);
+    }
+
+    /**
+     * Return the number of processes with the given value of an attribute.
+     *
+     * @param attr the attribute, one of UID, ZONE, PROJECT, CONTRACT,
+     * or TASK
+     * @param value the value to look up
+     *
+     * @return the number of matching processes
+     */
+    public int count(final int attr, final int value) {
+	Set<JProcess> s = indexes.get(attr).get(value);
+	return (s == null) ? 0 : s.size();
+    }
+
+    /**
+     * Return the values of an attribute held by at least one process.
+     *
+     * @param attr the attribute, one of UID, ZONE, PROJECT, CONTRACT,
+     * or TASK
+     *
+     * @return a read-only Set of the current values of the attribute
+     */
+    public Set<Integer> getValues(final int attr) {
+	return Collections.unmodifiableSet(indexes.get(attr).keySet());
+    }
+
+    /*
+     * Extract the given attribute from a JProcInfo.
+     */
+    static int attribute(final JProcInfo jpi, final int attr) {
+	switch (attr) {
+	    case UID:
+		return jpi.getuid();
+	    case ZONE:
+		return jpi.getzoneid();
+	    case PROJECT:
+		return jpi.getprojid();
+	    case CONTRACT:
+		return jpi.getcontract();
+	    case TASK:
+		return jpi.gettaskid();
+	    default:
+		throw new IllegalArgumentException("Invalid attribute");
+	}
+    }
+
+    private void add(final JProcess jp) {
+	JProcInfo jpi = jp.getCachedInfo();
+	if (jpi == null) {
+	    return;
+	}
+	int[] vals = new int[NATTRS];
+	for (int a = 0; a < NATTRS; a++) {
+	    vals[a] = attribute(jpi, a);
+	    link(a, vals[a], jp);
+	}
+	indexed.put(jp, vals);
+    }
+
+    private void remove(final JProcess jp) {
+	int[] vals = indexed.remove(jp);
+	if (vals != null) {
+	    for (int a = 0; a < NATTRS; a++) {
+		unlink(a, vals[a], jp);
+	    }
+	}
+    }
+
+    private void link(final int attr, final int value, final JProcess jp) {
+	indexes.get(attr).computeIfAbsent(value, k -> new HashSet<>()).add(jp);
+    }
+
+    private void unlink(final int attr, final int value, final JProcess jp) {
+	Set<JProcess> s = indexes.get(attr).get(value);
+	if (s != null) {
+	    s.remove(jp);
+	    // drop empty entries so getValues() only reports live values
+	    if (s.isEmpty()) {
+		indexes.get(attr).remove(value);
+	    }
+	}
+    }
+}
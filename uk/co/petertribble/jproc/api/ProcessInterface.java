@@ -14,12 +14,14 @@
  *
  * CDDL HEADER END
  *
- * Copyright 2025 Peter Tribble
+ * Copyright 2026 Peter Tribble
  *
  */
 
 package uk.co.petertribble.jproc.api;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -37,6 +39,154 @@ public abstract class ProcessInterface {
      */
     public abstract Set<JProcess> getProcesses();
 
+    /**
+     * Return information on all processes in the system, retrieved in
+     * a single bulk operation rather than one lookup per process.
+     *
+     * @return A List of JProcInfo objects, one for each process running
+     * on the system.
+     */
+    public abstract List<JProcInfo> getSnapshot();
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system. Any existing contents of the snapshot are discarded.
+     * Implementations that can fill the snapshot directly should override
+     * this to avoid creating a JProcInfo for each process.
+     *
+     * @param snap the ProcessSnapshot to populate
+     */
+    public void getSnapshot(final ProcessSnapshot snap) {
+	snap.clear();
+	for (JProcInfo jpi : getSnapshot()) {
+	    snap.add(jpi);
+	}
+    }
+
+    /**
+     * Return the pids of all processes in the system. Implementations
+     * that can list the pids cheaply should override this to avoid
+     * creating a JProcess for each process.
+     *
+     * @return an array of the pids of all the processes running on the
+     * system, in no particular order.
+     */
+    public int[] getPids() {
+	Set<JProcess> procs = getProcesses();
+	int[] pids = new int[procs.size()];
+	int i = 0;
+	for (JProcess jp : procs) {
+	    pids[i++] = jp.getPid();
+	}
+	return pids;
+    }
+
+    /**
+     * Add information on a range of the given processes to the given
+     * ProcessSnapshot. Processes that no longer exist are skipped, and
+     * the existing contents of the snapshot are retained. This must be
+     * safe to call from several threads at once, each with its own
+     * snapshot, so that large process lists can be collected in
+     * parallel.
+     *
+     * @param pids an array of pids
+     * @param from the index of the first pid to query, inclusive
+     * @param to the index of the last pid to query, exclusive
+     * @param snap the ProcessSnapshot to add to
+     */
+    public void getSnapshot(final int[] pids, final int from, final int to,
+			    final ProcessSnapshot snap) {
+	JProcInfo jpi = new JProcInfo();
+	for (int i = from; i < to; i++) {
+	    if (getInfo(pids[i], jpi)) {
+		snap.add(jpi);
+	    }
+	}
+    }
+
+    /**
+     * Retrieves usage information about a range of the given processes,
+     * populating existing JProcUsage objects. The usage of pids[i] is
+     * written to jpus[i], and found[i] is set to indicate whether the
+     * process still exists. This must be safe to call from several
+     * threads at once on disjoint ranges, so that large process lists
+     * can be collected in parallel.
+     *
+     * @param pids an array of pids
+     * @param from the index of the first pid to query, inclusive
+     * @param to the index of the last pid to query, exclusive
+     * @param jpus the JProcUsage objects to populate
+     * @param found set to true for each process that was found
+     */
+    public void getUsage(final int[] pids, final int from, final int to,
+			 final JProcUsage[] jpus, final boolean[] found) {
+	for (int i = from; i < to; i++) {
+	    found[i] = getUsage(pids[i], jpus[i]);
+	}
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system, and read the usage of each of them. The usage of the
+     * process in each row of the snapshot is written to the JProcUsage at
+     * the same position in the List, which is extended with new JProcUsage
+     * objects as necessary. Processes that exit while being read are left
+     * out. Any existing contents of the snapshot are discarded. Remote
+     * implementations should override this so that it's a single request.
+     *
+     * @param snap the ProcessSnapshot to populate
+     * @param jpus the JProcUsage objects to populate
+     */
+    public void getProcessesWithUsage(final ProcessSnapshot snap,
+				      final List<JProcUsage> jpus) {
+	snap.clear();
+	JProcInfo jpi = new JProcInfo();
+	for (int pid : getPids()) {
+	    int row = snap.size();
+	    if (jpus.size() <= row) {
+		jpus.add(new JProcUsage());
+	    }
+	    if (getInfo(pid, jpi) && getUsage(pid, jpus.get(row))) {
+		snap.add(jpi);
+	    }
+	}
+    }
+
+    /**
+     * Return whether each query is a request to a remote server. If so,
+     * callers should prefer the methods that query many processes at
+     * once, which remote implementations send as a single request.
+     *
+     * @return true if queries are sent to a remote server
+     */
+    public boolean isRemote() {
+	return false;
+    }
+
+    /**
+     * Evaluate a TopN query, returning the processes ranked highest by
+     * its measure. Remote implementations should override this to send
+     * the query to the server, so that only the result is transferred.
+     *
+     * <p>Locally, a rate is over the interval since the previous
+     * evaluation of the same TopN. A remote server can't keep a history
+     * for every client's TopN, so keeps one shared history for each
+     * rate, sampled whenever any client asks for that rate. The client
+     * sends the interval since it last sent the same TopN, from
+     * {@link TopN#nextInterval()}, and the rate is over the interval from
+     * whichever of the server's recent samples is closest to that. If
+     * other clients are asking often that may be shorter than asked for,
+     * and if the server has no earlier sample at all, as for the very
+     * first query, the list is empty.
+     *
+     * @param topn the query to evaluate
+     *
+     * @return a List of the leading processes, highest first
+     */
+    public List<TopN.Entry> getTopN(final TopN topn) {
+	return topn.evaluate(this);
+    }
+
     /**
      * Return a Set of JLwp objects representing the lwps in this process.
      * If the process no longer exists, returns null
@@ -78,6 +228,26 @@ public abstract class ProcessInterface {
      */
     public abstract JProcInfo getInfo(int pid);
 
+    /**
+     * Retrieves information about a process, populating an existing
+     * JProcInfo object rather than creating a new one. Implementations
+     * that can do so should override this to avoid any allocation.
+     *
+     * @param pid The process pid to query
+     * @param jpi The JProcInfo object to populate
+     *
+     * @return true if jpi was populated, false if the process does not
+     * exist, in which case jpi is unchanged
+     */
+    public boolean getInfo(final int pid, final JProcInfo jpi) {
+	JProcInfo njpi = getInfo(pid);
+	if (njpi == null) {
+	    return false;
+	}
+	jpi.copyFrom(njpi);
+	return true;
+    }
+
     /**
      * Retrieves information about an lwp in a process.
      *
@@ -99,6 +269,26 @@ public abstract class ProcessInterface {
      */
     public abstract JProcUsage getUsage(int pid);
 
+    /**
+     * Retrieves usage information about a process, populating an existing
+     * JProcUsage object rather than creating a new one. Implementations
+     * that can do so should override this to avoid any allocation.
+     *
+     * @param pid The process pid to query
+     * @param jpu The JProcUsage object to populate
+     *
+     * @return true if jpu was populated, false if the process does not
+     * exist, in which case jpu is unchanged
+     */
+    public boolean getUsage(final int pid, final JProcUsage jpu) {
+	JProcUsage njpu = getUsage(pid);
+	if (njpu == null) {
+	    return false;
+	}
+	jpu.copyFrom(njpu);
+	return true;
+    }
+
     /**
      * Retrieves usage information about an lwp in a process.
      *
@@ -110,6 +300,111 @@ public abstract class ProcessInterface {
      */
     public abstract JProcUsage getLwpUsage(int pid, int lwpid);
 
+    /**
+     * Retrieves usage information about an lwp in a process, populating an
+     * existing JProcUsage object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param lwpid The id of the lwp to query
+     * @param jpu The JProcUsage object to populate
+     *
+     * @return true if jpu was populated, false if the process or lwp does
+     * not exist, in which case jpu is unchanged
+     */
+    public boolean getLwpUsage(final int pid, final int lwpid,
+				final JProcUsage jpu) {
+	JProcUsage njpu = getLwpUsage(pid, lwpid);
+	if (njpu == null) {
+	    return false;
+	}
+	jpu.copyFrom(njpu);
+	return true;
+    }
+
+    /**
+     * Retrieves usage information about all the lwps in a process. This
+     * default implementation queries each lwp in turn; implementations
+     * that can read all the lwps at once should override it.
+     *
+     * @param pid The process pid to query
+     *
+     * @return A List of JProcUsage objects, one for each lwp in the
+     * process, or null if the process does not exist
+     */
+    public List<JProcUsage> getAllLwpUsage(final int pid) {
+	Set<JLwp> lwps = getLwps(pid);
+	if (lwps == null) {
+	    return null;
+	}
+	List<JProcUsage> lpu = new ArrayList<>(lwps.size());
+	for (JLwp jlwp : lwps) {
+	    JProcUsage jpu = getLwpUsage(pid, jlwp.getLWPid());
+	    // the lwp may have exited since it was listed
+	    if (jpu != null) {
+		lpu.add(jpu);
+	    }
+	}
+	return lpu;
+    }
+
+    /**
+     * Retrieves usage information about all the lwps in a process,
+     * populating existing JProcUsage objects rather than creating new
+     * ones. The first entries of the list are filled, one for each lwp,
+     * and the list is extended if it is too short; it is never shortened,
+     * so entries beyond those filled are left for reuse. This default
+     * implementation queries each lwp in turn; implementations that can
+     * read all the lwps at once should override it.
+     *
+     * @param pid The process pid to query
+     * @param jpus the JProcUsage objects to populate
+     *
+     * @return the number of lwps whose usage was read, or -1 if the
+     * process does not exist
+     */
+    public int getAllLwpUsage(final int pid, final List<JProcUsage> jpus) {
+	Set<JLwp> lwps = getLwps(pid);
+	if (lwps == null) {
+	    return -1;
+	}
+	int n = 0;
+	for (JLwp jlwp : lwps) {
+	    if (jpus.size() <= n) {
+		jpus.add(new JProcUsage());
+	    }
+	    // the lwp may have exited since it was listed
+	    if (getLwpUsage(pid, jlwp.getLWPid(), jpus.get(n))) {
+		n++;
+	    }
+	}
+	return n;
+    }
+
+    /**
+     * Retrieves information about all the lwps in a process. This
+     * default implementation queries each lwp in turn; implementations
+     * that can read all the lwps at once should override it.
+     *
+     * @param pid The process pid to query
+     *
+     * @return A List of JProcLwpInfo objects, one for each lwp in the
+     * process, or null if the process does not exist
+     */
+    public List<JProcLwpInfo> getAllLwpInfo(final int pid) {
+	Set<JLwp> lwps = getLwps(pid);
+	if (lwps == null) {
+	    return null;
+	}
+	List<JProcLwpInfo> lpi = new ArrayList<>(lwps.size());
+	for (JLwp jlwp : lwps) {
+	    JProcLwpInfo jpli = getLwpInfo(pid, jlwp.getLWPid());
+	    if (jpli != null) {
+		lpi.add(jpli);
+	    }
+	}
+	return lpi;
+    }
+
     /**
      * Retrieves the user name corresponding to a given numeric uid.
      *
@@ -119,6 +414,24 @@ public abstract class ProcessInterface {
      */
     public abstract String getUserName(int uid);
 
+    /**
+     * Retrieves the user names corresponding to the given numeric uids,
+     * in a single operation. Implementations that can do this more
+     * cheaply than one lookup at a time should override this.
+     *
+     * @param uids The numeric userids.
+     *
+     * @return An array of user names, each entry being null if no user
+     * matches the corresponding uid.
+     */
+    public String[] getUserNames(final int[] uids) {
+	String[] names = new String[uids.length];
+	for (int i = 0; i < uids.length; i++) {
+	    names[i] = getUserName(uids[i]);
+	}
+	return names;
+    }
+
     /**
      * Retrieves the user id corresponding to a given username.
      *
@@ -137,6 +450,24 @@ public abstract class ProcessInterface {
      */
     public native String getGroupName(int gid);
 
+    /**
+     * Retrieves the group names corresponding to the given numeric gids,
+     * in a single operation. Implementations that can do this more
+     * cheaply than one lookup at a time should override this.
+     *
+     * @param gids The numeric groupids.
+     *
+     * @return An array of group names, each entry being null if no group
+     * matches the corresponding gid.
+     */
+    public String[] getGroupNames(final int[] gids) {
+	String[] names = new String[gids.length];
+	for (int i = 0; i < gids.length; i++) {
+	    names[i] = getGroupName(gids[i]);
+	}
+	return names;
+    }
+
     /**
      * Retrieves the group id corresponding to a given group name.
      *
@@ -181,4 +512,35 @@ public abstract class ProcessInterface {
      * @return The zone id, or -1 if no zone matches.
      */
     public abstract int getZoneId(String zone);
+
+    /**
+     * Note that the given process is being watched, and will be queried
+     * repeatedly until it is released. Implementations that can make
+     * such queries cheaper, such as by keeping files open, should
+     * override this. The default does nothing.
+     *
+     * @param pid The process pid to watch
+     */
+    public void watch(final int pid) {
+	// nothing to do by default
+    }
+
+    /**
+     * Release any resources held for the given process, which is no
+     * longer being watched. Implementations that keep per-process state,
+     * such as open files, should override this. The default does nothing.
+     *
+     * @param pid The process pid to release
+     */
+    public void release(final int pid) {
+	// nothing held by default
+    }
+
+    /**
+     * Release all resources held for any process. The ProcessInterface
+     * remains usable afterwards. The default does nothing.
+     */
+    public void close() {
+	// nothing held by default
+    }
 }
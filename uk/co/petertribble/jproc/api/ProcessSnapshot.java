@@ -0,0 +1,540 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.util.Arrays;
+
+/**
+ * A class holding psinfo data for a set of processes, stored by column in
+ * parallel primitive arrays rather than as one object per process. A
+ * snapshot can be cleared and refilled repeatedly, so that once it has
+ * grown to the size of the process table no further allocation is needed.
+ *
+ * <p>Rows are held in the order they were added. A pid index, sorted by
+ * pid, is built on demand and used by {@link #indexOf(int)}.
+ *
+ * @author Peter Tribble
+ */
+public final class ProcessSnapshot {
+
+    private int nrows;
+    private boolean indexed;
+
+    private int[] pids;
+    private int[] ppids;
+    private int[] uids;
+    private int[] euids;
+    private int[] gids;
+    private int[] egids;
+    private int[] nlwps;
+    private long[] sizes;
+    private long[] rssizes;
+    private long[] stimes;
+    private long[] etimes;
+    private long[] ntimes;
+    private long[] ectimes;
+    private long[] nctimes;
+    private int[] taskids;
+    private int[] projids;
+    private int[] zoneids;
+    private int[] contracts;
+    private String[] fnames;
+
+    /*
+     * The pid index. Each key holds a pid in the upper 32 bits and the
+     * row in the lower 32 bits, so that a single primitive sort orders
+     * the rows by pid.
+     */
+    private long[] keys;
+
+    /**
+     * Create an empty ProcessSnapshot with a default initial capacity.
+     */
+    public ProcessSnapshot() {
+	this(512);
+    }
+
+    /**
+     * Create an empty ProcessSnapshot.
+     *
+     * @param capacity the initial number of processes to allow space for
+     */
+    public ProcessSnapshot(final int capacity) {
+	allocate(Math.max(capacity, 16));
+    }
+
+    private void allocate(final int n) {
+	pids = new int[n];
+	ppids = new int[n];
+	uids = new int[n];
+	euids = new int[n];
+	gids = new int[n];
+	egids = new int[n];
+	nlwps = new int[n];
+	sizes = new long[n];
+	rssizes = new long[n];
+	stimes = new long[n];
+	etimes = new long[n];
+	ntimes = new long[n];
+	ectimes = new long[n];
+	nctimes = new long[n];
+	taskids = new int[n];
+	projids = new int[n];
+	zoneids = new int[n];
+	contracts = new int[n];
+	fnames = new String[n];
+	keys = new long[n];
+    }
+
+    private void grow() {
+	int n = pids.length * 2;
+	pids = Arrays.copyOf(pids, n);
+	ppids = Arrays.copyOf(ppids, n);
+	uids = Arrays.copyOf(uids, n);
+	euids = Arrays.copyOf(euids, n);
+	gids = Arrays.copyOf(gids, n);
+	egids = Arrays.copyOf(egids, n);
+	nlwps = Arrays.copyOf(nlwps, n);
+	sizes = Arrays.copyOf(sizes, n);
+	rssizes = Arrays.copyOf(rssizes, n);
+	stimes = Arrays.copyOf(stimes, n);
+	etimes = Arrays.copyOf(etimes, n);
+	ntimes = Arrays.copyOf(ntimes, n);
+	ectimes = Arrays.copyOf(ectimes, n);
+	nctimes = Arrays.copyOf(nctimes, n);
+	taskids = Arrays.copyOf(taskids, n);
+	projids = Arrays.copyOf(projids, n);
+	zoneids = Arrays.copyOf(zoneids, n);
+	contracts = Arrays.copyOf(contracts, n);
+	fnames = Arrays.copyOf(fnames, n);
+	keys = new long[n];
+    }
+
+    /**
+     * Remove all processes from this snapshot. The storage is retained
+     * for reuse.
+     */
+    public void clear() {
+	nrows = 0;
+	indexed = false;
+    }
+
+    /**
+     * Add a process to this snapshot. The arguments are the same, and in
+     * the same order, as {@link JProcInfo#insert}, so that the JNI layer
+     * can fill a snapshot directly.
+     *
+     * @param iprPid the process id
+     * @param iprPpid process id of parent
+     * @param iprUid real user id
+     * @param iprEuid effective user id
+     * @param iprGid real group id
+     * @param iprEgid effective group id
+     * @param iprNlwp number of active lwps in the process
+     * @param iprSize size of process image in Kbytes
+     * @param iprRssize resident set size in Kbytes
+     * @param istime start time
+     * @param ietime execution time
+     * @param intime execution time, nanosecond part
+     * @param iectime reaped children execution time
+     * @param inctime reaped children execution time, nanosecond part
+     * @param iprTaskid task id
+     * @param iprProjid project id
+     * @param iprZoneid zone id
+     * @param iprContract process contract
+     * @param iprFname name of execed file
+     */
+    public void add(final int iprPid, final int iprPpid,
+		    final int iprUid, final int iprEuid,
+		    final int iprGid, final int iprEgid, final int iprNlwp,
+		    final long iprSize, final long iprRssize,
+		    final long istime, final long ietime, final long intime,
+		    final long iectime, final long inctime,
+		    final int iprTaskid, final int iprProjid,
+		    final int iprZoneid, final int iprContract,
+		    final String iprFname) {
+	if (nrows == pids.length) {
+	    grow();
+	}
+	int i = nrows++;
+	pids[i] = iprPid;
+	ppids[i] = iprPpid;
+	uids[i] = iprUid;
+	euids[i] = iprEuid;
+	gids[i] = iprGid;
+	egids[i] = iprEgid;
+	nlwps[i] = iprNlwp;
+	sizes[i] = iprSize;
+	rssizes[i] = iprRssize;
+	stimes[i] = istime;
+	etimes[i] = ietime;
+	ntimes[i] = intime;
+	ectimes[i] = iectime;
+	nctimes[i] = inctime;
+	taskids[i] = iprTaskid;
+	projids[i] = iprProjid;
+	zoneids[i] = iprZoneid;
+	contracts[i] = iprContract;
+	/*
+	 * If this row previously held the same command, keep the old
+	 * String so that identical names share storage.
+	 */
+	if (iprFname == null || !iprFname.equals(fnames[i])) {
+	    fnames[i] = iprFname;
+	}
+	indexed = false;
+    }
+
+    /**
+     * Add a process to this snapshot, copying the data from the given
+     * JProcInfo.
+     *
+     * @param jpi the JProcInfo to copy
+     */
+    public void add(final JProcInfo jpi) {
+	add(jpi.getpid(), jpi.getppid(), jpi.getuid(), jpi.geteuid(),
+	    jpi.getgid(), jpi.getegid(), jpi.getnlwp(),
+	    jpi.getsize(), jpi.getrssize(), jpi.getstime(),
+	    jpi.getetime(), jpi.getntime(), jpi.getectime(), jpi.getnctime(),
+	    jpi.gettaskid(), jpi.getprojid(), jpi.getzoneid(),
+	    jpi.getcontract(), jpi.getfname());
+    }
+
+    /**
+     * Add a process to this snapshot, copying the data from a row of
+     * another snapshot.
+     *
+     * @param snap the ProcessSnapshot to copy from
+     * @param row the row of the process in snap
+     */
+    public void add(final ProcessSnapshot snap, final int row) {
+	add(snap.pids[row], snap.ppids[row], snap.uids[row], snap.euids[row],
+	    snap.gids[row], snap.egids[row], snap.nlwps[row],
+	    snap.sizes[row], snap.rssizes[row], snap.stimes[row],
+	    snap.etimes[row], snap.ntimes[row], snap.ectimes[row],
+	    snap.nctimes[row], snap.taskids[row], snap.projids[row],
+	    snap.zoneids[row], snap.contracts[row], snap.fnames[row]);
+    }
+
+    /**
+     * Return the number of processes in this snapshot.
+     *
+     * @return the number of processes in this snapshot
+     */
+    public int size() {
+	return nrows;
+    }
+
+    /*
+     * Build the pid index if it's out of date.
+     */
+    private void index() {
+	if (!indexed) {
+	    for (int i = 0; i < nrows; i++) {
+		keys[i] = ((long) pids[i] << 32) | i;
+	    }
+	    Arrays.sort(keys, 0, nrows);
+	    indexed = true;
+	}
+    }
+
+    /**
+     * Return the row holding the given process.
+     *
+     * @param pid the process id to look for
+     *
+     * @return the row holding the given process, or -1 if the process is
+     * not present in this snapshot
+     */
+    public int indexOf(final int pid) {
+	index();
+	int lo = 0;
+	int hi = nrows - 1;
+	while (lo <= hi) {
+	    int mid = (lo + hi) >>> 1;
+	    int mpid = (int) (keys[mid] >>> 32);
+	    if (mpid < pid) {
+		lo = mid + 1;
+	    } else if (mpid > pid) {
+		hi = mid - 1;
+	    } else {
+		return (int) keys[mid];
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Return the pid of the process at the given position in pid order.
+     * Positions run from 0 to size()-1 in ascending order of pid.
+     *
+     * @param k the position in pid order
+     *
+     * @return the pid at the given position
+     */
+    public int getSortedPid(final int k) {
+	index();
+	return (int) (keys[k] >>> 32);
+    }
+
+    /**
+     * Return the row of the process at the given position in pid order.
+     *
+     * @param k the position in pid order
+     *
+     * @return the row holding the process at the given position
+     */
+    public int getSortedRow(final int k) {
+	index();
+	return (int) keys[k];
+    }
+
+    /**
+     * Return a new JProcInfo holding the data in the given row.
+     *
+     * @param row the row to copy
+     *
+     * @return a new JProcInfo populated from the given row
+     */
+    public JProcInfo getInfo(final int row) {
+	JProcInfo jpi = new JProcInfo();
+	getInfo(row, jpi);
+	return jpi;
+    }
+
+    /**
+     * Copy the data in the given row into an existing JProcInfo.
+     *
+     * @param row the row to copy
+     * @param jpi the JProcInfo to populate
+     */
+    public void getInfo(final int row, final JProcInfo jpi) {
+	jpi.insert(pids[row], ppids[row], uids[row], euids[row],
+		   gids[row], egids[row], nlwps[row],
+		   sizes[row], rssizes[row], stimes[row],
+		   etimes[row], ntimes[row], ectimes[row], nctimes[row],
+		   taskids[row], projids[row], zoneids[row], contracts[row],
+		   fnames[row]);
+    }
+
+    /*
+     * Accessors. Each takes the row to query.
+     */
+
+    /**
+     * Return the process id.
+     *
+     * @param row the row to query
+     *
+     * @return the process id
+     */
+    public int getpid(final int row) {
+	return pids[row];
+    }
+
+    /**
+     * Return the parent process id.
+     *
+     * @param row the row to query
+     *
+     * @return the parent process id
+     */
+    public int getppid(final int row) {
+	return ppids[row];
+    }
+
+    /**
+     * Return the real userid.
+     *
+     * @param row the row to query
+     *
+     * @return the real userid
+     */
+    public int getuid(final int row) {
+	return uids[row];
+    }
+
+    /**
+     * Return the effective userid.
+     *
+     * @param row the row to query
+     *
+     * @return the effective userid
+     */
+    public int geteuid(final int row) {
+	return euids[row];
+    }
+
+    /**
+     * Return the real group id.
+     *
+     * @param row the row to query
+     *
+     * @return the real group id
+     */
+    public int getgid(final int row) {
+	return gids[row];
+    }
+
+    /**
+     * Return the effective group id.
+     *
+     * @param row the row to query
+     *
+     * @return the effective group id
+     */
+    public int getegid(final int row) {
+	return egids[row];
+    }
+
+    /**
+     * Return the number of lwps in the process.
+     *
+     * @param row the row to query
+     *
+     * @return the number of lwps in the process
+     */
+    public int getnlwp(final int row) {
+	return nlwps[row];
+    }
+
+    /**
+     * Return the process size in Kbytes.
+     *
+     * @param row the row to query
+     *
+     * @return the process size in Kbytes
+     */
+    public long getsize(final int row) {
+	return sizes[row];
+    }
+
+    /**
+     * Return the resident size in Kbytes.
+     *
+     * @param row the row to query
+     *
+     * @return the resident size in Kbytes
+     */
+    public long getrssize(final int row) {
+	return rssizes[row];
+    }
+
+    /**
+     * Return the start time of the process, in seconds since the epoch.
+     *
+     * @param row the row to query
+     *
+     * @return the start time of the process
+     */
+    public long getstime(final int row) {
+	return stimes[row];
+    }
+
+    /**
+     * Return the execution time of the process, in seconds.
+     *
+     * @param row the row to query
+     *
+     * @return the execution time of the process
+     */
+    public double gettime(final int row) {
+	return etimes[row] + ntimes[row] / 1000000000.0;
+    }
+
+    /**
+     * Return the execution time of the process, in nanoseconds.
+     *
+     * @param row the row to query
+     *
+     * @return the execution time of the process in nanoseconds
+     */
+    public long gettimeNanos(final int row) {
+	return etimes[row] * 1000000000L + ntimes[row];
+    }
+
+    /**
+     * Return the execution time of reaped children of the process, in
+     * seconds.
+     *
+     * @param row the row to query
+     *
+     * @return the execution time of reaped children of the process
+     */
+    public double getctime(final int row) {
+	return ectimes[row] + nctimes[row] / 1000000000.0;
+    }
+
+    /**
+     * Return the task id of the process.
+     *
+     * @param row the row to query
+     *
+     * @return the task id of the process
+     */
+    public int gettaskid(final int row) {
+	return taskids[row];
+    }
+
+    /**
+     * Return the project id of the process.
+     *
+     * @param row the row to query
+     *
+     * @return the project id of the process
+     */
+    public int getprojid(final int row) {
+	return projids[row];
+    }
+
+    /**
+     * Return the zone id of the process.
+     *
+     * @param row the row to query
+     *
+     * @return the zone id of the process
+     */
+    public int getzoneid(final int row) {
+	return zoneids[row];
+    }
+
+    /**
+     * Return the process contract.
+     *
+     * @param row the row to query
+     *
+     * @return the process contract
+     */
+    public int getcontract(final int row) {
+	return contracts[row];
+    }
+
+    /**
+     * Return the name of the execed file of the process.
+     *
+     * @param row the row to query
+     *
+     * @return the name of the execed file
+     */
+    public String getfname(final int row) {
+	return fnames[row];
+    }
+}
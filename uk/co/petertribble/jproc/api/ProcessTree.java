@@ -0,0 +1,438 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The tree of processes, as shown by ptree, kept up to date from the
+ * changes seen at each update rather than being rebuilt.
+ *
+ * <p>Each process is held in a node that knows its parent and children,
+ * so both can be found directly. Each node also carries totals for the
+ * subtree below it: the number of descendants, and the rss and cpu time
+ * of the process and all its descendants. These are adjusted along the
+ * path to the root as processes come, go, move, and change.
+ *
+ * <p>When a process exits, its children are moved to whatever the system
+ * has made their new parent, usually init or the zone's zsched. A process
+ * whose parent isn't in the tree, perhaps because the tree only covers
+ * some processes, is a root.
+ *
+ * <p>A ProcessTree isn't thread-safe; it should be updated and read on
+ * one thread. Changes to the shape of the tree are reported to any
+ * {@link ProcessTreeListener}s as they are made.
+ *
+ * @author Peter Tribble
+ */
+public final class ProcessTree {
+
+    private static final Comparator<JProcess> BY_PID =
+	Comparator.comparingInt(JProcess::getPid);
+
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final Set<JProcess> roots = new LinkedHashSet<>();
+    private final List<ProcessTreeListener> listeners = new ArrayList<>();
+
+    /**
+     * Create an empty ProcessTree.
+     */
+    public ProcessTree() {
+    }
+
+    /**
+     * Create a ProcessTree of the given processes, using their cached
+     * information.
+     *
+     * @param processes the processes to put in the tree
+     */
+    public ProcessTree(final Collection<JProcess> processes) {
+	update(processes, Collections.emptySet(), processes);
+    }
+
+    /**
+     * Add a listener to be told of changes to the tree.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(final ProcessTreeListener listener) {
+	listeners.add(listener);
+    }
+
+    /**
+     * Stop telling a listener of changes to the tree.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(final ProcessTreeListener listener) {
+	listeners.remove(listener);
+    }
+
+    /**
+     * Update the tree from a JProcessSet that has just been updated.
+     *
+     * @param jps the JProcessSet to follow
+     */
+    public void update(final JProcessSet jps) {
+	update(jps.getAddedProcesses(), jps.getDeletedProcesses(),
+		jps.getProcesses());
+    }
+
+    /**
+     * Update the tree from a JProcessFilter that has just been updated.
+     *
+     * @param jpf the JProcessFilter to follow
+     */
+    public void update(final JProcessFilter jpf) {
+	update(jpf.getAddedProcesses(), jpf.getDeletedProcesses(),
+		jpf.getProcesses());
+    }
+
+    /**
+     * Update the tree. The deleted processes are removed and the added
+     * ones inserted. Then every current process is checked against its
+     * cached information, so that processes whose parent has changed are
+     * moved, and changes in rss and cpu time are passed up the tree.
+     *
+     * @param added the processes added since the last update
+     * @param deleted the processes deleted since the last update
+     * @param current all the current processes
+     */
+    public void update(final Collection<JProcess> added,
+		       final Collection<JProcess> deleted,
+		       final Collection<JProcess> current) {
+	// deletions first, in case a pid has been reused
+	for (JProcess jp : deleted) {
+	    Node n = nodes.get(jp.getPid());
+	    if (n != null && n.process == jp) {
+		delete(n);
+	    }
+	}
+	List<JProcess> sorted = new ArrayList<>(added);
+	sorted.sort(BY_PID);
+	for (JProcess jp : sorted) {
+	    JProcInfo jpi = jp.getCachedInfo();
+	    if (jpi != null && !nodes.containsKey(jp.getPid())) {
+		Node n = new Node(jp);
+		n.set(jpi);
+		nodes.put(jp.getPid(), n);
+	    }
+	}
+	for (JProcess jp : sorted) {
+	    Node n = nodes.get(jp.getPid());
+	    if (n != null && n.state == Node.NEW) {
+		attach(n);
+	    }
+	}
+	for (JProcess jp : current) {
+	    Node n = nodes.get(jp.getPid());
+	    JProcInfo jpi = jp.getCachedInfo();
+	    if (n == null || n.process != jp || jpi == null) {
+		continue;
+	    }
+	    if (n.state == Node.NEW) {
+		attach(n);
+	    }
+	    long drss = jpi.getrssize() - n.rss;
+	    long dtime = Node.nanos(jpi) - n.time;
+	    if (drss != 0 || dtime != 0) {
+		n.rss += drss;
+		n.time += dtime;
+		for (Node a = n; a != null; a = a.parent) {
+		    a.subRss += drss;
+		    a.subTime += dtime;
+		}
+	    }
+	    Node p = parentFor(n, jpi.getppid());
+	    if (p != n.parent) {
+		move(n, p);
+	    }
+	}
+    }
+
+    /*
+     * Link a new node to its parent, first linking the parent if that's
+     * new too.
+     */
+    private void attach(final Node n) {
+	n.state = Node.ATTACHING;
+	Node p = nodes.get(n.ppid);
+	if (p != null && p.state == Node.NEW) {
+	    attach(p);
+	}
+	p = parentFor(n, n.ppid);
+	link(n, p);
+	n.state = Node.ATTACHED;
+	for (ProcessTreeListener l : listeners) {
+	    l.processAdded(n.process, process(p));
+	}
+    }
+
+    /*
+     * Remove a node, first making its children roots until their new
+     * parent is found.
+     */
+    private void delete(final Node n) {
+	for (JProcess child : new ArrayList<>(n.children)) {
+	    move(nodes.get(child.getPid()), null);
+	}
+	Node p = n.parent;
+	unlink(n);
+	nodes.remove(n.process.getPid());
+	for (ProcessTreeListener l : listeners) {
+	    l.processRemoved(n.process, process(p));
+	}
+    }
+
+    private void move(final Node n, final Node p) {
+	Node old = n.parent;
+	unlink(n);
+	link(n, p);
+	for (ProcessTreeListener l : listeners) {
+	    l.processMoved(n.process, process(old), process(p));
+	}
+    }
+
+    /*
+     * Find the node to be the parent of the given node. A process that is
+     * its own parent, whose parent isn't present or isn't yet attached,
+     * or whose parent is one of its own descendants, becomes a root.
+     */
+    private Node parentFor(final Node n, final int ppid) {
+	n.ppid = ppid;
+	if (ppid == n.process.getPid()) {
+	    return null;
+	}
+	Node p = nodes.get(ppid);
+	if (p == null || p.state != Node.ATTACHED) {
+	    return null;
+	}
+	for (Node a = p; a != null; a = a.parent) {
+	    if (a == n) {
+		return null;
+	    }
+	}
+	return p;
+    }
+
+    private void link(final Node n, final Node p) {
+	n.parent = p;
+	if (p == null) {
+	    roots.add(n.process);
+	} else {
+	    p.children.add(n.process);
+	}
+	for (Node a = p; a != null; a = a.parent) {
+	    a.descendants += n.descendants + 1;
+	    a.subRss += n.subRss;
+	    a.subTime += n.subTime;
+	}
+    }
+
+    private void unlink(final Node n) {
+	Node p = n.parent;
+	if (p == null) {
+	    roots.remove(n.process);
+	} else {
+	    p.children.remove(n.process);
+	}
+	for (Node a = p; a != null; a = a.parent) {
+	    a.descendants -= n.descendants + 1;
+	    a.subRss -= n.subRss;
+	    a.subTime -= n.subTime;
+	}
+	n.parent = null;
+    }
+
+    private static JProcess process(final Node n) {
+	return (n == null) ? null : n.process;
+    }
+
+    /**
+     * Return the number of processes in the tree.
+     *
+     * @return the number of processes in the tree
+     */
+    public int size() {
+	return nodes.size();
+    }
+
+    /**
+     * Return whether a process is in the tree.
+     *
+     * @param pid the process id to look for
+     *
+     * @return true if the process is in the tree
+     */
+    public boolean contains(final int pid) {
+	return nodes.containsKey(pid);
+    }
+
+    /**
+     * Return a process in the tree.
+     *
+     * @param pid the process id to look for
+     *
+     * @return the JProcess with the given pid, or null if it isn't in the
+     * tree
+     */
+    public JProcess getProcess(final int pid) {
+	return process(nodes.get(pid));
+    }
+
+    /**
+     * Return the processes at the top of the tree.
+     *
+     * @return a read-only Set of the processes that have no parent in the
+     * tree
+     */
+    public Set<JProcess> getRoots() {
+	return Collections.unmodifiableSet(roots);
+    }
+
+    /**
+     * Return the parent of a process.
+     *
+     * @param pid the process id
+     *
+     * @return the parent JProcess, or null if the process is a root or
+     * isn't in the tree
+     */
+    public JProcess getParent(final int pid) {
+	Node n = nodes.get(pid);
+	return (n == null) ? null : process(n.parent);
+    }
+
+    /**
+     * Return the children of a process.
+     *
+     * @param pid the process id
+     *
+     * @return a read-only Set of the children of the process, which is
+     * empty if it has none or isn't in the tree
+     */
+    public Set<JProcess> getChildren(final int pid) {
+	Node n = nodes.get(pid);
+	return (n == null) ? Collections.emptySet()
+	    : Collections.unmodifiableSet(n.children);
+    }
+
+    /**
+     * Return the ancestors of a process.
+     *
+     * @param pid the process id
+     *
+     * @return a List of the ancestors of the process, starting from the
+     * root, which is empty if it is a root or isn't in the tree
+     */
+    public List<JProcess> getAncestors(final int pid) {
+	List<JProcess> l = new ArrayList<>();
+	Node n = nodes.get(pid);
+	if (n != null) {
+	    for (Node a = n.parent; a != null; a = a.parent) {
+		l.add(a.process);
+	    }
+	    Collections.reverse(l);
+	}
+	return l;
+    }
+
+    /**
+     * Return the number of descendants of a process.
+     *
+     * @param pid the process id
+     *
+     * @return the number of processes below this one in the tree
+     */
+    public int getDescendantCount(final int pid) {
+	Node n = nodes.get(pid);
+	return (n == null) ? 0 : n.descendants;
+    }
+
+    /**
+     * Return the total rss of a process and its descendants.
+     *
+     * @param pid the process id
+     *
+     * @return the total resident size of the subtree, in Kbytes
+     */
+    public long getSubtreeRss(final int pid) {
+	Node n = nodes.get(pid);
+	return (n == null) ? 0 : n.subRss;
+    }
+
+    /**
+     * Return the total cpu time used by a process and its descendants.
+     *
+     * @param pid the process id
+     *
+     * @return the total cpu time of the subtree, in seconds
+     */
+    public double getSubtreeTime(final int pid) {
+	Node n = nodes.get(pid);
+	return (n == null) ? 0.0 : n.subTime / 1000000000.0;
+    }
+
+    /*
+     * A process in the tree. The subtree totals include the process
+     * itself; times are in nanoseconds so they can be adjusted exactly.
+     */
+    private static final class Node {
+	private static final int NEW = 0;
+	private static final int ATTACHING = 1;
+	private static final int ATTACHED = 2;
+
+	private final JProcess process;
+	private final Set<JProcess> children = new LinkedHashSet<>();
+	private Node parent;
+	private int state;
+	private int ppid;
+	private long rss;
+	private long time;
+	private int descendants;
+	private long subRss;
+	private long subTime;
+
+	private Node(final JProcess nprocess) {
+	    process = nprocess;
+	}
+
+	private void set(final JProcInfo jpi) {
+	    ppid = jpi.getppid();
+	    rss = jpi.getrssize();
+	    time = nanos(jpi);
+	    subRss = rss;
+	    subTime = time;
+	}
+
+	private static long nanos(final JProcInfo jpi) {
+	    return jpi.getetime() * 1000000000L + jpi.getntime();
+	}
+    }
+}
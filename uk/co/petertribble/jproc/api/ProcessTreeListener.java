@@ -0,0 +1,62 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+/**
+ * An interface to be implemented by anything that wishes to follow the
+ * changes made to a {@link ProcessTree}. Between them the callbacks
+ * describe every change to the shape of the tree, in the order they are
+ * made, so a listener can keep a copy of the tree in step without
+ * rebuilding it.
+ *
+ * @author Peter Tribble
+ */
+public interface ProcessTreeListener {
+
+    /**
+     * Called when a process is added to the tree.
+     *
+     * @param jp the process added
+     * @param parent the parent the process has been added to, or null if
+     * it has been added as a root
+     */
+    void processAdded(JProcess jp, JProcess parent);
+
+    /**
+     * Called when a process is removed from the tree. Any children it had
+     * have already been moved away.
+     *
+     * @param jp the process removed
+     * @param parent the parent the process has been removed from, or null
+     * if it was a root
+     */
+    void processRemoved(JProcess jp, JProcess parent);
+
+    /**
+     * Called when a process, along with its descendants, is given a new
+     * parent.
+     *
+     * @param jp the process moved
+     * @param oldParent the previous parent, or null if it was a root
+     * @param newParent the new parent, or null if it is now a root
+     */
+    void processMoved(JProcess jp, JProcess oldParent, JProcess newParent);
+}
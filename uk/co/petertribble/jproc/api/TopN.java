@@ -0,0 +1,500 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A query for the processes ranked highest by some measure, such as the
+ * 20 largest by rss or the 10 using most cpu.
+ *
+ * <p>Evaluation keeps only the leading processes, in a heap bounded by
+ * the number wanted, so no more than that are held or sorted whatever
+ * the number of processes. Only the data needed for the ranking is read:
+ * the measures from process information use a single bulk snapshot,
+ * while those from usage read just the usage of each process, a block
+ * of processes at a time, and then the information of only the
+ * processes that made the list.
+ *
+ * <p>The rate measures, such as CPU_RATE, are taken over the interval
+ * since the previous evaluation of the same TopN, so a TopN to be used
+ * for rates should be kept and evaluated repeatedly. The first
+ * evaluation has nothing to compare against, and returns an empty list.
+ * A TopN may instead keep more than one past evaluation, and be asked
+ * with {@link #setInterval(long)} for a rate over a longer interval,
+ * which is how a server shared by many clients gives each of them the
+ * rate since its own previous query. A TopN for a rate isn't thread
+ * safe.
+ *
+ * @author Peter Tribble
+ */
+public final class TopN {
+
+    /**
+     * Rank by total size, in Kbytes.
+     */
+    public static final int SIZE = 0;
+    /**
+     * Rank by resident set size, in Kbytes.
+     */
+    public static final int RSS = 1;
+    /**
+     * Rank by cpu time used, in seconds.
+     */
+    public static final int TIME = 2;
+    /**
+     * Rank by number of lwps.
+     */
+    public static final int NLWP = 3;
+    /**
+     * Rank by number of system calls made.
+     */
+    public static final int SYSCALLS = 4;
+    /**
+     * Rank by number of context switches, voluntary plus involuntary.
+     */
+    public static final int CONTEXT_SWITCHES = 5;
+    /**
+     * Rank by number of page faults, minor plus major.
+     */
+    public static final int FAULTS = 6;
+    /**
+     * Rank by number of characters read and written.
+     */
+    public static final int IOCHARS = 7;
+    /**
+     * Rank by recent cpu utilization, as a percentage of one cpu.
+     */
+    public static final int CPU_RATE = 8;
+    /**
+     * Rank by recent system calls per second.
+     */
+    public static final int SYSCALL_RATE = 9;
+    /**
+     * Rank by recent context switches per second.
+     */
+    public static final int CONTEXT_SWITCH_RATE = 10;
+    /**
+     * Rank by recent page faults per second.
+     */
+    public static final int FAULT_RATE = 11;
+    /**
+     * Rank by recent characters read and written per second.
+     */
+    public static final int IO_RATE = 12;
+
+    private static final int NKEYS = 13;
+
+    /*
+     * The number of processes whose usage is read in one call.
+     */
+    private static final int BLOCK = 256;
+
+    /*
+     * The UsageHistory metric for each rate key, in order.
+     */
+    private static final int[] METRICS = {UsageHistory.CPU,
+	UsageHistory.SYSCALLS, UsageHistory.CONTEXT_SWITCHES,
+	UsageHistory.FAULTS, UsageHistory.IOCHARS};
+
+    private final int key;
+    private final int count;
+    private final UsageHistory history;
+
+    /*
+     * For a rate, the times of the past evaluations, in a ring, the
+     * interval wanted, and the time of the previous remote query, all
+     * from System.nanoTime().
+     */
+    private final long[] times;
+    private int head;
+    private int nevals;
+    private long interval;
+    private long queried;
+
+    /**
+     * Create a TopN query.
+     *
+     * @param nkey the measure to rank by, such as RSS or CPU_RATE
+     * @param ncount the number of processes wanted
+     */
+    public TopN(final int nkey, final int ncount) {
+	this(nkey, ncount, 2);
+    }
+
+    /**
+     * Create a TopN query that keeps the given number of past evaluations,
+     * so that a rate may be taken over any of the intervals they cover.
+     *
+     * @param nkey the measure to rank by, such as RSS or CPU_RATE
+     * @param ncount the number of processes wanted
+     * @param depth the number of evaluations to keep, which must be at
+     * least 2
+     */
+    public TopN(final int nkey, final int ncount, final int depth) {
+	if (nkey < 0 || nkey >= NKEYS) {
+	    throw new IllegalArgumentException("invalid key " + nkey);
+	}
+	if (ncount < 1) {
+	    throw new IllegalArgumentException("count must be at least 1");
+	}
+	if (depth < 2) {
+	    throw new IllegalArgumentException("depth must be at least 2");
+	}
+	key = nkey;
+	count = ncount;
+	history = isRate() ? new UsageHistory(depth) : null;
+	times = isRate() ? new long[depth] : null;
+    }
+
+    /**
+     * Return the measure processes are ranked by.
+     *
+     * @return the key of this query
+     */
+    public int getKey() {
+	return key;
+    }
+
+    /**
+     * Return the number of processes wanted.
+     *
+     * @return the maximum number of processes returned
+     */
+    public int getCount() {
+	return count;
+    }
+
+    /**
+     * Return whether this query ranks by a rate, which needs a previous
+     * evaluation to compare against.
+     *
+     * @return true if the key of this query is a rate
+     */
+    public boolean isRate() {
+	return key >= CPU_RATE;
+    }
+
+    /**
+     * Set the interval that rates are to be taken over. Each evaluation
+     * takes the rate since whichever of the evaluations held started
+     * closest to the given interval ago, so the actual interval is limited
+     * by how often and how many evaluations there have been. The default,
+     * zero, is always the interval since the previous evaluation.
+     *
+     * @param millis the interval wanted, in milliseconds
+     */
+    public void setInterval(final long millis) {
+	interval = millis * 1000000L;
+    }
+
+    /**
+     * Note that a query for a rate is being sent to a remote server now,
+     * and return the time since the previous one, which should be sent
+     * along with it so that the server can rank by the rate over the same
+     * interval as a local evaluation would.
+     *
+     * @return the time since this query was last sent, in milliseconds
+     * up to Integer.MAX_VALUE, or zero if it hasn't been sent before or
+     * isn't for a rate
+     */
+    public int nextInterval() {
+	if (!isRate()) {
+	    return 0;
+	}
+	long now = System.nanoTime();
+	long millis = (queried == 0) ? 0 : (now - queried) / 1000000L;
+	queried = now;
+	return (int) Math.min(millis, Integer.MAX_VALUE);
+    }
+    /*
+     * Evaluate the query against a local ProcessInterface. Remote
+     * implementations send the query to the server instead.
+     */
+    List<Entry> evaluate(final ProcessInterface pi) {
+	List<Entry> entries = new ArrayList<>(count);
+	Heap heap = new Heap(count);
+	if (key <= NLWP) {
+	    ProcessSnapshot snap = new ProcessSnapshot();
+	    pi.getSnapshot(snap);
+	    for (int row = 0; row < snap.size(); row++) {
+		heap.offer(row, infoValue(snap, row));
+	    }
+	    heap.drain();
+	    for (int i = 0; i < heap.size; i++) {
+		entries.add(new Entry(snap.getInfo(heap.ids[i]),
+				heap.values[i]));
+	    }
+	    return entries;
+	}
+	int intervals = (history == null) ? 0 : startEvaluation();
+	int[] pids = pi.getPids();
+	int[] block = new int[Math.min(pids.length, BLOCK)];
+	JProcUsage[] jpus = new JProcUsage[block.length];
+	boolean[] found = new boolean[block.length];
+	for (int i = 0; i < jpus.length; i++) {
+	    jpus[i] = new JProcUsage();
+	}
+	for (int from = 0; from < pids.length; from += block.length) {
+	    int n = Math.min(block.length, pids.length - from);
+	    System.arraycopy(pids, from, block, 0, n);
+	    pi.getUsage(block, 0, n, jpus, found);
+	    for (int i = 0; i < n; i++) {
+		if (found[i]) {
+		    offer(heap, block[i], jpus[i], intervals);
+		}
+	    }
+	}
+	if (history != null) {
+	    history.sweep();
+	}
+	heap.drain();
+	for (int i = 0; i < heap.size; i++) {
+	    JProcInfo jpi = pi.getInfo(heap.ids[i]);
+	    // it may have exited since its usage was read
+	    if (jpi != null) {
+		entries.add(new Entry(jpi, heap.values[i]));
+	    }
+	}
+	return entries;
+    }
+
+    /*
+     * Offer a process to the heap by its usage, or by its rate if this
+     * query is for a rate and there is an earlier sample to compare with.
+     */
+    private void offer(final Heap heap, final int pid, final JProcUsage jpu,
+		       final int intervals) {
+	if (history == null) {
+	    heap.offer(pid, usageValue(jpu));
+	} else {
+	    history.record(pid, jpu);
+	    if (history.getSampleCount(pid) > 1) {
+		heap.offer(pid, history.getRate(pid,
+				METRICS[key - CPU_RATE], intervals));
+	    }
+	}
+    }
+
+    /*
+     * Record the time of a rate evaluation, and return how many intervals
+     * back the rate should be taken over, which is the number whose
+     * total length is closest to that wanted.
+     */
+    private int startEvaluation() {
+	long now = System.nanoTime();
+	int depth = times.length;
+	head = (head + 1) % depth;
+	times[head] = now;
+	if (nevals < depth) {
+	    nevals++;
+	}
+	int best = 1;
+	if (interval > 0) {
+	    long bestDiff = Long.MAX_VALUE;
+	    for (int i = 1; i < nevals; i++) {
+		long span = now - times[(head - i + depth) % depth];
+		long diff = Math.abs(span - interval);
+		if (diff < bestDiff) {
+		    best = i;
+		    bestDiff = diff;
+		}
+	    }
+	}
+	return best;
+    }
+
+    private double infoValue(final ProcessSnapshot snap, final int row) {
+	switch (key) {
+	    case SIZE:
+		return snap.getsize(row);
+	    case RSS:
+		return snap.getrssize(row);
+	    case TIME:
+		return snap.gettime(row);
+	    default:
+		return snap.getnlwp(row);
+	}
+    }
+
+    private double usageValue(final JProcUsage jpu) {
+	switch (key) {
+	    case SYSCALLS:
+		return jpu.getsysc();
+	    case CONTEXT_SWITCHES:
+		return jpu.getvctx() + jpu.getictx();
+	    case FAULTS:
+		return jpu.getminf() + jpu.getmajf();
+	    default:
+		return jpu.getioch();
+	}
+    }
+
+    /*
+     * A min-heap of at most a fixed number of ids and their values, so
+     * that the smallest of the leaders is at the top, ready to be
+     * displaced by anything larger.
+     */
+    private static final class Heap {
+	private final int[] ids;
+	private final double[] values;
+	private int size;
+
+	private Heap(final int n) {
+	    ids = new int[n];
+	    values = new double[n];
+	}
+
+	private void offer(final int id, final double value) {
+	    if (size < ids.length) {
+		int i = size++;
+		while (i > 0) {
+		    int parent = (i - 1) / 2;
+		    if (values[parent] <= value) {
+			break;
+		    }
+		    ids[i] = ids[parent];
+		    values[i] = values[parent];
+		    i = parent;
+		}
+		ids[i] = id;
+		values[i] = value;
+	    } else if (value > values[0]) {
+		siftDown(id, value, size);
+	    }
+	}
+
+	/*
+	 * Place the given entry at the top of the first n elements and move
+	 * it down to its place.
+	 */
+	private void siftDown(final int id, final double value, final int n) {
+	    int i = 0;
+	    while (true) {
+		int child = 2 * i + 1;
+		if (child >= n) {
+		    break;
+		}
+		if (child + 1 < n && values[child + 1] < values[child]) {
+		    child++;
+		}
+		if (value <= values[child]) {
+		    break;
+		}
+		ids[i] = ids[child];
+		values[i] = values[child];
+		i = child;
+	    }
+	    ids[i] = id;
+	    values[i] = value;
+	}
+
+	/*
+	 * Sort in place into descending order, by repeatedly moving the
+	 * smallest to the end.
+	 */
+	private void drain() {
+	    for (int n = size - 1; n > 0; n--) {
+		int id = ids[n];
+		double value = values[n];
+		ids[n] = ids[0];
+		values[n] = values[0];
+		siftDown(id, value, n);
+	    }
+	}
+    }
+
+    /**
+     * A process in the result of a TopN query, with the value it was
+     * ranked by.
+     */
+    public static final class Entry {
+
+	private final JProcInfo info;
+	private final double value;
+
+	/**
+	 * Create an Entry.
+	 *
+	 * @param ninfo the information on the process
+	 * @param nvalue the value the process was ranked by
+	 */
+	public Entry(final JProcInfo ninfo, final double nvalue) {
+	    info = ninfo;
+	    value = nvalue;
+	}
+
+	/**
+	 * Return the pid of the process.
+	 *
+	 * @return the pid of the process
+	 */
+	public int getPid() {
+	    return info.getpid();
+	}
+
+	/**
+	 * Return information on the process, as read when the query was
+	 * evaluated.
+	 *
+	 * @return the JProcInfo of the process
+	 */
+	public JProcInfo getInfo() {
+	    return info;
+	}
+
+	/**
+	 * Return the value the process was ranked by.
+	 *
+	 * @return the value of the measure for this process
+	 */
+	public double getValue() {
+	    return value;
+	}
+
+	/**
+	 * Generate a JSON representation of this {@code Entry}.
+	 *
+	 * @return A String containing a JSON representation of this
+	 * {@code Entry}.
+	 */
+	public String toJSON() {
+	    return JSONWriter.toString(this::toJSON, 320);
+	}
+
+	/**
+	 * Write a JSON representation of this {@code Entry}.
+	 *
+	 * @param jw the JSONWriter to write to
+	 *
+	 * @throws IOException if the output can't be written
+	 */
+	public void toJSON(final JSONWriter jw) throws IOException {
+	    jw.startObject();
+	    jw.field("value", value);
+	    jw.name("info");
+	    info.toJSON(jw);
+	    jw.endObject();
+	}
+    }
+}
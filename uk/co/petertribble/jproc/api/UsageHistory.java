@@ -0,0 +1,529 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.api;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a short history of usage samples for each process, so that rates
+ * over recent intervals can be calculated, such as the cpu utilization or
+ * system call rate now rather than since the process started.
+ *
+ * <p>The last few samples of each process are held in primitive ring
+ * buffers, and processes are located through an open addressed pid table,
+ * so there is no per-sample or per-process allocation once the history
+ * has grown to the size of the process table. Memory use is proportional
+ * to the number of processes and the depth of the history.
+ *
+ * <p>The expected usage is to record a sample for each process of
+ * interest, then call {@link #sweep()}, which discards the history of
+ * any process that wasn't sampled, as it has presumably exited. If a
+ * counter goes backwards the pid must have been reused, and the history
+ * for that pid is restarted.
+ *
+ * <p>This class is not thread safe.
+ *
+ * @author Peter Tribble
+ */
+public final class UsageHistory {
+
+    /**
+     * The cpu metric, user plus system time. Its rate is a percentage of
+     * a single cpu.
+     */
+    public static final int CPU = 0;
+
+    /**
+     * The system call metric.
+     */
+    public static final int SYSCALLS = 1;
+
+    /**
+     * The context switch metric, voluntary plus involuntary.
+     */
+    public static final int CONTEXT_SWITCHES = 2;
+
+    /**
+     * The page fault metric, minor plus major.
+     */
+    public static final int FAULTS = 3;
+
+    /**
+     * The metric of characters read and written.
+     */
+    public static final int IOCHARS = 4;
+
+    /**
+     * The microstate metric of time spent in system traps other than
+     * system calls. Its rate, like those of the other microstate times,
+     * is a percentage of a single lwp's time.
+     */
+    public static final int TRAP_TIME = 5;
+
+    /**
+     * The microstate metric of time sleeping on text page faults.
+     */
+    public static final int TEXT_FAULT_TIME = 6;
+
+    /**
+     * The microstate metric of time sleeping on data page faults.
+     */
+    public static final int DATA_FAULT_TIME = 7;
+
+    /**
+     * The microstate metric of time sleeping on kernel page faults.
+     */
+    public static final int KERNEL_FAULT_TIME = 8;
+
+    /**
+     * The microstate metric of time sleeping on user locks.
+     */
+    public static final int LOCK_TIME = 9;
+
+    /**
+     * The microstate metric of time in all other sleeps.
+     */
+    public static final int SLEEP_TIME = 10;
+
+    /**
+     * The microstate metric of time waiting for a cpu.
+     */
+    public static final int WAIT_TIME = 11;
+
+    /**
+     * The microstate metric of time stopped.
+     */
+    public static final int STOP_TIME = 12;
+
+    private static final int NMETRICS = 13;
+
+    private static final int EMPTY = -1;
+
+    private final int depth;
+
+    /*
+     * The pid table, mapping a pid to its slot, with linear probing.
+     */
+    private int[] hkeys;
+    private int[] hslots;
+    private int hcount;
+
+    /*
+     * For each slot, its pid (or EMPTY if free), the position of the
+     * latest sample in its ring, the number of samples held, and the
+     * round in which it was last sampled.
+     */
+    private int[] spids;
+    private int[] sheads;
+    private int[] scounts;
+    private long[] srounds;
+    private int nslots;
+    private int[] freeSlots;
+    private int nfree;
+
+    /*
+     * The rings. Sample i of slot s is at s * depth + i in times, and
+     * its metrics start at (s * depth + i) * NMETRICS in values.
+     */
+    private long[] times;
+    private long[] values;
+
+    private long round;
+
+    /**
+     * Create a UsageHistory.
+     *
+     * @param ndepth the number of samples to keep for each process, which
+     * must be at least 2
+     */
+    public UsageHistory(final int ndepth) {
+	if (ndepth < 2) {
+	    throw new IllegalArgumentException("depth must be at least 2");
+	}
+	depth = ndepth;
+	hkeys = new int[256];
+	hslots = new int[256];
+	Arrays.fill(hkeys, EMPTY);
+	allocSlots(64);
+	freeSlots = new int[64];
+    }
+
+    private void allocSlots(final int n) {
+	int old = (spids == null) ? 0 : spids.length;
+	spids = (spids == null) ? new int[n] : Arrays.copyOf(spids, n);
+	Arrays.fill(spids, old, n, EMPTY);
+	sheads = (sheads == null) ? new int[n] : Arrays.copyOf(sheads, n);
+	scounts = (scounts == null) ? new int[n] : Arrays.copyOf(scounts, n);
+	srounds = (srounds == null) ? new long[n] : Arrays.copyOf(srounds, n);
+	times = (times == null) ? new long[n * depth]
+	    : Arrays.copyOf(times, n * depth);
+	values = (values == null) ? new long[n * depth * NMETRICS]
+	    : Arrays.copyOf(values, n * depth * NMETRICS);
+    }
+
+    private static int hash(final int pid) {
+	int h = pid * 0x9E3779B9;
+	return h ^ (h >>> 16);
+    }
+
+    /*
+     * Return the position of the pid in the table, or of the empty
+     * entry where it would go.
+     */
+    private int probe(final int pid) {
+	int mask = hkeys.length - 1;
+	int i = hash(pid) & mask;
+	while (hkeys[i] != EMPTY && hkeys[i] != pid) {
+	    i = (i + 1) & mask;
+	}
+	return i;
+    }
+
+    private int find(final int pid) {
+	int i = probe(pid);
+	return (hkeys[i] == EMPTY) ? -1 : hslots[i];
+    }
+
+    private void rehash(final int size) {
+	int[] okeys = hkeys;
+	int[] oslots = hslots;
+	hkeys = new int[size];
+	hslots = new int[size];
+	Arrays.fill(hkeys, EMPTY);
+	for (int i = 0; i < okeys.length; i++) {
+	    if (okeys[i] != EMPTY) {
+		int j = probe(okeys[i]);
+		hkeys[j] = okeys[i];
+		hslots[j] = oslots[i];
+	    }
+	}
+    }
+
+    private int allocate(final int pid) {
+	if (2 * (hcount + 1) > hkeys.length) {
+	    rehash(2 * hkeys.length);
+	}
+	int slot;
+	if (nfree > 0) {
+	    slot = freeSlots[--nfree];
+	} else {
+	    if (nslots == spids.length) {
+		allocSlots(2 * nslots);
+	    }
+	    slot = nslots++;
+	}
+	int i = probe(pid);
+	hkeys[i] = pid;
+	hslots[i] = slot;
+	hcount++;
+	spids[slot] = pid;
+	scounts[slot] = 0;
+	sheads[slot] = depth - 1;
+	return slot;
+    }
+
+    /**
+     * Discard the history of the given process.
+     *
+     * @param pid the pid of the process
+     */
+    public void remove(final int pid) {
+	int mask = hkeys.length - 1;
+	int i = probe(pid);
+	if (hkeys[i] == EMPTY) {
+	    return;
+	}
+	int slot = hslots[i];
+	spids[slot] = EMPTY;
+	if (nfree == freeSlots.length) {
+	    freeSlots = Arrays.copyOf(freeSlots, 2 * nfree);
+	}
+	freeSlots[nfree++] = slot;
+	hcount--;
+	/*
+	 * Remove the entry, shifting back any later entries in the same
+	 * run that would no longer be reachable.
+	 */
+	hkeys[i] = EMPTY;
+	int j = i;
+	while (true) {
+	    j = (j + 1) & mask;
+	    if (hkeys[j] == EMPTY) {
+		break;
+	    }
+	    int k = hash(hkeys[j]) & mask;
+	    boolean reachable = (i <= j) ? (i < k && k <= j)
+		: (i < k || k <= j);
+	    if (!reachable) {
+		hkeys[i] = hkeys[j];
+		hslots[i] = hslots[j];
+		hkeys[j] = EMPTY;
+		i = j;
+	    }
+	}
+    }
+
+    /**
+     * Record a usage sample for the given process, taken now.
+     *
+     * @param pid the pid of the process
+     * @param jpu the usage of the process
+     */
+    public void record(final int pid, final JProcUsage jpu) {
+	record(pid, jpu, System.nanoTime());
+    }
+
+    /**
+     * Record a usage sample for the given process.
+     *
+     * @param pid the pid of the process
+     * @param jpu the usage of the process
+     * @param timeNanos the time the sample was taken, from
+     * System.nanoTime()
+     */
+    public void record(final int pid, final JProcUsage jpu,
+		       final long timeNanos) {
+	long cpu = jpu.getcpuNanos();
+	long sysc = jpu.getsysc();
+	long ctx = jpu.getvctx() + jpu.getictx();
+	long faults = jpu.getminf() + jpu.getmajf();
+	long ioch = jpu.getioch();
+	int slot = find(pid);
+	if (slot < 0) {
+	    slot = allocate(pid);
+	}
+	int base = slot * depth;
+	if (scounts[slot] > 0) {
+	    int v = (base + sheads[slot]) * NMETRICS;
+	    if (cpu < values[v + CPU] || sysc < values[v + SYSCALLS]
+		    || ctx < values[v + CONTEXT_SWITCHES]
+		    || faults < values[v + FAULTS]
+		    || ioch < values[v + IOCHARS]) {
+		// a new process with the same pid
+		scounts[slot] = 0;
+	    }
+	}
+	int head = (sheads[slot] + 1) % depth;
+	sheads[slot] = head;
+	if (scounts[slot] < depth) {
+	    scounts[slot]++;
+	}
+	srounds[slot] = round;
+	times[base + head] = timeNanos;
+	int v = (base + head) * NMETRICS;
+	values[v + CPU] = cpu;
+	values[v + SYSCALLS] = sysc;
+	values[v + CONTEXT_SWITCHES] = ctx;
+	values[v + FAULTS] = faults;
+	values[v + IOCHARS] = ioch;
+	values[v + TRAP_TIME] = nanos(jpu.getttime());
+	values[v + TEXT_FAULT_TIME] = nanos(jpu.gettftime());
+	values[v + DATA_FAULT_TIME] = nanos(jpu.getdftime());
+	values[v + KERNEL_FAULT_TIME] = nanos(jpu.getkftime());
+	values[v + LOCK_TIME] = nanos(jpu.getltime());
+	values[v + SLEEP_TIME] = nanos(jpu.getslptime());
+	values[v + WAIT_TIME] = nanos(jpu.getwtime());
+	values[v + STOP_TIME] = nanos(jpu.getstoptime());
+    }
+
+    private static long nanos(final double seconds) {
+	return Math.round(seconds * 1.0e9);
+    }
+
+    /**
+     * End a round of sampling, discarding the history of any process that
+     * hasn't been sampled since the previous call.
+     *
+     * @return the number of processes discarded
+     */
+    public int sweep() {
+	int n = 0;
+	for (int slot = 0; slot < nslots; slot++) {
+	    if (spids[slot] != EMPTY && srounds[slot] < round) {
+		remove(spids[slot]);
+		n++;
+	    }
+	}
+	round++;
+	return n;
+    }
+
+    /**
+     * Return the number of processes with a history.
+     *
+     * @return the number of processes tracked
+     */
+    public int size() {
+	return hcount;
+    }
+
+    /**
+     * Return whether the given process has a history.
+     *
+     * @param pid the pid of the process
+     *
+     * @return true if any samples are held for this process
+     */
+    public boolean contains(final int pid) {
+	return find(pid) >= 0;
+    }
+
+    /**
+     * Return the number of samples held for the given process.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the number of samples held, at most the depth of the history
+     */
+    public int getSampleCount(final int pid) {
+	int slot = find(pid);
+	return (slot < 0) ? 0 : scounts[slot];
+    }
+
+    /**
+     * Return the rate of change of a metric over the most recent intervals.
+     * The rates of cpu and the microstate times are percentages of the
+     * interval, the others are per second.
+     *
+     * @param pid the pid of the process
+     * @param metric the metric, such as CPU or WAIT_TIME
+     * @param intervals the number of intervals to average over, limited
+     * by the number of samples held
+     *
+     * @return the rate, or 0 if there are fewer than two samples
+     */
+    public double getRate(final int pid, final int metric,
+			  final int intervals) {
+	int slot = find(pid);
+	if (slot < 0) {
+	    return 0.0;
+	}
+	int n = Math.min(intervals, scounts[slot] - 1);
+	if (n < 1) {
+	    return 0.0;
+	}
+	int base = slot * depth;
+	int newest = base + sheads[slot];
+	int oldest = base + (sheads[slot] - n + depth) % depth;
+	long dt = times[newest] - times[oldest];
+	if (dt <= 0) {
+	    return 0.0;
+	}
+	long dv = values[newest * NMETRICS + metric]
+	    - values[oldest * NMETRICS + metric];
+	return (metric == CPU || metric >= TRAP_TIME) ? dv * 100.0 / dt
+	    : dv * 1.0e9 / dt;
+    }
+
+    /**
+     * Return the cpu utilization over the last interval, as a percentage
+     * of one cpu.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the cpu utilization
+     */
+    public double getCpuPercent(final int pid) {
+	return getRate(pid, CPU, 1);
+    }
+
+    /**
+     * Return the system call rate over the last interval.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the number of system calls per second
+     */
+    public double getSyscallRate(final int pid) {
+	return getRate(pid, SYSCALLS, 1);
+    }
+
+    /**
+     * Return the context switch rate over the last interval.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the number of context switches per second
+     */
+    public double getContextSwitchRate(final int pid) {
+	return getRate(pid, CONTEXT_SWITCHES, 1);
+    }
+
+    /**
+     * Return the page fault rate over the last interval.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the number of page faults per second
+     */
+    public double getFaultRate(final int pid) {
+	return getRate(pid, FAULTS, 1);
+    }
+
+    /**
+     * Return the I/O rate over the last interval.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the number of characters read and written per second
+     */
+    public double getIoRate(final int pid) {
+	return getRate(pid, IOCHARS, 1);
+    }
+
+    /**
+     * Return the percentage of the last interval spent waiting for a cpu,
+     * which shows whether the process is being held up by the run queue.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the cpu wait (latency) percentage
+     */
+    public double getWaitPercent(final int pid) {
+	return getRate(pid, WAIT_TIME, 1);
+    }
+
+    /**
+     * Return the percentage of the last interval spent waiting on user
+     * locks.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the lock wait percentage
+     */
+    public double getLockPercent(final int pid) {
+	return getRate(pid, LOCK_TIME, 1);
+    }
+
+    /**
+     * Return the percentage of the last interval spent sleeping on text,
+     * data, and kernel page faults.
+     *
+     * @param pid the pid of the process
+     *
+     * @return the page fault wait percentage
+     */
+    public double getFaultWaitPercent(final int pid) {
+	return getRate(pid, TEXT_FAULT_TIME, 1)
+	    + getRate(pid, DATA_FAULT_TIME, 1)
+	    + getRate(pid, KERNEL_FAULT_TIME, 1);
+    }
+}
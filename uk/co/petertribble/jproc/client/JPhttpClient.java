@@ -21,6 +21,8 @@
 package uk.co.petertribble.jproc.client;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -85,6 +87,54 @@ public final class JPhttpClient {
 	return doGet(sb.toString());
     }
 
+    /**
+     * Execute the given method on a remote JProc server, returning the
+     * response as a stream so it can be parsed as it arrives. The caller
+     * must close the returned stream.
+     *
+     * @param method the name of the method to execute
+     *
+     * @return an InputStream containing the result of the remote method
+     * execution
+     *
+     * @throws IOException if there was a problem communicating with the server
+     */
+    public InputStream open(final String method) throws IOException {
+	return open(method, null);
+    }
+
+    /**
+     * Execute the given method on a remote JProc server, returning the
+     * response as a stream, and telling the server which forms of
+     * response are acceptable. The caller must close the returned stream.
+     *
+     * @param method the name of the method to execute
+     * @param accept the value of the Accept header, or null to accept the
+     * server's default form
+     *
+     * @return an InputStream containing the result of the remote method
+     * execution
+     *
+     * @throws IOException if there was a problem communicating with the server
+     */
+    public InputStream open(final String method, final String accept)
+		throws IOException {
+	HttpRequest.Builder builder = HttpRequest.newBuilder()
+	    .uri(URI.create(baseURL + method));
+	if (accept != null) {
+	    builder.header("Accept", accept);
+	}
+	HttpRequest hrequest = builder.build();
+	try {
+	    HttpResponse<InputStream> response
+		= httpclient.send(hrequest, BodyHandlers.ofInputStream());
+	    return response.body();
+	} catch (InterruptedException ie) {
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException("interrupted calling " + method);
+	}
+    }
+
     private String doGet(final String request) throws IOException {
 	HttpRequest hrequest = HttpRequest.newBuilder()
 	    .uri(URI.create(baseURL + request))
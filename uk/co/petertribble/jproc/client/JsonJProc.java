@@ -20,8 +20,15 @@
 
 package uk.co.petertribble.jproc.client;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
+import uk.co.petertribble.jproc.api.BinaryWriter;
 import uk.co.petertribble.jproc.api.JLwp;
 import uk.co.petertribble.jproc.api.JProcException;
 import uk.co.petertribble.jproc.api.JProcInfo;
@@ -31,6 +38,9 @@ import uk.co.petertribble.jproc.api.JProcStatus;
 import uk.co.petertribble.jproc.api.JProcUsage;
 import uk.co.petertribble.jproc.api.JProcess;
 import uk.co.petertribble.jproc.api.ProcessInterface;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+import uk.co.petertribble.jproc.api.TopN;
+import uk.co.petertribble.jproc.parse.BinaryParser;
 import uk.co.petertribble.jproc.parse.JSONParser;
 
 /**
@@ -41,7 +51,22 @@ import uk.co.petertribble.jproc.parse.JSONParser;
  */
 public final class JsonJProc extends ProcessInterface {
 
+    /*
+     * The most processes queried in a single request, which keeps the
+     * request URL to a reasonable length.
+     */
+    private static final int BATCH = 512;
+
+    /*
+     * Ask for the compact binary form where the server has it, and JSON
+     * otherwise.
+     */
+    private static final String ACCEPT_BINARY = BinaryWriter.MEDIA_TYPE
+	+ ", application/json;q=0.9";
+
     private final JPhttpClient client;
+    private final ProcessMirror mirror = new ProcessMirror();
+    private final String accept;
 
     /**
      * Creates a new NativeJProc object.
@@ -51,6 +76,7 @@ public final class JsonJProc extends ProcessInterface {
     public JsonJProc(final PClientConfig pcc) {
 	super();
 	client = new JPhttpClient(pcc);
+	accept = pcc.isBinary() ? ACCEPT_BINARY : null;
     }
 
     /**
@@ -60,14 +86,233 @@ public final class JsonJProc extends ProcessInterface {
      */
     @Override
     public Set<JProcess> getProcesses() {
-	try {
-	    String m = client.execute("getProcesses");
-	    return JSONParser.getProcesses(m);
+	if (syncMirror()) {
+	    return mirror.getProcesses();
+	}
+	try (InputStream is = open("getProcesses")) {
+	    if (BinaryParser.isBinary(is)) {
+		return BinaryParser.getProcesses(is);
+	    } else {
+		return JSONParser.getProcesses(is);
+	    }
 	} catch (IOException e) {
 	    throw new JProcException("JsonJProc getProcesses failed", e);
 	}
     }
 
+    /**
+     * Return information on all processes in the system. This uses the
+     * same remote call as getProcesses(), so is a single round trip.
+     *
+     * @return A List of JProcInfo objects, one for each process running
+     * on the system.
+     */
+    @Override
+    public List<JProcInfo> getSnapshot() {
+	if (syncMirror()) {
+	    return mirror.getSnapshot();
+	}
+	try (InputStream is = open("getProcesses")) {
+	    if (BinaryParser.isBinary(is)) {
+		return BinaryParser.getSnapshot(is);
+	    } else {
+		return JSONParser.getSnapshot(is);
+	    }
+	} catch (IOException e) {
+	    throw new JProcException("JsonJProc getSnapshot failed", e);
+	}
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system. Only the changes since the previous request are
+     * transferred, if the server supports it; otherwise the full list is
+     * parsed directly into the snapshot.
+     *
+     * @param snap the ProcessSnapshot to populate
+     */
+    @Override
+    public void getSnapshot(final ProcessSnapshot snap) {
+	if (syncMirror()) {
+	    mirror.getSnapshot(snap);
+	    return;
+	}
+	try (InputStream is = open("getProcesses")) {
+	    if (BinaryParser.isBinary(is)) {
+		BinaryParser.getSnapshot(is, snap);
+	    } else {
+		JSONParser.getSnapshot(is, snap);
+	    }
+	} catch (IOException e) {
+	    throw new JProcException("JsonJProc getSnapshot failed", e);
+	}
+    }
+
+    /*
+     * Bring the mirror of the server's process list up to date, returning
+     * false if the full list should be fetched instead.
+     */
+    private boolean syncMirror() {
+	return mirror.isSupported() && mirror.update((gen, infos) -> {
+		String method = "getProcessesSince/" + gen;
+		try (InputStream is = client.open(method)) {
+		    return JSONParser.getProcessesSince(is, infos);
+		}
+	    });
+    }
+
+    /**
+     * Evaluate a TopN query on the server, so that only the leading
+     * processes are transferred. The server is told the interval since
+     * this query was last sent, and ranks rates over roughly that
+     * interval, as far as its own samples allow.
+     *
+     * @param topn the query to evaluate
+     *
+     * @return a List of the leading processes, highest first
+     */
+    @Override
+    public List<TopN.Entry> getTopN(final TopN topn) {
+	try {
+	    String[] args = {Integer.toString(topn.getKey()),
+			     Integer.toString(topn.getCount()),
+			     Integer.toString(topn.nextInterval())};
+	    String m = client.execute("getTopN", args);
+	    List<TopN.Entry> entries = JSONParser.getTopN(m);
+	    // an invalid query, or a server that can't evaluate it
+	    return (entries == null) ? new ArrayList<>() : entries;
+	} catch (IOException e) {
+	    throw new JProcException("JsonJProc getTopN failed", e);
+	}
+    }
+
+    /**
+     * Add information on a range of the given processes to the given
+     * ProcessSnapshot. The processes are queried in batches, each a single
+     * request.
+     *
+     * @param pids an array of pids
+     * @param from the index of the first pid to query, inclusive
+     * @param to the index of the last pid to query, exclusive
+     * @param snap the ProcessSnapshot to add to
+     */
+    @Override
+    public void getSnapshot(final int[] pids, final int from, final int to,
+			    final ProcessSnapshot snap) {
+	try {
+	    for (int i = from; i < to; i += BATCH) {
+		int end = Math.min(i + BATCH, to);
+		String m = client.execute("getInfos",
+				new String[] {pidList(pids, i, end)});
+		JSONParser.getInfos(m, snap);
+	    }
+	} catch (IOException e) {
+	    throw new JProcException("JsonJProc getInfos failed", e);
+	}
+    }
+
+    /**
+     * Retrieves usage information about a range of the given processes,
+     * populating existing JProcUsage objects. The processes are queried
+     * in batches, each a single request.
+     *
+     * @param pids an array of pids
+     * @param from the index of the first pid to query, inclusive
+     * @param to the index of the last pid to query, exclusive
+     * @param jpus the JProcUsage objects to populate
+     * @param found set to true for each process that was found
+     */
+    @Override
+    public void getUsage(final int[] pids, final int from, final int to,
+			 final JProcUsage[] jpus, final boolean[] found) {
+	try {
+	    for (int i = from; i < to; i += BATCH) {
+		int end = Math.min(i + BATCH, to);
+		String m = client.execute("getUsages",
+				new String[] {pidList(pids, i, end)});
+		JSONParser.getUsages(m, i, end, jpus, found);
+	    }
+	} catch (IOException e) {
+	    throw new JProcException("JsonJProc getUsages failed", e);
+	}
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system, and read the usage of each of them, in a single
+     * request.
+     *
+     * @param snap the ProcessSnapshot to populate
+     * @param jpus the JProcUsage objects to populate
+     */
+    @Override
+    public void getProcessesWithUsage(final ProcessSnapshot snap,
+				      final List<JProcUsage> jpus) {
+	try (InputStream is = client.open("getProcessesWithUsage")) {
+	    JSONParser.getProcessesWithUsage(is, snap, jpus);
+	} catch (IOException e) {
+	    throw new JProcException("JsonJProc getProcessesWithUsage failed",
+				e);
+	}
+    }
+
+    /**
+     * Return whether each query is a request to a remote server, which
+     * it always is.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isRemote() {
+	return true;
+    }
+
+    /*
+     * Open a request, asking for the binary form if so configured. The
+     * stream is buffered, so the form of the response can be checked
+     * with BinaryParser.isBinary() before parsing it.
+     */
+    private InputStream open(final String request) throws IOException {
+	return new BufferedInputStream(client.open(request, accept));
+    }
+
+    /*
+     * Fetch a single record, decoding it with whichever parser matches
+     * the form the server replied with.
+     */
+    private <T> T fetch(final String request, final BinaryDecoder<T> binary,
+			final Function<String, T> json) throws IOException {
+	try (InputStream is = open(request)) {
+	    if (BinaryParser.isBinary(is)) {
+		return binary.decode(is);
+	    }
+	    return json.apply(new String(is.readAllBytes(),
+					StandardCharsets.UTF_8));
+	}
+    }
+
+    /*
+     * Decode a record in the binary form.
+     */
+    private interface BinaryDecoder<T> {
+	T decode(InputStream is) throws IOException;
+    }
+
+    /*
+     * Join a range of pids into a comma separated list.
+     */
+    private static String pidList(final int[] pids, final int from,
+				final int to) {
+	StringBuilder sb = new StringBuilder((to - from) * 6);
+	for (int i = from; i < to; i++) {
+	    if (i > from) {
+		sb.append(',');
+	    }
+	    sb.append(pids[i]);
+	}
+	return sb.toString();
+    }
+
     /**
      * Return a Set of JLwp objects representing the lwps in this process.
      * If the process no longer exists, returns null
@@ -79,9 +324,8 @@ public final class JsonJProc extends ProcessInterface {
     @Override
     public Set<JLwp> getLwps(final int pid) {
 	try {
-	    String m = client.execute("getLwps",
-					new String[] {Integer.toString(pid)});
-	    return JSONParser.getLwps(m);
+	    return fetch("getLwps/" + pid,
+			BinaryParser::getLwps, JSONParser::getLwps);
 	} catch (IOException e) {
 	    throw new JProcException("JsonJProc getLwps failed", e);
 	}
@@ -98,9 +342,8 @@ public final class JsonJProc extends ProcessInterface {
     @Override
     public JProcStatus getStatus(final int pid) {
 	try {
-	    String m = client.execute("getStatus",
-					new String[] {Integer.toString(pid)});
-	    return JSONParser.getStatus(m);
+	    return fetch("getStatus/" + pid,
+			BinaryParser::getStatus, JSONParser::getStatus);
 	} catch (IOException e) {
 	    throw new JProcException("JsonJProc getStatus failed", e);
 	}
@@ -118,10 +361,8 @@ public final class JsonJProc extends ProcessInterface {
     @Override
     public JProcLwpStatus getLwpStatus(final int pid, final int lwpid) {
 	try {
-	    String m = client.execute("getLwpStatus",
-					new String[] {Integer.toString(pid),
-						Integer.toString(lwpid)});
-	    return JSONParser.getLwpStatus(m);
+	    return fetch("getLwpStatus/" + pid + "/" + lwpid,
+			BinaryParser::getLwpStatus, JSONParser::getLwpStatus);
 	} catch (IOException e) {
 	    throw new JProcException("JsonJProc getLwpStatus failed", e);
 	}
@@ -138,9 +379,29 @@ public final class JsonJProc extends ProcessInterface {
     @Override
     public JProcInfo getInfo(final int pid) {
 	try {
-	    String m = client.execute("getInfo",
-					new String[] {Integer.toString(pid)});
-	    return JSONParser.getInfo(m);
+	    return fetch("getInfo/" + pid,
+			BinaryParser::getInfo, JSONParser::getInfo);
+	} catch (IOException e) {
+	    throw new JProcException("JsonJProc getInfo failed", e);
+	}
+    }
+
+    /**
+     * Retrieves information about a process, populating an existing
+     * JProcInfo object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param jpi The JProcInfo object to populate
+     *
+     * @return true if jpi was populated, false if the process does not
+     * exist, in which case jpi is unchanged
+     */
+    @Override
+    public boolean getInfo(final int pid, final JProcInfo jpi) {
+	try {
+	    return fetch("getInfo/" + pid,
+			is -> BinaryParser.getInfo(is, jpi),
+			m -> JSONParser.getInfo(m, jpi));
 	} catch (IOException e) {
 	    throw new JProcException("JsonJProc getInfo failed", e);
 	}
@@ -158,10 +419,8 @@ public final class JsonJProc extends ProcessInterface {
     @Override
     public JProcLwpInfo getLwpInfo(final int pid, final int lwpid) {
 	try {
-	    String m = client.execute("getLwpInfo",
-					new String[] {Integer.toString(pid),
-						Integer.toString(lwpid)});
-	    return JSONParser.getLwpInfo(m);
+	    return fetch("getLwpInfo/" + pid + "/" + lwpid,
+			BinaryParser::getLwpInfo, JSONParser::getLwpInfo);
 	} catch (IOException e) {
 	    throw new JProcException("JsonJProc getLwpInfo failed", e);
 	}
@@ -178,9 +437,29 @@ public final class JsonJProc extends ProcessInterface {
     @Override
     public JProcUsage getUsage(final int pid) {
 	try {
-	    String m = client.execute("getUsage",
-					new String[] {Integer.toString(pid)});
-	    return JSONParser.getUsage(m);
+	    return fetch("getUsage/" + pid,
+			BinaryParser::getUsage, JSONParser::getUsage);
+	} catch (IOException e) {
+	    throw new JProcException("JsonJProc getUsage failed", e);
+	}
+    }
+
+    /**
+     * Retrieves usage information about a process, populating an existing
+     * JProcUsage object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param jpu The JProcUsage object to populate
+     *
+     * @return true if jpu was populated, false if the process does not
+     * exist, in which case jpu is unchanged
+     */
+    @Override
+    public boolean getUsage(final int pid, final JProcUsage jpu) {
+	try {
+	    return fetch("getUsage/" + pid,
+			is -> BinaryParser.getUsage(is, jpu),
+			m -> JSONParser.getUsage(m, jpu));
 	} catch (IOException e) {
 	    throw new JProcException("JsonJProc getUsage failed", e);
 	}
@@ -198,10 +477,8 @@ public final class JsonJProc extends ProcessInterface {
     @Override
     public JProcUsage getLwpUsage(final int pid, final int lwpid) {
 	try {
-	    String m = client.execute("getLwpUsage",
-					new String[] {Integer.toString(pid),
-						Integer.toString(lwpid)});
-	    return JSONParser.getUsage(m);
+	    return fetch("getLwpUsage/" + pid + "/" + lwpid,
+			BinaryParser::getUsage, JSONParser::getUsage);
 	} catch (IOException e) {
 	    throw new JProcException("JsonJProc getLwpUsage failed", e);
 	}
@@ -61,6 +61,7 @@ public final class PClientConfig {
     private String username;
     private String userpass;
     private int protocol;
+    private boolean binary;
 
     /**
      * Create an empty PClientConfig.
@@ -98,6 +99,7 @@ public final class PClientConfig {
      * User a username to use for authentication
      * Pass a password to use for authentication
      * Protocol an integer representing the communication protocol
+     * Binary true to ask a REST server for the compact binary form
      *
      * @param f the File to read the configuration from.
      */
@@ -111,6 +113,7 @@ public final class PClientConfig {
 	    if (sproto != null) {
 		protocol = Integer.parseInt(sproto);
 	    }
+	    binary = Boolean.parseBoolean(m.get("Binary"));
 	}
     }
 
@@ -213,6 +216,31 @@ public final class PClientConfig {
 	return protocol;
     }
 
+    /**
+     * Set whether to ask a REST server for the compact binary form of
+     * its responses, rather than JSON. A server that doesn't support the
+     * binary form replies with JSON, so this is always safe to enable.
+     *
+     * @see #isBinary
+     *
+     * @param nbinary true to ask for the compact binary form
+     */
+    public void setBinary(final boolean nbinary) {
+	binary = nbinary;
+    }
+
+    /**
+     * Get whether to ask a REST server for the compact binary form of its
+     * responses.
+     *
+     * @see #setBinary
+     *
+     * @return true if the compact binary form should be asked for
+     */
+    public boolean isBinary() {
+	return binary;
+    }
+
     /**
      * Get the server to connect to.
      *
@@ -0,0 +1,151 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import uk.co.petertribble.jproc.api.JProcInfo;
+import uk.co.petertribble.jproc.api.JProcess;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+
+/**
+ * A local copy of the list of processes on a remote server, kept up to
+ * date by applying the changes since the previous request rather than
+ * transferring the whole list each time.
+ *
+ * <p>The mirror records the generation of the server's list that it
+ * holds. If applying changes fails, the mirror is emptied and its
+ * generation reset, so the next request gets the full list. If the
+ * server doesn't send changes at all, as an older server won't, the
+ * mirror is marked as unsupported and callers should fetch the full list
+ * instead.
+ *
+ * @author Peter Tribble
+ */
+final class ProcessMirror {
+
+    /**
+     * Applies the changes from a server response to a Map of JProcInfo
+     * indexed by pid.
+     */
+    interface Source {
+	/**
+	 * Fetch the changes since the given generation and apply them.
+	 *
+	 * @param generation the generation held, 0 if none
+	 * @param infos the Map of JProcInfo to update
+	 *
+	 * @return the new generation, or -1 if the response didn't hold
+	 * changes to the list of processes
+	 *
+	 * @throws Exception if the changes couldn't be fetched or applied
+	 */
+	long apply(long generation, Map<Integer, JProcInfo> infos)
+	    throws Exception;
+    }
+
+    private final Map<Integer, JProcInfo> infos = new HashMap<>();
+    private long generation;
+    private volatile boolean supported = true;
+
+    /**
+     * Return whether the server sends changes to the list of processes.
+     *
+     * @return false if the server has been found not to send changes
+     */
+    boolean isSupported() {
+	return supported;
+    }
+
+    /**
+     * Bring the mirror up to date.
+     *
+     * @param source the Source that fetches and applies the changes
+     *
+     * @return true if the mirror is up to date, false if the server
+     * doesn't send changes or the changes couldn't be applied
+     */
+    synchronized boolean update(final Source source) {
+	long ngeneration;
+	try {
+	    ngeneration = source.apply(generation, infos);
+	} catch (Exception e) {
+	    ngeneration = -2L;
+	}
+	if (ngeneration == -1L) {
+	    supported = false;
+	}
+	if (ngeneration < 0) {
+	    infos.clear();
+	    generation = 0L;
+	    return false;
+	}
+	generation = ngeneration;
+	return true;
+    }
+
+    /**
+     * Populate the given ProcessSnapshot from the mirror. Any existing
+     * contents of the snapshot are discarded.
+     *
+     * @param snap the ProcessSnapshot to populate
+     */
+    synchronized void getSnapshot(final ProcessSnapshot snap) {
+	snap.clear();
+	for (JProcInfo jpi : infos.values()) {
+	    snap.add(jpi);
+	}
+    }
+
+    /**
+     * Return a copy of the information held on each process.
+     *
+     * @return A List of new JProcInfo objects, one for each process
+     */
+    List<JProcInfo> getSnapshot() {
+	ProcessSnapshot snap = new ProcessSnapshot();
+	getSnapshot(snap);
+	List<JProcInfo> ninfos = new ArrayList<>(snap.size());
+	for (int row = 0; row < snap.size(); row++) {
+	    ninfos.add(snap.getInfo(row));
+	}
+	return ninfos;
+    }
+
+    /**
+     * Return the processes held.
+     *
+     * @return A Set of new JProcesses, one for each process
+     */
+    Set<JProcess> getProcesses() {
+	ProcessSnapshot snap = new ProcessSnapshot();
+	getSnapshot(snap);
+	Set<JProcess> nprocesses = new HashSet<>();
+	for (int row = 0; row < snap.size(); row++) {
+	    nprocesses.add(new JProcess(snap.getpid(row), snap.getInfo(row)));
+	}
+	return nprocesses;
+    }
+}
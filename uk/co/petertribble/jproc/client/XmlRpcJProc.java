@@ -20,6 +20,8 @@
 
 package uk.co.petertribble.jproc.client;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import org.apache.xmlrpc.XmlRpcException;
 import uk.co.petertribble.jproc.api.JLwp;
@@ -31,6 +33,8 @@ import uk.co.petertribble.jproc.api.JProcStatus;
 import uk.co.petertribble.jproc.api.JProcUsage;
 import uk.co.petertribble.jproc.api.JProcess;
 import uk.co.petertribble.jproc.api.ProcessInterface;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+import uk.co.petertribble.jproc.api.TopN;
 import uk.co.petertribble.jproc.parse.JSONParser;
 
 /**
@@ -41,7 +45,13 @@ import uk.co.petertribble.jproc.parse.JSONParser;
  */
 public final class XmlRpcJProc extends ProcessInterface {
 
+    /*
+     * The most processes queried in a single request.
+     */
+    private static final int BATCH = 512;
+
     private final JProcClient client;
+    private final ProcessMirror mirror = new ProcessMirror();
 
     /**
      * Creates a new NativeJProc object.
@@ -60,6 +70,9 @@ public final class XmlRpcJProc extends ProcessInterface {
      */
     @Override
     public Set<JProcess> getProcesses() {
+	if (syncMirror()) {
+	    return mirror.getProcesses();
+	}
 	try {
 	    String m = (String) client.execute("getProcesses");
 	    return JSONParser.getProcesses(m);
@@ -68,6 +81,175 @@ public final class XmlRpcJProc extends ProcessInterface {
 	}
     }
 
+    /**
+     * Return information on all processes in the system. This uses the
+     * same remote call as getProcesses(), so is a single round trip.
+     *
+     * @return A List of JProcInfo objects, one for each process running
+     * on the system.
+     */
+    @Override
+    public List<JProcInfo> getSnapshot() {
+	if (syncMirror()) {
+	    return mirror.getSnapshot();
+	}
+	try {
+	    String m = (String) client.execute("getProcesses");
+	    return JSONParser.getSnapshot(m);
+	} catch (XmlRpcException e) {
+	    throw new JProcException("XmlRpcJProc getSnapshot failed", e);
+	}
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system. Only the changes since the previous request are
+     * transferred, if the server supports it.
+     *
+     * @param snap the ProcessSnapshot to populate
+     */
+    @Override
+    public void getSnapshot(final ProcessSnapshot snap) {
+	if (syncMirror()) {
+	    mirror.getSnapshot(snap);
+	} else {
+	    super.getSnapshot(snap);
+	}
+    }
+
+    /*
+     * Bring the mirror of the server's process list up to date, returning
+     * false if the full list should be fetched instead.
+     */
+    private boolean syncMirror() {
+	return mirror.isSupported() && mirror.update((gen, infos) ->
+		JSONParser.getProcessesSince(
+			(String) client.execute("getProcessesSince",
+					new Object[] {Long.toString(gen)}),
+			infos));
+    }
+
+    /**
+     * Evaluate a TopN query on the server, so that only the leading
+     * processes are transferred. The server is told the interval since
+     * this query was last sent, and ranks rates over roughly that
+     * interval, as far as its own samples allow.
+     *
+     * @param topn the query to evaluate
+     *
+     * @return a List of the leading processes, highest first
+     */
+    @Override
+    public List<TopN.Entry> getTopN(final TopN topn) {
+	try {
+	    String m = (String) client.execute("getTopN",
+				new Object[] {topn.getKey(), topn.getCount(),
+					topn.nextInterval()});
+	    List<TopN.Entry> entries = JSONParser.getTopN(m);
+	    // an invalid query, or a server that can't evaluate it
+	    return (entries == null) ? new ArrayList<>() : entries;
+	} catch (XmlRpcException e) {
+	    throw new JProcException("XmlRpcJProc getTopN failed", e);
+	}
+    }
+
+    /**
+     * Add information on a range of the given processes to the given
+     * ProcessSnapshot. The processes are queried in batches, each a single
+     * request.
+     *
+     * @param pids an array of pids
+     * @param from the index of the first pid to query, inclusive
+     * @param to the index of the last pid to query, exclusive
+     * @param snap the ProcessSnapshot to add to
+     */
+    @Override
+    public void getSnapshot(final int[] pids, final int from, final int to,
+			    final ProcessSnapshot snap) {
+	try {
+	    for (int i = from; i < to; i += BATCH) {
+		int end = Math.min(i + BATCH, to);
+		String m = (String) client.execute("getInfos",
+				new Object[] {pidList(pids, i, end)});
+		JSONParser.getInfos(m, snap);
+	    }
+	} catch (XmlRpcException e) {
+	    throw new JProcException("XmlRpcJProc getInfos failed", e);
+	}
+    }
+
+    /**
+     * Retrieves usage information about a range of the given processes,
+     * populating existing JProcUsage objects. The processes are queried
+     * in batches, each a single request.
+     *
+     * @param pids an array of pids
+     * @param from the index of the first pid to query, inclusive
+     * @param to the index of the last pid to query, exclusive
+     * @param jpus the JProcUsage objects to populate
+     * @param found set to true for each process that was found
+     */
+    @Override
+    public void getUsage(final int[] pids, final int from, final int to,
+			 final JProcUsage[] jpus, final boolean[] found) {
+	try {
+	    for (int i = from; i < to; i += BATCH) {
+		int end = Math.min(i + BATCH, to);
+		String m = (String) client.execute("getUsages",
+				new Object[] {pidList(pids, i, end)});
+		JSONParser.getUsages(m, i, end, jpus, found);
+	    }
+	} catch (XmlRpcException e) {
+	    throw new JProcException("XmlRpcJProc getUsages failed", e);
+	}
+    }
+
+    /**
+     * Populate the given ProcessSnapshot with information on all processes
+     * in the system, and read the usage of each of them, in a single
+     * request.
+     *
+     * @param snap the ProcessSnapshot to populate
+     * @param jpus the JProcUsage objects to populate
+     */
+    @Override
+    public void getProcessesWithUsage(final ProcessSnapshot snap,
+				      final List<JProcUsage> jpus) {
+	try {
+	    String m = (String) client.execute("getProcessesWithUsage");
+	    JSONParser.getProcessesWithUsage(m, snap, jpus);
+	} catch (XmlRpcException e) {
+	    throw new JProcException(
+			"XmlRpcJProc getProcessesWithUsage failed", e);
+	}
+    }
+
+    /**
+     * Return whether each query is a request to a remote server, which
+     * it always is.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isRemote() {
+	return true;
+    }
+
+    /*
+     * Join a range of pids into a comma separated list.
+     */
+    private static String pidList(final int[] pids, final int from,
+				final int to) {
+	StringBuilder sb = new StringBuilder((to - from) * 6);
+	for (int i = from; i < to; i++) {
+	    if (i > from) {
+		sb.append(',');
+	    }
+	    sb.append(pids[i]);
+	}
+	return sb.toString();
+    }
+
     /**
      * Return a Set of JLwp objects representing the lwps in this process.
      * If the process no longer exists, returns null
@@ -143,6 +325,26 @@ public final class XmlRpcJProc extends ProcessInterface {
 	}
     }
 
+    /**
+     * Retrieves information about a process, populating an existing
+     * JProcInfo object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param jpi The JProcInfo object to populate
+     *
+     * @return true if jpi was populated, false if the process does not
+     * exist, in which case jpi is unchanged
+     */
+    @Override
+    public boolean getInfo(final int pid, final JProcInfo jpi) {
+	try {
+	    String m = (String) client.execute("getInfo", new Object[] {pid});
+	    return JSONParser.getInfo(m, jpi);
+	} catch (XmlRpcException e) {
+	    throw new JProcException("XmlRpcJProc getInfo failed", e);
+	}
+    }
+
     /**
      * Retrieves information about an lwp in a process.
      *
@@ -181,6 +383,26 @@ public final class XmlRpcJProc extends ProcessInterface {
 	}
     }
 
+    /**
+     * Retrieves usage information about a process, populating an existing
+     * JProcUsage object rather than creating a new one.
+     *
+     * @param pid The process pid to query
+     * @param jpu The JProcUsage object to populate
+     *
+     * @return true if jpu was populated, false if the process does not
+     * exist, in which case jpu is unchanged
+     */
+    @Override
+    public boolean getUsage(final int pid, final JProcUsage jpu) {
+	try {
+	    String m = (String) client.execute("getUsage", new Object[] {pid});
+	    return JSONParser.getUsage(m, jpu);
+	} catch (XmlRpcException e) {
+	    throw new JProcException("XmlRpcJProc getUsage failed", e);
+	}
+    }
+
     /**
      * Retrieves usage information about an lwp in a process.
      *
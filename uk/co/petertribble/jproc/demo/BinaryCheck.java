@@ -0,0 +1,326 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.demo;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import uk.co.petertribble.jproc.api.BinaryWriter;
+import uk.co.petertribble.jproc.api.JLwp;
+import uk.co.petertribble.jproc.api.JProc;
+import uk.co.petertribble.jproc.api.JProcInfo;
+import uk.co.petertribble.jproc.api.JProcLwpInfo;
+import uk.co.petertribble.jproc.api.JProcLwpStatus;
+import uk.co.petertribble.jproc.api.JProcStatus;
+import uk.co.petertribble.jproc.api.JProcUsage;
+import uk.co.petertribble.jproc.api.JSONWriter;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+import uk.co.petertribble.jproc.parse.BinaryParser;
+import uk.co.petertribble.jproc.parse.JSONParser;
+
+/**
+ * Check the binary wire format, and compare it with JSON. Every record
+ * of the current processes, and a generated list of processes with
+ * awkward values, is written with a BinaryWriter and read back with the
+ * BinaryParser, and must give the same JSON as the original. The size of
+ * the process lists in each form, and the time taken to write and read
+ * them, is then reported.
+ *
+ * @author Peter Tribble
+ */
+public final class BinaryCheck {
+
+    /*
+     * The number of generated processes, which is more than the size of
+     * the dictionaries so that their overflow is exercised.
+     */
+    private static final int NGENERATED = 10000;
+
+    private static final String[] NAMES = {"bash", "sshd", "java", "nginx",
+	"postgres", "python3", "sleep", "cron", "init", "node"};
+
+    /*
+     * A name with characters of two, three and four bytes in UTF-8.
+     */
+    private static final String ODD_NAME =
+	"\u00fcn\u00efc\u00f8d\u00e9 \u20ac \ud834\udd1e ";
+
+    private final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    private int checked;
+    private int failed;
+
+    private BinaryCheck() {
+    }
+
+    /*
+     * Start a new message.
+     */
+    private BinaryWriter writer() {
+	bos.reset();
+	return new BinaryWriter(bos);
+    }
+
+    /*
+     * The message just written, ready to be read.
+     */
+    private InputStream message() {
+	return new BufferedInputStream(
+				new ByteArrayInputStream(bos.toByteArray()));
+    }
+
+    private void check(final String what, final Object expected,
+			final Object actual) {
+	checked++;
+	if (!expected.equals(actual)) {
+	    failed++;
+	    System.out.println("MISMATCH " + what + ": expected " + expected
+			+ " got " + actual);
+	}
+    }
+
+    /*
+     * Round trip a snapshot, in both the list and snapshot forms.
+     */
+    private void checkSnapshot(final String what, final ProcessSnapshot snap)
+		throws IOException {
+	Map<Integer, String> expected = new HashMap<>();
+	for (int row = 0; row < snap.size(); row++) {
+	    JProcInfo jpi = snap.getInfo(row);
+	    expected.put(jpi.getpid(), jpi.toJSON());
+	}
+	BinaryWriter bw = writer();
+	bw.write(snap);
+	bw.flush();
+	check(what + " header", true, BinaryParser.isBinary(message()));
+	List<JProcInfo> infos = BinaryParser.getSnapshot(message());
+	check(what + " size", snap.size(), infos.size());
+	for (JProcInfo jpi : infos) {
+	    check(what + " " + jpi.getpid(), expected.get(jpi.getpid()),
+		jpi.toJSON());
+	}
+	ProcessSnapshot nsnap = new ProcessSnapshot();
+	BinaryParser.getSnapshot(message(), nsnap);
+	check(what + " snapshot size", snap.size(), nsnap.size());
+    }
+
+    /*
+     * Check that the last message is rejected if it is cut short, or
+     * read as the wrong type.
+     */
+    private void checkRejected(final String what) {
+	byte[] whole = bos.toByteArray();
+	checked++;
+	try {
+	    BinaryParser.getSnapshot(new ByteArrayInputStream(whole, 0,
+						whole.length / 2));
+	    failed++;
+	    System.out.println("MISMATCH " + what + ": truncation not seen");
+	} catch (IOException ioe) {
+	    // expected
+	}
+	checked++;
+	try {
+	    BinaryParser.getUsage(new ByteArrayInputStream(whole));
+	    failed++;
+	    System.out.println("MISMATCH " + what + ": wrong type not seen");
+	} catch (IOException ioe) {
+	    // expected
+	}
+    }
+
+    /*
+     * Round trip each of the records of a process, and of its lwps.
+     */
+    private void checkProcess(final JProc jproc, final JProcInfo jpi)
+		throws IOException {
+	int pid = jpi.getpid();
+	BinaryWriter bw = writer();
+	bw.write(jpi);
+	bw.flush();
+	check("info " + pid, jpi.toJSON(), BinaryParser.getInfo(message())
+		.toJSON());
+	JProcUsage jpu = jproc.getUsage(pid);
+	if (jpu != null) {
+	    bw = writer();
+	    bw.write(jpu);
+	    bw.flush();
+	    check("usage " + pid, jpu.toJSON(),
+		BinaryParser.getUsage(message()).toJSON());
+	}
+	JProcStatus jps = jproc.getStatus(pid);
+	if (jps != null) {
+	    bw = writer();
+	    bw.write(jps);
+	    bw.flush();
+	    check("status " + pid, jps.toJSON(),
+		BinaryParser.getStatus(message()).toJSON());
+	}
+	Set<JLwp> lwps = jproc.getLwps(pid);
+	if (lwps == null) {
+	    return;
+	}
+	bw = writer();
+	bw.write(lwps);
+	bw.flush();
+	check("lwps " + pid, lwps, BinaryParser.getLwps(message()));
+	for (JLwp lwp : lwps) {
+	    JProcLwpStatus jpls = jproc.getStatus(pid, lwp.getLWPid());
+	    if (jpls != null) {
+		bw = writer();
+		bw.write(jpls);
+		bw.flush();
+		check("lwp status " + lwp, jpls.toJSON(),
+		    BinaryParser.getLwpStatus(message()).toJSON());
+	    }
+	    JProcLwpInfo jpli = jproc.getInfo(pid, lwp.getLWPid());
+	    if (jpli != null) {
+		bw = writer();
+		bw.write(jpli);
+		bw.flush();
+		check("lwp info " + lwp, jpli.toJSON(),
+		    BinaryParser.getLwpInfo(message()).toJSON());
+	    }
+	}
+    }
+
+    /*
+     * Generate a list of processes. If awkward, with missing and non-ASCII
+     * names, extreme values, and more distinct names and ids than fit in
+     * the dictionaries; otherwise with typical values.
+     */
+    private static ProcessSnapshot generate(final boolean awkward) {
+	ProcessSnapshot snap = new ProcessSnapshot(NGENERATED);
+	JProcInfo jpi = new JProcInfo();
+	Random r = new Random(1);
+	long now = System.currentTimeMillis() / 1000;
+	for (int i = 0; i < NGENERATED; i++) {
+	    if (awkward) {
+		String name = (i % 7 == 0) ? null : (i % 3 == 0)
+		    ? ODD_NAME + i % 5 : "n" + i;
+		jpi.insert(i * 3 + 1, -i, i, 60000 + i, -1, i % 2, i,
+			Long.MAX_VALUE - i, Long.MIN_VALUE + i, -5, 0,
+			999999999, i, i, -i, i, Integer.MAX_VALUE - i % 2,
+			Integer.MIN_VALUE, name);
+	    } else {
+		int pid = 100 + i * 7 + r.nextInt(5);
+		jpi.insert(pid, 1 + r.nextInt(pid), r.nextInt(6) * 100,
+			r.nextInt(6) * 100, 10, 10, 1 + r.nextInt(40),
+			r.nextInt(1 << 20) * 4096L, r.nextInt(1 << 18) * 4096L,
+			now - r.nextInt(100000), r.nextInt(100000),
+			r.nextInt(1000000000), r.nextInt(100),
+			r.nextInt(1000000000), pid, 1, r.nextInt(3),
+			30 + r.nextInt(50), NAMES[r.nextInt(NAMES.length)]);
+	    }
+	    snap.add(jpi);
+	}
+	return snap;
+    }
+
+    /*
+     * Report the size of a process list in each form, and the time taken
+     * per process to write and read it.
+     */
+    private static void compare(final String what,
+				final ProcessSnapshot snap)
+		throws IOException {
+	ByteArrayOutputStream jos = new ByteArrayOutputStream();
+	ByteArrayOutputStream bos = new ByteArrayOutputStream();
+	ProcessSnapshot nsnap = new ProcessSnapshot();
+	int loops = Math.max(10, 500000 / Math.max(1, snap.size()));
+	long[] nanos = new long[4];
+	// the first pass warms up, and only the second is reported
+	for (int pass = 0; pass < 2; pass++) {
+	    long t0 = System.nanoTime();
+	    for (int i = 0; i < loops; i++) {
+		jos.reset();
+		JSONWriter jw = new JSONWriter(jos);
+		jw.write(snap);
+		jw.flush();
+	    }
+	    long t1 = System.nanoTime();
+	    for (int i = 0; i < loops; i++) {
+		bos.reset();
+		BinaryWriter bw = new BinaryWriter(bos);
+		bw.write(snap);
+		bw.flush();
+	    }
+	    long t2 = System.nanoTime();
+	    byte[] json = jos.toByteArray();
+	    for (int i = 0; i < loops; i++) {
+		JSONParser.getSnapshot(new ByteArrayInputStream(json), nsnap);
+	    }
+	    long t3 = System.nanoTime();
+	    byte[] binary = bos.toByteArray();
+	    for (int i = 0; i < loops; i++) {
+		BinaryParser.getSnapshot(new ByteArrayInputStream(binary),
+					nsnap);
+	    }
+	    long t4 = System.nanoTime();
+	    nanos = new long[] {t1 - t0, t2 - t1, t3 - t2, t4 - t3};
+	}
+	double n = (double) loops * Math.max(1, snap.size());
+	System.out.printf("%s, %d processes:%n", what, snap.size());
+	System.out.printf("  size   JSON %9d bytes  binary %9d bytes"
+			+ "  (%.1f%%)%n", jos.size(), bos.size(),
+			100.0 * bos.size() / jos.size());
+	System.out.printf("  write  JSON %9.0f ns/proc  binary %9.0f"
+			+ " ns/proc%n", nanos[0] / n, nanos[1] / n);
+	System.out.printf("  read   JSON %9.0f ns/proc  binary %9.0f"
+			+ " ns/proc%n", nanos[2] / n, nanos[3] / n);
+    }
+
+    /**
+     * Run the checks and the comparison.
+     *
+     * @param args Command line arguments, ignored.
+     */
+    public static void main(final String[] args) {
+	JProc jproc = new JProc();
+	ProcessSnapshot snap = new ProcessSnapshot();
+	jproc.getSnapshot(snap);
+	BinaryCheck bc = new BinaryCheck();
+	try {
+	    bc.checkSnapshot("current", snap);
+	    for (int row = 0; row < snap.size(); row++) {
+		bc.checkProcess(jproc, snap.getInfo(row));
+	    }
+	    bc.checkSnapshot("generated", generate(true));
+	    bc.checkRejected("generated");
+	    System.out.println(bc.checked + " checks, " + bc.failed
+			+ " mismatches");
+	    compare("Current", snap);
+	    compare("Generated", generate(false));
+	} catch (IOException ioe) {
+	    System.err.println("Binary check failed: " + ioe.getMessage());
+	    System.exit(1);
+	}
+	if (bc.failed > 0) {
+	    System.exit(1);
+	}
+    }
+}
@@ -21,9 +21,8 @@
 package uk.co.petertribble.jproc.demo;
 
 import uk.co.petertribble.jproc.api.JProc;
-import uk.co.petertribble.jproc.api.JProcessFilter;
-import uk.co.petertribble.jproc.api.JProcessSet;
 import uk.co.petertribble.jproc.client.PClientConfig;
+import uk.co.petertribble.jproc.gui.SamplingScheduler;
 
 /**
  * An example of the use of the JProc api to give a graphical display of the
@@ -65,7 +64,8 @@ public final class JPTree extends JPdemo {
     public JPTree(final JProc jproc, final boolean standalone) {
 	super("JPTree", standalone);
 
-        jpt = new JPTreePanel(jproc, new JProcessFilter(new JProcessSet(jproc)),
+        jpt = new JPTreePanel(jproc,
+			SamplingScheduler.getScheduler(jproc).newFilter(),
 			DEFAULT_INTERVAL);
 
 	setContentPane(jpt);
@@ -21,30 +21,33 @@
 package uk.co.petertribble.jproc.demo;
 
 import java.awt.BorderLayout;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTree;
-import javax.swing.Timer;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
 import uk.co.petertribble.jproc.api.JProc;
 import uk.co.petertribble.jproc.api.JProcInfo;
 import uk.co.petertribble.jproc.api.JProcess;
 import uk.co.petertribble.jproc.api.JProcessFilter;
+import uk.co.petertribble.jproc.api.ProcessTree;
+import uk.co.petertribble.jproc.api.ProcessTreeListener;
 import uk.co.petertribble.jproc.gui.JPinfoTable;
 import uk.co.petertribble.jproc.gui.LWPusageTable;
 import uk.co.petertribble.jproc.gui.ProcessTreeNode;
+import uk.co.petertribble.jproc.gui.SampleListener;
+import uk.co.petertribble.jproc.gui.SamplingScheduler;
 
 /**
  * An example of the use of the JProc api to give a graphical display
@@ -53,7 +56,7 @@ import uk.co.petertribble.jproc.gui.ProcessTreeNode;
  * @author Peter Tribble
  */
 public final class JPTreePanel extends JPanel implements TreeSelectionListener,
-	ActionListener {
+	SampleListener, ProcessTreeListener {
 
     private static final long serialVersionUID = 1L;
 
@@ -61,6 +64,10 @@ public final class JPTreePanel extends JPanel implements TreeSelectionListener,
      * The JProc to query for data.
      */
     private final JProc jproc;
+    /**
+     * The scheduler driving updates of the panel.
+     */
+    private final transient SamplingScheduler scheduler;
     /**
      * The filter to select the processes to be displayed.
      */
@@ -73,14 +80,18 @@ public final class JPTreePanel extends JPanel implements TreeSelectionListener,
      * A table to display lwp information.
      */
     private LWPusageTable lup;
+    /**
+     * The process whose details are shown, which is watched.
+     */
+    private transient JProcess shown;
     /**
      * The update interval for the table.
      */
     private int interval;
     /**
-     * A Timer to update the display in a loop.
+     * Whether the tree is being updated in a loop.
      */
-    private Timer timer;
+    private boolean running;
     /**
      * A holder panel.
      */
@@ -89,8 +100,27 @@ public final class JPTreePanel extends JPanel implements TreeSelectionListener,
      * A model containing the process tree.
      */
     private final DefaultTreeModel dtm;
+    /**
+     * The tree displaying the model.
+     */
+    private final JTree jt;
+
+    /**
+     * The hidden root of the tree, whose children are the processes that
+     * have no parent.
+     */
+    private final DefaultMutableTreeNode root;
+    /**
+     * The process tree, which is only updated on the scheduler thread.
+     */
+    private final transient ProcessTree ptree;
+    /**
+     * Changes to the process tree that have yet to be made to the model.
+     */
+    private transient List<Runnable> pending = new ArrayList<>();
 
-    private transient SortedMap<Integer, ProcessTreeNode> nodemap;
+    private final transient Map<Integer, ProcessTreeNode> nodemap =
+	new HashMap<>();
 
     /**
      * Create a new JPTreePanel.
@@ -102,13 +132,18 @@ public final class JPTreePanel extends JPanel implements TreeSelectionListener,
     public JPTreePanel(final JProc njproc, final JProcessFilter njpf,
 		       final int ninterval) {
 	jproc = njproc;
+	scheduler = SamplingScheduler.getScheduler(jproc);
 	jpf = njpf;
 	interval = ninterval;
 
 	setLayout(new BorderLayout());
-	buildtree();
-	dtm = new DefaultTreeModel(getRoot());
-	JTree jt = new JTree(dtm);
+	root = new DefaultMutableTreeNode();
+	ptree = new ProcessTree();
+	ptree.addListener(this);
+	dtm = new DefaultTreeModel(root);
+	jt = new JTree(dtm);
+	jt.setRootVisible(false);
+	jt.setShowsRootHandles(true);
 	jt.addTreeSelectionListener(this);
 	ppanel = new JPanel(new BorderLayout());
 	JSplitPane jsp = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
@@ -116,38 +151,20 @@ public final class JPTreePanel extends JPanel implements TreeSelectionListener,
 	jsp.setOneTouchExpandable(true);
 	jsp.setDividerLocation(150);
 	add(jsp);
+	// the initial tree is built on the scheduler thread, like the updates
+	Collection<JProcess> none = Collections.emptySet();
+	scheduler.refresh(this,
+		() -> ptree.update(jpf.getProcesses(), none, none));
 	startLoop();
     }
 
-    private void buildtree() {
-	nodemap = new TreeMap<>();
-	// create a node for each process
-	for (JProcess p : jpf.getProcesses()) {
-	    nodemap.put(p.getPid(), new ProcessTreeNode(p));
-	}
-	// add each process to its parent
-	for (JProcess p : jpf.getProcesses()) {
-	    int ppid = p.getCachedInfo().getppid();
-	    ProcessTreeNode ptn = nodemap.get(ppid);
-	    if (ptn != null && ppid != p.getPid()) {
-		ptn.add(nodemap.get(p.getPid()));
-	    }
-	}
-    }
-
-    private ProcessTreeNode getRoot() {
-	return (ProcessTreeNode) nodemap.get(nodemap.firstKey()).getRoot();
-    }
-
     /**
      * Start regular updates of the panel.
      */
     public void startLoop() {
 	if (interval > 0) {
-	    if (timer == null) {
-		timer = new Timer(interval * 1000, this);
-	    }
-	    timer.start();
+	    scheduler.register(this, interval);
+	    running = true;
 	}
 	if (jup != null) {
 	    jup.startLoop();
@@ -181,8 +198,8 @@ public final class JPTreePanel extends JPanel implements TreeSelectionListener,
 	if (interval <= 0) {
 	    stopLoop();
 	} else {
-	    if (timer != null) {
-		timer.setDelay(interval * 1000);
+	    if (running) {
+		scheduler.register(this, interval);
 	    }
 	}
 	if (jup != null) {
@@ -198,6 +215,11 @@ public final class JPTreePanel extends JPanel implements TreeSelectionListener,
 	ppanel.removeAll();
 	JPanel up = new JPanel(new BorderLayout());
 	JProcess jp = ptn.getProcess();
+	if (shown != null) {
+	    jproc.release(shown);
+	}
+	shown = jp;
+	jproc.watch(jp);
 	JProcInfo jpi = jp.getCachedInfo();
 	jup = new JPinfoTable(jproc, new JProcessFilter(jp), interval);
 	jup.removeColumn("pid");
@@ -222,92 +244,65 @@ public final class JPTreePanel extends JPanel implements TreeSelectionListener,
 	ppanel.validate();
     }
 
+    /*
+     * Update the underlying process list and the process tree on the
+     * scheduler thread. The tree tells us, as the listener, of each change
+     * it makes, and those changes are then made to the model on the event
+     * dispatch thread, in the same order.
+     */
     @Override
-    public void actionPerformed(final ActionEvent e) {
-	updateJprocess();
+    public Runnable collect() {
+	/*
+	 * The tree is updated even if no processes have come or gone, as
+	 * processes may still have moved.
+	 */
+	jpf.update();
+	ptree.update(jpf);
+	if (pending.isEmpty()) {
+	    return null;
+	}
+	List<Runnable> changes = pending;
+	pending = new ArrayList<>();
+	return () -> {
+	    for (Runnable r : changes) {
+		r.run();
+	    }
+	};
     }
 
-    private void updateJprocess() {
-	// update the underlying process list
-	if (jpf.update()) {
-	    /*
-	     * A Set of processes that are orphaned and need reparenting.
-	     */
-	    Set<JProcess> orphans = new HashSet<>();
-	    /*
-	     * First add new nodes to the map.
-	     */
-	    for (JProcess jp : jpf.getAddedProcesses()) {
-		nodemap.put(jp.getPid(), new ProcessTreeNode(jp));
-	    }
-	    /*
-	     * Now add the new nodes to the tree.
-	     */
-	    for (JProcess jp : jpf.getAddedProcesses()) {
-		int ppid = jp.getCachedInfo().getppid();
-		ProcessTreeNode ptn = nodemap.get(ppid);
-		if (ptn != null && ppid != jp.getPid()) {
-		    ptn.add(nodemap.get(jp.getPid()));
-		    dtm.nodeStructureChanged(ptn);
-		}
-	    }
-	    for (JProcess jp : jpf.getDeletedProcesses()) {
-		/*
-		 * Get the node and remove it from the map. In that order.
-		 */
-		ProcessTreeNode tn = nodemap.get(jp.getPid());
-		nodemap.remove(jp.getPid());
-		/*
-		 * Record this node's child processes so we can reparent them.
-		 */
-		for (Enumeration e1 = tn.children(); e1.hasMoreElements();) {
-		    orphans.add(((ProcessTreeNode) e1.nextElement())
-				.getProcess());
-		}
-		/*
-		 * Find the node's parent.
-		 */
-		int ppid = jp.getCachedInfo().getppid();
-		ProcessTreeNode ptn = nodemap.get(ppid);
-		/*
-		 * Remove the node from the parent.
-		 */
-		if (ptn != null) {
-		    ptn.remove(tn);
-		    dtm.nodeStructureChanged(ptn);
-		}
-	    }
-	    /*
-	     * Remove any deleted processes from the orphan list.
-	     */
-	    orphans.removeAll(jpf.getDeletedProcesses());
-	    /*
-	     * Reparent all remaining orphans. Note that we cannot use
-	     * getCachedInfo() to get the ppid, because it has changed.
-	     *
-	     * It is irritating that we are often reparented by init, which is
-	     * obviously the root of the tree, and this then resets the whole
-	     * tree.
-	     */
-	    for (JProcess jp : orphans) {
-		// FIXME what do we do if this process has exited?
-		// currently, just wait until next time around
-		JProcInfo jpi = jproc.getInfo(jp);
-		if (jpi != null) {
-		    // ok, we're still here
-		    int ppid = jpi.getppid();
-		    ProcessTreeNode ptn = nodemap.get(ppid);
-		    if (ptn != null && ppid != jp.getPid()) {
-			// FIXME if we haven't got a valid parent, we ought to
-			// save the process and get a new parent next time
-			// around
-			ptn.add(nodemap.get(jp.getPid()));
-			dtm.nodeStructureChanged(ptn);
-		    }
-		}
-	    }
-	}
+    @Override
+    public void processAdded(final JProcess jp, final JProcess parent) {
+	pending.add(() -> {
+	    ProcessTreeNode ptn = new ProcessTreeNode(jp);
+	    nodemap.put(jp.getPid(), ptn);
+	    insert(ptn, parent);
+	});
+    }
+
+    @Override
+    public void processRemoved(final JProcess jp, final JProcess parent) {
+	pending.add(() -> dtm.removeNodeFromParent(
+				nodemap.remove(jp.getPid())));
+    }
 
+    @Override
+    public void processMoved(final JProcess jp, final JProcess oldParent,
+			     final JProcess newParent) {
+	pending.add(() -> {
+	    ProcessTreeNode ptn = nodemap.get(jp.getPid());
+	    dtm.removeNodeFromParent(ptn);
+	    insert(ptn, newParent);
+	});
+    }
+
+    private void insert(final ProcessTreeNode ptn, final JProcess parent) {
+	DefaultMutableTreeNode pnode = (parent == null) ? root
+	    : nodemap.get(parent.getPid());
+	dtm.insertNodeInto(ptn, pnode, pnode.getChildCount());
+	// the hidden root can't be expanded until it has children
+	if (pnode == root && root.getChildCount() == 1) {
+	    jt.expandPath(new TreePath(root));
+	}
     }
 
     // handle TreeSelectionListener events
@@ -32,11 +32,10 @@ import javax.swing.JMenu;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import uk.co.petertribble.jproc.api.JProc;
-import uk.co.petertribble.jproc.api.JProcessFilter;
-import uk.co.petertribble.jproc.api.JProcessSet;
 import uk.co.petertribble.jproc.client.PClientConfig;
 import uk.co.petertribble.jproc.gui.JProcResources;
 import uk.co.petertribble.jproc.gui.JPusageTable;
+import uk.co.petertribble.jproc.gui.SamplingScheduler;
 
 /**
  * A process view rather like top.
@@ -54,7 +53,7 @@ public final class JPusage extends JPdemo {
     /**
      * The set of processes to display.
      */
-    private JProcessSet jps;
+    private SamplingScheduler sched;
     /**
      * The table embedded in this demo.
      */
@@ -108,9 +107,9 @@ public final class JPusage extends JPdemo {
 	jproc = njproc;
 
         // create main display panel
-	jps = new JProcessSet(jproc);
+	sched = SamplingScheduler.getScheduler(jproc);
 
-        jpup = new JPusageTable(jproc, new JProcessFilter(jps),
+        jpup = new JPusageTable(jproc, sched.newFilter(),
 				DEFAULT_INTERVAL);
 
 	JPanel mainPanel = new JPanel(new BorderLayout());
@@ -123,7 +122,7 @@ public final class JPusage extends JPdemo {
 	addUserMenu();
 
 	zoneMenuItems = new HashSet<>();
-	if (jps.getZones().size() > 1) {
+	if (sched.getZones().size() > 1) {
 	    addZoneMenu();
 	}
 
@@ -149,7 +148,7 @@ public final class JPusage extends JPdemo {
 	allUserItem.addActionListener(this);
 	userMenu.add(allUserItem);
 	userMenu.addSeparator();
-	for (String s : jps.getUsers()) {
+	for (String s : sched.getUsers()) {
 	    JCheckBoxMenuItem jmi = new JCheckBoxMenuItem(s);
 	    jmi.addActionListener(this);
 	    userMenu.add(jmi);
@@ -210,7 +209,7 @@ public final class JPusage extends JPdemo {
 	allZoneItem.addActionListener(this);
 	zoneMenu.add(allZoneItem);
 	zoneMenu.addSeparator();
-	for (String s : jps.getZones()) {
+	for (String s : sched.getZones()) {
 	    JCheckBoxMenuItem jmi = new JCheckBoxMenuItem(s);
 	    jmi.addActionListener(this);
 	    zoneMenu.add(jmi);
@@ -20,11 +20,14 @@
 
 package uk.co.petertribble.jproc.demo;
 
+import java.io.IOException;
 import uk.co.petertribble.jproc.api.JProc;
-import uk.co.petertribble.jproc.api.JProcess;
+import uk.co.petertribble.jproc.api.JSONWriter;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
 
 /**
- * Dump out the process list in JSON format.
+ * Dump out the process list in JSON format. The process list is read in
+ * a single bulk operation, and streamed out as it is formatted.
  *
  * @author Peter Tribble
  */
@@ -39,17 +42,15 @@ public final class JSONdump {
      * @param args Command line arguments, ignored.
      */
     public static void main(final String[] args) {
-	boolean firstentry = true;
-	JProc jproc = new JProc();
-	System.out.println("[");
-	for (JProcess jp : jproc.getProcesses()) {
-	    if (firstentry) {
-		firstentry = false;
-	    } else {
-		System.out.println(",");
-	    }
-	    System.out.println(jproc.getInfo(jp).toJSON());
+	ProcessSnapshot snap = new ProcessSnapshot();
+	new JProc().getSnapshot(snap);
+	JSONWriter jw = new JSONWriter(System.out);
+	try {
+	    jw.write(snap);
+	    jw.flush();
+	} catch (IOException ioe) {
+	    System.err.println("Unable to write process list");
 	}
-	System.out.println("]");
+	System.out.println();
     }
 }
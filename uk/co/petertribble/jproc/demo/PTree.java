@@ -20,25 +20,22 @@
 
 package uk.co.petertribble.jproc.demo;
 
-import java.util.Enumeration;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import javax.swing.tree.TreeNode;
 import uk.co.petertribble.jproc.api.JProc;
 import uk.co.petertribble.jproc.api.JProcess;
+import uk.co.petertribble.jproc.api.ProcessTree;
 import uk.co.petertribble.jproc.client.PClientConfig;
-import uk.co.petertribble.jproc.gui.ProcessTreeNode;
 
 /**
  * An example of the use of the JProc api to print information in the mannner
- * of ptree.
+ * of ptree. Only the api is used, not Swing, so that this starts quickly
+ * from the command line.
  *
  * @author Peter Tribble
  */
 public final class PTree {
 
-    private SortedMap<Integer, ProcessTreeNode> nodemap;
-    private SortedMap<Integer, JProcess> pmap; // NOPMD
+    private ProcessTree ptree;
+    private final StringBuilder sb = new StringBuilder();
 
     /**
      * Run the ptree demo, printing a tree of all processes.
@@ -81,8 +78,11 @@ public final class PTree {
      * @param jp a JProc to query for process information
      */
     public PTree(final JProc jp) {
-	buildtree(jp);
-	printit((ProcessTreeNode) nodemap.get(nodemap.firstKey()).getRoot());
+	ptree = new ProcessTree(jp.getProcesses());
+	for (JProcess p : ptree.getRoots()) {
+	    printit(p, "");
+	}
+	System.out.print(sb);
     }
 
     /**
@@ -92,61 +92,36 @@ public final class PTree {
      * @param pid the process id to display
      */
     public PTree(final JProc jp, final int pid) {
-	buildtree(jp);
-	printit(pmap.get(pid));
-    }
-
-    private void buildtree(final JProc jp) {
-	pmap = new TreeMap<>();
-	nodemap = new TreeMap<>();
-	// create a node for each process
-	for (JProcess p : jp.getProcesses()) {
-	    pmap.put(p.getPid(), p);
-	    nodemap.put(p.getPid(), new ProcessTreeNode(p));
-	}
-	// add each process to its parent
-	// FIXME need a way to skip init/sched/zsched
-	for (JProcess p : jp.getProcesses()) {
-	    int ppid = p.getCachedInfo().getppid();
-	    ProcessTreeNode ptn = nodemap.get(ppid);
-	    if (ptn != null && ppid != p.getPid()) {
-		ptn.add(nodemap.get(p.getPid()));
-	    }
-	}
+	ptree = new ProcessTree(jp.getProcesses());
+	printit(ptree.getProcess(pid));
+	System.out.print(sb);
     }
 
     /*
      * This prints the entire tree below this process, but just the direct
-     * ancestors. Fortunately the TreeNode api gives us that information.
+     * ancestors.
      */
     private void printit(final JProcess p) {
 	if (p != null) {
-	    ProcessTreeNode ptn = nodemap.get(p.getPid());
-	    TreeNode[] ppath = ptn.getPath();
 	    String indent = "";
-	    for (int i = 0; i < ppath.length - 1; i++) {
-		ProcessTreeNode ptn2 = (ProcessTreeNode) ppath[i];
-		printone(ptn2.getProcess(), indent);
+	    for (JProcess a : ptree.getAncestors(p.getPid())) {
+		printone(a, indent);
 		indent = indent + "  ";
 	    }
-	    printit(ptn, indent);
+	    printit(p, indent);
 	}
     }
 
-    private void printit(final ProcessTreeNode ptn) {
-	printit(ptn, "");
-    }
-
-    private void printit(final ProcessTreeNode ptn, final String indent) {
-	printone(ptn.getProcess(), indent);
-	for (Enumeration e = ptn.children(); e.hasMoreElements();) {
-	    printit((ProcessTreeNode) e.nextElement(), indent + "  ");
+    private void printit(final JProcess p, final String indent) {
+	printone(p, indent);
+	for (JProcess c : ptree.getChildren(p.getPid())) {
+	    printit(c, indent + "  ");
 	}
     }
 
     private void printone(final JProcess p, final String indent) {
-	System.out.println(indent + p.getPid() + " "
-			+ p.getCachedInfo().getfname());
+	sb.append(indent).append(p.getPid()).append(' ')
+	    .append(p.getCachedInfo().getfname()).append('\n');
     }
 
     /**
@@ -30,10 +30,10 @@ import javax.swing.JMenu;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import uk.co.petertribble.jproc.api.JProc;
-import uk.co.petertribble.jproc.api.JProcessFilter;
 import uk.co.petertribble.jproc.api.JProcessSet;
 import uk.co.petertribble.jproc.client.PClientConfig;
 import uk.co.petertribble.jproc.gui.JProcResources;
+import uk.co.petertribble.jproc.gui.SamplingScheduler;
 import uk.co.petertribble.jproc.gui.ZoneInfoTable;
 
 /**
@@ -90,9 +90,10 @@ public final class ZoneInfo extends JPdemo {
 	jproc = njproc;
 
         // create main display panel
-	JProcessSet jps = new JProcessSet(jproc);
+	SamplingScheduler sched = SamplingScheduler.getScheduler(jproc);
+	JProcessSet jps = sched.getIndex().getProcessSet();
 
-        jpip = new ZoneInfoTable(jproc, new JProcessFilter(jps),
+        jpip = new ZoneInfoTable(jproc, sched.newFilter(),
 				DEFAULT_INTERVAL);
 
 	JPanel mainPanel = new JPanel(new BorderLayout());
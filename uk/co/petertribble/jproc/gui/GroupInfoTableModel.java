@@ -0,0 +1,249 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.gui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.table.AbstractTableModel;
+import uk.co.petertribble.jproc.api.JProc;
+import uk.co.petertribble.jproc.api.JProcessFilter;
+import uk.co.petertribble.jproc.api.ProcessAggregator;
+import uk.co.petertribble.jproc.api.ProcessIndex;
+
+/**
+ * A TableModel to implement a summary like prstat, with the processes
+ * grouped by user, zone, or another ProcessIndex attribute.
+ *
+ * @author Peter Tribble
+ */
+final class GroupInfoTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String[] colnames;
+
+    private final transient List<Integer> colMap;
+
+    /**
+     * The filter to select the processes to be displayed.
+     */
+    private final JProcessFilter jpf;
+    /**
+     * The totals for each group, maintained as the processes change.
+     */
+    private final transient ProcessAggregator aggregator;
+    /**
+     * The JProc to query for data.
+     */
+    private final JProc jproc;
+    /**
+     * The ProcessIndex attribute the processes are grouped by.
+     */
+    private final int attr;
+    /*
+     * The ids on display, and those being collected.
+     */
+    private final transient List<Integer> ids;
+    private final transient List<Integer> nextIds;
+    /*
+     * The totals on display, and those being collected.
+     */
+    private transient Map<Integer, ProcessAggregator.Totals> totals;
+    private transient Map<Integer, ProcessAggregator.Totals> nextTotals;
+
+    /**
+     * Create a Table Model from the given Set of JProcesses.
+     *
+     * @param njproc a JProc object
+     * @param njpf a JProcessFilter describing the list of processes to show
+     * @param nattr the ProcessIndex attribute to group the processes by,
+     * such as ProcessIndex.UID
+     * @param title the title of the column showing the name of each group
+     */
+    GroupInfoTableModel(final JProc njproc, final JProcessFilter njpf,
+			final int nattr, final String title) {
+	jpf = njpf;
+	jproc = njproc;
+	attr = nattr;
+	colnames = new String[] {title, "NPROC", "nlwp", "SZ", "RSS", "TIME"};
+
+	// initialize the column mapping list
+	colMap = new ArrayList<>();
+	for (int i = 0; i < colnames.length; i++) {
+	    colMap.add(i);
+	}
+
+	// the data is filled in by the first update
+	aggregator = new ProcessAggregator(attr);
+	totals = new HashMap<>();
+
+	ids = new ArrayList<>();
+	nextIds = new ArrayList<>();
+    }
+
+    /**
+     * Return the filter selecting the processes to be shown. Changes to
+     * it take effect at the next update.
+     *
+     * @return the JProcessFilter of this model
+     */
+    JProcessFilter getFilter() {
+	return jpf;
+    }
+
+    /**
+     * Collect the statistics for the next update, without changing what
+     * is on display. This may be called on a background thread, but not
+     * again until the Runnable it returns has been run.
+     *
+     * @return a Runnable that shows the collected statistics, which must
+     * be run on the event dispatch thread
+     */
+    public Runnable collect() {
+	jpf.update();
+	aggregator.update(jpf);
+	nextTotals = new HashMap<>();
+	nextIds.clear();
+	for (int id : aggregator.getKeys()) {
+	    nextIds.add(id);
+	    nextTotals.put(id, aggregator.getTotals(id));
+	}
+	return this::publish;
+    }
+
+    /*
+     * Show the totals last collected, firing events for just the rows that
+     * have been deleted or inserted.
+     */
+    private void publish() {
+	totals = nextTotals;
+	ProcessRows.publishKeys(this, ids, nextIds);
+    }
+
+    /**
+     * Update the statistics, collecting and showing them in one go. This
+     * must be called on the event dispatch thread.
+     */
+    public void updateJprocess() {
+	collect().run();
+    }
+
+    @Override
+    public int getColumnCount() {
+	return colMap.size();
+    }
+
+    @Override
+    public int getRowCount() {
+	return ids.size();
+    }
+
+    /*
+     * Map the visible column into the underlying data column. This allows us
+     * to display a subset of the columns, or change the order, without
+     * changing the subsequent methods.
+     */
+    private int mapColumn(final int col) {
+	return colMap.get(col);
+    }
+
+    /**
+     * Get the id of the group in the given row, such as the userid.
+     *
+     * @param row the row requested
+     *
+     * @return the id of the group in the given row
+     */
+    int getId(final int row) {
+	return ids.get(row);
+    }
+
+    @Override
+    public String getColumnName(final int col) {
+	return colnames[mapColumn(col)];
+    }
+
+    /**
+     * Return the appropriate data.
+     */
+    @Override
+    public Object getValueAt(final int row, final int icol) {
+	int col = mapColumn(icol);
+	int id = ids.get(row);
+	ProcessAggregator.Totals t = totals.get(id);
+	if (col == 0) {
+	    return getName(id);
+	} else if (t == null) {
+	    // only while a deleted row is being removed
+	    return null;
+	} else if (col == 5) {
+	    return Double.valueOf(t.gettime());
+	}
+	long l = 0;
+	switch (col) {
+	    case 1:
+		l = t.getnproc();
+		break;
+	    case 2:
+		l = t.getnlwp();
+		break;
+	    case 3:
+		l = t.getsize();
+		break;
+	    case 4:
+		l = t.getrssize();
+		break;
+	    default:
+		break;
+	}
+	return Long.valueOf(l);
+    }
+
+    /*
+     * The name of the group with the given id.
+     */
+    private String getName(final int id) {
+	switch (attr) {
+	    case ProcessIndex.UID:
+		return jproc.getUserName(id);
+	    case ProcessIndex.ZONE:
+		return jproc.getZoneName(id);
+	    case ProcessIndex.PROJECT:
+		return jproc.getProjectName(id);
+	    default:
+		return Integer.toString(id);
+	}
+    }
+
+    @Override
+    public Class<?> getColumnClass(final int c) {
+	int mcol = mapColumn(c);
+	if (mcol == 0) {
+	    return String.class;
+	} else if (mcol == 5) {
+	    return Double.class;
+	} else {
+	    return Long.class;
+	}
+    }
+}
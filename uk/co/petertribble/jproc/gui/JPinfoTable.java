@@ -31,8 +31,9 @@ import javax.swing.JLabel;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
 import javax.swing.JTable;
-import javax.swing.Timer;
+import javax.swing.RowSorter;
 import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableModel;
 import uk.co.petertribble.jproc.api.JProc;
 import uk.co.petertribble.jproc.api.JProcess;
 import uk.co.petertribble.jproc.api.JProcessFilter;
@@ -43,7 +44,7 @@ import uk.co.petertribble.jproc.util.PrettyFormat;
  *
  * @author Peter Tribble
  */
-public final class JPinfoTable extends JTable implements ActionListener {
+public final class JPinfoTable extends JTable implements SampleListener {
 
     private static final long serialVersionUID = 1L;
 
@@ -51,6 +52,10 @@ public final class JPinfoTable extends JTable implements ActionListener {
      * The JProc to query for data.
      */
     JProc jproc;
+    /**
+     * The scheduler driving updates of the display.
+     */
+    private final transient SamplingScheduler scheduler;
     /**
      * The underlying data model.
      */
@@ -73,9 +78,9 @@ public final class JPinfoTable extends JTable implements ActionListener {
     private final DefaultTableCellRenderer dateColRenderer;
 
     /**
-     * A Timer to update the display in a loop.
+     * Whether the display is being updated in a loop.
      */
-    private Timer timer;
+    private boolean running;
 
     /**
      * Create a new JPinfoTable.
@@ -87,6 +92,7 @@ public final class JPinfoTable extends JTable implements ActionListener {
     public JPinfoTable(final JProc njproc, final JProcessFilter jpf,
 		       final int ninterval) {
 	jproc = njproc;
+	scheduler = SamplingScheduler.getScheduler(jproc);
 	interval = ninterval;
 	setLayout(new BorderLayout());
 
@@ -137,7 +143,7 @@ public final class JPinfoTable extends JTable implements ActionListener {
 	addMouseListener((MouseListener) new PopupListener());
 
 	// set up for regular updates
-	ftm.updateJprocess();
+	scheduler.refresh(this);
 	startLoop();
     }
 
@@ -200,14 +206,14 @@ public final class JPinfoTable extends JTable implements ActionListener {
      * @param uid The user id to show.
      */
     public void setUser(final int uid) {
-	ftm.setUser(uid);
+	scheduler.refresh(this, () -> ftm.setUser(uid));
     }
 
     /**
      * Unset user filtering, so that all users are shown.
      */
     public void unSetUser() {
-	ftm.unSetUser();
+	scheduler.refresh(this, ftm::unSetUser);
     }
 
     /**
@@ -216,14 +222,14 @@ public final class JPinfoTable extends JTable implements ActionListener {
      * @param uid The zone id to show.
      */
     public void setZone(final int uid) {
-	ftm.setZone(uid);
+	scheduler.refresh(this, () -> ftm.setZone(uid));
     }
 
     /**
      * Unset zone filtering, so that all zones are shown.
      */
     public void unSetZone() {
-	ftm.unSetZone();
+	scheduler.refresh(this, ftm::unSetZone);
     }
 
     /**
@@ -232,14 +238,22 @@ public final class JPinfoTable extends JTable implements ActionListener {
      * @param ctid The desired contract id.
      */
     public void setContract(final int ctid) {
-	ftm.setContract(ctid);
+	scheduler.refresh(this, () -> ftm.setContract(ctid));
     }
 
     /**
      * Stop filtering by contract.
      */
     public void unSetContract() {
-	ftm.unSetContract();
+	scheduler.refresh(this, ftm::unSetContract);
+    }
+
+    /*
+     * Keep the rows sorted as their values change.
+     */
+    @Override
+    public void setRowSorter(final RowSorter<? extends TableModel> sorter) {
+	super.setRowSorter(ProcessRows.sortOnUpdates(sorter));
     }
 
     /**
@@ -247,10 +261,8 @@ public final class JPinfoTable extends JTable implements ActionListener {
      */
     public void startLoop() {
 	if (interval > 0) {
-	    if (timer == null) {
-		timer = new Timer(interval * 1000, this);
-	    }
-	    timer.start();
+	    scheduler.register(this, interval);
+	    running = true;
 	}
     }
 
@@ -258,9 +270,8 @@ public final class JPinfoTable extends JTable implements ActionListener {
      * Stop the loop that updates the Jprocesses.
      */
     public void stopLoop() {
-	if (timer != null) {
-	    timer.stop();
-	}
+	scheduler.unregister(this);
+	running = false;
     }
 
     /**
@@ -275,15 +286,15 @@ public final class JPinfoTable extends JTable implements ActionListener {
 	    stopLoop();
 	} else {
 	    interval = ninterval;
-	    if (timer != null) {
-		timer.setDelay(interval * 1000);
+	    if (running) {
+		scheduler.register(this, interval);
 	    }
 	}
     }
 
     @Override
-    public void actionPerformed(final ActionEvent e) {
-	ftm.updateJprocess();
+    public Runnable collect() {
+	return ftm.collect();
     }
 
     /**
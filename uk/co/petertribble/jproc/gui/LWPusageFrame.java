@@ -42,22 +42,34 @@ public final class LWPusageFrame extends JFrame {
      */
     LWPusageTable lup;
 
+    /**
+     * The JProc to query for data.
+     */
+    private final JProc jproc;
+    /**
+     * The JProcess to display.
+     */
+    private final JProcess jp;
+
     /**
      * Construct a new LWPusageFrame.
      *
-     * @param jproc a JProc object to query for process information
-     * @param jp The JProcess to display
+     * @param njproc a JProc object to query for process information
+     * @param njp The JProcess to display
      * @param interval the display update interval, in seconds
      */
-    public LWPusageFrame(final JProc jproc, final JProcess jp,
+    public LWPusageFrame(final JProc njproc, final JProcess njp,
 			 final int interval) {
 
+	jproc = njproc;
+	jp = njp;
 	setTitle(JProcResources.getString("THREAD.TITLE") + " " + jp.getPid());
 	setLayout(new BorderLayout());
 
 	addWindowListener(new WindowExit());
 	setDefaultCloseOperation(DISPOSE_ON_CLOSE);
 
+	jproc.watch(jp);
 	lup = new LWPusageTable(jproc, jp, interval);
 
 	setContentPane(new JScrollPane(lup));
@@ -68,12 +80,13 @@ public final class LWPusageFrame extends JFrame {
     }
 
     /**
-     * On closure, stop the table updating.
+     * On closure, stop the table updating, and release the process.
      */
     class WindowExit extends WindowAdapter {
 	@Override
 	public void windowClosing(final WindowEvent we) {
 	    lup.stopLoop();
+	    jproc.release(jp);
 	}
     }
 }
@@ -21,12 +21,9 @@
 package uk.co.petertribble.jproc.gui;
 
 import java.awt.BorderLayout;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.util.List;
 import javax.swing.JLabel;
 import javax.swing.JTable;
-import javax.swing.Timer;
 import javax.swing.table.DefaultTableCellRenderer;
 import uk.co.petertribble.jproc.api.JProc;
 import uk.co.petertribble.jproc.api.JProcess;
@@ -38,7 +35,7 @@ import uk.co.petertribble.jproc.util.PrettyFormat;
  *
  * @author Peter Tribble
  */
-public final class LWPusageTable extends JTable implements ActionListener {
+public final class LWPusageTable extends JTable implements SampleListener {
 
     private static final long serialVersionUID = 1L;
 
@@ -51,13 +48,17 @@ public final class LWPusageTable extends JTable implements ActionListener {
      */
     private final DefaultTableCellRenderer timeColRenderer;
     /**
-     * A Timer to update the display in a loop.
+     * The scheduler driving updates of the display.
      */
-    private Timer timer;
+    private final transient SamplingScheduler scheduler;
     /**
-     * The update interval for the table.
+     * Whether the display is being updated in a loop.
      */
-    private int delay = 1000;
+    private boolean running;
+    /**
+     * The update interval for the table, in seconds.
+     */
+    private int delay = 1;
 
     /**
      * Create a new LWPusageTable.
@@ -68,6 +69,7 @@ public final class LWPusageTable extends JTable implements ActionListener {
      */
     public LWPusageTable(final JProc jproc, final JProcess jp,
 			 final int interval) {
+	scheduler = SamplingScheduler.getScheduler(jproc);
 	setLayout(new BorderLayout());
 
 	ftm = new LWPusageTableModel(jproc, jp);
@@ -91,8 +93,8 @@ public final class LWPusageTable extends JTable implements ActionListener {
 	setRenderers();
 
 	// set up for regular updates
-	delay = interval * 1000;
-	update();
+	delay = interval;
+	scheduler.refresh(this);
 	startLoop();
     }
 
@@ -151,10 +153,8 @@ public final class LWPusageTable extends JTable implements ActionListener {
      */
     public void startLoop() {
 	if (delay > 0) {
-	    if (timer == null) {
-		timer = new Timer(delay, this);
-	    }
-	    timer.start();
+	    scheduler.register(this, delay);
+	    running = true;
 	}
     }
 
@@ -162,9 +162,8 @@ public final class LWPusageTable extends JTable implements ActionListener {
      * Stop the loop that updates the display.
      */
     public void stopLoop() {
-	if (timer != null) {
-	    timer.stop();
-	}
+	scheduler.unregister(this);
+	running = false;
     }
 
     /**
@@ -178,29 +177,38 @@ public final class LWPusageTable extends JTable implements ActionListener {
 	if (interval <= 0) {
 	    stopLoop();
 	} else {
-	    delay = interval * 1000;
-	    if (timer != null) {
-		timer.setDelay(delay);
+	    delay = interval;
+	    if (running) {
+		scheduler.register(this, delay);
 	    }
 	}
     }
 
     /*
-     * Update the underlying model. Upon process exit, the model will throw a
-     * NoSuchProcessException. Upon receipt of such an exception, we set our
-     * Model to be the special model displaying an informative message.
+     * Read the process on the scheduler thread. Upon process exit, the
+     * model will throw a NoSuchProcessException. Upon receipt of such an
+     * exception, we set our Model to be the special model displaying an
+     * informative message.
      */
-    private void update() {
+    @Override
+    public Runnable collect() {
 	try {
-	    ftm.updateJprocess();
+	    return ftm.collect();
 	} catch (NoSuchProcessException nspe) {
-	    stopLoop();
-	    setModel(new ProcessExitedTableModel());
+	    scheduler.unregister(this);
+	    return () -> {
+		stopLoop();
+		setModel(new ProcessExitedTableModel());
+	    };
 	}
     }
 
+    /*
+     * Only a single process is shown, which is read directly, so there is
+     * no need for a sample of all processes.
+     */
     @Override
-    public void actionPerformed(final ActionEvent e) {
-	update();
+    public boolean needsSample() {
+	return false;
     }
 }
@@ -24,9 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import javax.swing.table.AbstractTableModel;
-import uk.co.petertribble.jproc.api.JLwp;
 import uk.co.petertribble.jproc.api.JProc;
 import uk.co.petertribble.jproc.api.JProcUsage;
 import uk.co.petertribble.jproc.api.JProcess;
@@ -46,7 +44,8 @@ public final class LWPusageTableModel extends AbstractTableModel {
      */
     private static final String[] COLNAMES = {"LWP", "RTIME", "UTIME", "STIME",
 		"MINF", "MAJF", "NSWAP", "INBLK", "OUBLK", "MSND", "MRCV",
-		"SIGS", "VCTX", "ICTX", "SYSC", "IOCH"};
+		"SIGS", "VCTX", "ICTX", "SYSC", "IOCH", "TTIME", "TFTIME",
+		"DFTIME", "KFTIME", "LTIME", "SLPTIME", "WTIME", "STOPTIME"};
 
     private final transient List<Integer> colMap;
 
@@ -58,8 +57,16 @@ public final class LWPusageTableModel extends AbstractTableModel {
      * The JProcess to display.
      */
     private final JProcess jp;
-    private final transient List<JLwp> vp;
-    private final transient List<JProcUsage> vpu;
+    /**
+     * The usage of each thread on display, in the first nrows entries.
+     */
+    private transient List<JProcUsage> vpu;
+    private int nrows;
+    /**
+     * The usage collected for the next update, which is swapped with that
+     * on display when it is shown, so the JProcUsage objects are reused.
+     */
+    private transient List<JProcUsage> spare;
 
     /**
      * Create a Table Model for the given process.
@@ -77,59 +84,45 @@ public final class LWPusageTableModel extends AbstractTableModel {
 	    colMap.add(i);
 	}
 
-	// initialize the data objects
-	vp = new ArrayList<>();
+	// the data is filled in by the first update
 	vpu = new ArrayList<>();
-	for (JLwp p : jproc.getLwps(jp)) {
-	    JProcUsage jpu = jproc.getUsage(p);
-	    if (jpu != null) {
-		vp.add(p);
-		vpu.add(jpu);
-	    }
-	}
+	spare = new ArrayList<>();
     }
 
     /**
-     * Update the statistics. Add new threads. Iterates through the current
-     * list updating each one. If a JLwp disappears, it is removed.
+     * Collect the statistics for the next update, without changing what
+     * is on display. The usage of all the threads is retrieved in one go,
+     * so new threads are added and threads that have exited are removed.
+     * This may be called on a background thread, but not again until the
+     * returned Runnable has been run, as the buffer it fills is reused.
+     *
+     * @return a Runnable that shows the collected statistics, which must
+     * be run on the event dispatch thread
      *
      * @throws NoSuchProcessException if the process exits.
      */
-    public void updateJprocess() throws NoSuchProcessException {
-	// update the thread list
-	Set<JLwp> nlwp = jproc.getLwps(jp);
-	/*
-	 * If the process exits, nlwp will be null.
-	 */
-	if (nlwp == null) {
+    public Runnable collect() throws NoSuchProcessException {
+	List<JProcUsage> lpu = spare;
+	int n = jproc.getAllLwpUsage(jp, lpu);
+	if (n < 0) {
 	    throw new NoSuchProcessException();
 	}
-	List<JLwp> nvp = new ArrayList<>(nlwp);
-	// ignore existing threads
-	nvp.removeAll(vp);
-	// add any new threads - removes handled below
-	for (JLwp jlwp : nvp) {
-	    vp.add(jlwp);
-	    vpu.add(new JProcUsage());
-	}
+	return () -> {
+	    spare = vpu;
+	    vpu = lpu;
+	    nrows = n;
+	    fireTableDataChanged();
+	};
+    }
 
-	Iterator<JLwp> ip = vp.iterator();
-	int i = 0;
-	while (ip.hasNext()) {
-	    JLwp jlwp = ip.next();
-	    /*
-	     * The JLwps are updated here, so we can detect if they exit.
-	     */
-	    JProcUsage njpu = jproc.getUsage(jlwp);
-	    if (njpu == null) {
-		ip.remove();
-		vpu.remove(i);
-	    } else {
-		vpu.set(i, njpu);
-		++i;
-	    }
-	}
-	fireTableDataChanged();
+    /**
+     * Update the statistics, collecting and showing them in one go. This
+     * must be called on the event dispatch thread.
+     *
+     * @throws NoSuchProcessException if the process exits.
+     */
+    public void updateJprocess() throws NoSuchProcessException {
+	collect().run();
     }
 
     @Override
@@ -139,7 +132,7 @@ public final class LWPusageTableModel extends AbstractTableModel {
 
     @Override
     public int getRowCount() {
-	return vp.size();
+	return nrows;
     }
 
     /*
@@ -211,13 +204,29 @@ public final class LWPusageTableModel extends AbstractTableModel {
 	int col = mapColumn(icol);
 	JProcUsage jpu = vpu.get(row);
 	if (col == 0) {
-	    return Integer.valueOf(vp.get(row).getLWPid());
+	    return Integer.valueOf(jpu.getlwpid());
 	} else if (col == 1) {
 	    return Double.valueOf(jpu.getrtime());
 	} else if (col == 2) {
 	    return Double.valueOf(jpu.getutime());
 	} else if (col == 3) {
 	    return Double.valueOf(jpu.getstime());
+	} else if (col == 16) {
+	    return Double.valueOf(jpu.getttime());
+	} else if (col == 17) {
+	    return Double.valueOf(jpu.gettftime());
+	} else if (col == 18) {
+	    return Double.valueOf(jpu.getdftime());
+	} else if (col == 19) {
+	    return Double.valueOf(jpu.getkftime());
+	} else if (col == 20) {
+	    return Double.valueOf(jpu.getltime());
+	} else if (col == 21) {
+	    return Double.valueOf(jpu.getslptime());
+	} else if (col == 22) {
+	    return Double.valueOf(jpu.getwtime());
+	} else if (col == 23) {
+	    return Double.valueOf(jpu.getstoptime());
 	}
 	long l = 0;
 	switch (col) {
@@ -271,6 +280,14 @@ public final class LWPusageTableModel extends AbstractTableModel {
 	    case 1:
 	    case 2:
 	    case 3:
+	    case 16:
+	    case 17:
+	    case 18:
+	    case 19:
+	    case 20:
+	    case 21:
+	    case 22:
+	    case 23:
 		return Double.class;
 	    default:
 		return Long.class;
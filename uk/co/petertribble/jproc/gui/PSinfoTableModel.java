@@ -49,8 +49,10 @@ public final class PSinfoTableModel extends AbstractTableModel {
      * The filter to select the processes to be displayed.
      */
     private final JProcessFilter jpf;
-    private final transient List<JProcess> vp;
-    private final transient List<JProcInfo> vpi;
+    /**
+     * The rows on display, and those being collected.
+     */
+    private final transient ProcessRows rows;
     /**
      * The JProc to query for data.
      */
@@ -72,111 +74,91 @@ public final class PSinfoTableModel extends AbstractTableModel {
 	    colMap.add(i);
 	}
 
-	// initialize the data objects
-	vp = new ArrayList<>();
-	vpi = new ArrayList<>();
-	for (JProcess p : jpf.getProcesses()) {
-	    JProcInfo njpi = jproc.getInfo(p);
-	    if (njpi != null) {
-		vp.add(p);
-		vpi.add(njpi);
-	    }
-	}
+	// the data is filled in by the first update
+	rows = new ProcessRows(jproc, jpf, false);
     }
 
     /**
      * Only show processes belonging to this user.
+     * The change takes effect at the next update.
      *
      * @param uid The user id to show.
      */
     public void setUser(final int uid) {
 	jpf.setUser(uid);
-	updateJprocess();
     }
 
     /**
      * Unset user filtering, so that all users are shown.
+     * The change takes effect at the next update.
      */
     public void unSetUser() {
 	jpf.unSetUser();
-	updateJprocess();
     }
 
     /**
      * Only show processes belonging to this zone.
+     * The change takes effect at the next update.
      *
      * @param uid The zone id to show.
      */
     public void setZone(final int uid) {
 	jpf.setZone(uid);
-	updateJprocess();
     }
 
     /**
      * Unset zone filtering, so that all zones are shown.
+     * The change takes effect at the next update.
      */
     public void unSetZone() {
 	jpf.unSetZone();
-	updateJprocess();
     }
 
     /**
      * Only show processes belonging to this contract.
+     * The change takes effect at the next update.
      *
      * @param ctid The desired contract id.
      */
     public void setContract(final int ctid) {
 	jpf.setContract(ctid);
-	updateJprocess();
     }
 
     /**
      * Stop filtering by contract.
+     * The change takes effect at the next update.
      */
     public void unSetContract() {
 	jpf.unSetContract();
-	updateJprocess();
     }
 
     /**
-     * Update the statistics. Iterates through the current list
-     * updating each one. If a JProcess disappears, it is removed.
+     * Collect the statistics for the next update, without changing what
+     * is on display. This may be called on a background thread, but not
+     * again until the Runnable it returns has been run.
+     *
+     * @return a Runnable that shows the collected statistics, which must
+     * be run on the event dispatch thread
+     */
+    public Runnable collect() {
+	rows.collect();
+	return this::publish;
+    }
+
+    /*
+     * Show the rows last collected, firing events for just the rows that
+     * have been deleted, inserted, or changed.
+     */
+    private void publish() {
+	rows.publish(this);
+    }
+
+    /**
+     * Update the statistics, collecting and showing them in one go. This
+     * must be called on the event dispatch thread.
      */
     public void updateJprocess() {
-	// update the underlying process list
-	if (jpf.update()) {
-	    for (JProcess jp : jpf.getAddedProcesses()) {
-		vp.add(jp);
-		// just populate the slot; data actually read below
-		vpi.add(new JProcInfo());
-	    }
-	    for (JProcess jp : jpf.getDeletedProcesses()) {
-		int i = vp.indexOf(jp);
-		if (i > -1) {
-		    vp.remove(i);
-		    vpi.remove(i);
-		}
-	    }
-	}
-	Iterator<JProcess> ip = vp.iterator();
-	int i = 0;
-	while (ip.hasNext()) {
-	    JProcess jp = ip.next();
-	    /*
-	     * The Jprocesses are updated here, so we can detect if they
-	     * disappear. Most process removals will be handled above, but
-	     * there's still a brief window.
-	     */
-	    JProcInfo njpi = jproc.getInfo(jp);
-	    if (njpi == null) {
-		ip.remove();
-		vpi.remove(i);
-	    } else {
-		vpi.set(i, njpi);
-		++i;
-	    }
-	}
-	fireTableDataChanged();
+	collect().run();
     }
 
     @Override
@@ -186,7 +168,7 @@ public final class PSinfoTableModel extends AbstractTableModel {
 
     @Override
     public int getRowCount() {
-	return vp.size();
+	return rows.size();
     }
 
     /*
@@ -245,6 +227,17 @@ public final class PSinfoTableModel extends AbstractTableModel {
 	fireTableStructureChanged();
     }
 
+    /**
+     * Get the row showing the given process.
+     *
+     * @param pid the process id to look for
+     *
+     * @return the row showing the process, or -1 if it isn't shown
+     */
+    public int getRow(final int pid) {
+	return rows.indexOf(pid);
+    }
+
     /**
      * Get the JProcess corresponding to the given row.
      *
@@ -253,7 +246,7 @@ public final class PSinfoTableModel extends AbstractTableModel {
      * @return the JProcess at the given row
      */
     public JProcess getProcess(final int row) {
-	return vp.get(row);
+	return rows.getProcess(row);
     }
 
     @Override
@@ -267,7 +260,7 @@ public final class PSinfoTableModel extends AbstractTableModel {
     @Override
     public Object getValueAt(final int row, final int icol) {
 	int col = mapColumn(icol);
-	JProcInfo jpi = vpi.get(row);
+	JProcInfo jpi = rows.getInfo(row);
 	if (col == 0) {
 	    return jpi.getfname();
 	} else if (col == 3) {
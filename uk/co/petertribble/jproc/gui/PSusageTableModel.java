@@ -43,7 +43,8 @@ public final class PSusageTableModel extends AbstractTableModel {
     private static final String[] COLNAMES = {"COMMAND", "pid", "USER", "nlwp",
 		"RTIME", "UTIME", "STIME", "MINF", "MAJF", "NSWAP", "INBLK",
 		"OUBLK", "MSND", "MRCV", "SIGS", "VCTX", "ICTX", "SYSC",
-		"IOCH"};
+		"IOCH", "TTIME", "TFTIME", "DFTIME", "KFTIME", "LTIME",
+		"SLPTIME", "WTIME", "STOPTIME"};
 
     private final transient List<Integer> colMap;
 
@@ -51,9 +52,10 @@ public final class PSusageTableModel extends AbstractTableModel {
      * The filter to select the processes to be displayed.
      */
     private final JProcessFilter jpf;
-    private final transient List<JProcess> vp;
-    private final transient List<JProcUsage> vpu;
-    private final transient List<JProcInfo> vpi;
+    /**
+     * The rows on display, and those being collected.
+     */
+    private final transient ProcessRows rows;
     /**
      * The JProc to query for data.
      */
@@ -75,101 +77,73 @@ public final class PSusageTableModel extends AbstractTableModel {
 	    colMap.add(i);
 	}
 
-	// initialize the data objects
-	vp = new ArrayList<>();
-	vpu = new ArrayList<>();
-	vpi = new ArrayList<>();
-	for (JProcess p : jpf.getProcesses()) {
-	    JProcUsage njpu = jproc.getUsage(p);
-	    JProcInfo njpi = jproc.getInfo(p);
-	    if (njpu != null && njpi != null) {
-		vp.add(p);
-		vpu.add(njpu);
-		vpi.add(njpi);
-	    }
-	}
+	// the data is filled in by the first update
+	rows = new ProcessRows(jproc, jpf, true);
     }
 
     /**
      * Only show processes belonging to this user.
+     * The change takes effect at the next update.
      *
      * @param uid The user id to show.
      */
     public void setUser(final int uid) {
 	jpf.setUser(uid);
-	updateJprocess();
     }
 
     /**
      * Unset user filtering, so that all users are shown.
+     * The change takes effect at the next update.
      */
     public void unSetUser() {
 	jpf.unSetUser();
-	updateJprocess();
     }
 
     /**
      * Only show processes belonging to this zone.
+     * The change takes effect at the next update.
      *
      * @param uid The zone id to show.
      */
     public void setZone(final int uid) {
 	jpf.setZone(uid);
-	updateJprocess();
     }
 
     /**
      * Unset zone filtering, so that all zones are shown.
+     * The change takes effect at the next update.
      */
     public void unSetZone() {
 	jpf.unSetZone();
-	updateJprocess();
     }
 
     /**
-     * Update the statistics. Iterates through the current list
-     * updating each one. If a JProcess disappears, it is removed.
+     * Collect the statistics for the next update, without changing what
+     * is on display. This may be called on a background thread, but not
+     * again until the Runnable it returns has been run.
+     *
+     * @return a Runnable that shows the collected statistics, which must
+     * be run on the event dispatch thread
+     */
+    public Runnable collect() {
+	rows.collect();
+	return this::publish;
+    }
+
+    /*
+     * Show the rows last collected, firing events for just the rows that
+     * have been deleted, inserted, or changed.
+     */
+    private void publish() {
+	rows.publish(this);
+    }
+
+    /**
+     * Update the statistics, collecting and showing them in one go. This
+     * must be called on the event dispatch thread.
      */
     public void updateJprocess() {
-	// update the underlying process list
-	if (jpf.update()) {
-	    for (JProcess jp : jpf.getAddedProcesses()) {
-		vp.add(jp);
-		// just populate the slot; data actually read below
-		vpu.add(new JProcUsage());
-		vpi.add(new JProcInfo());
-	    }
-	    for (JProcess jp : jpf.getDeletedProcesses()) {
-		int i = vp.indexOf(jp);
-		if (i > -1) {
-		    vp.remove(i);
-		    vpu.remove(i);
-		    vpi.remove(i);
-		}
-	    }
-	}
-	Iterator<JProcess> ip = vp.iterator();
-	int i = 0;
-	while (ip.hasNext()) {
-	    JProcess jp = ip.next();
-	    /*
-	     * The Jprocesses are updated here, so we can detect if they
-	     * disappear. Most process removals will be handled above, but
-	     * there's still a brief window.
-	     */
-	    JProcUsage njpu = jproc.getUsage(jp);
-	    JProcInfo njpi = jproc.getInfo(jp);
-	    if (njpu == null || njpi == null) {
-		ip.remove();
-		vpu.remove(i);
-		vpi.remove(i);
-	    } else {
-		vpu.set(i, njpu);
-		vpi.set(i, njpi);
-		++i;
-	    }
-	}
-	fireTableDataChanged();
+	collect().run();
     }
 
     @Override
@@ -179,7 +153,7 @@ public final class PSusageTableModel extends AbstractTableModel {
 
     @Override
     public int getRowCount() {
-	return vp.size();
+	return rows.size();
     }
 
     /*
@@ -238,6 +212,17 @@ public final class PSusageTableModel extends AbstractTableModel {
 	fireTableStructureChanged();
     }
 
+    /**
+     * Get the row showing the given process.
+     *
+     * @param pid the process id to look for
+     *
+     * @return the row showing the process, or -1 if it isn't shown
+     */
+    public int getRow(final int pid) {
+	return rows.indexOf(pid);
+    }
+
     /**
      * Get the process corresponding to the given row.
      *
@@ -246,7 +231,7 @@ public final class PSusageTableModel extends AbstractTableModel {
      * @return the JProcess at the given row
      */
     public JProcess getProcess(final int row) {
-	return vp.get(row);
+	return rows.getProcess(row);
     }
 
     @Override
@@ -260,8 +245,8 @@ public final class PSusageTableModel extends AbstractTableModel {
     @Override
     public Object getValueAt(final int row, final int icol) {
 	int col = mapColumn(icol);
-	JProcUsage jpu = vpu.get(row);
-	JProcInfo jpi = vpi.get(row);
+	JProcUsage jpu = rows.getUsage(row);
+	JProcInfo jpi = rows.getInfo(row);
 	if (col == 0) {
 	    return jpi.getfname();
 	} else if (col == 2) {
@@ -272,11 +257,27 @@ public final class PSusageTableModel extends AbstractTableModel {
 	    return Double.valueOf(jpu.getutime());
 	} else if (col == 6) {
 	    return Double.valueOf(jpu.getstime());
+	} else if (col == 19) {
+	    return Double.valueOf(jpu.getttime());
+	} else if (col == 20) {
+	    return Double.valueOf(jpu.gettftime());
+	} else if (col == 21) {
+	    return Double.valueOf(jpu.getdftime());
+	} else if (col == 22) {
+	    return Double.valueOf(jpu.getkftime());
+	} else if (col == 23) {
+	    return Double.valueOf(jpu.getltime());
+	} else if (col == 24) {
+	    return Double.valueOf(jpu.getslptime());
+	} else if (col == 25) {
+	    return Double.valueOf(jpu.getwtime());
+	} else if (col == 26) {
+	    return Double.valueOf(jpu.getstoptime());
 	}
 	long l = 0;
 	switch (col) {
 	    case 1:
-		l = vp.get(row).getPid();
+		l = rows.getProcess(row).getPid();
 		break;
 	    case 3:
 		l = jpi.getnlwp();
@@ -332,6 +333,14 @@ public final class PSusageTableModel extends AbstractTableModel {
 	    case 4:
 	    case 5:
 	    case 6:
+	    case 19:
+	    case 20:
+	    case 21:
+	    case 22:
+	    case 23:
+	    case 24:
+	    case 25:
+	    case 26:
 		return Double.class;
 	    default:
 		return Long.class;
@@ -0,0 +1,455 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.gui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.swing.DefaultRowSorter;
+import javax.swing.RowSorter;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
+import uk.co.petertribble.jproc.api.JProc;
+import uk.co.petertribble.jproc.api.JProcInfo;
+import uk.co.petertribble.jproc.api.JProcUsage;
+import uk.co.petertribble.jproc.api.JProcess;
+import uk.co.petertribble.jproc.api.JProcessFilter;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+
+/**
+ * The rows of a table of processes, collected on one thread and shown on
+ * another.
+ *
+ * <p>The list of processes is maintained by {@link #collect()}, which
+ * updates the filter and reads the data for every row into a back buffer.
+ * That can be done on a background thread. The rows on display are in a
+ * front buffer, which is only read by the event dispatch thread and is
+ * swapped with the back buffer by {@link #publish(AbstractTableModel)}.
+ * The row objects are reused from one update to the next, so the caller
+ * must not collect again until the previous collection has been
+ * published.
+ *
+ * <p>Rows keep their position from one update to the next: processes that
+ * have gone are removed, and new processes are added at the end. Each
+ * buffer has an index from pid to row, so the collection can work out
+ * which rows were deleted, inserted, or changed, and publishing fires
+ * events for just those rows rather than for the whole table.
+ *
+ * @author Peter Tribble
+ */
+final class ProcessRows {
+
+    private final JProc jproc;
+    private final JProcessFilter jpf;
+    private final boolean wantUsage;
+
+    /*
+     * The processes being tracked, only used while collecting.
+     */
+    private final List<JProcess> procs = new ArrayList<>();
+
+    private Rows front = new Rows();
+    private Rows back = new Rows();
+
+    /*
+     * Incremented whenever rows are added or removed, so that a buffer can
+     * tell whether its index is out of date.
+     */
+    private long structure;
+
+    /*
+     * The differences between the rows on display and those collected:
+     * which of the rows on display are kept, and which of the collected
+     * rows have changed. If the collected rows aren't in the same order,
+     * the whole table is replaced instead.
+     */
+    private boolean[] kept = new boolean[0];
+    private boolean[] changed = new boolean[0];
+    private boolean reordered;
+
+    /**
+     * Create a new set of rows, tracking the processes currently matched by
+     * the filter. Nothing is shown until the first collection is published.
+     *
+     * @param njproc a JProc object to query for process information
+     * @param njpf a filter defining the processes to be shown
+     * @param nwantUsage whether to read usage as well as information
+     */
+    ProcessRows(final JProc njproc, final JProcessFilter njpf,
+		final boolean nwantUsage) {
+	jproc = njproc;
+	jpf = njpf;
+	wantUsage = nwantUsage;
+	procs.addAll(jpf.getProcesses());
+    }
+
+    /**
+     * Update the filter and read the data for each matching process into
+     * the back buffer. Processes that have gone are dropped. The collected
+     * rows are then compared with those on display.
+     */
+    void collect() {
+	if (jpf.update()) {
+	    procs.removeAll(jpf.getDeletedProcesses());
+	    procs.addAll(jpf.getAddedProcesses());
+	}
+	int n = procs.size();
+	back.ensureCapacity(n, wantUsage);
+	ProcessSnapshot snap = jpf.getSnapshot();
+	/*
+	 * Against a remote server, the scheduler may have read the usage of
+	 * every process along with the snapshot, in which case that is used.
+	 * Otherwise usage for all the rows is read in one go, which the
+	 * JProc may split across several threads.
+	 */
+	List<JProcUsage> sampled = (wantUsage && snap != null)
+	    ? SamplingScheduler.getSampledUsage(jproc, snap) : null;
+	boolean[] usageFound;
+	if (sampled != null) {
+	    usageFound = copyUsage(snap, sampled, n);
+	} else {
+	    usageFound = wantUsage
+		? jproc.getUsage(procs, back.usage.subList(0, n)) : null;
+	}
+	back.procs.clear();
+	Iterator<JProcess> ip = procs.iterator();
+	int k = 0;
+	int m = 0;
+	while (ip.hasNext()) {
+	    JProcess jp = ip.next();
+	    /*
+	     * The Jprocesses are checked here, so we can detect if they
+	     * disappear. Most process removals will be handled above, but
+	     * there's still a brief window. The psinfo data is taken from
+	     * the filter's snapshot if it has one.
+	     */
+	    boolean found = usageFound == null || usageFound[k];
+	    JProcInfo jpi = back.info.get(m);
+	    if (found) {
+		if (snap == null) {
+		    found = jproc.getInfo(jp, jpi);
+		} else {
+		    int row = snap.indexOf(jp.getPid());
+		    found = row >= 0;
+		    if (found) {
+			snap.getInfo(row, jpi);
+		    }
+		}
+	    }
+	    if (found) {
+		if (wantUsage && m != k) {
+		    // close the gap left by a vanished process
+		    Collections.swap(back.usage, m, k);
+		}
+		back.procs.add(jp);
+		m++;
+	    } else {
+		ip.remove();
+	    }
+	    k++;
+	}
+	compare();
+    }
+
+    /*
+     * Copy the usage read along with a snapshot into the back buffer,
+     * matching the processes by pid. The sampled usage is shared with
+     * other tables, so is left untouched.
+     */
+    private boolean[] copyUsage(final ProcessSnapshot snap,
+				final List<JProcUsage> sampled, final int n) {
+	boolean[] found = new boolean[n];
+	for (int k = 0; k < n; k++) {
+	    int row = snap.indexOf(procs.get(k).getPid());
+	    if (row >= 0) {
+		back.usage.get(k).copyFrom(sampled.get(row));
+		found[k] = true;
+	    }
+	}
+	return found;
+    }
+
+    /*
+     * Compare the collected rows with those on display.
+     */
+    private void compare() {
+	int nold = front.procs.size();
+	int n = back.procs.size();
+	if (kept.length < nold) {
+	    kept = new boolean[nold];
+	}
+	if (changed.length < n) {
+	    changed = new boolean[n];
+	}
+	Arrays.fill(kept, 0, nold, false);
+	reordered = false;
+	boolean added = false;
+	int last = -1;
+	int nkept = 0;
+	for (int k = 0; k < n; k++) {
+	    JProcess jp = back.procs.get(k);
+	    int r = front.indexOf(jp.getPid());
+	    // a reused pid is a different process
+	    if (r >= 0 && front.procs.get(r) == jp) {
+		if (added || r < last) {
+		    reordered = true;
+		}
+		last = r;
+		kept[r] = true;
+		nkept++;
+		changed[k] = !back.info.get(k).sameValues(front.info.get(r))
+		    || (wantUsage
+			&& !back.usage.get(k).sameValues(front.usage.get(r)));
+	    } else {
+		added = true;
+		changed[k] = false;
+	    }
+	}
+	if (nkept != nold || n != nold) {
+	    structure++;
+	}
+	back.reindex(structure);
+    }
+
+    /**
+     * Make the rows last collected the ones on display, and tell the model
+     * which rows have been deleted, inserted, or updated. Must be called
+     * on the event dispatch thread.
+     *
+     * @param model the model to fire events on
+     */
+    void publish(final AbstractTableModel model) {
+	if (reordered) {
+	    swap();
+	    model.fireTableDataChanged();
+	    return;
+	}
+	/*
+	 * Remove the deleted rows from the display, highest first, so that
+	 * the model matches each event as it is fired.
+	 */
+	int r = front.procs.size() - 1;
+	while (r >= 0) {
+	    if (kept[r]) {
+		r--;
+	    } else {
+		int end = r;
+		while (r > 0 && !kept[r - 1]) {
+		    r--;
+		}
+		front.remove(r, end);
+		model.fireTableRowsDeleted(r, end);
+		r--;
+	    }
+	}
+	// the kept rows are now the first rows collected
+	int nkept = front.procs.size();
+	swap();
+	int n = front.procs.size();
+	if (n > nkept) {
+	    model.fireTableRowsInserted(nkept, n - 1);
+	}
+	int k = 0;
+	while (k < nkept) {
+	    if (changed[k]) {
+		int start = k;
+		while (k < nkept && changed[k]) {
+		    k++;
+		}
+		model.fireTableRowsUpdated(start, k - 1);
+	    } else {
+		k++;
+	    }
+	}
+    }
+
+    private void swap() {
+	Rows r = front;
+	front = back;
+	back = r;
+    }
+
+    /**
+     * Return the number of rows on display.
+     *
+     * @return the number of rows
+     */
+    int size() {
+	return front.procs.size();
+    }
+
+    /**
+     * Return the row showing the given process.
+     *
+     * @param pid the process id to look for
+     *
+     * @return the row showing the process, or -1 if it isn't shown
+     */
+    int indexOf(final int pid) {
+	return front.indexOf(pid);
+    }
+
+    /**
+     * Return the process shown in a row.
+     *
+     * @param row the row requested
+     *
+     * @return the JProcess at the given row
+     */
+    JProcess getProcess(final int row) {
+	return front.procs.get(row);
+    }
+
+    /**
+     * Return the information shown in a row.
+     *
+     * @param row the row requested
+     *
+     * @return the JProcInfo at the given row
+     */
+    JProcInfo getInfo(final int row) {
+	return front.info.get(row);
+    }
+
+    /**
+     * Return the usage shown in a row.
+     *
+     * @param row the row requested
+     *
+     * @return the JProcUsage at the given row
+     */
+    JProcUsage getUsage(final int row) {
+	return front.usage.get(row);
+    }
+
+    /**
+     * Bring a list of sorted keys on display into line with a newly
+     * collected list, firing an event for each row deleted or inserted, and
+     * then marking every row as updated. This suits the summary tables,
+     * which have few rows but whose values all change.
+     *
+     * @param model the model to fire events on
+     * @param shown the sorted keys on display, which are updated
+     * @param next the sorted keys collected
+     */
+    static void publishKeys(final AbstractTableModel model,
+			    final List<Integer> shown,
+			    final List<Integer> next) {
+	for (int i = shown.size() - 1; i >= 0; i--) {
+	    if (Collections.binarySearch(next, shown.get(i)) < 0) {
+		shown.remove(i);
+		model.fireTableRowsDeleted(i, i);
+	    }
+	}
+	for (int i = 0; i < next.size(); i++) {
+	    if (i == shown.size() || !shown.get(i).equals(next.get(i))) {
+		shown.add(i, next.get(i));
+		model.fireTableRowsInserted(i, i);
+	    }
+	}
+	if (!shown.isEmpty()) {
+	    model.fireTableRowsUpdated(0, shown.size() - 1);
+	}
+    }
+
+    /**
+     * Make a table's row sorter re-sort as the values in the rows change.
+     * The models only report the rows that have changed, and the sorter
+     * only re-sorts those, so this costs little when there is little
+     * activity.
+     *
+     * @param sorter the sorter about to be set on a table
+     *
+     * @return the same sorter, for the table to set
+     */
+    static <T extends RowSorter<? extends TableModel>> T sortOnUpdates(
+		final T sorter) {
+	if (sorter instanceof DefaultRowSorter) {
+	    ((DefaultRowSorter<?, ?>) sorter).setSortsOnUpdates(true);
+	}
+	return sorter;
+    }
+
+    /*
+     * One buffer of rows. The info and usage lists may hold spare objects
+     * beyond the number of processes, to be reused later.
+     */
+    private static final class Rows {
+	private final List<JProcess> procs = new ArrayList<>();
+	private final List<JProcInfo> info = new ArrayList<>();
+	private final List<JProcUsage> usage = new ArrayList<>();
+	private final Map<Integer, Integer> index = new HashMap<>();
+	private long indexed = -1;
+
+	private void ensureCapacity(final int n, final boolean wantUsage) {
+	    while (info.size() < n) {
+		info.add(new JProcInfo());
+	    }
+	    while (wantUsage && usage.size() < n) {
+		usage.add(new JProcUsage());
+	    }
+	}
+
+	/*
+	 * Rebuild the pid index, unless the rows are laid out the same way
+	 * as when it was last built.
+	 */
+	private void reindex(final long structure) {
+	    if (indexed != structure) {
+		index.clear();
+		for (int i = 0; i < procs.size(); i++) {
+		    index.put(procs.get(i).getPid(), i);
+		}
+		indexed = structure;
+	    }
+	}
+
+	private int indexOf(final int pid) {
+	    Integer i = index.get(pid);
+	    return (i == null) ? -1 : i;
+	}
+
+	/*
+	 * Remove a range of rows, keeping their data objects as spares.
+	 */
+	private void remove(final int from, final int to) {
+	    procs.subList(from, to + 1).clear();
+	    moveToEnd(info, from, to);
+	    if (!usage.isEmpty()) {
+		moveToEnd(usage, from, to);
+	    }
+	    // the index no longer matches
+	    indexed = -1;
+	}
+
+	private static <T> void moveToEnd(final List<T> l, final int from,
+					  final int to) {
+	    List<T> sub = l.subList(from, to + 1);
+	    List<T> spare = new ArrayList<>(sub);
+	    sub.clear();
+	    l.addAll(spare);
+	}
+    }
+}
@@ -20,11 +20,8 @@
 
 package uk.co.petertribble.jproc.gui;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import javax.swing.JLabel;
 import javax.swing.JTable;
-import javax.swing.Timer;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableCellRenderer;
 import uk.co.petertribble.jproc.api.JProc;
@@ -37,7 +34,7 @@ import uk.co.petertribble.jproc.util.PrettyFormat;
  *
  * @author Peter Tribble
  */
-public final class ProcessTable extends JTable implements ActionListener {
+public final class ProcessTable extends JTable implements SampleListener {
 
     private static final long serialVersionUID = 1L;
 
@@ -55,11 +52,15 @@ public final class ProcessTable extends JTable implements ActionListener {
     private final DefaultTableCellRenderer timeRenderer;
 
     /**
-     * A Timer to update the display in a loop.
+     * The scheduler driving updates of the display.
      */
-    private Timer timer;
+    private final transient SamplingScheduler scheduler;
     /**
-     * The update interval for the table.
+     * Whether the display is being updated in a loop.
+     */
+    private boolean running;
+    /**
+     * The update interval for the table, in seconds.
      */
     private int delay;
 
@@ -72,14 +73,15 @@ public final class ProcessTable extends JTable implements ActionListener {
      */
     public ProcessTable(final JProc jproc, final JProcess process,
 			final int interval) {
-	delay = interval * 1000;
+	scheduler = SamplingScheduler.getScheduler(jproc);
+	delay = interval;
 	ptm = new ProcessTableModel(jproc, process);
 	setModel(ptm);
 	sizeRenderer = new SizeRenderer();
 	sizeRenderer.setHorizontalAlignment(JLabel.RIGHT);
 	timeRenderer = new TimeRenderer();
 	timeRenderer.setHorizontalAlignment(JLabel.RIGHT);
-	update();
+	scheduler.refresh(this);
 	startLoop();
     }
 
@@ -88,10 +90,8 @@ public final class ProcessTable extends JTable implements ActionListener {
      */
     public void startLoop() {
 	if (delay > 0) {
-	    if (timer == null) {
-		timer = new Timer(delay, this);
-	    }
-	    timer.start();
+	    scheduler.register(this, delay);
+	    running = true;
 	}
     }
 
@@ -99,9 +99,8 @@ public final class ProcessTable extends JTable implements ActionListener {
      * Stop the loop that updates the Jprocesses.
      */
     public void stopLoop() {
-	if (timer != null) {
-	    timer.stop();
-	}
+	scheduler.unregister(this);
+	running = false;
     }
 
     /**
@@ -115,30 +114,39 @@ public final class ProcessTable extends JTable implements ActionListener {
 	if (interval <= 0) {
 	    stopLoop();
 	} else {
-	    delay = interval * 1000;
-	    if (timer != null) {
-		timer.setDelay(delay);
+	    delay = interval;
+	    if (running) {
+		scheduler.register(this, delay);
 	    }
 	}
     }
 
     /*
-     * Update the underlying model. Upon process exit, the model will throw a
-     * NoSuchProcessException. Upon receipt of such an exception, we set our
-     * Model to be the special model displaying an informative message.
+     * Read the process on the scheduler thread. Upon process exit, the
+     * model will throw a NoSuchProcessException. Upon receipt of such an
+     * exception, we set our Model to be the special model displaying an
+     * informative message.
      */
-    private void update() {
+    @Override
+    public Runnable collect() {
 	try {
-	    ptm.updateProcess();
+	    return ptm.collect();
 	} catch (NoSuchProcessException nspe) {
-	    stopLoop();
-	    setModel(new ProcessExitedTableModel());
+	    scheduler.unregister(this);
+	    return () -> {
+		stopLoop();
+		setModel(new ProcessExitedTableModel());
+	    };
 	}
     }
 
+    /*
+     * Only a single process is shown, which is read directly, so there is
+     * no need for a sample of all processes.
+     */
     @Override
-    public void actionPerformed(final ActionEvent e) {
-	update();
+    public boolean needsSample() {
+	return false;
     }
 
     /**
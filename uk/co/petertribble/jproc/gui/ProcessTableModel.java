@@ -48,6 +48,10 @@ public final class ProcessTableModel extends AbstractTableModel {
      * The JProc to query for data.
      */
     private final JProc jproc;
+    /**
+     * The information on the process, refilled on each update.
+     */
+    private final JProcInfo procinfo = new JProcInfo();
 
     /**
      * The number of lwps in a process.
@@ -102,27 +106,47 @@ public final class ProcessTableModel extends AbstractTableModel {
     }
 
     /**
-     * Update the details of the displayed process.
+     * Read the details of the displayed process, without changing what is
+     * on display. This may be called on a background thread, but not
+     * again until the Runnable it returns has been run.
+     *
+     * @return a Runnable that shows the new details, which must be run on
+     * the event dispatch thread
      *
      * @throws NoSuchProcessException if the process has exited
      */
-    public void updateProcess() throws NoSuchProcessException {
-	JProcInfo procinfo = jproc.getInfo(process);
-	if (procinfo == null) {
+    public Runnable collect() throws NoSuchProcessException {
+	if (!jproc.getInfo(process, procinfo)) {
 	    throw new NoSuchProcessException();
-	} else {
-	    dnlwp = procinfo.getnlwp() - nlwp;
-	    nlwp = procinfo.getnlwp();
-	    dsize = procinfo.getsize() - size;
-	    size = procinfo.getsize();
-	    drssize = procinfo.getrssize() - rssize;
-	    rssize = procinfo.getrssize();
-	    dtime = procinfo.gettime() - time;
-	    time = procinfo.gettime();
-	    dctime = procinfo.getctime() - ctime;
-	    ctime = procinfo.getctime();
-	    fireTableDataChanged();
 	}
+	return this::publish;
+    }
+
+    /*
+     * Show the details last read.
+     */
+    private void publish() {
+	dnlwp = procinfo.getnlwp() - nlwp;
+	nlwp = procinfo.getnlwp();
+	dsize = procinfo.getsize() - size;
+	size = procinfo.getsize();
+	drssize = procinfo.getrssize() - rssize;
+	rssize = procinfo.getrssize();
+	dtime = procinfo.gettime() - time;
+	time = procinfo.gettime();
+	dctime = procinfo.getctime() - ctime;
+	ctime = procinfo.getctime();
+	fireTableDataChanged();
+    }
+
+    /**
+     * Update the details of the displayed process, reading and showing
+     * them in one go. This must be called on the event dispatch thread.
+     *
+     * @throws NoSuchProcessException if the process has exited
+     */
+    public void updateProcess() throws NoSuchProcessException {
+	collect().run();
     }
 
     @Override
@@ -0,0 +1,66 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.gui;
+
+/**
+ * An interface to be implemented by anything that wishes to be updated
+ * by a {@link SamplingScheduler}.
+ *
+ * @author Peter Tribble
+ */
+public interface SampleListener {
+
+    /**
+     * Called on the scheduler thread when this listener is due for an
+     * update. If a sample was needed it has already been applied to the
+     * scheduler's shared index, so filters using that index are up to
+     * date. The data for display should be collected here, without
+     * touching any Swing component, and the work of showing it returned.
+     *
+     * @return a Runnable to be run on the event dispatch thread to show the
+     * newly collected data, or null if there is nothing to show
+     */
+    Runnable collect();
+
+    /**
+     * Whether this listener needs a fresh sample of all processes. A
+     * listener that only looks at a single process can return false, so
+     * that it is driven by the shared clock without causing /proc to be
+     * scanned.
+     *
+     * @return true if a fresh sample of all processes is needed
+     */
+    default boolean needsSample() {
+	return true;
+    }
+
+    /**
+     * Whether this listener shows the usage of every process it displays.
+     * Against a remote server, the sample is then read along with the
+     * usage of all processes in a single request, rather than the usage
+     * being requested afterwards.
+     *
+     * @return true if the usage of all the processes shown is needed
+     */
+    default boolean needsUsage() {
+	return false;
+    }
+}
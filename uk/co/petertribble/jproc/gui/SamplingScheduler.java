@@ -0,0 +1,499 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.gui;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import uk.co.petertribble.jproc.api.JProc;
+import uk.co.petertribble.jproc.api.JProcUsage;
+import uk.co.petertribble.jproc.api.JProcess;
+import uk.co.petertribble.jproc.api.JProcessFilter;
+import uk.co.petertribble.jproc.api.JProcessSet;
+import uk.co.petertribble.jproc.api.ProcessIndex;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+
+/**
+ * A single background sampler shared by all the tables displaying data
+ * from a JProc, replacing a Swing Timer per table.
+ *
+ * <p>The scheduler ticks once a second. Each listener is registered with
+ * an interval in seconds, and is due on those ticks that are a multiple of
+ * its interval, so listeners with different intervals are coalesced onto
+ * the same sample. If any due listener needs it, one snapshot of /proc is
+ * taken and applied to a shared {@link ProcessIndex}. Filters obtained
+ * from {@link #newFilter()} all use that index, so however many tables
+ * are open /proc is read once per tick.
+ *
+ * <p>Against a remote server, if any due listener needs the usage of all
+ * processes, the sample is read along with that usage in a single
+ * request, and tables collect their usage from it with
+ * {@link #getSampledUsage}, so that a refresh is one request.
+ *
+ * <p>All the collection is done on the scheduler thread: the snapshot,
+ * the index update, and each due listener's {@link SampleListener#collect}.
+ * Only the prepared results are handed to the event dispatch thread, so
+ * the display never waits for /proc. The scheduler thread waits for the
+ * results to be shown before carrying on, so listeners can reuse their
+ * buffers. If a tick overruns, because the scan or the display is slow,
+ * the ticks missed are dropped rather than queued, and any listener that
+ * was due during them is updated at the next tick.
+ *
+ * <p>The shared index, and the filters on it, belong to the scheduler
+ * thread. Changes to a filter should be made with
+ * {@link #refresh(SampleListener, Runnable)}, which runs them on that
+ * thread.
+ *
+ * <p>A scheduler is only held on to, for its JProc, while it has
+ * listeners registered or refreshes outstanding, and its thread exits
+ * when it has been idle for a while. Anything that stops and later
+ * restarts its updates should keep the scheduler it started with, along
+ * with any filters from it, rather than asking for it again, as once
+ * idle it may have been replaced.
+ *
+ * @author Peter Tribble
+ */
+public final class SamplingScheduler {
+
+    /*
+     * The base tick, in milliseconds. Intervals are whole seconds.
+     */
+    private static final long TICK = 1000;
+    private static final long TICK_NANOS = TICK * 1000000L;
+    /*
+     * How long the scheduler thread waits for work before exiting, in
+     * seconds.
+     */
+    private static final long IDLE = 10;
+
+    private static final Map<JProc, SamplingScheduler> SCHEDULERS =
+	new IdentityHashMap<>();
+
+    private final JProc jproc;
+    private final ProcessIndex index;
+    private final ScheduledThreadPoolExecutor executor;
+
+    /*
+     * The registered listeners, with their intervals in seconds.
+     */
+    private final Map<SampleListener, Integer> listeners =
+	new LinkedHashMap<>();
+
+    /*
+     * The snapshot not currently held by the process set, which is filled
+     * by the next sample. Only used on the scheduler thread.
+     */
+    private ProcessSnapshot spare = new ProcessSnapshot();
+    private long lastSample;
+
+    /*
+     * The usage of every process read along with the current sample, in
+     * the same order as its snapshot, or null if it was read without
+     * usage. The spare list is filled by the next sample that reads
+     * usage. Only used on the scheduler thread.
+     */
+    private List<JProcUsage> usage;
+    private List<JProcUsage> spareUsage = new ArrayList<>();
+
+    private ScheduledFuture<?> ticker;
+    /*
+     * The number of refreshes queued or running.
+     */
+    private int pending;
+    private long start;
+    private long tick;
+    private long dropped;
+
+    private SamplingScheduler(final JProc njproc) {
+	jproc = njproc;
+	index = new ProcessIndex(new JProcessSet(jproc));
+	index.setScheduled(true);
+	lastSample = System.nanoTime();
+	executor = new ScheduledThreadPoolExecutor(1, r -> {
+	    Thread t = new Thread(r, "jproc-sampler");
+	    t.setDaemon(true);
+	    return t;
+	});
+	executor.setKeepAliveTime(IDLE, TimeUnit.SECONDS);
+	executor.allowCoreThreadTimeOut(true);
+	executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Return the scheduler for the given JProc, creating it if necessary.
+     *
+     * @param jproc the JProc to be sampled
+     *
+     * @return the SamplingScheduler shared by everything displaying data
+     * from the given JProc
+     */
+    public static SamplingScheduler getScheduler(final JProc jproc) {
+	synchronized (SCHEDULERS) {
+	    return SCHEDULERS.computeIfAbsent(jproc, SamplingScheduler::new);
+	}
+    }
+
+    /**
+     * Return the shared index. It is updated on the scheduler thread, and
+     * should only be read there, or while holding its lock.
+     *
+     * @return the shared ProcessIndex
+     */
+    public ProcessIndex getIndex() {
+	return index;
+    }
+
+    /**
+     * Return the names of the users running processes in the latest
+     * sample. This may be called on any thread.
+     *
+     * @return the Set of current users
+     */
+    public Set<String> getUsers() {
+	Set<String> users = new HashSet<>();
+	for (int uid : getIds(true)) {
+	    users.add(jproc.getUserName(uid));
+	}
+	return users;
+    }
+
+    /**
+     * Return the names of the zones running processes in the latest
+     * sample. This may be called on any thread.
+     *
+     * @return the Set of current zones
+     */
+    public Set<String> getZones() {
+	Set<String> zones = new HashSet<>();
+	for (int zoneid : getIds(false)) {
+	    zones.add(jproc.getZoneName(zoneid));
+	}
+	return zones;
+    }
+
+    /*
+     * Copy the uids, or zoneids, of the latest sample while holding the
+     * index lock, as the sampler updates the cached info in place. The
+     * names are looked up afterwards, which for a remote JProc may be
+     * slow, so as not to hold up the sampler.
+     */
+    private Set<Integer> getIds(final boolean uids) {
+	Set<Integer> ids = new HashSet<>();
+	synchronized (index) {
+	    for (JProcess jp : index.getProcessSet().getProcesses()) {
+		ids.add(uids ? jp.getCachedInfo().getuid()
+			: jp.getCachedInfo().getzoneid());
+	    }
+	}
+	return ids;
+    }
+
+    /**
+     * Return a new filter on the shared index. Filters created here never
+     * read /proc themselves, but see the latest sample when updated. This
+     * may be called on any thread.
+     *
+     * @return a new JProcessFilter, initially matching all processes
+     */
+    public JProcessFilter newFilter() {
+	synchronized (index) {
+	    return new JProcessFilter(index);
+	}
+    }
+
+    /**
+     * Register a listener to be updated at the given interval, replacing
+     * any interval it was previously registered with. A zero or negative
+     * interval unregisters the listener.
+     *
+     * @param listener the listener to be updated
+     * @param interval the update interval, in seconds
+     */
+    public synchronized void register(final SampleListener listener,
+				      final int interval) {
+	if (interval <= 0) {
+	    unregister(listener);
+	    return;
+	}
+	listeners.put(listener, interval);
+	activate();
+	if (ticker == null) {
+	    start = System.nanoTime();
+	    tick = 0;
+	    ticker = executor.scheduleAtFixedRate(this::tick, TICK, TICK,
+						TimeUnit.MILLISECONDS);
+	}
+    }
+
+    /**
+     * Stop updating a listener. The ticks stop when the last listener is
+     * removed.
+     *
+     * @param listener the listener to be removed
+     */
+    public synchronized void unregister(final SampleListener listener) {
+	listeners.remove(listener);
+	if (listeners.isEmpty() && ticker != null) {
+	    ticker.cancel(false);
+	    ticker = null;
+	}
+	retireIfIdle();
+    }
+
+    /*
+     * Make this the scheduler for its JProc again, if it was retired and
+     * hasn't been replaced. Called with this scheduler locked.
+     */
+    private void activate() {
+	synchronized (SCHEDULERS) {
+	    SCHEDULERS.putIfAbsent(jproc, this);
+	}
+    }
+
+    /*
+     * Once there are no listeners and no refreshes outstanding, stop
+     * holding on to this scheduler, so that it and its JProc can be
+     * freed once nothing else refers to them. Called with this
+     * scheduler locked.
+     */
+    private void retireIfIdle() {
+	if (listeners.isEmpty() && pending == 0) {
+	    synchronized (SCHEDULERS) {
+		SCHEDULERS.remove(jproc, this);
+	    }
+	}
+    }
+
+    /**
+     * Return whether a listener is registered.
+     *
+     * @param listener the listener to look for
+     *
+     * @return true if the listener is registered
+     */
+    public synchronized boolean isRegistered(final SampleListener listener) {
+	return listeners.containsKey(listener);
+    }
+
+    /**
+     * Return the number of ticks that have been dropped because the
+     * previous tick overran.
+     *
+     * @return the number of dropped ticks
+     */
+    public synchronized long getDroppedTicks() {
+	return dropped;
+    }
+
+    /**
+     * Update a listener as soon as possible, whether or not it is
+     * registered, for example to fill a table when it is first shown.
+     *
+     * @param listener the listener to be updated
+     */
+    public void refresh(final SampleListener listener) {
+	refresh(listener, null);
+    }
+
+    /**
+     * Make a change on the scheduler thread, and then update a listener
+     * as soon as possible. This is how a filter on the shared index should
+     * be modified.
+     *
+     * @param listener the listener to be updated
+     * @param change the change to be made before the update, may be null
+     */
+    public void refresh(final SampleListener listener, final Runnable change) {
+	synchronized (this) {
+	    pending++;
+	    activate();
+	}
+	executor.execute(() -> {
+	    try {
+		if (change != null) {
+		    change.run();
+		}
+		// make sure a new listener doesn't see a stale sample
+		boolean wantUsage = listener.needsUsage() && jproc.isRemote();
+		if (listener.needsSample()
+			&& (System.nanoTime() - lastSample > TICK_NANOS
+			    || (wantUsage && usage == null))) {
+		    sample(wantUsage);
+		}
+		List<Runnable> results = new ArrayList<>();
+		collect(listener, results);
+		publish(results);
+	    } catch (RuntimeException re) {
+		report("refresh failed", re);
+	    } finally {
+		synchronized (this) {
+		    pending--;
+		    retireIfIdle();
+		}
+	    }
+	});
+    }
+
+    /*
+     * Run on the scheduler thread once per tick. Nothing may escape, as
+     * an exception would cancel all later ticks; a tick that fails is
+     * reported and skipped, and the next tick tries again.
+     */
+    private void tick() {
+	try {
+	    doTick();
+	} catch (RuntimeException re) {
+	    report("sample failed", re);
+	}
+    }
+
+    private void doTick() {
+	List<SampleListener> due = new ArrayList<>();
+	boolean needed = false;
+	boolean wantUsage = false;
+	synchronized (this) {
+	    long now = (System.nanoTime() - start) / TICK_NANOS;
+	    if (now <= tick) {
+		/*
+		 * A late run queued behind one that overran, for a tick we
+		 * have already handled.
+		 */
+		return;
+	    }
+	    dropped += now - tick - 1;
+	    for (Map.Entry<SampleListener, Integer> me
+		     : listeners.entrySet()) {
+		// due if any tick since the last one was a multiple
+		int interval = me.getValue();
+		if (now / interval > tick / interval) {
+		    due.add(me.getKey());
+		    needed |= me.getKey().needsSample();
+		    wantUsage |= me.getKey().needsUsage();
+		}
+	    }
+	    tick = now;
+	}
+	if (needed) {
+	    sample(wantUsage && jproc.isRemote());
+	}
+	List<Runnable> results = new ArrayList<>();
+	for (SampleListener l : due) {
+	    collect(l, results);
+	}
+	publish(results);
+    }
+
+    /*
+     * Take a new snapshot, with the usage of every process if asked, and
+     * apply it to the shared index.
+     */
+    private void sample(final boolean withUsage) {
+	ProcessSnapshot snap = spare;
+	List<JProcUsage> nusage = null;
+	if (withUsage) {
+	    nusage = spareUsage;
+	    jproc.getProcessesWithUsage(snap, nusage);
+	} else {
+	    jproc.getSnapshot(snap);
+	}
+	synchronized (index) {
+	    spare = index.getProcessSet().getSnapshot();
+	    index.update(snap);
+	}
+	if (nusage != null) {
+	    spareUsage = (usage == null) ? new ArrayList<>() : usage;
+	}
+	usage = nusage;
+	lastSample = System.nanoTime();
+    }
+
+    /*
+     * Return the usage read along with the given snapshot, if it is the
+     * current sample of the scheduler for the given JProc and was read
+     * with usage, otherwise null. Called by a listener collecting on the
+     * scheduler thread.
+     */
+    static List<JProcUsage> getSampledUsage(final JProc jproc,
+					final ProcessSnapshot snap) {
+	SamplingScheduler sched;
+	synchronized (SCHEDULERS) {
+	    sched = SCHEDULERS.get(jproc);
+	}
+	if (sched == null || sched.usage == null
+		|| sched.index.getProcessSet().getSnapshot() != snap) {
+	    return null;
+	}
+	return sched.usage;
+    }
+
+    private void collect(final SampleListener l,
+			 final List<Runnable> results) {
+	try {
+	    Runnable r = l.collect();
+	    if (r != null) {
+		results.add(r);
+	    }
+	} catch (RuntimeException re) {
+	    // one failing listener mustn't stop the others being updated
+	    report("collect failed", re);
+	}
+    }
+
+    /*
+     * Hand the results to the event dispatch thread, and wait for them
+     * to be shown.
+     */
+    private void publish(final List<Runnable> results) {
+	if (results.isEmpty()) {
+	    return;
+	}
+	try {
+	    SwingUtilities.invokeAndWait(() -> {
+		for (Runnable r : results) {
+		    try {
+			r.run();
+		    } catch (RuntimeException re) {
+			// as above, the others still get shown
+			report("display failed", re);
+		    }
+		}
+	    });
+	} catch (InterruptedException ie) {
+	    Thread.currentThread().interrupt();
+	} catch (InvocationTargetException ite) {
+	    // carry on, so the display keeps updating
+	    report("display failed", ite.getCause());
+	}
+    }
+
+    private static void report(final String msg, final Throwable t) {
+	System.err.println("SamplingScheduler: " + msg + ": " + t);
+    }
+}
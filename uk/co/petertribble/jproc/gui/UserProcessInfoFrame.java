@@ -35,7 +35,6 @@ import javax.swing.JMenuBar;
 import javax.swing.JScrollPane;
 import uk.co.petertribble.jproc.api.JProc;
 import uk.co.petertribble.jproc.api.JProcessFilter;
-import uk.co.petertribble.jproc.api.JProcessSet;
 
 /**
  * A process view rather like top.
@@ -65,7 +64,8 @@ public final class UserProcessInfoFrame extends JFrame
 		+ jproc.getUserName(uid));
 	setLayout(new BorderLayout());
 
-	JProcessFilter jpf = new JProcessFilter(new JProcessSet(jproc));
+	JProcessFilter jpf =
+	    SamplingScheduler.getScheduler(jproc).newFilter();
 	jpf.setUser(uid);
 
 	JMenuBar jm = new JMenuBar();
@@ -30,10 +30,12 @@ import javax.swing.JLabel;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
 import javax.swing.JTable;
-import javax.swing.Timer;
+import javax.swing.RowSorter;
 import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableModel;
 import uk.co.petertribble.jproc.api.JProc;
 import uk.co.petertribble.jproc.api.JProcessFilter;
+import uk.co.petertribble.jproc.api.ProcessIndex;
 import uk.co.petertribble.jproc.util.PrettyFormat;
 
 /**
@@ -41,7 +43,7 @@ import uk.co.petertribble.jproc.util.PrettyFormat;
  *
  * @author Peter Tribble
  */
-public final class ZoneInfoTable extends JTable implements ActionListener {
+public final class ZoneInfoTable extends JTable implements SampleListener {
 
     private static final long serialVersionUID = 1L;
 
@@ -49,10 +51,14 @@ public final class ZoneInfoTable extends JTable implements ActionListener {
      * The JProc to query for data.
      */
     JProc jproc;
+    /**
+     * The scheduler driving updates of the display.
+     */
+    private final transient SamplingScheduler scheduler;
     /**
      * The underlying data model.
      */
-    ZoneInfoTableModel ftm;
+    GroupInfoTableModel ftm;
     /**
      * The update interval for the table.
      */
@@ -67,9 +73,9 @@ public final class ZoneInfoTable extends JTable implements ActionListener {
     private final DefaultTableCellRenderer timeColRenderer;
 
     /**
-     * A Timer to update the display in a loop.
+     * Whether the display is being updated in a loop.
      */
-    private Timer timer;
+    private boolean running;
 
     /**
      * Create a new ZoneInfoTable.
@@ -81,10 +87,11 @@ public final class ZoneInfoTable extends JTable implements ActionListener {
     public ZoneInfoTable(final JProc njproc, final JProcessFilter jpf,
 			 final int ninterval) {
 	jproc = njproc;
+	scheduler = SamplingScheduler.getScheduler(jproc);
 	interval = ninterval;
 	setLayout(new BorderLayout());
 
-	ftm = new ZoneInfoTableModel(jproc, jpf);
+	ftm = new GroupInfoTableModel(jproc, jpf, ProcessIndex.ZONE, "ZONE");
 	setModel(ftm);
 	setAutoCreateRowSorter(true);
 
@@ -120,7 +127,7 @@ public final class ZoneInfoTable extends JTable implements ActionListener {
 	addMouseListener((MouseListener) new PopupListener());
 
 	// set up for regular updates
-	ftm.updateJprocess();
+	scheduler.refresh(this);
 	startLoop();
     }
 
@@ -151,14 +158,22 @@ public final class ZoneInfoTable extends JTable implements ActionListener {
      * @param uid The user id to show.
      */
     public void setUser(final int uid) {
-	ftm.setUser(uid);
+	scheduler.refresh(this, () -> ftm.getFilter().setUser(uid));
     }
 
     /**
      * Unset user filtering, so that all users are shown.
      */
     public void unSetUser() {
-	ftm.unSetUser();
+	scheduler.refresh(this, ftm.getFilter()::unSetUser);
+    }
+
+    /*
+     * Keep the rows sorted as their values change.
+     */
+    @Override
+    public void setRowSorter(final RowSorter<? extends TableModel> sorter) {
+	super.setRowSorter(ProcessRows.sortOnUpdates(sorter));
     }
 
     /**
@@ -166,10 +181,8 @@ public final class ZoneInfoTable extends JTable implements ActionListener {
      */
     public void startLoop() {
 	if (interval > 0) {
-	    if (timer == null) {
-		timer = new Timer(interval * 1000, this);
-	    }
-	    timer.start();
+	    scheduler.register(this, interval);
+	    running = true;
 	}
     }
 
@@ -177,9 +190,8 @@ public final class ZoneInfoTable extends JTable implements ActionListener {
      * Stop the loop that updates the Jprocesses.
      */
     public void stopLoop() {
-	if (timer != null) {
-	    timer.stop();
-	}
+	scheduler.unregister(this);
+	running = false;
     }
 
     /**
@@ -194,15 +206,15 @@ public final class ZoneInfoTable extends JTable implements ActionListener {
 	    stopLoop();
 	} else {
 	    interval = ninterval;
-	    if (timer != null) {
-		timer.setDelay(interval * 1000);
+	    if (running) {
+		scheduler.register(this, interval);
 	    }
 	}
     }
 
     @Override
-    public void actionPerformed(final ActionEvent e) {
-	ftm.updateJprocess();
+    public Runnable collect() {
+	return ftm.collect();
     }
 
     /**
@@ -223,7 +235,7 @@ public final class ZoneInfoTable extends JTable implements ActionListener {
 	// show processes for zone in this row
 	private void showPopup(final MouseEvent e) {
 	    if (e.isPopupTrigger()) {
-		int uid = ftm.getZone(convertRowIndexToModel(
+		int uid = ftm.getId(convertRowIndexToModel(
 				rowAtPoint(e.getPoint())));
 		createPopupMenu(uid).show(e.getComponent(), e.getX(), e.getY());
 	    }
@@ -0,0 +1,375 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.parse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import uk.co.petertribble.jproc.api.BinaryWriter;
+import uk.co.petertribble.jproc.api.JLwp;
+import uk.co.petertribble.jproc.api.JProcInfo;
+import uk.co.petertribble.jproc.api.JProcLwpInfo;
+import uk.co.petertribble.jproc.api.JProcLwpStatus;
+import uk.co.petertribble.jproc.api.JProcStatus;
+import uk.co.petertribble.jproc.api.JProcUsage;
+import uk.co.petertribble.jproc.api.JProcess;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+
+/**
+ * Read in proc output in the binary form written by a BinaryWriter and
+ * parse it.
+ *
+ * <p>An empty input, which is what a server returns for a process that
+ * doesn't exist, gives null. Input that isn't a message of the expected
+ * type is an error.
+ *
+ * @author Peter Tribble
+ */
+public final class BinaryParser {
+
+    private BinaryParser() {
+    }
+
+    /**
+     * Return whether the given InputStream holds a binary message, rather
+     * than JSON, without consuming any of it.
+     *
+     * @param is an InputStream, which must support mark and reset
+     *
+     * @return true if the InputStream starts with the header of a binary
+     * message
+     *
+     * @throws IOException if the InputStream can't be read
+     */
+    public static boolean isBinary(final InputStream is) throws IOException {
+	is.mark(2);
+	try {
+	    return is.read() == 'J' && is.read() == 'P';
+	} finally {
+	    is.reset();
+	}
+    }
+
+    /**
+     * Parse the supplied InputStream and return the encoded Set of
+     * processes.
+     *
+     * @param is An InputStream holding a binary list of processes.
+     *
+     * @return The Set of JProcesses encoded by the InputStream, or null
+     * if it's empty.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static Set<JProcess> getProcesses(final InputStream is)
+		throws IOException {
+	List<JProcInfo> infos = getSnapshot(is);
+	if (infos == null) {
+	    return null;
+	}
+	Set<JProcess> nprocesses = new HashSet<>();
+	for (JProcInfo jpi : infos) {
+	    nprocesses.add(new JProcess(jpi.getpid(), jpi));
+	}
+	return nprocesses;
+    }
+
+    /**
+     * Parse the supplied InputStream and return the encoded List of
+     * JProcInfo.
+     *
+     * @param is An InputStream holding a binary list of processes.
+     *
+     * @return The List of JProcInfo encoded by the InputStream, or null
+     * if it's empty.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static List<JProcInfo> getSnapshot(final InputStream is)
+		throws IOException {
+	BinaryReader r = new BinaryReader(is);
+	if (!r.start(BinaryWriter.PROCESSES)) {
+	    return null;
+	}
+	int n = r.readCount();
+	List<JProcInfo> ninfos = new ArrayList<>(Math.min(n, 65536));
+	for (int i = 0; i < n; i++) {
+	    JProcInfo jpi = new JProcInfo();
+	    readInfo(r, jpi);
+	    ninfos.add(jpi);
+	}
+	return ninfos;
+    }
+
+    /**
+     * Parse the supplied InputStream into a ProcessSnapshot, without
+     * creating an object for each process. Any existing contents of the
+     * snapshot are discarded.
+     *
+     * @param is An InputStream holding a binary list of processes.
+     * @param snap The ProcessSnapshot to populate.
+     *
+     * @return true if the InputStream held a list of processes, false if
+     * it's empty.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static boolean getSnapshot(final InputStream is,
+				final ProcessSnapshot snap)
+		throws IOException {
+	snap.clear();
+	BinaryReader r = new BinaryReader(is);
+	if (!r.start(BinaryWriter.PROCESSES)) {
+	    return false;
+	}
+	JProcInfo jpi = new JProcInfo();
+	int n = r.readCount();
+	for (int i = 0; i < n; i++) {
+	    readInfo(r, jpi);
+	    snap.add(jpi);
+	}
+	return true;
+    }
+
+    /**
+     * Parse the supplied InputStream and return the encoded JProcInfo.
+     *
+     * @param is An InputStream holding a binary JProcInfo.
+     *
+     * @return The JProcInfo encoded by the InputStream, or null if it's
+     * empty.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static JProcInfo getInfo(final InputStream is)
+		throws IOException {
+	JProcInfo jpi = new JProcInfo();
+	return getInfo(is, jpi) ? jpi : null;
+    }
+
+    /**
+     * Parse the supplied InputStream into an existing JProcInfo.
+     *
+     * @param is An InputStream holding a binary JProcInfo.
+     * @param jpi The JProcInfo to populate.
+     *
+     * @return true if jpi was populated, false if the InputStream is
+     * empty, in which case jpi is unchanged.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static boolean getInfo(final InputStream is, final JProcInfo jpi)
+		throws IOException {
+	BinaryReader r = new BinaryReader(is);
+	if (!r.start(BinaryWriter.INFO)) {
+	    return false;
+	}
+	readInfo(r, jpi);
+	return true;
+    }
+
+    /*
+     * Read a JProcInfo, in the order written by JProcInfo.toBinary().
+     */
+    private static void readInfo(final BinaryReader r, final JProcInfo jpi)
+		throws IOException {
+	int pid = r.readPid();
+	String fname = r.readString();
+	int ppid = r.readInt();
+	int uid = r.readId();
+	int euid = r.readId();
+	int gid = r.readId();
+	int egid = r.readId();
+	int nlwp = r.readInt();
+	long size = r.readLong();
+	long rssize = r.readLong();
+	long stime = r.readLong();
+	long etime = r.readLong();
+	long ntime = r.readLong();
+	long ectime = r.readLong();
+	long nctime = r.readLong();
+	int taskid = r.readInt();
+	int projid = r.readId();
+	int zoneid = r.readId();
+	int contract = r.readInt();
+	jpi.insert(pid, ppid, uid, euid, gid, egid, nlwp, size, rssize,
+		stime, etime, ntime, ectime, nctime, taskid, projid, zoneid,
+		contract, fname);
+    }
+
+    /**
+     * Parse the supplied InputStream and return the encoded JProcUsage.
+     *
+     * @param is An InputStream holding a binary JProcUsage.
+     *
+     * @return The JProcUsage encoded by the InputStream, or null if it's
+     * empty.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static JProcUsage getUsage(final InputStream is)
+		throws IOException {
+	JProcUsage jpu = new JProcUsage();
+	return getUsage(is, jpu) ? jpu : null;
+    }
+
+    /**
+     * Parse the supplied InputStream into an existing JProcUsage.
+     *
+     * @param is An InputStream holding a binary JProcUsage.
+     * @param jpu The JProcUsage to populate.
+     *
+     * @return true if jpu was populated, false if the InputStream is
+     * empty, in which case jpu is unchanged.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static boolean getUsage(final InputStream is,
+				final JProcUsage jpu) throws IOException {
+	BinaryReader r = new BinaryReader(is);
+	if (!r.start(BinaryWriter.USAGE)) {
+	    return false;
+	}
+	// in the order written by JProcUsage.toBinary()
+	long[] v = new long[36];
+	for (int i = 0; i < v.length; i++) {
+	    v[i] = r.readLong();
+	}
+	jpu.insert((int) v[0], (int) v[1], v[2], v[3], v[4], v[5], v[6],
+		v[7], v[8], v[9], v[10], v[11], v[12], v[13], v[14], v[15],
+		v[16], v[17], v[18], v[19]);
+	jpu.insertMicrostates(v[20], v[21], v[22], v[23], v[24], v[25],
+		v[26], v[27], v[28], v[29], v[30], v[31], v[32], v[33],
+		v[34], v[35]);
+	return true;
+    }
+
+    /**
+     * Parse the supplied InputStream and return the encoded JProcStatus.
+     *
+     * @param is An InputStream holding a binary JProcStatus.
+     *
+     * @return The JProcStatus encoded by the InputStream, or null if it's
+     * empty.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static JProcStatus getStatus(final InputStream is)
+		throws IOException {
+	BinaryReader r = new BinaryReader(is);
+	if (!r.start(BinaryWriter.STATUS)) {
+	    return null;
+	}
+	// in the order written by JProcStatus.toBinary()
+	int pid = r.readPid();
+	long[] v = new long[8];
+	for (int i = 0; i < v.length; i++) {
+	    v[i] = r.readLong();
+	}
+	JProcStatus jps = new JProcStatus();
+	jps.insert(pid, v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7]);
+	return jps;
+    }
+
+    /**
+     * Parse the supplied InputStream and return the encoded Set of lwps.
+     *
+     * @param is An InputStream holding a binary list of lwps.
+     *
+     * @return The Set of JLwp encoded by the InputStream, or null if it's
+     * empty.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static Set<JLwp> getLwps(final InputStream is)
+		throws IOException {
+	BinaryReader r = new BinaryReader(is);
+	if (!r.start(BinaryWriter.LWPS)) {
+	    return null;
+	}
+	int n = r.readCount();
+	Set<JLwp> nlwps = new HashSet<>();
+	for (int i = 0; i < n; i++) {
+	    int pid = r.readPid();
+	    nlwps.add(new JLwp(pid, r.readInt()));
+	}
+	return nlwps;
+    }
+
+    /**
+     * Parse the supplied InputStream and return the encoded
+     * JProcLwpStatus.
+     *
+     * @param is An InputStream holding a binary JProcLwpStatus.
+     *
+     * @return The JProcLwpStatus encoded by the InputStream, or null if
+     * it's empty.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static JProcLwpStatus getLwpStatus(final InputStream is)
+		throws IOException {
+	BinaryReader r = new BinaryReader(is);
+	if (!r.start(BinaryWriter.LWP_STATUS)) {
+	    return null;
+	}
+	// in the order written by JProcLwpStatus.toBinary()
+	int pid = r.readPid();
+	int lwpid = r.readInt();
+	long utime = r.readLong();
+	long nutime = r.readLong();
+	long stime = r.readLong();
+	long nstime = r.readLong();
+	JProcLwpStatus jpls = new JProcLwpStatus();
+	jpls.insert(pid, lwpid, utime, nutime, stime, nstime);
+	return jpls;
+    }
+
+    /**
+     * Parse the supplied InputStream and return the encoded JProcLwpInfo.
+     *
+     * @param is An InputStream holding a binary JProcLwpInfo.
+     *
+     * @return The JProcLwpInfo encoded by the InputStream, or null if
+     * it's empty.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static JProcLwpInfo getLwpInfo(final InputStream is)
+		throws IOException {
+	BinaryReader r = new BinaryReader(is);
+	if (!r.start(BinaryWriter.LWP_INFO)) {
+	    return null;
+	}
+	// in the order written by JProcLwpInfo.toBinary()
+	int pid = r.readPid();
+	int lwpid = r.readInt();
+	long stime = r.readLong();
+	long etime = r.readLong();
+	long ntime = r.readLong();
+	JProcLwpInfo jpli = new JProcLwpInfo();
+	jpli.insert(pid, lwpid, stime, etime, ntime);
+	return jpli;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.parse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import uk.co.petertribble.jproc.api.BinaryWriter;
+
+/**
+ * Reads the primitive values of the binary form written by a
+ * BinaryWriter, keeping the dictionaries and previous pid needed to
+ * decode them. The input is read through a byte buffer.
+ *
+ * @author Peter Tribble
+ */
+final class BinaryReader {
+
+    private static final int BUFSIZE = 8192;
+
+    /*
+     * The longest string accepted, well beyond any process name, so that
+     * a corrupt length can't exhaust memory.
+     */
+    private static final int MAX_STRING = 65536;
+
+    private final InputStream is;
+    private final byte[] buf = new byte[BUFSIZE];
+    private int pos;
+    private int limit;
+    private long offset;
+
+    private final String[] strings = new String[BinaryWriter.MAX_DICTIONARY];
+    private int nstrings;
+    private final int[] ids = new int[BinaryWriter.MAX_DICTIONARY];
+    private int nids;
+    private int lastPid;
+
+    /**
+     * Create a BinaryReader.
+     *
+     * @param nis the InputStream to read from
+     */
+    BinaryReader(final InputStream nis) {
+	is = nis;
+    }
+
+    /**
+     * Read the header of a message, and check that it's the expected type.
+     *
+     * @param type the type of message expected
+     *
+     * @return false if the input is empty, true if it holds a message of
+     * the expected type
+     *
+     * @throws IOException if the input can't be read, or holds something
+     * else
+     */
+    boolean start(final int type) throws IOException {
+	if (!fill()) {
+	    return false;
+	}
+	if (readByte() != 'J' || readByte() != 'P') {
+	    throw error("not a binary message");
+	}
+	int version = readByte();
+	if (version != BinaryWriter.VERSION) {
+	    throw error("unsupported version " + version);
+	}
+	int t = readByte();
+	if (t != type) {
+	    throw error("message of type " + t + " but expected " + type);
+	}
+	nstrings = 0;
+	nids = 0;
+	lastPid = 0;
+	return true;
+    }
+
+    /**
+     * Read a count, which must fit in an int.
+     *
+     * @return the count
+     *
+     * @throws IOException if the input can't be read or is malformed
+     */
+    int readCount() throws IOException {
+	long n = readUnsigned();
+	if (n > Integer.MAX_VALUE) {
+	    throw error("count too large");
+	}
+	return (int) n;
+    }
+
+    /**
+     * Read a value written by BinaryWriter.writeUnsigned().
+     *
+     * @return the value
+     *
+     * @throws IOException if the input can't be read or is malformed
+     */
+    long readUnsigned() throws IOException {
+	long v = 0L;
+	for (int shift = 0; shift < 64; shift += 7) {
+	    int b = readByte();
+	    v |= (long) (b & 0x7f) << shift;
+	    if ((b & 0x80) == 0) {
+		return v;
+	    }
+	}
+	throw error("integer too long");
+    }
+
+    /**
+     * Read a value written by BinaryWriter.writeLong().
+     *
+     * @return the value
+     *
+     * @throws IOException if the input can't be read or is malformed
+     */
+    long readLong() throws IOException {
+	long v = readUnsigned();
+	return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Read a value written by BinaryWriter.writeLong() that must fit in
+     * an int.
+     *
+     * @return the value
+     *
+     * @throws IOException if the input can't be read or is malformed
+     */
+    int readInt() throws IOException {
+	return (int) readLong();
+    }
+
+    /**
+     * Read a pid written by BinaryWriter.writePid().
+     *
+     * @return the pid
+     *
+     * @throws IOException if the input can't be read or is malformed
+     */
+    int readPid() throws IOException {
+	lastPid += readInt();
+	return lastPid;
+    }
+
+    /**
+     * Read an id written by BinaryWriter.writeId().
+     *
+     * @return the id
+     *
+     * @throws IOException if the input can't be read or is malformed
+     */
+    int readId() throws IOException {
+	long index = readUnsigned();
+	if (index == 0) {
+	    int id = readInt();
+	    if (nids < ids.length) {
+		ids[nids++] = id;
+	    }
+	    return id;
+	}
+	if (index > nids) {
+	    throw error("id index " + index + " out of range");
+	}
+	return ids[(int) index - 1];
+    }
+
+    /**
+     * Read a string written by BinaryWriter.writeString().
+     *
+     * @return the string, which may be null
+     *
+     * @throws IOException if the input can't be read or is malformed
+     */
+    String readString() throws IOException {
+	long index = readUnsigned();
+	if (index == 1) {
+	    return null;
+	}
+	if (index > 1) {
+	    if (index - 2 >= nstrings) {
+		throw error("string index " + index + " out of range");
+	    }
+	    return strings[(int) index - 2];
+	}
+	long len = readUnsigned();
+	if (len > MAX_STRING) {
+	    throw error("string too long");
+	}
+	byte[] b = new byte[(int) len];
+	for (int i = 0; i < b.length; ) {
+	    if (pos == limit && !fill()) {
+		throw error("unexpected end of input");
+	    }
+	    int n = Math.min(b.length - i, limit - pos);
+	    System.arraycopy(buf, pos, b, i, n);
+	    pos += n;
+	    i += n;
+	}
+	String s = new String(b, StandardCharsets.UTF_8);
+	if (nstrings < strings.length) {
+	    strings[nstrings++] = s;
+	}
+	return s;
+    }
+
+    private int readByte() throws IOException {
+	if (pos == limit && !fill()) {
+	    throw error("unexpected end of input");
+	}
+	return buf[pos++] & 0xff;
+    }
+
+    /*
+     * Refill the buffer if it's empty, returning false at the end of the
+     * input.
+     */
+    private boolean fill() throws IOException {
+	if (pos < limit) {
+	    return true;
+	}
+	offset += limit;
+	pos = 0;
+	limit = 0;
+	int n = is.read(buf, 0, buf.length);
+	if (n <= 0) {
+	    return false;
+	}
+	limit = n;
+	return true;
+    }
+
+    private IOException error(final String msg) {
+	return new IOException("Malformed binary message at "
+			+ (offset + pos) + ": " + msg);
+    }
+}
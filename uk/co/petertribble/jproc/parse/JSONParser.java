@@ -17,14 +17,17 @@
  * Copyright 2026 Peter Tribble
  *
  */
-
 package uk.co.petertribble.jproc.parse;
 
-import com.github.openjson.JSONArray;
-import com.github.openjson.JSONException;
-import com.github.openjson.JSONObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import uk.co.petertribble.jproc.api.JLwp;
 import uk.co.petertribble.jproc.api.JProcInfo;
 import uk.co.petertribble.jproc.api.JProcLwpInfo;
@@ -32,14 +35,52 @@ import uk.co.petertribble.jproc.api.JProcLwpStatus;
 import uk.co.petertribble.jproc.api.JProcStatus;
 import uk.co.petertribble.jproc.api.JProcUsage;
 import uk.co.petertribble.jproc.api.JProcess;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+import uk.co.petertribble.jproc.api.TopN;
 
 /**
  * Read in JSON serialized proc output and parse it.
  *
+ * <p>The input is read with a streaming tokenizer rather than being built
+ * into a tree first. The members of each object are expected in the
+ * order the server writes them, so each is matched with one comparison,
+ * but are also found by name if they arrive in a different order. Members
+ * that aren't recognized are ignored.
+ *
  * @author Peter Tribble
  */
 public final class JSONParser {
 
+    /*
+     * The members of each type of object, in the order they're written.
+     * Fields in a Record are numbered by their position here.
+     */
+    private static final String[] INFO_NAMES = {"fname", "pid", "ppid",
+	"uid", "euid", "gid", "egid", "nlwp", "size", "rssize", "stime",
+	"etime", "ntime", "ectime", "nctime", "taskid", "projid", "zoneid",
+	"contract"};
+    private static final int FNAME = 0;
+    private static final String[] USAGE_NAMES = {"lwpid", "count", "rtime",
+	"nrtime", "utime", "nutime", "stime", "nstime", "minf", "majf",
+	"nswap", "inblk", "oublk", "msnd", "mrcv", "sigs", "vctx", "ictx",
+	"sysc", "ioch", "ttime", "nttime", "tftime", "ntftime", "dftime",
+	"ndftime", "kftime", "nkftime", "ltime", "nltime", "slptime",
+	"nslptime", "wtime", "nwtime", "stoptime", "nstoptime"};
+    // older servers don't send microstates, so they're optional
+    private static final int USAGE_REQUIRED = 20;
+    private static final String[] LWP_NAMES = {"pid", "lwpid"};
+    private static final String[] STATUS_NAMES = {"pid", "utime", "nutime",
+	"stime", "nstime", "cutime", "ncutime", "cstime", "ncstime"};
+    private static final String[] LWP_STATUS_NAMES = {"pid", "lwpid",
+	"utime", "nutime", "stime", "nstime"};
+    private static final String[] LWP_INFO_NAMES = {"pid", "lwpid",
+	"stime", "etime", "ntime"};
+    private static final String[] ENTRY_NAMES = {"value", "info"};
+    private static final String[] PAIR_NAMES = {"info", "usage"};
+    private static final String[] DELTA_NAMES = {"generation", "processes",
+	"removed", "added", "changed"};
+    private static final int PID = 1;
+
     private JSONParser() {
     }
 
@@ -49,55 +90,514 @@ public final class JSONParser {
      *
      * @param s A String in JSON format representing a Set of JProcesses.
      *
-     * @return The Set of JProcesses encoded by the supplied String.
+     * @return The Set of JProcesses encoded by the supplied String, or
+     * null if it isn't a complete and valid list of processes.
      */
     public static Set<JProcess> getProcesses(final String s) {
+	Set<JProcess> nprocesses = new HashSet<>();
 	try {
-	    return getProcesses(new JSONArray(s));
-	} catch (JSONException jse) {
+	    return readProcesses(new JSONReader(s), nprocesses)
+		? nprocesses : null;
+	} catch (IOException ioe) {
+	    // malformed or cut short, so not to be mistaken for a short list
 	    return null;
 	}
     }
 
-    private static Set<JProcess> getProcesses(final JSONArray ja) {
+    /**
+     * Parse the supplied InputStream (in JSON format) and return the
+     * encoded Set of processes.
+     *
+     * @param is An InputStream in JSON format, encoded as UTF-8,
+     * representing a Set of JProcesses.
+     *
+     * @return The Set of JProcesses encoded by the supplied InputStream,
+     * or null if it isn't a list of processes.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static Set<JProcess> getProcesses(final InputStream is)
+		throws IOException {
 	Set<JProcess> nprocesses = new HashSet<>();
-	try {
-	    for (int i = 0; i < ja.length(); i++) {
-		JSONObject jo = ja.getJSONObject(i);
-		JProcInfo jpi = getInfo(jo);
+	return readProcesses(new JSONReader(is), nprocesses)
+	    ? nprocesses : null;
+    }
+
+    private static boolean readProcesses(final JSONReader r,
+				final Set<JProcess> nprocesses)
+		throws IOException {
+	return readInfos(r, rec -> {
+		JProcInfo jpi = new JProcInfo();
+		fillInfo(rec, jpi);
 		nprocesses.add(new JProcess(jpi.getpid(), jpi));
+	    });
+    }
+
+    /**
+     * Parse the supplied String (in JSON format) and return the encoded
+     * List of JProcInfo.
+     *
+     * @param s A String in JSON format representing a Set of JProcesses.
+     *
+     * @return The List of JProcInfo encoded by the supplied String, or
+     * null if it isn't a complete and valid list of processes.
+     */
+    public static List<JProcInfo> getSnapshot(final String s) {
+	List<JProcInfo> ninfos = new ArrayList<>();
+	try {
+	    return readSnapshot(new JSONReader(s), ninfos) ? ninfos : null;
+	} catch (IOException ioe) {
+	    // malformed or cut short, so not to be mistaken for a short list
+	    return null;
+	}
+    }
+
+    /**
+     * Parse the supplied InputStream (in JSON format) and return the
+     * encoded List of JProcInfo.
+     *
+     * @param is An InputStream in JSON format, encoded as UTF-8,
+     * representing a Set of JProcesses.
+     *
+     * @return The List of JProcInfo encoded by the supplied InputStream,
+     * or null if it isn't a list of processes.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static List<JProcInfo> getSnapshot(final InputStream is)
+		throws IOException {
+	List<JProcInfo> ninfos = new ArrayList<>();
+	return readSnapshot(new JSONReader(is), ninfos) ? ninfos : null;
+    }
+
+    private static boolean readSnapshot(final JSONReader r,
+				final List<JProcInfo> ninfos)
+		throws IOException {
+	return readInfos(r, rec -> {
+		JProcInfo jpi = new JProcInfo();
+		fillInfo(rec, jpi);
+		ninfos.add(jpi);
+	    });
+    }
+
+    /**
+     * Parse the supplied InputStream (in JSON format) into a
+     * ProcessSnapshot, without creating an object for each process. Any
+     * existing contents of the snapshot are discarded.
+     *
+     * @param is An InputStream in JSON format, encoded as UTF-8,
+     * representing a Set of JProcesses.
+     * @param snap The ProcessSnapshot to populate.
+     *
+     * @return true if the InputStream held a list of processes.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static boolean getSnapshot(final InputStream is,
+				final ProcessSnapshot snap)
+		throws IOException {
+	snap.clear();
+	JProcInfo jpi = new JProcInfo();
+	return readInfos(new JSONReader(is), rec -> {
+		fillInfo(rec, jpi);
+		snap.add(jpi);
+	    });
+    }
+
+    /*
+     * Read an array of process information, passing each complete entry
+     * to the sink. The same Record is passed each time. Returns false if
+     * the input isn't an array.
+     */
+    private static boolean readInfos(final JSONReader r,
+				final Consumer<Record> sink)
+		throws IOException {
+	if (r.peek() != '[') {
+	    return false;
+	}
+	Record rec = new Record(INFO_NAMES, FNAME);
+	r.beginArray();
+	while (r.hasNext()) {
+	    if (r.peek() == 'n') {
+		// a process that doesn't exist
+		r.skipValue();
+		continue;
+	    }
+	    rec.read(r);
+	    if (rec.has(INFO_NAMES.length)) {
+		sink.accept(rec);
 	    }
-	} catch (JSONException jse) {
-	    // on error, return whatever we have
 	}
-	return nprocesses;
+	r.endArray();
+	return true;
+    }
+
+    /**
+     * Parse the supplied String (in JSON format), holding information on
+     * a list of processes, and add the processes to a ProcessSnapshot.
+     * Null entries, for processes that don't exist, are skipped.
+     *
+     * @param s A String in JSON format representing a list of JProcInfo.
+     * @param snap The ProcessSnapshot to add to.
+     *
+     * @return true if the String held a list of processes.
+     */
+    public static boolean getInfos(final String s,
+				final ProcessSnapshot snap) {
+	JProcInfo jpi = new JProcInfo();
+	try {
+	    return readInfos(new JSONReader(s), rec -> {
+		    fillInfo(rec, jpi);
+		    snap.add(jpi);
+		});
+	} catch (IOException ioe) {
+	    // on error, keep whatever we have
+	    return true;
+	}
+    }
+
+    /**
+     * Parse the supplied String (in JSON format), holding the usage of a
+     * list of processes, into existing JProcUsage objects. The entries
+     * are written to jpus[from] onwards, and found[i] is set to indicate
+     * whether jpus[i] was populated. A null entry is a process that
+     * doesn't exist.
+     *
+     * @param s A String in JSON format representing a list of JProcUsage.
+     * @param from the index of the first JProcUsage to populate
+     * @param to the index of the last JProcUsage to populate, exclusive
+     * @param jpus the JProcUsage objects to populate
+     * @param found set to true for each JProcUsage that was populated
+     *
+     * @return true if the String held a list of usage.
+     */
+    public static boolean getUsages(final String s, final int from,
+				final int to, final JProcUsage[] jpus,
+				final boolean[] found) {
+	JSONReader r = new JSONReader(s);
+	for (int i = from; i < to; i++) {
+	    found[i] = false;
+	}
+	try {
+	    if (r.peek() != '[') {
+		return false;
+	    }
+	    Record rec = new Record(USAGE_NAMES, -1);
+	    r.beginArray();
+	    for (int i = from; r.hasNext(); i++) {
+		if (i >= to || r.peek() == 'n') {
+		    r.skipValue();
+		    continue;
+		}
+		rec.read(r);
+		if (rec.has(USAGE_REQUIRED)) {
+		    fillUsage(rec, jpus[i]);
+		    found[i] = true;
+		}
+	    }
+	    r.endArray();
+	} catch (IOException ioe) {
+	    // on error, keep whatever we have
+	}
+	return true;
+    }
+
+    /**
+     * Parse the supplied String (in JSON format), holding a list of
+     * processes and their usage, into a ProcessSnapshot and a List of
+     * JProcUsage. The usage of the process in each row of the snapshot is
+     * written to the JProcUsage at the same position in the List, which is
+     * extended as necessary. Any existing contents of the snapshot are
+     * discarded.
+     *
+     * @param s A String in JSON format representing a list of processes
+     * with their usage.
+     * @param snap The ProcessSnapshot to populate.
+     * @param jpus The List of JProcUsage to populate.
+     *
+     * @return true if the String held a list of processes.
+     */
+    public static boolean getProcessesWithUsage(final String s,
+				final ProcessSnapshot snap,
+				final List<JProcUsage> jpus) {
+	try {
+	    return readProcessesWithUsage(new JSONReader(s), snap, jpus);
+	} catch (IOException ioe) {
+	    // on error, keep whatever we have
+	    return true;
+	}
+    }
+
+    /**
+     * Parse the supplied InputStream (in JSON format), holding a list of
+     * processes and their usage, into a ProcessSnapshot and a List of
+     * JProcUsage. The usage of the process in each row of the snapshot is
+     * written to the JProcUsage at the same position in the List, which is
+     * extended as necessary. Any existing contents of the snapshot are
+     * discarded.
+     *
+     * @param is An InputStream in JSON format, encoded as UTF-8,
+     * representing a list of processes with their usage.
+     * @param snap The ProcessSnapshot to populate.
+     * @param jpus The List of JProcUsage to populate.
+     *
+     * @return true if the InputStream held a list of processes.
+     *
+     * @throws IOException if the InputStream can't be read or is malformed
+     */
+    public static boolean getProcessesWithUsage(final InputStream is,
+				final ProcessSnapshot snap,
+				final List<JProcUsage> jpus)
+		throws IOException {
+	return readProcessesWithUsage(new JSONReader(is), snap, jpus);
+    }
+
+    private static boolean readProcessesWithUsage(final JSONReader r,
+				final ProcessSnapshot snap,
+				final List<JProcUsage> jpus)
+		throws IOException {
+	snap.clear();
+	if (r.peek() != '[') {
+	    return false;
+	}
+	Record irec = new Record(INFO_NAMES, FNAME);
+	Record urec = new Record(USAGE_NAMES, -1);
+	JProcInfo jpi = new JProcInfo();
+	r.beginArray();
+	while (r.hasNext()) {
+	    boolean hasInfo = false;
+	    boolean hasUsage = false;
+	    r.beginObject();
+	    int hint = 0;
+	    while (r.hasNext()) {
+		int f = r.nextName(PAIR_NAMES, hint);
+		if (f == 0) {
+		    irec.read(r);
+		    hasInfo = irec.has(INFO_NAMES.length);
+		} else if (f == 1) {
+		    urec.read(r);
+		    hasUsage = urec.has(USAGE_REQUIRED);
+		} else {
+		    r.skipValue();
+		}
+		hint = f + 1;
+	    }
+	    r.endObject();
+	    if (hasInfo && hasUsage) {
+		int row = snap.size();
+		if (jpus.size() <= row) {
+		    jpus.add(new JProcUsage());
+		}
+		fillInfo(irec, jpi);
+		snap.add(jpi);
+		fillUsage(urec, jpus.get(row));
+	    }
+	}
+	r.endArray();
+	return true;
+    }
+
+    /**
+     * Parse the supplied String (in JSON format), holding the changes to
+     * the list of processes since an earlier generation, and apply them
+     * to a Map of JProcInfo indexed by pid. A full list of processes
+     * replaces the existing contents of the Map.
+     *
+     * @param s A String in JSON format representing the changes to a list
+     * of processes.
+     * @param infos The Map of JProcInfo to update.
+     *
+     * @return the generation of the list of processes, or -1 if the
+     * String doesn't hold changes to a list of processes, in which case
+     * the Map is unchanged.
+     *
+     * @throws IOException if the String is malformed, in which case the
+     * Map may have been partially updated
+     */
+    public static long getProcessesSince(final String s,
+				final Map<Integer, JProcInfo> infos)
+		throws IOException {
+	return readProcessesSince(new JSONReader(s), infos);
+    }
+
+    /**
+     * Parse the supplied InputStream (in JSON format), holding the changes
+     * to the list of processes since an earlier generation, and apply them
+     * to a Map of JProcInfo indexed by pid. A full list of processes
+     * replaces the existing contents of the Map.
+     *
+     * @param is An InputStream in JSON format, encoded as UTF-8,
+     * representing the changes to a list of processes.
+     * @param infos The Map of JProcInfo to update.
+     *
+     * @return the generation of the list of processes, or -1 if the
+     * InputStream doesn't hold changes to a list of processes, in which
+     * case the Map is unchanged.
+     *
+     * @throws IOException if the InputStream can't be read or is
+     * malformed, in which case the Map may have been partially updated
+     */
+    public static long getProcessesSince(final InputStream is,
+				final Map<Integer, JProcInfo> infos)
+		throws IOException {
+	return readProcessesSince(new JSONReader(is), infos);
+    }
+
+    private static long readProcessesSince(final JSONReader r,
+				final Map<Integer, JProcInfo> infos)
+		throws IOException {
+	if (r.peek() != '{') {
+	    return -1L;
+	}
+	Consumer<Record> put = rec -> {
+		JProcInfo jpi = new JProcInfo();
+		fillInfo(rec, jpi);
+		infos.put(jpi.getpid(), jpi);
+	    };
+	long generation = -1L;
+	r.beginObject();
+	int hint = 0;
+	while (r.hasNext()) {
+	    int f = r.nextName(DELTA_NAMES, hint);
+	    if (f == 0) {
+		generation = r.nextLong();
+	    } else if (f == 1) {
+		infos.clear();
+		readInfos(r, put);
+	    } else if (f == 2) {
+		r.beginArray();
+		while (r.hasNext()) {
+		    infos.remove((int) r.nextLong());
+		}
+		r.endArray();
+	    } else if (f == 3) {
+		readInfos(r, put);
+	    } else if (f == 4) {
+		readChanges(r, infos);
+	    } else {
+		r.skipValue();
+	    }
+	    hint = f + 1;
+	}
+	r.endObject();
+	return generation;
+    }
+
+    /*
+     * Apply changes to existing processes. Each entry holds the pid and
+     * just the members that have changed; the others keep their values.
+     */
+    private static void readChanges(final JSONReader r,
+				final Map<Integer, JProcInfo> infos)
+		throws IOException {
+	Record rec = new Record(INFO_NAMES, FNAME);
+	r.beginArray();
+	while (r.hasNext()) {
+	    rec.read(r);
+	    JProcInfo jpi = rec.isSet(PID) ? infos.get(rec.getInt(PID)) : null;
+	    if (jpi == null) {
+		continue;
+	    }
+	    long[] old = {0L, jpi.getpid(), jpi.getppid(), jpi.getuid(),
+		jpi.geteuid(), jpi.getgid(), jpi.getegid(), jpi.getnlwp(),
+		jpi.getsize(), jpi.getrssize(), jpi.getstime(),
+		jpi.getetime(), jpi.getntime(), jpi.getectime(),
+		jpi.getnctime(), jpi.gettaskid(), jpi.getprojid(),
+		jpi.getzoneid(), jpi.getcontract()};
+	    for (int f = 0; f < old.length; f++) {
+		if (f != FNAME && !rec.isSet(f)) {
+		    rec.values[f] = old[f];
+		}
+	    }
+	    if (!rec.isSet(FNAME)) {
+		rec.text = jpi.getfname();
+	    }
+	    fillInfo(rec, jpi);
+	}
+	r.endArray();
     }
 
     /**
      * Parse the supplied String (in JSON format) and return the encoded
-     * Set of lwps.
+     * result of a TopN query.
      *
-     * @param s A String in JSON format representing a Set of lwps.
+     * @param s A String in JSON format representing a List of TopN
+     * entries.
      *
-     * @return The Set of JLwp encoded by the supplied String.
+     * @return The List of TopN entries encoded by the supplied String,
+     * or null if it isn't a complete and valid list of entries.
      */
-    public static Set<JLwp> getLwps(final String s) {
+    public static List<TopN.Entry> getTopN(final String s) {
+	JSONReader r = new JSONReader(s);
+	List<TopN.Entry> nentries = new ArrayList<>();
 	try {
-	    return getLwps(new JSONArray(s));
-	} catch (JSONException jse) {
+	    if (r.peek() != '[') {
+		return null;
+	    }
+	    Record rec = new Record(INFO_NAMES, FNAME);
+	    r.beginArray();
+	    while (r.hasNext()) {
+		double value = 0.0;
+		JProcInfo jpi = null;
+		r.beginObject();
+		int hint = 0;
+		while (r.hasNext()) {
+		    int f = r.nextName(ENTRY_NAMES, hint);
+		    if (f == 0) {
+			value = r.nextDouble();
+		    } else if (f == 1) {
+			rec.read(r);
+			if (rec.has(INFO_NAMES.length)) {
+			    jpi = new JProcInfo();
+			    fillInfo(rec, jpi);
+			}
+		    } else {
+			r.skipValue();
+		    }
+		    hint = f + 1;
+		}
+		r.endObject();
+		if (jpi == null) {
+		    return null;
+		}
+		nentries.add(new TopN.Entry(jpi, value));
+	    }
+	    r.endArray();
+	} catch (IOException ioe) {
+	    // malformed or cut short, so not to be mistaken for a short list
 	    return null;
 	}
+	return nentries;
     }
 
-    private static Set<JLwp> getLwps(final JSONArray ja) {
+    /**
+     * Parse the supplied String (in JSON format) and return the encoded
+     * Set of lwps.
+     *
+     * @param s A String in JSON format representing a Set of lwps.
+     *
+     * @return The Set of JLwp encoded by the supplied String, or null if
+     * it isn't a complete and valid list of lwps.
+     */
+    public static Set<JLwp> getLwps(final String s) {
+	JSONReader r = new JSONReader(s);
 	Set<JLwp> nlwps = new HashSet<>();
 	try {
-	    for (int i = 0; i < ja.length(); i++) {
-		JSONObject jo = ja.getJSONObject(i);
-		nlwps.add(new JLwp(jo.getInt("pid"), jo.getInt("lwpid")));
+	    if (r.peek() != '[') {
+		return null;
 	    }
-	} catch (JSONException jse) {
-	    // on error, return whatever we have
+	    Record rec = new Record(LWP_NAMES, -1);
+	    r.beginArray();
+	    while (r.hasNext()) {
+		rec.read(r);
+		if (rec.has(LWP_NAMES.length)) {
+		    nlwps.add(new JLwp(rec.getInt(0), rec.getInt(1)));
+		}
+	    }
+	    r.endArray();
+	} catch (IOException ioe) {
+	    // malformed or cut short, so not to be mistaken for a short list
+	    return null;
 	}
 	return nlwps;
     }
@@ -111,33 +611,14 @@ public final class JSONParser {
      * @return The JProcStatus encoded by the supplied String.
      */
     public static JProcStatus getStatus(final String s) {
-	try {
-	    return getStatus(new JSONObject(s));
-	} catch (JSONException jse) {
-	    try {
-		/*
-		 * It may be wrapped in a single-element array. For example,
-		 * node returns it this way.
-		 */
-		JSONArray ja = new JSONArray(s);
-		return getStatus(ja.getJSONObject(0));
-	    } catch (JSONException jse2) {
-		return null;
-	    }
-	}
-    }
-
-    private static JProcStatus getStatus(final JSONObject jo) {
-	JProcStatus jps = new JProcStatus();
-	try {
-	    jps.insert(jo.getInt("lwpid"),
-			jo.getLong("utime"), jo.getLong("nutime"),
-			jo.getLong("stime"), jo.getLong("nstime"),
-			jo.getLong("cutime"), jo.getLong("ncutime"),
-			jo.getLong("cstime"), jo.getLong("ncstime"));
-	} catch (JSONException jse) {
+	Record rec = readOne(s, STATUS_NAMES, -1, STATUS_NAMES.length);
+	if (rec == null) {
 	    return null;
 	}
+	JProcStatus jps = new JProcStatus();
+	jps.insert(rec.getInt(0), rec.values[1], rec.values[2],
+		rec.values[3], rec.values[4], rec.values[5], rec.values[6],
+		rec.values[7], rec.values[8]);
 	return jps;
     }
 
@@ -150,40 +631,37 @@ public final class JSONParser {
      * @return The JProcUsage encoded by the supplied String.
      */
     public static JProcUsage getUsage(final String s) {
-	try {
-	    return getUsage(new JSONObject(s));
-	} catch (JSONException jse) {
-	    try {
-		/*
-		 * It may be wrapped in a single-element array. For example,
-		 * node returns it this way.
-		 */
-		JSONArray ja = new JSONArray(s);
-		return getUsage(ja.getJSONObject(0));
-	    } catch (JSONException jse2) {
-		return null;
-	    }
-	}
+	JProcUsage jpu = new JProcUsage();
+	return getUsage(s, jpu) ? jpu : null;
     }
 
-    private static JProcUsage getUsage(final JSONObject jo) {
-	JProcUsage jpu = new JProcUsage();
-	try {
-	    jpu.insert(jo.getInt("lwpid"), jo.getInt("count"),
-			jo.getLong("rtime"), jo.getLong("nrtime"),
-			jo.getLong("utime"), jo.getLong("nutime"),
-			jo.getLong("stime"), jo.getLong("nstime"),
-			jo.getLong("minf"), jo.getLong("majf"),
-			jo.getLong("nswap"), jo.getLong("inblk"),
-			jo.getLong("oublk"),
-			jo.getLong("msnd"), jo.getLong("mrcv"),
-			jo.getLong("sigs"),
-			jo.getLong("vctx"), jo.getLong("ictx"),
-			jo.getLong("sysc"), jo.getLong("ioch"));
-	} catch (JSONException jse) {
-	    return null;
+    /**
+     * Parse the supplied String (in JSON format) into an existing
+     * JProcUsage.
+     *
+     * @param s A String in JSON format representing a JProcUsage.
+     * @param jpu The JProcUsage to populate.
+     *
+     * @return true if jpu was populated, false if the String doesn't hold
+     * a JProcUsage, in which case jpu is unchanged.
+     */
+    public static boolean getUsage(final String s, final JProcUsage jpu) {
+	Record rec = readOne(s, USAGE_NAMES, -1, USAGE_REQUIRED);
+	if (rec == null) {
+	    return false;
 	}
-	return jpu;
+	fillUsage(rec, jpu);
+	return true;
+    }
+
+    private static void fillUsage(final Record rec, final JProcUsage jpu) {
+	long[] v = rec.values;
+	jpu.insert(rec.getInt(0), rec.getInt(1), v[2], v[3], v[4], v[5],
+		v[6], v[7], v[8], v[9], v[10], v[11], v[12], v[13], v[14],
+		v[15], v[16], v[17], v[18], v[19]);
+	jpu.insertMicrostates(v[20], v[21], v[22], v[23], v[24], v[25],
+		v[26], v[27], v[28], v[29], v[30], v[31], v[32], v[33],
+		v[34], v[35]);
     }
 
     /**
@@ -195,40 +673,36 @@ public final class JSONParser {
      * @return The JProcInfo encoded by the supplied String.
      */
     public static JProcInfo getInfo(final String s) {
-	try {
-	    return getInfo(new JSONObject(s));
-	} catch (JSONException jse) {
-	    try {
-		/*
-		 * It may be wrapped in a single-element array. For example,
-		 * node returns it this way.
-		 */
-		JSONArray ja = new JSONArray(s);
-		return getInfo(ja.getJSONObject(0));
-	    } catch (JSONException jse2) {
-		return null;
-	    }
-	}
+	JProcInfo jpi = new JProcInfo();
+	return getInfo(s, jpi) ? jpi : null;
     }
 
-    private static JProcInfo getInfo(final JSONObject jo) {
-	JProcInfo jpi = new JProcInfo();
-	try {
-	    jpi.insert(jo.getInt("pid"), jo.getInt("ppid"),
-			jo.getInt("uid"), jo.getInt("euid"),
-			jo.getInt("gid"), jo.getInt("egid"),
-			jo.getInt("nlwp"),
-			jo.getLong("size"), jo.getLong("rssize"),
-			jo.getLong("stime"),
-			jo.getLong("etime"), jo.getLong("ntime"),
-			jo.getLong("ectime"), jo.getLong("nctime"),
-			jo.getInt("taskid"), jo.getInt("projid"),
-			jo.getInt("zoneid"), jo.getInt("contract"),
-			jo.getString("fname"));
-	} catch (JSONException jse) {
-	    return null;
+    /**
+     * Parse the supplied String (in JSON format) into an existing
+     * JProcInfo.
+     *
+     * @param s A String in JSON format representing a JProcInfo.
+     * @param jpi The JProcInfo to populate.
+     *
+     * @return true if jpi was populated, false if the String doesn't hold
+     * a JProcInfo, in which case jpi is unchanged.
+     */
+    public static boolean getInfo(final String s, final JProcInfo jpi) {
+	Record rec = readOne(s, INFO_NAMES, FNAME, INFO_NAMES.length);
+	if (rec == null) {
+	    return false;
 	}
-	return jpi;
+	fillInfo(rec, jpi);
+	return true;
+    }
+
+    private static void fillInfo(final Record rec, final JProcInfo jpi) {
+	long[] v = rec.values;
+	jpi.insert(rec.getInt(1), rec.getInt(2), rec.getInt(3),
+		rec.getInt(4), rec.getInt(5), rec.getInt(6), rec.getInt(7),
+		v[8], v[9], v[10], v[11], v[12], v[13], v[14],
+		rec.getInt(15), rec.getInt(16), rec.getInt(17),
+		rec.getInt(18), rec.text);
     }
 
     /**
@@ -240,31 +714,14 @@ public final class JSONParser {
      * @return The JProcLwpStatus encoded by the supplied String.
      */
     public static JProcLwpStatus getLwpStatus(final String s) {
-	try {
-	    return getLwpStatus(new JSONObject(s));
-	} catch (JSONException jse) {
-	    try {
-		/*
-		 * It may be wrapped in a single-element array. For example,
-		 * node returns it this way.
-		 */
-		JSONArray ja = new JSONArray(s);
-		return getLwpStatus(ja.getJSONObject(0));
-	    } catch (JSONException jse2) {
-		return null;
-	    }
-	}
-    }
-
-    private static JProcLwpStatus getLwpStatus(final JSONObject jo) {
-	JProcLwpStatus jpls = new JProcLwpStatus();
-	try {
-	    jpls.insert(jo.getInt("pid"), jo.getInt("lwpid"),
-			jo.getLong("utime"), jo.getLong("nutime"),
-			jo.getLong("stime"), jo.getLong("nstime"));
-	} catch (JSONException jse) {
+	Record rec = readOne(s, LWP_STATUS_NAMES, -1,
+			LWP_STATUS_NAMES.length);
+	if (rec == null) {
 	    return null;
 	}
+	JProcLwpStatus jpls = new JProcLwpStatus();
+	jpls.insert(rec.getInt(0), rec.getInt(1), rec.values[2],
+		rec.values[3], rec.values[4], rec.values[5]);
 	return jpls;
     }
 
@@ -277,31 +734,97 @@ public final class JSONParser {
      * @return The JProcLwpInfo encoded by the supplied String.
      */
     public static JProcLwpInfo getLwpInfo(final String s) {
+	Record rec = readOne(s, LWP_INFO_NAMES, -1, LWP_INFO_NAMES.length);
+	if (rec == null) {
+	    return null;
+	}
+	JProcLwpInfo jpli = new JProcLwpInfo();
+	jpli.insert(rec.getInt(0), rec.getInt(1), rec.values[2],
+		rec.values[3], rec.values[4]);
+	return jpli;
+    }
+
+    /*
+     * Read a single object. It may be wrapped in a single-element array;
+     * for example, node returns it this way. Returns null if there's no
+     * object, or it lacks any of the first nrequired members.
+     */
+    private static Record readOne(final String s, final String[] names,
+				final int textField, final int nrequired) {
+	JSONReader r = new JSONReader(s);
+	Record rec = new Record(names, textField);
 	try {
-	    return getLwpInfo(new JSONObject(s));
-	} catch (JSONException jse) {
-	    try {
-		/*
-		 * It may be wrapped in a single-element array. For example,
-		 * node returns it this way.
-		 */
-		JSONArray ja = new JSONArray(s);
-		return getLwpInfo(ja.getJSONObject(0));
-	    } catch (JSONException jse2) {
+	    if (r.peek() == '[') {
+		r.beginArray();
+	    }
+	    if (r.peek() != '{') {
 		return null;
 	    }
+	    rec.read(r);
+	} catch (IOException ioe) {
+	    return null;
 	}
+	return rec.has(nrequired) ? rec : null;
     }
 
-    private static JProcLwpInfo getLwpInfo(final JSONObject jo) {
-	JProcLwpInfo jpli = new JProcLwpInfo();
-	try {
-	    jpli.insert(jo.getInt("pid"), jo.getInt("lwpid"),
-			jo.getLong("stime"), jo.getLong("etime"),
-			jo.getLong("ntime"));
-	} catch (JSONException jse) {
-	    return null;
+    /*
+     * The members of one object. The numeric members are held in values,
+     * and the one member that is a String, if any, in text. Members that
+     * aren't present are 0, or null for the String.
+     */
+    private static final class Record {
+	private final String[] names;
+	private final int textField;
+	private final long[] values;
+	private String text;
+	private long found;
+
+	private Record(final String[] nnames, final int ntextField) {
+	    names = nnames;
+	    textField = ntextField;
+	    values = new long[names.length];
+	}
+
+	private void read(final JSONReader r) throws IOException {
+	    found = 0L;
+	    text = null;
+	    Arrays.fill(values, 0L);
+	    r.beginObject();
+	    int hint = 0;
+	    while (r.hasNext()) {
+		int f = r.nextName(names, hint);
+		if (f < 0) {
+		    r.skipValue();
+		    continue;
+		}
+		if (f == textField) {
+		    text = r.nextString();
+		} else {
+		    values[f] = r.nextLong();
+		}
+		found |= 1L << f;
+		hint = f + 1;
+	    }
+	    r.endObject();
+	}
+
+	/*
+	 * Whether all of the first n members were present.
+	 */
+	private boolean has(final int n) {
+	    long mask = (n == 64) ? -1L : (1L << n) - 1;
+	    return (found & mask) == mask;
+	}
+
+	/*
+	 * Whether the given member was present.
+	 */
+	private boolean isSet(final int f) {
+	    return (found & (1L << f)) != 0;
+	}
+
+	private int getInt(final int f) {
+	    return (int) values[f];
 	}
-	return jpli;
     }
 }
@@ -0,0 +1,492 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.parse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A pull parser for JSON, reading a String or a UTF-8 InputStream one
+ * token at a time, so that a response can be decoded as it arrives
+ * without first building a tree of the whole document.
+ *
+ * <p>It is written for the responses of a JProc server, so is lenient
+ * about separators: hasNext() treats a comma before the next element or
+ * member as optional. Member names are matched against an array of
+ * expected names without creating Strings, and String values can be
+ * interned in a small cache, as process names repeat a great deal.
+ *
+ * @author Peter Tribble
+ */
+final class JSONReader {
+
+    private static final int BUFSIZE = 8192;
+    private static final int CACHESIZE = 1024;
+    private static final int NONE = -2;
+    private static final int EOF = -1;
+
+    private final String str;
+    private int spos;
+    private final InputStream in;
+    private final byte[] bbuf;
+    private int bpos;
+    private int blen;
+    private long offset;
+
+    /*
+     * One char of lookahead, and the second half of a surrogate pair
+     * decoded from a 4-byte UTF-8 sequence.
+     */
+    private int peeked = NONE;
+    private int pending = NONE;
+
+    /*
+     * The text of the last string read, and a direct-mapped cache of
+     * String values.
+     */
+    private char[] text = new char[64];
+    private int tlen;
+    private final String[] cache = new String[CACHESIZE];
+
+    /**
+     * Create a JSONReader for a String.
+     *
+     * @param s the JSON to read
+     */
+    JSONReader(final String s) {
+	str = s;
+	in = null;
+	bbuf = null;
+    }
+
+    /**
+     * Create a JSONReader for an InputStream, which must be UTF-8.
+     *
+     * @param nin the InputStream to read
+     */
+    JSONReader(final InputStream nin) {
+	str = null;
+	in = nin;
+	bbuf = new byte[BUFSIZE];
+    }
+
+    /**
+     * Return the next significant char without consuming it.
+     *
+     * @return the next char other than whitespace, or -1 at the end of
+     * the input
+     *
+     * @throws IOException if the input can't be read
+     */
+    int peek() throws IOException {
+	int c = look();
+	while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+	    peeked = NONE;
+	    c = look();
+	}
+	return c;
+    }
+
+    /**
+     * Consume the start of an array.
+     *
+     * @throws IOException if the input can't be read or isn't an array
+     */
+    void beginArray() throws IOException {
+	expect('[');
+    }
+
+    /**
+     * Consume the end of an array.
+     *
+     * @throws IOException if the input can't be read or the array hasn't
+     * ended
+     */
+    void endArray() throws IOException {
+	expect(']');
+    }
+
+    /**
+     * Consume the start of an object.
+     *
+     * @throws IOException if the input can't be read or isn't an object
+     */
+    void beginObject() throws IOException {
+	expect('{');
+    }
+
+    /**
+     * Consume the end of an object.
+     *
+     * @throws IOException if the input can't be read or the object hasn't
+     * ended
+     */
+    void endObject() throws IOException {
+	expect('}');
+    }
+
+    /**
+     * Return whether there is another element of the current array, or
+     * member of the current object, consuming any comma before it.
+     *
+     * @return true if there is another element or member
+     *
+     * @throws IOException if the input can't be read
+     */
+    boolean hasNext() throws IOException {
+	int c = peek();
+	if (c == ',') {
+	    peeked = NONE;
+	    c = peek();
+	}
+	return c != ']' && c != '}' && c != EOF;
+    }
+
+    /**
+     * Read the name of an object member, and its colon, and find it in an
+     * array of names. The name at the hint is tried first, so if members
+     * are read in the expected order each is found with one comparison.
+     *
+     * @param names the names to look for
+     * @param hint the index of the name expected
+     *
+     * @return the index of the name in names, or -1 if it isn't there
+     *
+     * @throws IOException if the input can't be read or isn't a name
+     */
+    int nextName(final String[] names, final int hint) throws IOException {
+	readString();
+	expect(':');
+	if (hint < names.length && textIs(names[hint])) {
+	    return hint;
+	}
+	for (int i = 0; i < names.length; i++) {
+	    if (textIs(names[i])) {
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Read a String value, which may be null. Strings seen before by this
+     * reader are usually returned as the same String.
+     *
+     * @return the String, or null
+     *
+     * @throws IOException if the input can't be read or isn't a string
+     */
+    String nextString() throws IOException {
+	if (peek() == 'n') {
+	    literal("null");
+	    return null;
+	}
+	readString();
+	int h = 0;
+	for (int i = 0; i < tlen; i++) {
+	    h = 31 * h + text[i];
+	}
+	int slot = (h ^ (h >>> 16)) & (CACHESIZE - 1);
+	String s = cache[slot];
+	if (s == null || !textIs(s)) {
+	    s = new String(text, 0, tlen);
+	    cache[slot] = s;
+	}
+	return s;
+    }
+
+    /**
+     * Read a numeric value as a long. A value with a fraction or exponent
+     * is truncated, and null is read as 0.
+     *
+     * @return the value
+     *
+     * @throws IOException if the input can't be read or isn't a number
+     */
+    long nextLong() throws IOException {
+	int c = peek();
+	if (c == 'n') {
+	    literal("null");
+	    return 0L;
+	}
+	boolean negative = c == '-';
+	if (negative) {
+	    peeked = NONE;
+	    c = look();
+	}
+	if (c < '0' || c > '9') {
+	    throw error("number expected");
+	}
+	long v = 0;
+	while (c >= '0' && c <= '9') {
+	    v = 10 * v + (c - '0');
+	    peeked = NONE;
+	    c = look();
+	}
+	if (c == '.' || c == 'e' || c == 'E') {
+	    // rare, so just finish it as a double
+	    readNumber(negative ? "-" + v : Long.toString(v));
+	    return (long) Double.parseDouble(new String(text, 0, tlen));
+	}
+	return negative ? -v : v;
+    }
+
+    /**
+     * Read a numeric value as a double. Null is read as NaN.
+     *
+     * @return the value
+     *
+     * @throws IOException if the input can't be read or isn't a number
+     */
+    double nextDouble() throws IOException {
+	if (peek() == 'n') {
+	    literal("null");
+	    return Double.NaN;
+	}
+	readNumber("");
+	try {
+	    return Double.parseDouble(new String(text, 0, tlen));
+	} catch (NumberFormatException nfe) {
+	    throw error("number expected");
+	}
+    }
+
+    /**
+     * Skip over the next value, whatever it is.
+     *
+     * @throws IOException if the input can't be read or isn't valid JSON
+     */
+    void skipValue() throws IOException {
+	int c = peek();
+	if (c == '[') {
+	    beginArray();
+	    while (hasNext()) {
+		skipValue();
+	    }
+	    endArray();
+	} else if (c == '{') {
+	    beginObject();
+	    while (hasNext()) {
+		readString();
+		expect(':');
+		skipValue();
+	    }
+	    endObject();
+	} else if (c == '"') {
+	    readString();
+	} else if (c == 't') {
+	    literal("true");
+	} else if (c == 'f') {
+	    literal("false");
+	} else if (c == 'n') {
+	    literal("null");
+	} else {
+	    readNumber("");
+	}
+    }
+
+    private boolean textIs(final String s) {
+	if (s.length() != tlen) {
+	    return false;
+	}
+	for (int i = 0; i < tlen; i++) {
+	    if (text[i] != s.charAt(i)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    private void expect(final char e) throws IOException {
+	if (peek() != e) {
+	    throw error("'" + e + "' expected");
+	}
+	peeked = NONE;
+    }
+
+    private void literal(final String s) throws IOException {
+	peek();
+	for (int i = 0; i < s.length(); i++) {
+	    if (look() != s.charAt(i)) {
+		throw error(s + " expected");
+	    }
+	    peeked = NONE;
+	}
+    }
+
+    /*
+     * Read the characters of a number into the text buffer, after the
+     * given prefix.
+     */
+    private void readNumber(final String prefix) throws IOException {
+	tlen = 0;
+	for (int i = 0; i < prefix.length(); i++) {
+	    append(prefix.charAt(i));
+	}
+	int c = (tlen == 0) ? peek() : look();
+	while ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.'
+		|| c == 'e' || c == 'E') {
+	    append((char) c);
+	    peeked = NONE;
+	    c = look();
+	}
+	if (tlen == 0) {
+	    throw error("value expected");
+	}
+    }
+
+    /*
+     * Read a quoted string into the text buffer, decoding escapes.
+     */
+    private void readString() throws IOException {
+	expect('"');
+	tlen = 0;
+	while (true) {
+	    int c = next();
+	    if (c == '"') {
+		return;
+	    } else if (c == '\\') {
+		c = next();
+		switch (c) {
+		    case 'b':
+			c = '\b';
+			break;
+		    case 'f':
+			c = '\f';
+			break;
+		    case 'n':
+			c = '\n';
+			break;
+		    case 'r':
+			c = '\r';
+			break;
+		    case 't':
+			c = '\t';
+			break;
+		    case 'u':
+			c = 0;
+			for (int i = 0; i < 4; i++) {
+			    int d = Character.digit(next(), 16);
+			    if (d < 0) {
+				throw error("bad unicode escape");
+			    }
+			    c = (c << 4) | d;
+			}
+			break;
+		    case '"':
+		    case '\\':
+		    case '/':
+			break;
+		    default:
+			throw error("bad escape");
+		}
+	    } else if (c == EOF) {
+		throw error("unterminated string");
+	    }
+	    append((char) c);
+	}
+    }
+
+    private void append(final char c) {
+	if (tlen == text.length) {
+	    char[] ntext = new char[2 * tlen];
+	    System.arraycopy(text, 0, ntext, 0, tlen);
+	    text = ntext;
+	}
+	text[tlen++] = c;
+    }
+
+    private int next() throws IOException {
+	int c = look();
+	peeked = NONE;
+	return c;
+    }
+
+    /*
+     * Return the next char, including whitespace, without consuming it.
+     */
+    private int look() throws IOException {
+	if (peeked == NONE) {
+	    peeked = (str == null) ? decode() : (spos < str.length())
+		? str.charAt(spos++) : EOF;
+	}
+	return peeked;
+    }
+
+    /*
+     * Decode the next char from the UTF-8 input.
+     */
+    private int decode() throws IOException {
+	if (pending != NONE) {
+	    int c = pending;
+	    pending = NONE;
+	    return c;
+	}
+	int b = readByte();
+	if (b < 0x80) {
+	    return b;
+	}
+	int n;
+	int cp;
+	if (b >= 0xf0) {
+	    n = 3;
+	    cp = b & 0x07;
+	} else if (b >= 0xe0) {
+	    n = 2;
+	    cp = b & 0x0f;
+	} else if (b >= 0xc0) {
+	    n = 1;
+	    cp = b & 0x1f;
+	} else {
+	    return '?';
+	}
+	for (int i = 0; i < n; i++) {
+	    int cb = readByte();
+	    if (cb < 0) {
+		throw error("truncated character");
+	    }
+	    cp = (cp << 6) | (cb & 0x3f);
+	}
+	if (cp >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+	    pending = Character.lowSurrogate(cp);
+	    return Character.highSurrogate(cp);
+	}
+	return cp;
+    }
+
+    private int readByte() throws IOException {
+	if (bpos == blen) {
+	    offset += blen;
+	    blen = in.read(bbuf, 0, bbuf.length);
+	    bpos = 0;
+	    if (blen <= 0) {
+		blen = 0;
+		return EOF;
+	    }
+	}
+	return bbuf[bpos++] & 0xff;
+    }
+
+    private IOException error(final String msg) {
+	long where = (str == null) ? offset + bpos : spos;
+	return new IOException("Malformed JSON at " + where + ": " + msg);
+    }
+}
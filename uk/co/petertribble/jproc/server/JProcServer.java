@@ -20,6 +20,13 @@
 
 package uk.co.petertribble.jproc.server;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import uk.co.petertribble.jproc.api.JLwp;
 import uk.co.petertribble.jproc.api.JProc;
@@ -28,7 +35,9 @@ import uk.co.petertribble.jproc.api.JProcLwpInfo;
 import uk.co.petertribble.jproc.api.JProcLwpStatus;
 import uk.co.petertribble.jproc.api.JProcStatus;
 import uk.co.petertribble.jproc.api.JProcUsage;
-import uk.co.petertribble.jproc.api.JProcess;
+import uk.co.petertribble.jproc.api.JSONWriter;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+import uk.co.petertribble.jproc.api.TopN;
 
 /**
  * This is the core of the JProc server.
@@ -43,6 +52,47 @@ public final class JProcServer {
 
     private static final JProc JPROC = new JProc();
 
+    /*
+     * The initial size of the buffer for the list of processes, enough
+     * for a few hundred.
+     */
+    private static final int BUFSIZE = 65536;
+
+    /*
+     * The most processes a TopN query may ask for.
+     */
+    private static final int MAX_TOPN = 1024;
+
+    /*
+     * The most processes that may be queried in one batch.
+     */
+    private static final int MAX_BATCH = 4096;
+
+    /*
+     * A rate needs earlier samples to compare against, so one query for
+     * each rate is kept and shared by all clients. It keeps its last
+     * RATE_DEPTH evaluations, so that each client can be given the rate
+     * over roughly the interval since its own previous query. It asks for
+     * the most processes allowed, and each client is sent as many as it
+     * asked for.
+     */
+    private static final Map<Integer, TopN> RATES = new HashMap<>();
+    private static final int RATE_DEPTH = 16;
+
+    /*
+     * Recent snapshots, so that clients can be sent just the changes
+     * since their last request. Keeping 8 snapshots, at most one a
+     * second, covers clients polling up to every 8 seconds however many
+     * there are.
+     */
+    private static final SnapshotHistory HISTORY =
+	new SnapshotHistory(JPROC, 8, 1000L);
+
+    static {
+	// one pass to resolve the names of current users, zones, etc
+	JPROC.preloadNames();
+    }
+
     /**
      * Return the list of processes. The returned data includes JProcInfo
      * data for each process.
@@ -50,13 +100,464 @@ public final class JProcServer {
      * @return a JSON encoded array of processes
      */
     public String getProcesses() {
-	StringBuilder sb = new StringBuilder();
-	sb.append('[');
-	for (JProcess jp : JPROC.getProcesses()) {
-	    sb.append(JPROC.getInfo(jp).toJSON()).append(",\n");
+	ByteArrayOutputStream bos = new ByteArrayOutputStream(BUFSIZE);
+	try {
+	    writeProcesses(bos);
+	} catch (IOException ioe) {
+	    // a ByteArrayOutputStream doesn't throw
+	}
+	return bos.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the list of processes, in the form returned by getProcesses(),
+     * to the given OutputStream as it is generated.
+     *
+     * @param os the OutputStream to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeProcesses(final OutputStream os) throws IOException {
+	ProcessSnapshot snap = new ProcessSnapshot();
+	JPROC.getSnapshot(snap);
+	JSONWriter jw = new JSONWriter(os);
+	jw.write(snap);
+	jw.flush();
+    }
+
+    /**
+     * Return the changes to the list of processes since the given
+     * generation. The result is an object with the current "generation",
+     * which the client passes on its next request. If the client's
+     * generation is still held, the object has the pids of processes that
+     * have exited as "removed", the JProcInfo of new processes as "added",
+     * and for the other processes whose information has changed, the pid
+     * and the changed members as "changed". Otherwise, for example on the
+     * first request, it has the JProcInfo of every process as "processes",
+     * which replace any the client already has.
+     *
+     * @param generation the generation the client last saw, as a String
+     *
+     * @return a JSON encoded object describing the processes
+     */
+    public String getProcessesSince(final String generation) {
+	ByteArrayOutputStream bos = new ByteArrayOutputStream();
+	try {
+	    writeProcessesSince(generation, bos);
+	} catch (IOException ioe) {
+	    // a ByteArrayOutputStream doesn't throw
+	}
+	return bos.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the changes to the list of processes since the given
+     * generation, in the form returned by getProcessesSince(), to the
+     * given OutputStream.
+     *
+     * @param generation the generation the client last saw, as a String
+     * @param os the OutputStream to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeProcessesSince(final String generation,
+				final OutputStream os) throws IOException {
+	long since;
+	try {
+	    since = Long.parseLong(generation);
+	} catch (NumberFormatException nfe) {
+	    since = 0L;
+	}
+	long gen = HISTORY.update();
+	ProcessSnapshot now = HISTORY.get(gen);
+	ProcessSnapshot then = HISTORY.get(since);
+	JSONWriter jw = new JSONWriter(os);
+	jw.startObject();
+	jw.field("generation", gen);
+	if (then == null) {
+	    jw.name("processes");
+	    jw.write(now);
+	} else {
+	    writeChanges(then, now, jw);
 	}
-	sb.append(']');
-	return sb.toString();
+	jw.endObject();
+	jw.flush();
+    }
+
+    /*
+     * Walk the two snapshots in pid order, writing the removed pids as we
+     * go and noting the rows that were added or changed. A pid with a
+     * different start time has been reused, so is both removed and added.
+     */
+    private static void writeChanges(final ProcessSnapshot then,
+				final ProcessSnapshot now,
+				final JSONWriter jw) throws IOException {
+	int n0 = then.size();
+	int n1 = now.size();
+	int[] added = new int[n1];
+	int[] changed = new int[n1];
+	int[] previous = new int[n1];
+	int nadded = 0;
+	int nchanged = 0;
+	JProcInfo jpi0 = new JProcInfo();
+	JProcInfo jpi1 = new JProcInfo();
+	jw.name("removed");
+	jw.startArray();
+	int i = 0;
+	int j = 0;
+	while (i < n0 || j < n1) {
+	    int pid0 = (i < n0) ? then.getSortedPid(i) : Integer.MAX_VALUE;
+	    int pid1 = (j < n1) ? now.getSortedPid(j) : Integer.MAX_VALUE;
+	    if (pid0 < pid1) {
+		jw.value(pid0);
+		i++;
+	    } else if (pid1 < pid0) {
+		added[nadded++] = now.getSortedRow(j);
+		j++;
+	    } else {
+		int row0 = then.getSortedRow(i);
+		int row1 = now.getSortedRow(j);
+		if (then.getstime(row0) != now.getstime(row1)) {
+		    jw.value(pid0);
+		    added[nadded++] = row1;
+		} else {
+		    then.getInfo(row0, jpi0);
+		    now.getInfo(row1, jpi1);
+		    if (!jpi1.sameValues(jpi0)) {
+			previous[nchanged] = row0;
+			changed[nchanged++] = row1;
+		    }
+		}
+		i++;
+		j++;
+	    }
+	}
+	jw.endArray();
+	jw.name("added");
+	jw.startArray();
+	for (int k = 0; k < nadded; k++) {
+	    now.getInfo(added[k], jpi1);
+	    jpi1.toJSON(jw);
+	}
+	jw.endArray();
+	jw.name("changed");
+	jw.startArray();
+	for (int k = 0; k < nchanged; k++) {
+	    then.getInfo(previous[k], jpi0);
+	    now.getInfo(changed[k], jpi1);
+	    jpi1.toJSON(jw, jpi0);
+	}
+	jw.endArray();
+    }
+
+    /**
+     * Return the list of processes together with their usage, so that a
+     * client can refresh a usage display in one request. Each entry is an
+     * object holding the JProcInfo of a process as "info" and its
+     * JProcUsage as "usage". Processes that exit while the list is being
+     * generated are left out.
+     *
+     * @return a JSON encoded array of processes with their usage
+     */
+    public String getProcessesWithUsage() {
+	ByteArrayOutputStream bos = new ByteArrayOutputStream(4 * BUFSIZE);
+	try {
+	    writeProcessesWithUsage(bos);
+	} catch (IOException ioe) {
+	    // a ByteArrayOutputStream doesn't throw
+	}
+	return bos.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the list of processes together with their usage, in the form
+     * returned by getProcessesWithUsage(), to the given OutputStream as it
+     * is generated.
+     *
+     * @param os the OutputStream to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeProcessesWithUsage(final OutputStream os)
+		throws IOException {
+	ProcessSnapshot snap = new ProcessSnapshot();
+	JPROC.getSnapshot(snap);
+	int[] pids = new int[snap.size()];
+	for (int row = 0; row < pids.length; row++) {
+	    pids[row] = snap.getpid(row);
+	}
+	JProcUsage[] jpus = newUsages(pids.length);
+	boolean[] found = new boolean[pids.length];
+	JPROC.getUsage(pids, jpus, found);
+	JProcInfo jpi = new JProcInfo();
+	JSONWriter jw = new JSONWriter(os);
+	jw.startArray();
+	for (int row = 0; row < pids.length; row++) {
+	    if (found[row]) {
+		snap.getInfo(row, jpi);
+		jw.startObject();
+		jw.name("info");
+		jpi.toJSON(jw);
+		jw.name("usage");
+		jpus[row].toJSON(jw);
+		jw.endObject();
+	    }
+	}
+	jw.endArray();
+	jw.flush();
+    }
+
+    /**
+     * Return info on a list of processes.
+     *
+     * @param pids a comma separated list of the pids of the processes to
+     * query
+     *
+     * @return a JSON encoded array holding info on each of the given
+     * processes in turn, with null for a process that doesn't exist, or
+     * null if the list of pids is invalid
+     */
+    public String getInfos(final String pids) {
+	ByteArrayOutputStream bos = new ByteArrayOutputStream();
+	try {
+	    writeInfos(pids, bos);
+	} catch (IOException ioe) {
+	    // a ByteArrayOutputStream doesn't throw
+	}
+	return bos.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write info on a list of processes, in the form returned by
+     * getInfos(), to the given OutputStream.
+     *
+     * @param pids a comma separated list of the pids of the processes to
+     * query
+     * @param os the OutputStream to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeInfos(final String pids, final OutputStream os)
+		throws IOException {
+	int[] ipids = parsePids(pids);
+	if (ipids == null) {
+	    writeNull(os);
+	    return;
+	}
+	JProcInfo jpi = new JProcInfo();
+	JSONWriter jw = new JSONWriter(os);
+	jw.startArray();
+	for (int pid : ipids) {
+	    if (JPROC.getInfo(pid, jpi)) {
+		jpi.toJSON(jw);
+	    } else {
+		jw.value((String) null);
+	    }
+	}
+	jw.endArray();
+	jw.flush();
+    }
+
+    /**
+     * Return usage details of a list of processes.
+     *
+     * @param pids a comma separated list of the pids of the processes to
+     * query
+     *
+     * @return a JSON encoded array holding the usage details of each of
+     * the given processes in turn, with null for a process that doesn't
+     * exist, or null if the list of pids is invalid
+     */
+    public String getUsages(final String pids) {
+	ByteArrayOutputStream bos = new ByteArrayOutputStream();
+	try {
+	    writeUsages(pids, bos);
+	} catch (IOException ioe) {
+	    // a ByteArrayOutputStream doesn't throw
+	}
+	return bos.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write usage details of a list of processes, in the form returned by
+     * getUsages(), to the given OutputStream.
+     *
+     * @param pids a comma separated list of the pids of the processes to
+     * query
+     * @param os the OutputStream to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeUsages(final String pids, final OutputStream os)
+		throws IOException {
+	int[] ipids = parsePids(pids);
+	if (ipids == null) {
+	    writeNull(os);
+	    return;
+	}
+	JProcUsage[] jpus = newUsages(ipids.length);
+	boolean[] found = new boolean[ipids.length];
+	JPROC.getUsage(ipids, jpus, found);
+	JSONWriter jw = new JSONWriter(os);
+	jw.startArray();
+	for (int i = 0; i < ipids.length; i++) {
+	    if (found[i]) {
+		jpus[i].toJSON(jw);
+	    } else {
+		jw.value((String) null);
+	    }
+	}
+	jw.endArray();
+	jw.flush();
+    }
+
+    /*
+     * Return an array of the given number of new JProcUsage objects, for
+     * a bulk read of usage.
+     */
+    private static JProcUsage[] newUsages(final int n) {
+	JProcUsage[] jpus = new JProcUsage[n];
+	for (int i = 0; i < n; i++) {
+	    jpus[i] = new JProcUsage();
+	}
+	return jpus;
+    }
+
+    /*
+     * Parse a comma separated list of pids, returning null if it's
+     * invalid or too long.
+     */
+    private static int[] parsePids(final String pids) {
+	if (pids == null || pids.isEmpty()) {
+	    return null;
+	}
+	String[] spids = pids.split(",");
+	if (spids.length > MAX_BATCH) {
+	    return null;
+	}
+	int[] ipids = new int[spids.length];
+	try {
+	    for (int i = 0; i < spids.length; i++) {
+		ipids[i] = Integer.parseInt(spids[i].trim());
+	    }
+	} catch (NumberFormatException nfe) {
+	    return null;
+	}
+	return ipids;
+    }
+
+    /*
+     * Write a JSON null, so that a request that can't be answered still
+     * gets a valid JSON response.
+     */
+    private static void writeNull(final OutputStream os) throws IOException {
+	JSONWriter jw = new JSONWriter(os);
+	jw.value((String) null);
+	jw.flush();
+    }
+
+    /**
+     * Return the processes ranked highest by the given measure. Rates are
+     * over the longest interval the server holds samples for.
+     *
+     * @param key the measure to rank by, such as TopN.RSS
+     * @param n the number of processes wanted
+     *
+     * @return a JSON encoded array of TopN entries, or null if the query
+     * is invalid
+     */
+    public String getTopN(final int key, final int n) {
+	return getTopN(key, n, 0);
+    }
+
+    /**
+     * Return the processes ranked highest by the given measure. Rates are
+     * over the interval since the server's sample closest to the given
+     * interval ago. Samples are taken when any client asks for the same
+     * rate, and only the most recent few are held, so the interval may be
+     * shorter than asked for if clients are asking often. If the server
+     * has no earlier sample, as for the first query, the list is empty.
+     *
+     * @param key the measure to rank by, such as TopN.RSS
+     * @param n the number of processes wanted
+     * @param interval the interval since the client's previous query, in
+     * milliseconds, or zero for the longest interval held
+     *
+     * @return a JSON encoded array of TopN entries, or null if the query
+     * is invalid
+     */
+    public String getTopN(final int key, final int n, final int interval) {
+	ByteArrayOutputStream bos = new ByteArrayOutputStream();
+	try {
+	    writeTopN(key, n, interval, bos);
+	} catch (IOException ioe) {
+	    // a ByteArrayOutputStream doesn't throw
+	}
+	return bos.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the processes ranked highest by the given measure, in the form
+     * returned by getTopN(), to the given OutputStream. Rates are over the
+     * longest interval held.
+     *
+     * @param key the measure to rank by, such as TopN.RSS
+     * @param n the number of processes wanted
+     * @param os the OutputStream to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeTopN(final int key, final int n, final OutputStream os)
+		throws IOException {
+	writeTopN(key, n, 0, os);
+    }
+
+    /**
+     * Write the processes ranked highest by the given measure, in the form
+     * returned by getTopN(), to the given OutputStream.
+     *
+     * @param key the measure to rank by, such as TopN.RSS
+     * @param n the number of processes wanted
+     * @param interval the interval rates are wanted over, in milliseconds,
+     * or zero for the longest interval held
+     * @param os the OutputStream to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeTopN(final int key, final int n, final int interval,
+			  final OutputStream os) throws IOException {
+	int count = Math.min(n, MAX_TOPN);
+	List<TopN.Entry> entries;
+	try {
+	    TopN topn = new TopN(key, count);
+	    if (topn.isRate()) {
+		TopN rate;
+		synchronized (RATES) {
+		    rate = RATES.computeIfAbsent(key,
+				k -> new TopN(k, MAX_TOPN, RATE_DEPTH));
+		}
+		synchronized (rate) {
+		    rate.setInterval((interval > 0) ? interval
+				     : Integer.MAX_VALUE);
+		    entries = JPROC.getTopN(rate);
+		}
+		if (entries.size() > count) {
+		    entries = entries.subList(0, count);
+		}
+	    } else {
+		entries = JPROC.getTopN(topn);
+	    }
+	} catch (IllegalArgumentException iae) {
+	    writeNull(os);
+	    return;
+	}
+	JSONWriter jw = new JSONWriter(os);
+	jw.startArray();
+	for (TopN.Entry entry : entries) {
+	    entry.toJSON(jw);
+	}
+	jw.endArray();
+	jw.flush();
     }
 
     /**
@@ -64,20 +565,42 @@ public final class JProcServer {
      *
      * @param pid the pid of the process to query
      *
-     * @return a JSON encoded array of lwps
+     * @return a JSON encoded array of lwps, or null if the process
+     * doesn't exist
      */
     public String getLwps(final int pid) {
+	ByteArrayOutputStream bos = new ByteArrayOutputStream();
+	try {
+	    writeLwps(pid, bos);
+	} catch (IOException ioe) {
+	    // a ByteArrayOutputStream doesn't throw
+	}
+	return bos.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the list of lwps for the given process, in the form returned
+     * by getLwps(), to the given OutputStream.
+     *
+     * @param pid the pid of the process to query
+     * @param os the OutputStream to write to
+     *
+     * @throws IOException if the output can't be written
+     */
+    public void writeLwps(final int pid, final OutputStream os)
+		throws IOException {
 	Set<JLwp> lwps = JPROC.getLwps(pid);
 	if (lwps == null) {
-	    return "";
+	    writeNull(os);
+	    return;
 	}
-	StringBuilder sb = new StringBuilder();
-	sb.append('[');
+	JSONWriter jw = new JSONWriter(os);
+	jw.startArray();
 	for (JLwp jlwp : lwps) {
-	    sb.append(jlwp.toJSON()).append(',');
+	    jlwp.toJSON(jw);
 	}
-	sb.append(']');
-	return sb.toString();
+	jw.endArray();
+	jw.flush();
     }
 
     /**
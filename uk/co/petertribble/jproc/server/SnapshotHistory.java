@@ -0,0 +1,106 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.jproc.server;
+
+import uk.co.petertribble.jproc.api.JProc;
+import uk.co.petertribble.jproc.api.ProcessSnapshot;
+
+/**
+ * Keeps the most recent snapshots of the process list, each identified by
+ * a generation number, so that a client can be sent just the changes
+ * since the snapshot it last saw.
+ *
+ * <p>A new snapshot is only taken if the latest is older than a minimum
+ * interval, so clients polling frequently share snapshots and the history
+ * covers at least the interval times its depth. Generations start from
+ * the time the history was created, so a generation a client saw before
+ * a server restart isn't mistaken for a current one.
+ *
+ * <p>Snapshots aren't modified once taken, so can be read outside the
+ * lock.
+ *
+ * @author Peter Tribble
+ */
+final class SnapshotHistory {
+
+    private final JProc jproc;
+    private final long interval;
+    private final ProcessSnapshot[] snapshots;
+    private final long[] generations;
+    private int latest = -1;
+    private long generation;
+    private long taken;
+
+    /**
+     * Create a history of snapshots.
+     *
+     * @param njproc the JProc to take snapshots from
+     * @param depth the number of snapshots to keep
+     * @param ninterval the minimum time between snapshots, in milliseconds
+     */
+    SnapshotHistory(final JProc njproc, final int depth,
+		    final long ninterval) {
+	if (depth < 2) {
+	    throw new IllegalArgumentException("depth must be at least 2");
+	}
+	jproc = njproc;
+	interval = ninterval * 1000000L;
+	snapshots = new ProcessSnapshot[depth];
+	generations = new long[depth];
+	generation = System.currentTimeMillis();
+    }
+
+    /**
+     * Take a new snapshot if the latest one is too old, and return the
+     * generation of the latest snapshot.
+     *
+     * @return the generation of the latest snapshot
+     */
+    synchronized long update() {
+	long now = System.nanoTime();
+	if (latest < 0 || now - taken >= interval) {
+	    ProcessSnapshot snap = new ProcessSnapshot();
+	    jproc.getSnapshot(snap);
+	    latest = (latest + 1) % snapshots.length;
+	    snapshots[latest] = snap;
+	    generations[latest] = ++generation;
+	    taken = now;
+	}
+	return generation;
+    }
+
+    /**
+     * Return the snapshot of the given generation.
+     *
+     * @param gen the generation wanted
+     *
+     * @return the snapshot of the given generation, or null if it's no
+     * longer held
+     */
+    synchronized ProcessSnapshot get(final long gen) {
+	for (int i = 0; i < snapshots.length; i++) {
+	    if (snapshots[i] != null && generations[i] == gen) {
+		return snapshots[i];
+	    }
+	}
+	return null;
+    }
+}
@@ -14,7 +14,7 @@
  *
  * CDDL HEADER END
  *
- * Copyright 2025 Peter Tribble
+ * Copyright 2026 Peter Tribble
  *
  */
 
@@ -23,6 +23,10 @@
 #include <sys/types.h>
 #include <fcntl.h>
 #include <unistd.h>
+#include <stdlib.h>
+#include <dirent.h>
+#include <pthread.h>
+#include <string.h>
 #include <pwd.h>
 #include <grp.h>
 #include <project.h>
@@ -48,6 +52,7 @@ static jmethodID jpls_constructor_mid;
 static jmethodID jpi_insert_mid;
 static jmethodID jpli_insert_mid;
 static jmethodID jpu_insert_mid;
+static jmethodID jpu_insertms_mid;
 static jmethodID jps_insert_mid;
 static jmethodID jpls_insert_mid;
 
@@ -61,6 +66,181 @@ static jmethodID jpls_insert_mid;
  * at 42 characters
  */
 
+/*
+ * A cache of open /proc file descriptors. A procfs file descriptor
+ * stays bound to the process it was opened against for the life of
+ * that process, so a process that is sampled repeatedly can be reread
+ * with a single pread() rather than open/read/close each time. Once the
+ * process has gone, reads fail (with ENOENT) and the entry is evicted,
+ * so a recycled pid never sees stale data.
+ *
+ * Only processes that have been registered as watched, with watch(), are
+ * cached; they stay watched until release() or close(). Reads of any
+ * other process, such as those made in a loop over every process, go
+ * straight to /proc without touching the cache or its lock, as caching
+ * them would only flush the entries for the watched processes.
+ *
+ * Entries are keyed by pid, lwpid (0 for process-wide files), and the
+ * kind of file. The cache is small and bounded, with the least recently
+ * used entry being closed when a new one is needed.
+ *
+ * The cache is shared by all threads, so is protected by a mutex, which
+ * is held across the read so that an fd can't be closed underneath us.
+ */
+#define	JP_FD_PSINFO	0
+#define	JP_FD_USAGE	1
+#define	JP_FD_STATUS	2
+#define	JP_FD_LWPSINFO	3
+#define	JP_FD_LWPUSAGE	4
+#define	JP_FD_LWPSTATUS	5
+
+#define	JP_FDCACHE_SIZE	128
+#define	JP_WATCH_SIZE	32
+
+typedef struct jp_fdent {
+  int fd;
+  int kind;
+  pid_t pid;
+  id_t lwpid;
+  unsigned long lastuse;
+} jp_fdent_t;
+
+static const char *jp_fdfmt[] = {
+  "/proc/%i/psinfo",
+  "/proc/%i/usage",
+  "/proc/%i/status",
+  "/proc/%i/lwp/%i/lwpsinfo",
+  "/proc/%i/lwp/%i/lwpusage",
+  "/proc/%i/lwp/%i/lwpstatus"
+};
+
+static jp_fdent_t jp_fdcache[JP_FDCACHE_SIZE];
+static int jp_fdcount;
+static unsigned long jp_fdclock;
+static pthread_mutex_t jp_fdlock = PTHREAD_MUTEX_INITIALIZER;
+
+/*
+ * The watched pids, also protected by jp_fdlock. The count is checked
+ * without the lock first, so that when nothing is watched a read costs
+ * no more than an uncached one.
+ */
+static pid_t jp_watched[JP_WATCH_SIZE];
+static volatile int jp_nwatched;
+
+/*
+ * Close and remove the given cache entry. Called with jp_fdlock held.
+ */
+static void
+jp_fdevict(int i)
+{
+  (void) close(jp_fdcache[i].fd);
+  jp_fdcache[i] = jp_fdcache[--jp_fdcount];
+}
+
+/*
+ * Return the index of the given pid in the watched list, or -1 if it
+ * isn't watched. Called with jp_fdlock held.
+ */
+static int
+jp_watchindex(pid_t pid)
+{
+  int i;
+
+  for (i = 0; i < jp_nwatched; i++) {
+    if (jp_watched[i] == pid) {
+      return(i);
+    }
+  }
+  return(-1);
+}
+
+/*
+ * Read a /proc file of the given kind without using the fd cache.
+ * Returns 0 on success, -1 if the file could not be read.
+ */
+static int
+jp_rawread(int kind, pid_t pid, id_t lwpid, void *buf, size_t size)
+{
+  char filename[42];
+  ssize_t n;
+  int fd;
+
+  sprintf(filename, jp_fdfmt[kind], pid, lwpid);
+  if ((fd = open(filename, O_RDONLY)) < 0) {
+    return(-1);
+  }
+  n = pread(fd, buf, size, 0);
+  (void) close(fd);
+  return((n == (ssize_t)size) ? 0 : -1);
+}
+
+/*
+ * Read a /proc file of the given kind. If the process is watched the read
+ * is via the fd cache, opening and caching the file if necessary,
+ * otherwise it's read directly. Returns 0 on success, -1 if the file
+ * could not be read, in which case any cached fd has been closed.
+ */
+static int
+jp_cachedread(int kind, pid_t pid, id_t lwpid, void *buf, size_t size)
+{
+  char filename[42];
+  ssize_t n;
+  int fd;
+  int i;
+  int lru;
+
+  if (jp_nwatched == 0) {
+    return(jp_rawread(kind, pid, lwpid, buf, size));
+  }
+  pthread_mutex_lock(&jp_fdlock);
+  if (jp_watchindex(pid) < 0) {
+    pthread_mutex_unlock(&jp_fdlock);
+    return(jp_rawread(kind, pid, lwpid, buf, size));
+  }
+  for (i = 0; i < jp_fdcount; i++) {
+    if (jp_fdcache[i].pid == pid && jp_fdcache[i].lwpid == lwpid &&
+	jp_fdcache[i].kind == kind) {
+      break;
+    }
+  }
+
+  if (i == jp_fdcount) {
+    sprintf(filename, jp_fdfmt[kind], pid, lwpid);
+    if ((fd = open(filename, O_RDONLY)) < 0) {
+      pthread_mutex_unlock(&jp_fdlock);
+      return(-1);
+    }
+    if (jp_fdcount == JP_FDCACHE_SIZE) {
+      lru = 0;
+      for (i = 1; i < jp_fdcount; i++) {
+	if (jp_fdcache[i].lastuse < jp_fdcache[lru].lastuse) {
+	  lru = i;
+	}
+      }
+      jp_fdevict(lru);
+    }
+    i = jp_fdcount++;
+    jp_fdcache[i].fd = fd;
+    jp_fdcache[i].kind = kind;
+    jp_fdcache[i].pid = pid;
+    jp_fdcache[i].lwpid = lwpid;
+  }
+
+  jp_fdcache[i].lastuse = ++jp_fdclock;
+  n = pread(jp_fdcache[i].fd, buf, size, 0);
+  if (n != (ssize_t)size) {
+    /*
+     * Normally this is ENOENT because the process or lwp has gone, but
+     * whatever the cause the fd is of no further use.
+     */
+    jp_fdevict(i);
+    pthread_mutex_unlock(&jp_fdlock);
+    return(-1);
+  }
+  pthread_mutex_unlock(&jp_fdlock);
+  return(0);
+}
+
 /*
  * Class:     uk_co_petertribble_jproc_api_NativeJProc
  * Method:    getStatus
@@ -71,16 +251,8 @@ JNIEXPORT jobject JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getStatu
 {
   jobject jps;
   struct pstatus ps;
-  int fd;
-  char filename[24];
-
-  sprintf(filename, "/proc/%i/status", pid);
-  if ((fd = open(filename, O_RDONLY)) <= 0) {
-    return(NULL);
-  }
 
-  if (read(fd, &ps, sizeof(pstatus_t)) != sizeof(pstatus_t)) {
-    close(fd);
+  if (jp_cachedread(JP_FD_STATUS, pid, 0, &ps, sizeof(pstatus_t)) != 0) {
     return(NULL);
   }
   jps = (*env)->NewObject(env, jps_class, jps_constructor_mid);
@@ -89,7 +261,6 @@ JNIEXPORT jobject JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getStatu
 		(jlong)ps.pr_stime.tv_sec, (jlong)ps.pr_stime.tv_nsec,
 		(jlong)ps.pr_cutime.tv_sec, (jlong)ps.pr_cutime.tv_nsec,
 		(jlong)ps.pr_cstime.tv_sec, (jlong)ps.pr_cstime.tv_nsec);
-  close(fd);
   return (jps);
 }
 
@@ -103,26 +274,99 @@ JNIEXPORT jobject JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getLwpSt
 {
   jobject jpls;
   struct lwpstatus lps;
-  int fd;
-  char filename[42];
-
-  sprintf(filename, "/proc/%i/lwp/%i/lwpstatus", pid, lwpid);
-  if ((fd = open(filename, O_RDONLY)) <= 0) {
-    return(NULL);
-  }
 
-  if (read(fd, &lps, sizeof(lwpstatus_t)) != sizeof(lwpstatus_t)) {
-    close(fd);
+  if (jp_cachedread(JP_FD_LWPSTATUS, pid, lwpid, &lps,
+		sizeof(lwpstatus_t)) != 0) {
     return(NULL);
   }
   jpls = (*env)->NewObject(env, jpls_class, jpls_constructor_mid);
   (*env)->CallVoidMethod(env, jpls, jpls_insert_mid, pid, (jint)lps.pr_lwpid,
 		(jlong)lps.pr_utime.tv_sec, (jlong)lps.pr_utime.tv_nsec,
 		(jlong)lps.pr_stime.tv_sec, (jlong)lps.pr_stime.tv_nsec);
-  close(fd);
   return (jpls);
 }
 
+/*
+ * Populate the given JProcInfo object from a psinfo structure.
+ */
+static void
+jp_insertinfo(JNIEnv *env, jobject jpi, psinfo_t *psi)
+{
+  jstring jfname;
+
+  jfname = (*env)->NewStringUTF(env, psi->pr_fname);
+  (*env)->CallVoidMethod(env, jpi, jpi_insert_mid, (jint)psi->pr_pid,
+		(jint)psi->pr_ppid, (jint)psi->pr_uid, (jint)psi->pr_euid,
+		(jint)psi->pr_gid, (jint)psi->pr_egid,
+		(jint)psi->pr_nlwp, (jlong)psi->pr_size, (jlong)psi->pr_rssize,
+		(jlong)psi->pr_start.tv_sec, (jlong)psi->pr_time.tv_sec,
+		(jlong)psi->pr_time.tv_nsec, (jlong)psi->pr_ctime.tv_sec,
+		(jlong)psi->pr_ctime.tv_nsec, (jint)psi->pr_taskid,
+		(jint)psi->pr_projid, (jint)psi->pr_zoneid,
+		(jint)psi->pr_contract, jfname);
+  (*env)->DeleteLocalRef(env, jfname);
+}
+
+/*
+ * Create a new JProcInfo object from the given psinfo.
+ */
+static jobject
+jp_newinfo(JNIEnv *env, psinfo_t *psi)
+{
+  jobject jpi;
+
+  jpi = (*env)->NewObject(env, jpi_class, jpi_constructor_mid);
+  jp_insertinfo(env, jpi, psi);
+  return (jpi);
+}
+
+/*
+ * Read the psinfo of the given process. Returns 0 on success, -1 if
+ * the process could not be read. This bypasses the fd cache, and is
+ * used when walking the whole of /proc.
+ */
+static int
+jp_readinfo(int pid, psinfo_t *psi)
+{
+  int fd;
+  char filename[24];
+
+  sprintf(filename, "/proc/%i/psinfo", pid);
+  if ((fd = open(filename, O_RDONLY)) < 0) {
+    return(-1);
+  }
+
+  if (read(fd, psi, sizeof(psinfo_t)) != sizeof(psinfo_t)) {
+    close(fd);
+    return(-1);
+  }
+  close(fd);
+  return(0);
+}
+
+/*
+ * Like jp_readinfo, an uncached read, for bulk reads that would only
+ * thrash the descriptor cache.
+ */
+static int
+jp_readusage(int pid, prusage_t *pu)
+{
+  int fd;
+  char filename[24];
+
+  sprintf(filename, "/proc/%i/usage", pid);
+  if ((fd = open(filename, O_RDONLY)) < 0) {
+    return(-1);
+  }
+
+  if (read(fd, pu, sizeof(prusage_t)) != sizeof(prusage_t)) {
+    close(fd);
+    return(-1);
+  }
+  close(fd);
+  return(0);
+}
+
 /*
  * Class:     uk_co_petertribble_jproc_api_NativeJProc
  * Method:    getInfo
@@ -131,36 +375,93 @@ JNIEXPORT jobject JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getLwpSt
 JNIEXPORT jobject JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getInfo
   (JNIEnv *env, jobject jobj, jint pid)
 {
-  jobject jpi;
   struct psinfo psi;
-  int fd;
-  char filename[24];
-  jstring jfname;
 
-  sprintf(filename, "/proc/%i/psinfo", pid);
-  if ((fd = open(filename, O_RDONLY)) <= 0) {
+  if (jp_cachedread(JP_FD_PSINFO, pid, 0, &psi, sizeof(psinfo_t)) != 0) {
     return(NULL);
   }
+  return (jp_newinfo(env, &psi));
+}
 
-  if (read(fd, &psi, sizeof(psinfo_t)) != sizeof(psinfo_t)) {
-    close(fd);
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    fillInfo
+ * Signature: (ILuk/co/petertribble/jproc/api/JProcInfo;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_fillInfo
+  (JNIEnv *env, jobject jobj, jint pid, jobject jpi)
+{
+  struct psinfo psi;
+
+  if (jp_cachedread(JP_FD_PSINFO, pid, 0, &psi, sizeof(psinfo_t)) != 0) {
+    return(JNI_FALSE);
+  }
+  jp_insertinfo(env, jpi, &psi);
+  return(JNI_TRUE);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    getInfoAll
+ * Signature: ()[Luk/co/petertribble/jproc/api/JProcInfo;
+ *
+ * Walks /proc once, returning an array with a JProcInfo for each process.
+ * The pids are collected first so the array can be sized; any process
+ * that exits before its psinfo is read leaves a null entry.
+ */
+JNIEXPORT jobjectArray JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getInfoAll
+  (JNIEnv *env, jobject jobj)
+{
+  jobjectArray jarr;
+  jobject jpi;
+  struct psinfo psi;
+  struct dirent *dent;
+  DIR *dirp;
+  pid_t *pids;
+  pid_t *npids;
+  int npid = 0;
+  int maxpid = 1024;
+  int i;
+
+  if ((dirp = opendir("/proc")) == NULL) {
+    return ((*env)->NewObjectArray(env, 0, jpi_class, NULL));
+  }
+  if ((pids = malloc(maxpid * sizeof(pid_t))) == NULL) {
+    closedir(dirp);
     return(NULL);
   }
+  while ((dent = readdir(dirp)) != NULL) {
+    if (dent->d_name[0] < '0' || dent->d_name[0] > '9') {
+      continue;
+    }
+    if (npid == maxpid) {
+      maxpid *= 2;
+      if ((npids = realloc(pids, maxpid * sizeof(pid_t))) == NULL) {
+	free(pids);
+	closedir(dirp);
+	return(NULL);
+      }
+      pids = npids;
+    }
+    pids[npid++] = (pid_t)atoi(dent->d_name);
+  }
+  closedir(dirp);
 
-  jfname = (*env)->NewStringUTF(env, psi.pr_fname);
-  jpi = (*env)->NewObject(env, jpi_class, jpi_constructor_mid);
-  (*env)->CallVoidMethod(env, jpi, jpi_insert_mid, (jint)psi.pr_pid,
-		(jint)psi.pr_ppid, (jint)psi.pr_uid, (jint)psi.pr_euid,
-		(jint)psi.pr_gid, (jint)psi.pr_egid,
-		(jint)psi.pr_nlwp, (jlong)psi.pr_size, (jlong)psi.pr_rssize,
-		(jlong)psi.pr_start.tv_sec, (jlong)psi.pr_time.tv_sec,
-		(jlong)psi.pr_time.tv_nsec, (jlong)psi.pr_ctime.tv_sec,
-		(jlong)psi.pr_ctime.tv_nsec, (jint)psi.pr_taskid,
-		(jint)psi.pr_projid, (jint)psi.pr_zoneid,
-		(jint)psi.pr_contract, jfname);
-  (*env)->DeleteLocalRef(env, jfname);
-  close(fd);
-  return (jpi);
+  jarr = (*env)->NewObjectArray(env, npid, jpi_class, NULL);
+  if (jarr == NULL) {
+    free(pids);
+    return(NULL);
+  }
+  for (i = 0; i < npid; i++) {
+    if (jp_readinfo(pids[i], &psi) == 0) {
+      jpi = jp_newinfo(env, &psi);
+      (*env)->SetObjectArrayElement(env, jarr, i, jpi);
+      /* don't let the local references pile up */
+      (*env)->DeleteLocalRef(env, jpi);
+    }
+  }
+  free(pids);
+  return (jarr);
 }
 
 /*
@@ -173,26 +474,45 @@ JNIEXPORT jobject JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getLwpIn
 {
   jobject jpli;
   struct lwpsinfo lpsi;
-  int fd;
-  char filename[42];
 
-  sprintf(filename, "/proc/%i/lwp/%i/lwpsinfo", pid, lwpid);
-  if ((fd = open(filename, O_RDONLY)) <= 0) {
-    return(NULL);
-  }
-
-  if (read(fd, &lpsi, sizeof(lwpsinfo_t)) != sizeof(lwpsinfo_t)) {
-    close(fd);
+  if (jp_cachedread(JP_FD_LWPSINFO, pid, lwpid, &lpsi,
+		sizeof(lwpsinfo_t)) != 0) {
     return(NULL);
   }
   jpli = (*env)->NewObject(env, jpli_class, jpli_constructor_mid);
   (*env)->CallVoidMethod(env, jpli, jpli_insert_mid, pid, (jint)lpsi.pr_lwpid,
 		(jlong)lpsi.pr_start.tv_sec, (jlong)lpsi.pr_time.tv_sec,
 		(jlong)lpsi.pr_time.tv_nsec);
-  close(fd);
   return (jpli);
 }
 
+/*
+ * Populate the given JProcUsage object from a prusage structure.
+ */
+static void
+jp_insertusage(JNIEnv *env, jobject jpu, prusage_t *pu)
+{
+  (*env)->CallVoidMethod(env, jpu, jpu_insert_mid, (jint)pu->pr_lwpid,
+		(jint)pu->pr_count,
+		(jlong)pu->pr_rtime.tv_sec, (jlong)pu->pr_rtime.tv_nsec,
+		(jlong)pu->pr_utime.tv_sec, (jlong)pu->pr_utime.tv_nsec,
+		(jlong)pu->pr_stime.tv_sec, (jlong)pu->pr_stime.tv_nsec,
+		(jlong)pu->pr_minf, (jlong)pu->pr_majf, (jlong)pu->pr_nswap,
+		(jlong)pu->pr_inblk, (jlong)pu->pr_oublk,
+		(jlong)pu->pr_msnd, (jlong)pu->pr_mrcv, (jlong)pu->pr_sigs,
+		(jlong)pu->pr_vctx, (jlong)pu->pr_ictx,
+		(jlong)pu->pr_sysc, (jlong)pu->pr_ioch);
+  (*env)->CallVoidMethod(env, jpu, jpu_insertms_mid,
+		(jlong)pu->pr_ttime.tv_sec, (jlong)pu->pr_ttime.tv_nsec,
+		(jlong)pu->pr_tftime.tv_sec, (jlong)pu->pr_tftime.tv_nsec,
+		(jlong)pu->pr_dftime.tv_sec, (jlong)pu->pr_dftime.tv_nsec,
+		(jlong)pu->pr_kftime.tv_sec, (jlong)pu->pr_kftime.tv_nsec,
+		(jlong)pu->pr_ltime.tv_sec, (jlong)pu->pr_ltime.tv_nsec,
+		(jlong)pu->pr_slptime.tv_sec, (jlong)pu->pr_slptime.tv_nsec,
+		(jlong)pu->pr_wtime.tv_sec, (jlong)pu->pr_wtime.tv_nsec,
+		(jlong)pu->pr_stoptime.tv_sec, (jlong)pu->pr_stoptime.tv_nsec);
+}
+
 /*
  * Class:     uk_co_petertribble_jproc_api_NativeJProc
  * Method:    getUsage
@@ -203,31 +523,13 @@ JNIEXPORT jobject JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getUsage
 {
   jobject jpu;
   struct prusage pu;
-  int fd;
-  char filename[24];
 
-  sprintf(filename, "/proc/%i/usage", pid);
-  if ((fd = open(filename, O_RDONLY)) <= 0) {
-    return(NULL);
-  }
-
-  if (read(fd, &pu, sizeof(prusage_t)) != sizeof(prusage_t)) {
-    close(fd);
+  if (jp_cachedread(JP_FD_USAGE, pid, 0, &pu, sizeof(prusage_t)) != 0) {
     return(NULL);
   }
 
   jpu = (*env)->NewObject(env, jpu_class, jpu_constructor_mid);
-  (*env)->CallVoidMethod(env, jpu, jpu_insert_mid, (jint)pu.pr_lwpid,
-		(jint)pu.pr_count,
-		(jlong)pu.pr_rtime.tv_sec, (jlong)pu.pr_rtime.tv_nsec,
-		(jlong)pu.pr_utime.tv_sec, (jlong)pu.pr_utime.tv_nsec,
-		(jlong)pu.pr_stime.tv_sec, (jlong)pu.pr_stime.tv_nsec,
-		(jlong)pu.pr_minf, (jlong)pu.pr_majf, (jlong)pu.pr_nswap,
-		(jlong)pu.pr_inblk, (jlong)pu.pr_oublk,
-		(jlong)pu.pr_msnd, (jlong)pu.pr_mrcv, (jlong)pu.pr_sigs,
-		(jlong)pu.pr_vctx, (jlong)pu.pr_ictx,
-		(jlong)pu.pr_sysc, (jlong)pu.pr_ioch);
-  close(fd);
+  jp_insertusage(env, jpu, &pu);
   return (jpu);
 }
 
@@ -241,32 +543,181 @@ JNIEXPORT jobject JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getLwpUs
 {
   jobject jpu;
   struct prusage pu;
-  int fd;
-  char filename[42];
 
-  sprintf(filename, "/proc/%i/lwp/%i/lwpusage", pid, lwpid);
-  if ((fd = open(filename, O_RDONLY)) <= 0) {
+  if (jp_cachedread(JP_FD_LWPUSAGE, pid, lwpid, &pu,
+		sizeof(prusage_t)) != 0) {
     return(NULL);
   }
 
-  if (read(fd, &pu, sizeof(prusage_t)) != sizeof(prusage_t)) {
+  jpu = (*env)->NewObject(env, jpu_class, jpu_constructor_mid);
+  jp_insertusage(env, jpu, &pu);
+  return (jpu);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    fillUsage
+ * Signature: (ILuk/co/petertribble/jproc/api/JProcUsage;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_fillUsage
+  (JNIEnv *env, jobject jobj, jint pid, jobject jpu)
+{
+  struct prusage pu;
+
+  if (jp_cachedread(JP_FD_USAGE, pid, 0, &pu, sizeof(prusage_t)) != 0) {
+    return(JNI_FALSE);
+  }
+  jp_insertusage(env, jpu, &pu);
+  return(JNI_TRUE);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    fillLwpUsage
+ * Signature: (IILuk/co/petertribble/jproc/api/JProcUsage;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_fillLwpUsage
+  (JNIEnv *env, jobject jobj, jint pid, jint lwpid, jobject jpu)
+{
+  struct prusage pu;
+
+  if (jp_cachedread(JP_FD_LWPUSAGE, pid, lwpid, &pu,
+		sizeof(prusage_t)) != 0) {
+    return(JNI_FALSE);
+  }
+  jp_insertusage(env, jpu, &pu);
+  return(JNI_TRUE);
+}
+
+/*
+ * Read one of the /proc/pid/lusage or /proc/pid/lpsinfo files, which
+ * consist of a prheader followed by an array of entries, one per lwp.
+ * The header is read first to size the buffer, with some headroom; if
+ * new lwps appear in the meantime so that the array doesn't fit, try
+ * again. Returns a malloc'ed buffer that the caller must free, or NULL
+ * if the file could not be read.
+ */
+static prheader_t *
+jp_readlwparray(const char *filename)
+{
+  prheader_t hdr;
+  prheader_t *buf;
+  size_t bufsize;
+  ssize_t n;
+  int fd;
+
+  if ((fd = open(filename, O_RDONLY)) < 0) {
+    return(NULL);
+  }
+  if (pread(fd, &hdr, sizeof(prheader_t), 0) != sizeof(prheader_t)) {
     close(fd);
     return(NULL);
   }
-
-  jpu = (*env)->NewObject(env, jpu_class, jpu_constructor_mid);
-  (*env)->CallVoidMethod(env, jpu, jpu_insert_mid, (jint)pu.pr_lwpid,
-		(jint)pu.pr_count,
-		(jlong)pu.pr_rtime.tv_sec, (jlong)pu.pr_rtime.tv_nsec,
-		(jlong)pu.pr_utime.tv_sec, (jlong)pu.pr_utime.tv_nsec,
-		(jlong)pu.pr_stime.tv_sec, (jlong)pu.pr_stime.tv_nsec,
-		(jlong)pu.pr_minf, (jlong)pu.pr_majf, (jlong)pu.pr_nswap,
-		(jlong)pu.pr_inblk, (jlong)pu.pr_oublk,
-		(jlong)pu.pr_msnd, (jlong)pu.pr_mrcv, (jlong)pu.pr_sigs,
-		(jlong)pu.pr_vctx, (jlong)pu.pr_ictx,
-		(jlong)pu.pr_sysc, (jlong)pu.pr_ioch);
+  for (;;) {
+    bufsize = sizeof(prheader_t) + (hdr.pr_nent + 16) * hdr.pr_entsize;
+    if ((buf = malloc(bufsize)) == NULL) {
+      close(fd);
+      return(NULL);
+    }
+    n = pread(fd, buf, bufsize, 0);
+    if (n < (ssize_t)sizeof(prheader_t)) {
+      free(buf);
+      close(fd);
+      return(NULL);
+    }
+    if (sizeof(prheader_t) + buf->pr_nent * buf->pr_entsize <= (size_t)n) {
+      break;
+    }
+    hdr = *buf;
+    free(buf);
+  }
   close(fd);
-  return (jpu);
+  return(buf);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    getLwpUsageAll
+ * Signature: (I)[Luk/co/petertribble/jproc/api/JProcUsage;
+ *
+ * Reads /proc/pid/lusage, returning a JProcUsage for each lwp. The first
+ * entry in the file is the total for defunct lwps, and is skipped.
+ */
+JNIEXPORT jobjectArray JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getLwpUsageAll
+  (JNIEnv *env, jobject jobj, jint pid)
+{
+  jobjectArray jarr;
+  jobject jpu;
+  prheader_t *hdr;
+  char *entp;
+  char filename[24];
+  int i;
+
+  sprintf(filename, "/proc/%i/lusage", pid);
+  if ((hdr = jp_readlwparray(filename)) == NULL) {
+    return(NULL);
+  }
+
+  jarr = (*env)->NewObjectArray(env, hdr->pr_nent > 0 ? hdr->pr_nent - 1 : 0,
+		jpu_class, NULL);
+  if (jarr == NULL) {
+    free(hdr);
+    return(NULL);
+  }
+  entp = (char *)(hdr + 1) + hdr->pr_entsize;
+  for (i = 1; i < hdr->pr_nent; i++) {
+    jpu = (*env)->NewObject(env, jpu_class, jpu_constructor_mid);
+    jp_insertusage(env, jpu, (prusage_t *)entp);
+    (*env)->SetObjectArrayElement(env, jarr, i - 1, jpu);
+    (*env)->DeleteLocalRef(env, jpu);
+    entp += hdr->pr_entsize;
+  }
+  free(hdr);
+  return (jarr);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    getLwpInfoAll
+ * Signature: (I)[Luk/co/petertribble/jproc/api/JProcLwpInfo;
+ *
+ * Reads /proc/pid/lpsinfo, returning a JProcLwpInfo for each lwp.
+ */
+JNIEXPORT jobjectArray JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getLwpInfoAll
+  (JNIEnv *env, jobject jobj, jint pid)
+{
+  jobjectArray jarr;
+  jobject jpli;
+  prheader_t *hdr;
+  lwpsinfo_t *lpsi;
+  char *entp;
+  char filename[24];
+  int i;
+
+  sprintf(filename, "/proc/%i/lpsinfo", pid);
+  if ((hdr = jp_readlwparray(filename)) == NULL) {
+    return(NULL);
+  }
+
+  jarr = (*env)->NewObjectArray(env, hdr->pr_nent, jpli_class, NULL);
+  if (jarr == NULL) {
+    free(hdr);
+    return(NULL);
+  }
+  entp = (char *)(hdr + 1);
+  for (i = 0; i < hdr->pr_nent; i++) {
+    lpsi = (lwpsinfo_t *)entp;
+    jpli = (*env)->NewObject(env, jpli_class, jpli_constructor_mid);
+    (*env)->CallVoidMethod(env, jpli, jpli_insert_mid, pid,
+		(jint)lpsi->pr_lwpid,
+		(jlong)lpsi->pr_start.tv_sec, (jlong)lpsi->pr_time.tv_sec,
+		(jlong)lpsi->pr_time.tv_nsec);
+    (*env)->SetObjectArrayElement(env, jarr, i, jpli);
+    (*env)->DeleteLocalRef(env, jpli);
+    entp += hdr->pr_entsize;
+  }
+  free(hdr);
+  return (jarr);
 }
 
 /*
@@ -277,11 +728,13 @@ JNIEXPORT jobject JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getLwpUs
 JNIEXPORT jstring JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getUserName
   (JNIEnv *env, jobject jobj, jint uid)
 {
+  struct passwd pwbuf;
   struct passwd *pwd;
+  char buf[1024];
   jstring juname;
 
-  pwd = getpwuid((uid_t) uid);
-  if (!pwd) {
+  if (getpwuid_r((uid_t) uid, &pwbuf, buf, sizeof (buf), &pwd) != 0 ||
+      !pwd) {
     return(NULL);
   }
   juname = (*env)->NewStringUTF(env, pwd->pw_name);
@@ -296,13 +749,16 @@ JNIEXPORT jstring JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getUserN
 JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getUserId
   (JNIEnv *env, jobject jobj, jstring jusername)
 {
+  struct passwd pwbuf;
   struct passwd *pwd;
+  char buf[1024];
   const char *username;
+  int ret;
 
   username = (*env)->GetStringUTFChars(env,jusername,NULL);
-  pwd = getpwnam(username);
+  ret = getpwnam_r(username, &pwbuf, buf, sizeof (buf), &pwd);
   (*env)->ReleaseStringUTFChars(env, jusername, username);
-  if (!pwd) {
+  if (ret != 0 || !pwd) {
     return(-1);
   }
   return((jint) pwd->pw_uid);
@@ -316,11 +772,13 @@ JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getUserId
 JNIEXPORT jstring JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getGroupName
   (JNIEnv *env, jobject jobj, jint gid)
 {
+  struct group grbuf;
   struct group *grp;
+  char buf[8192];
   jstring jgname;
 
-  grp = getgrgid((gid_t) gid);
-  if (!grp) {
+  if (getgrgid_r((gid_t) gid, &grbuf, buf, sizeof (buf), &grp) != 0 ||
+      !grp) {
     return(NULL);
   }
   jgname = (*env)->NewStringUTF(env, grp->gr_name);
@@ -335,13 +793,16 @@ JNIEXPORT jstring JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getGroup
 JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getGroupId
   (JNIEnv *env, jobject jobj, jstring jgroup)
 {
+  struct group grbuf;
   struct group *grp;
+  char buf[8192];
   const char *group;
+  int ret;
 
   group = (*env)->GetStringUTFChars(env,jgroup,NULL);
-  grp = getgrnam(group);
+  ret = getgrnam_r(group, &grbuf, buf, sizeof (buf), &grp);
   (*env)->ReleaseStringUTFChars(env, jgroup, group);
-  if (!grp) {
+  if (ret != 0 || !grp) {
     return(-1);
   }
   return((jint) grp->gr_gid);
@@ -355,16 +816,16 @@ JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getGroupId
 JNIEXPORT jstring JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getProjectName
   (JNIEnv *env, jobject jobj, jint projid)
 {
+  struct project projbuf;
   struct project *proj;
   jstring jpname;
-  ssize_t ret;
-  char pname[PROJNAME_MAX];
+  char buf[PROJECT_BUFSZ];
 
-  proj = getprojbyid((projid_t) projid, proj, pname, PROJNAME_MAX);
+  proj = getprojbyid((projid_t) projid, &projbuf, buf, sizeof (buf));
   if (!proj) {
     return(NULL);
   }
-  jpname = (*env)->NewStringUTF(env, pname);
+  jpname = (*env)->NewStringUTF(env, proj->pj_name);
   return(jpname);
 }
 
@@ -424,6 +885,472 @@ JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getZoneId
   return((jint) zoneid);
 }
 
+/*
+ * Records written into a direct ByteBuffer, to be decoded on the java
+ * side by ProcBuffer, avoiding any calls back into java. The layout is
+ * fixed, in native byte order, and must match the offsets defined in
+ * ProcBuffer.java.
+ */
+typedef struct jp_inforec {
+  int32_t pid;
+  int32_t ppid;
+  int32_t uid;
+  int32_t euid;
+  int32_t gid;
+  int32_t egid;
+  int32_t nlwp;
+  int32_t taskid;
+  int32_t projid;
+  int32_t zoneid;
+  int32_t contract;
+  int32_t pad;
+  int64_t size;
+  int64_t rssize;
+  int64_t stime;
+  int64_t etime;
+  int64_t ntime;
+  int64_t ectime;
+  int64_t nctime;
+  char fname[PRFNSZ];
+} jp_inforec_t;
+
+typedef struct jp_usagerec {
+  int32_t lwpid;
+  int32_t count;
+  int64_t rtime;
+  int64_t nrtime;
+  int64_t utime;
+  int64_t nutime;
+  int64_t stime;
+  int64_t nstime;
+  int64_t minf;
+  int64_t majf;
+  int64_t nswap;
+  int64_t inblk;
+  int64_t oublk;
+  int64_t msnd;
+  int64_t mrcv;
+  int64_t sigs;
+  int64_t vctx;
+  int64_t ictx;
+  int64_t sysc;
+  int64_t ioch;
+  int64_t ttime;
+  int64_t nttime;
+  int64_t tftime;
+  int64_t ntftime;
+  int64_t dftime;
+  int64_t ndftime;
+  int64_t kftime;
+  int64_t nkftime;
+  int64_t ltime;
+  int64_t nltime;
+  int64_t slptime;
+  int64_t nslptime;
+  int64_t wtime;
+  int64_t nwtime;
+  int64_t stoptime;
+  int64_t nstoptime;
+} jp_usagerec_t;
+
+static void
+jp_packinfo(jp_inforec_t *rec, psinfo_t *psi)
+{
+  rec->pid = psi->pr_pid;
+  rec->ppid = psi->pr_ppid;
+  rec->uid = psi->pr_uid;
+  rec->euid = psi->pr_euid;
+  rec->gid = psi->pr_gid;
+  rec->egid = psi->pr_egid;
+  rec->nlwp = psi->pr_nlwp;
+  rec->taskid = psi->pr_taskid;
+  rec->projid = psi->pr_projid;
+  rec->zoneid = psi->pr_zoneid;
+  rec->contract = psi->pr_contract;
+  rec->pad = 0;
+  rec->size = psi->pr_size;
+  rec->rssize = psi->pr_rssize;
+  rec->stime = psi->pr_start.tv_sec;
+  rec->etime = psi->pr_time.tv_sec;
+  rec->ntime = psi->pr_time.tv_nsec;
+  rec->ectime = psi->pr_ctime.tv_sec;
+  rec->nctime = psi->pr_ctime.tv_nsec;
+  (void) memcpy(rec->fname, psi->pr_fname, PRFNSZ);
+}
+
+static void
+jp_packusage(jp_usagerec_t *rec, prusage_t *pu)
+{
+  rec->lwpid = pu->pr_lwpid;
+  rec->count = pu->pr_count;
+  rec->rtime = pu->pr_rtime.tv_sec;
+  rec->nrtime = pu->pr_rtime.tv_nsec;
+  rec->utime = pu->pr_utime.tv_sec;
+  rec->nutime = pu->pr_utime.tv_nsec;
+  rec->stime = pu->pr_stime.tv_sec;
+  rec->nstime = pu->pr_stime.tv_nsec;
+  rec->minf = pu->pr_minf;
+  rec->majf = pu->pr_majf;
+  rec->nswap = pu->pr_nswap;
+  rec->inblk = pu->pr_inblk;
+  rec->oublk = pu->pr_oublk;
+  rec->msnd = pu->pr_msnd;
+  rec->mrcv = pu->pr_mrcv;
+  rec->sigs = pu->pr_sigs;
+  rec->vctx = pu->pr_vctx;
+  rec->ictx = pu->pr_ictx;
+  rec->sysc = pu->pr_sysc;
+  rec->ioch = pu->pr_ioch;
+  rec->ttime = pu->pr_ttime.tv_sec;
+  rec->nttime = pu->pr_ttime.tv_nsec;
+  rec->tftime = pu->pr_tftime.tv_sec;
+  rec->ntftime = pu->pr_tftime.tv_nsec;
+  rec->dftime = pu->pr_dftime.tv_sec;
+  rec->ndftime = pu->pr_dftime.tv_nsec;
+  rec->kftime = pu->pr_kftime.tv_sec;
+  rec->nkftime = pu->pr_kftime.tv_nsec;
+  rec->ltime = pu->pr_ltime.tv_sec;
+  rec->nltime = pu->pr_ltime.tv_nsec;
+  rec->slptime = pu->pr_slptime.tv_sec;
+  rec->nslptime = pu->pr_slptime.tv_nsec;
+  rec->wtime = pu->pr_wtime.tv_sec;
+  rec->nwtime = pu->pr_wtime.tv_nsec;
+  rec->stoptime = pu->pr_stoptime.tv_sec;
+  rec->nstoptime = pu->pr_stoptime.tv_nsec;
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readInfoAll
+ * Signature: (Ljava/nio/ByteBuffer;)I
+ *
+ * Walks /proc, writing a psinfo record for each process into the given
+ * direct buffer. Returns the number of records written, or -2 if the
+ * buffer is too small to hold them all.
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readInfoAll
+  (JNIEnv *env, jobject jobj, jobject jbuf)
+{
+  struct psinfo psi;
+  struct dirent *dent;
+  DIR *dirp;
+  jp_inforec_t *recs;
+  jlong maxrec;
+  jint nrec = 0;
+
+  recs = (*env)->GetDirectBufferAddress(env, jbuf);
+  maxrec = (*env)->GetDirectBufferCapacity(env, jbuf) / sizeof(jp_inforec_t);
+  if (recs == NULL) {
+    return(-2);
+  }
+  if ((dirp = opendir("/proc")) == NULL) {
+    return(0);
+  }
+  while ((dent = readdir(dirp)) != NULL) {
+    if (dent->d_name[0] < '0' || dent->d_name[0] > '9') {
+      continue;
+    }
+    if (jp_readinfo(atoi(dent->d_name), &psi) != 0) {
+      continue;
+    }
+    if (nrec == maxrec) {
+      closedir(dirp);
+      return(-2);
+    }
+    jp_packinfo(&recs[nrec++], &psi);
+  }
+  closedir(dirp);
+  return(nrec);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readInfo
+ * Signature: (ILjava/nio/ByteBuffer;)I
+ *
+ * Writes a single psinfo record for the given process into the given
+ * direct buffer. Returns 1, -1 if the process does not exist, or -2 if
+ * the buffer is too small.
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readInfo
+  (JNIEnv *env, jobject jobj, jint pid, jobject jbuf)
+{
+  struct psinfo psi;
+  jp_inforec_t *rec;
+
+  rec = (*env)->GetDirectBufferAddress(env, jbuf);
+  if (rec == NULL ||
+      (*env)->GetDirectBufferCapacity(env, jbuf) < sizeof(jp_inforec_t)) {
+    return(-2);
+  }
+  if (jp_cachedread(JP_FD_PSINFO, pid, 0, &psi, sizeof(psinfo_t)) != 0) {
+    return(-1);
+  }
+  jp_packinfo(rec, &psi);
+  return(1);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readUsage
+ * Signature: (ILjava/nio/ByteBuffer;)I
+ *
+ * Writes a single usage record for the given process into the given
+ * direct buffer. Returns 1, -1 if the process does not exist, or -2 if
+ * the buffer is too small.
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readUsage
+  (JNIEnv *env, jobject jobj, jint pid, jobject jbuf)
+{
+  struct prusage pu;
+  jp_usagerec_t *rec;
+
+  rec = (*env)->GetDirectBufferAddress(env, jbuf);
+  if (rec == NULL ||
+      (*env)->GetDirectBufferCapacity(env, jbuf) < sizeof(jp_usagerec_t)) {
+    return(-2);
+  }
+  if (jp_cachedread(JP_FD_USAGE, pid, 0, &pu, sizeof(prusage_t)) != 0) {
+    return(-1);
+  }
+  jp_packusage(rec, &pu);
+  return(1);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readLwpUsageAll
+ * Signature: (ILjava/nio/ByteBuffer;)I
+ *
+ * Reads /proc/pid/lusage, writing a usage record for each lwp into the
+ * given direct buffer. Returns the number of records written, -1 if the
+ * process does not exist, or -2 if the buffer is too small.
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readLwpUsageAll
+  (JNIEnv *env, jobject jobj, jint pid, jobject jbuf)
+{
+  prheader_t *hdr;
+  jp_usagerec_t *recs;
+  jlong maxrec;
+  char *entp;
+  char filename[24];
+  int i;
+
+  recs = (*env)->GetDirectBufferAddress(env, jbuf);
+  maxrec = (*env)->GetDirectBufferCapacity(env, jbuf) / sizeof(jp_usagerec_t);
+  if (recs == NULL) {
+    return(-2);
+  }
+  sprintf(filename, "/proc/%i/lusage", pid);
+  if ((hdr = jp_readlwparray(filename)) == NULL) {
+    return(-1);
+  }
+  if (hdr->pr_nent - 1 > maxrec) {
+    free(hdr);
+    return(-2);
+  }
+  /* skip the leading entry, which is the total for defunct lwps */
+  entp = (char *)(hdr + 1) + hdr->pr_entsize;
+  for (i = 1; i < hdr->pr_nent; i++) {
+    jp_packusage(&recs[i - 1], (prusage_t *)entp);
+    entp += hdr->pr_entsize;
+  }
+  i = hdr->pr_nent > 0 ? hdr->pr_nent - 1 : 0;
+  free(hdr);
+  return(i);
+}
+
+/*
+ * Check that from and to give a valid range of the given array of pids.
+ * Returns 0 if so, otherwise -1 with an exception pending.
+ */
+static int
+jp_checkrange(JNIEnv *env, jintArray jpids, jint from, jint to)
+{
+  jclass eclass;
+
+  if (jpids == NULL) {
+    eclass = (*env)->FindClass(env, "java/lang/NullPointerException");
+  } else if (from < 0 || from > to ||
+	     to > (*env)->GetArrayLength(env, jpids)) {
+    eclass = (*env)->FindClass(env,
+		"java/lang/ArrayIndexOutOfBoundsException");
+  } else {
+    return(0);
+  }
+  if (eclass != NULL) {
+    (*env)->ThrowNew(env, eclass, "invalid range of pids");
+  }
+  return(-1);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readInfoPids
+ * Signature: ([IIILjava/nio/ByteBuffer;)I
+ *
+ * Writes a psinfo record for each of pids[from] to pids[to - 1] into the
+ * given direct buffer, skipping processes that no longer exist. Returns
+ * the number of records written, -2 if the buffer is too small, or -1
+ * with an exception pending if the range is invalid. The files are read
+ * without going through the descriptor cache, so that several threads
+ * can do this at once without contention.
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readInfoPids
+  (JNIEnv *env, jobject jobj, jintArray jpids, jint from, jint to,
+   jobject jbuf)
+{
+  struct psinfo psi;
+  jp_inforec_t *recs;
+  jint *pids;
+  jint nrec = 0;
+  int i;
+
+  if (jp_checkrange(env, jpids, from, to) != 0) {
+    return(-1);
+  }
+  if (to == from) {
+    return(0);
+  }
+  recs = (*env)->GetDirectBufferAddress(env, jbuf);
+  if (recs == NULL || (*env)->GetDirectBufferCapacity(env, jbuf) <
+      (jlong) (to - from) * sizeof(jp_inforec_t)) {
+    return(-2);
+  }
+  if ((pids = malloc((to - from) * sizeof(jint))) == NULL) {
+    return(0);
+  }
+  (*env)->GetIntArrayRegion(env, jpids, from, to - from, pids);
+  if ((*env)->ExceptionCheck(env)) {
+    free(pids);
+    return(-1);
+  }
+  for (i = 0; i < to - from; i++) {
+    if (jp_readinfo(pids[i], &psi) == 0) {
+      jp_packinfo(&recs[nrec++], &psi);
+    }
+  }
+  free(pids);
+  return(nrec);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readUsagePids
+ * Signature: ([IIILjava/nio/ByteBuffer;)I
+ *
+ * Writes a usage record for each of pids[from] to pids[to - 1] into the
+ * given direct buffer, in order. The record for a process that no longer
+ * exists has a count of -1. Returns the number of records written, -2 if
+ * the buffer is too small, or -1 with an exception pending if the range
+ * is invalid. As for readInfoPids, the descriptor cache is not used.
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readUsagePids
+  (JNIEnv *env, jobject jobj, jintArray jpids, jint from, jint to,
+   jobject jbuf)
+{
+  struct prusage pu;
+  jp_usagerec_t *recs;
+  jint *pids;
+  int i;
+
+  if (jp_checkrange(env, jpids, from, to) != 0) {
+    return(-1);
+  }
+  if (to == from) {
+    return(0);
+  }
+  recs = (*env)->GetDirectBufferAddress(env, jbuf);
+  if (recs == NULL || (*env)->GetDirectBufferCapacity(env, jbuf) <
+      (jlong) (to - from) * sizeof(jp_usagerec_t)) {
+    return(-2);
+  }
+  if ((pids = malloc((to - from) * sizeof(jint))) == NULL) {
+    return(0);
+  }
+  (*env)->GetIntArrayRegion(env, jpids, from, to - from, pids);
+  if ((*env)->ExceptionCheck(env)) {
+    free(pids);
+    return(-1);
+  }
+  for (i = 0; i < to - from; i++) {
+    if (jp_readusage(pids[i], &pu) == 0) {
+      jp_packusage(&recs[i], &pu);
+    } else {
+      (void) memset(&recs[i], 0, sizeof(jp_usagerec_t));
+      recs[i].count = -1;
+    }
+  }
+  free(pids);
+  return(to - from);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    watch
+ * Signature: (I)V
+ *
+ * Marks the given process as watched, so that its files are cached. If
+ * the watched list is full the process simply isn't cached.
+ */
+JNIEXPORT void JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_watch
+  (JNIEnv *env, jobject jobj, jint pid)
+{
+  pthread_mutex_lock(&jp_fdlock);
+  if (jp_watchindex(pid) < 0 && jp_nwatched < JP_WATCH_SIZE) {
+    jp_watched[jp_nwatched] = pid;
+    jp_nwatched++;
+  }
+  pthread_mutex_unlock(&jp_fdlock);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    release
+ * Signature: (I)V
+ *
+ * Stops watching the given process, and closes any cached file
+ * descriptors belonging to it.
+ */
+JNIEXPORT void JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_release
+  (JNIEnv *env, jobject jobj, jint pid)
+{
+  int i;
+
+  pthread_mutex_lock(&jp_fdlock);
+  if ((i = jp_watchindex(pid)) >= 0) {
+    jp_watched[i] = jp_watched[--jp_nwatched];
+  }
+  i = 0;
+  while (i < jp_fdcount) {
+    if (jp_fdcache[i].pid == pid) {
+      /* eviction moves the last entry here, so don't advance */
+      jp_fdevict(i);
+    } else {
+      i++;
+    }
+  }
+  pthread_mutex_unlock(&jp_fdlock);
+}
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    close
+ * Signature: ()V
+ *
+ * Stops watching all processes, and closes all cached file descriptors.
+ */
+JNIEXPORT void JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_close
+  (JNIEnv *env, jobject jobj)
+{
+  pthread_mutex_lock(&jp_fdlock);
+  jp_nwatched = 0;
+  while (jp_fdcount > 0) {
+    jp_fdevict(jp_fdcount - 1);
+  }
+  pthread_mutex_unlock(&jp_fdlock);
+}
+
 /*
  * Class:     uk_co_petertribble_jproc_api_NativeJProc
  * Method:    cacheids
@@ -451,6 +1378,8 @@ JNIEXPORT void JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_cacheids
   jpu_constructor_mid = (*env)->GetMethodID(env, jpu_class, "<init>", "()V");
   jpu_insert_mid = (*env)->GetMethodID(env, jpu_class, "insert",
 				       "(IIJJJJJJJJJJJJJJJJJJ)V");
+  jpu_insertms_mid = (*env)->GetMethodID(env, jpu_class, "insertMicrostates",
+				       "(JJJJJJJJJJJJJJJJ)V");
 
   class_lref = (*env)->FindClass(env, "uk/co/petertribble/jproc/api/JProcStatus");
   jps_class = (*env)->NewGlobalRef(env, class_lref);
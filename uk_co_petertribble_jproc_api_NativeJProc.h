@@ -14,7 +14,7 @@
  *
  * CDDL HEADER END
  *
- * Copyright 2025 Peter Tribble
+ * Copyright 2026 Peter Tribble
  *
  */
 
@@ -139,6 +139,126 @@ JNIEXPORT jstring JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getZoneN
 JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getZoneId
   (JNIEnv *, jobject, jstring);
 
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    getInfoAll
+ * Signature: ()[Luk/co/petertribble/jproc/api/JProcInfo;
+ */
+JNIEXPORT jobjectArray JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getInfoAll
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    fillInfo
+ * Signature: (ILuk/co/petertribble/jproc/api/JProcInfo;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_fillInfo
+  (JNIEnv *, jobject, jint, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    fillUsage
+ * Signature: (ILuk/co/petertribble/jproc/api/JProcUsage;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_fillUsage
+  (JNIEnv *, jobject, jint, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    fillLwpUsage
+ * Signature: (IILuk/co/petertribble/jproc/api/JProcUsage;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_fillLwpUsage
+  (JNIEnv *, jobject, jint, jint, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    getLwpUsageAll
+ * Signature: (I)[Luk/co/petertribble/jproc/api/JProcUsage;
+ */
+JNIEXPORT jobjectArray JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getLwpUsageAll
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    getLwpInfoAll
+ * Signature: (I)[Luk/co/petertribble/jproc/api/JProcLwpInfo;
+ */
+JNIEXPORT jobjectArray JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_getLwpInfoAll
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readInfoAll
+ * Signature: (Ljava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readInfoAll
+  (JNIEnv *, jobject, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readInfo
+ * Signature: (ILjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readInfo
+  (JNIEnv *, jobject, jint, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readUsage
+ * Signature: (ILjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readUsage
+  (JNIEnv *, jobject, jint, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readLwpUsageAll
+ * Signature: (ILjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readLwpUsageAll
+  (JNIEnv *, jobject, jint, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readInfoPids
+ * Signature: ([IIILjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readInfoPids
+  (JNIEnv *, jobject, jintArray, jint, jint, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    readUsagePids
+ * Signature: ([IIILjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_readUsagePids
+  (JNIEnv *, jobject, jintArray, jint, jint, jobject);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    watch
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_watch
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    release
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_release
+  (JNIEnv *, jobject, jint);
+
+/*
+ * Class:     uk_co_petertribble_jproc_api_NativeJProc
+ * Method:    close
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_uk_co_petertribble_jproc_api_NativeJProc_close
+  (JNIEnv *, jobject);
+
 /*
  * Class:     uk_co_petertribble_jproc_api_NativeJProc
  * Method:    cacheids